@@ -0,0 +1,28 @@
+const githubRateLimitFixtures = {
+  twoBudgets: [
+    {
+      installationId: "1234",
+      resource: "core",
+      limit: 5000,
+      remaining: 12,
+      used: 4988,
+      resetAt: "2024-05-23T09:00:00Z",
+      pausedUntil: "2024-05-23T08:01:00Z",
+      throttledRequests: 3,
+      rateLimitedResponses: 1,
+    },
+    {
+      installationId: "app",
+      resource: "core",
+      limit: null,
+      remaining: null,
+      used: null,
+      resetAt: null,
+      pausedUntil: null,
+      throttledRequests: 0,
+      rateLimitedResponses: 0,
+    },
+  ],
+};
+
+export { githubRateLimitFixtures };
@@ -0,0 +1,44 @@
+import React from "react";
+import OurTable from "main/components/OurTable";
+import { formatTime } from "main/utils/dateUtils";
+
+export default function GithubRateLimitsTable({ rateLimits }) {
+  const columns = [
+    {
+      header: "Installation",
+      accessorKey: "installationId",
+    },
+    {
+      header: "Resource",
+      accessorKey: "resource",
+    },
+    {
+      header: "Remaining",
+      accessorFn: (row) =>
+        row.remaining == null ? "" : `${row.remaining} / ${row.limit}`,
+      id: "remaining",
+    },
+    {
+      header: "Resets",
+      accessorFn: (row) => formatTime(row.resetAt),
+      id: "resetAt",
+    },
+    {
+      header: "Paused Until",
+      accessorFn: (row) => formatTime(row.pausedUntil),
+      id: "pausedUntil",
+    },
+    {
+      header: "Throttled Requests",
+      accessorKey: "throttledRequests",
+    },
+    {
+      header: "Rate Limited Responses",
+      accessorKey: "rateLimitedResponses",
+    },
+  ];
+
+  const testid = "GithubRateLimitsTable";
+
+  return <OurTable data={rateLimits} columns={columns} testid={testid} />;
+}
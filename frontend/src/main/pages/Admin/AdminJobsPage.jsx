@@ -1,6 +1,7 @@
 import React from "react";
 import BasicLayout from "main/layouts/BasicLayout/BasicLayout";
 import JobsTable from "main/components/Jobs/JobsTable";
+import GithubRateLimitsTable from "main/components/Jobs/GithubRateLimitsTable";
 import { useBackend } from "main/utils/useBackend";
 import { Button } from "react-bootstrap";
 import Accordion from "react-bootstrap/Accordion";
@@ -39,6 +40,22 @@ export default function AdminJobsPage() {
     auditAllCoursesJobMutation.mutate();
   };
 
+  // BackfillGithubOrgIds job
+  const objectToAxiosParamsBackfillGithubOrgIdsJob = () => ({
+    url: "/api/jobs/launch/backfillGithubOrgIds",
+    method: "POST",
+  });
+
+  const backfillGithubOrgIdsJobMutation = useBackendMutation(
+    objectToAxiosParamsBackfillGithubOrgIdsJob,
+    {},
+    ["/api/jobs/all"],
+  );
+
+  const submitBackfillGithubOrgIdsJob = async () => {
+    backfillGithubOrgIdsJobMutation.mutate();
+  };
+
   // purge job
   const objectToAxiosParamsPurgeJobLog = () => ({
     url: "/api/jobs/all",
@@ -65,6 +82,16 @@ export default function AdminJobsPage() {
     [],
   );
 
+  const { data: githubRateLimits } = useBackend(
+    ["/api/jobs/githubRateLimits"],
+    {
+      //Stryker disable next-line StringLiteral: axios default is GET
+      method: "GET",
+      url: "/api/jobs/githubRateLimits",
+    },
+    [],
+  );
+
   const jobLaunchers = [
     {
       name: "Update All Users",
@@ -86,6 +113,16 @@ export default function AdminJobsPage() {
         />
       ),
     },
+    {
+      name: "Backfill GitHub Org IDs",
+      form: (
+        <SingleButtonJobForm
+          callback={submitBackfillGithubOrgIdsJob}
+          text={"Start"}
+          testid={"backfillGithubOrgIdsJob"}
+        />
+      ),
+    },
   ];
 
   return (
@@ -99,6 +136,8 @@ export default function AdminJobsPage() {
           </Accordion.Item>
         ))}
       </Accordion>
+      <h2 className="p-3">GitHub Rate Limits</h2>
+      <GithubRateLimitsTable rateLimits={githubRateLimits} />
       <h2 className="p-3">Job Status</h2>
       <JobsTable jobs={jobs} />
       <Button variant="danger" onClick={purgeJobLog} data-testid="purgeJobLog">
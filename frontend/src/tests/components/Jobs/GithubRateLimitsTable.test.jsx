@@ -0,0 +1,73 @@
+import { render, screen } from "@testing-library/react";
+import GithubRateLimitsTable from "main/components/Jobs/GithubRateLimitsTable";
+import { githubRateLimitFixtures } from "fixtures/githubRateLimitFixtures";
+import { formatTime } from "main/utils/dateUtils";
+import { vi } from "vitest";
+
+vi.mock("main/utils/dateUtils", () => ({
+  formatTime: vi.fn(),
+}));
+
+describe("GithubRateLimitsTable tests", () => {
+  const testId = "GithubRateLimitsTable";
+
+  beforeEach(() => {
+    formatTime.mockReset();
+    formatTime.mockImplementation((timestamp) =>
+      timestamp ? `formatted ${timestamp}` : "",
+    );
+  });
+
+  test("renders without crashing for empty table", () => {
+    render(<GithubRateLimitsTable rateLimits={[]} />);
+
+    expect(screen.getByText("Installation")).toBeInTheDocument();
+    expect(screen.getByText("Resource")).toBeInTheDocument();
+    expect(screen.getByText("Remaining")).toBeInTheDocument();
+    expect(screen.getByText("Resets")).toBeInTheDocument();
+    expect(screen.getByText("Paused Until")).toBeInTheDocument();
+    expect(screen.getByText("Throttled Requests")).toBeInTheDocument();
+    expect(screen.getByText("Rate Limited Responses")).toBeInTheDocument();
+  });
+
+  test("renders rate limit budgets", () => {
+    render(
+      <GithubRateLimitsTable rateLimits={githubRateLimitFixtures.twoBudgets} />,
+    );
+
+    expect(
+      screen.getByTestId(`${testId}-cell-row-0-col-installationId`),
+    ).toHaveTextContent("1234");
+    expect(
+      screen.getByTestId(`${testId}-cell-row-0-col-resource`),
+    ).toHaveTextContent("core");
+    expect(
+      screen.getByTestId(`${testId}-cell-row-0-col-remaining`),
+    ).toHaveTextContent("12 / 5000");
+    expect(
+      screen.getByTestId(`${testId}-cell-row-0-col-resetAt`),
+    ).toHaveTextContent("formatted 2024-05-23T09:00:00Z");
+    expect(
+      screen.getByTestId(`${testId}-cell-row-0-col-pausedUntil`),
+    ).toHaveTextContent("formatted 2024-05-23T08:01:00Z");
+    expect(
+      screen.getByTestId(`${testId}-cell-row-0-col-throttledRequests`),
+    ).toHaveTextContent("3");
+    expect(
+      screen.getByTestId(`${testId}-cell-row-0-col-rateLimitedResponses`),
+    ).toHaveTextContent("1");
+
+    expect(
+      screen.getByTestId(`${testId}-cell-row-1-col-installationId`),
+    ).toHaveTextContent("app");
+    expect(
+      screen.getByTestId(`${testId}-cell-row-1-col-remaining`),
+    ).toBeEmptyDOMElement();
+    expect(
+      screen.getByTestId(`${testId}-cell-row-1-col-resetAt`),
+    ).toBeEmptyDOMElement();
+    expect(
+      screen.getByTestId(`${testId}-cell-row-1-col-pausedUntil`),
+    ).toBeEmptyDOMElement();
+  });
+});
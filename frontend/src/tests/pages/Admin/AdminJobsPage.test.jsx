@@ -4,6 +4,7 @@ import { MemoryRouter } from "react-router";
 import AdminJobsPage from "main/pages/Admin/AdminJobsPage";
 import { apiCurrentUserFixtures } from "fixtures/currentUserFixtures";
 import { systemInfoFixtures } from "fixtures/systemInfoFixtures";
+import { githubRateLimitFixtures } from "fixtures/githubRateLimitFixtures";
 import axios from "axios";
 import AxiosMockAdapter from "axios-mock-adapter";
 
@@ -21,6 +22,7 @@ describe("AdminJobsPage tests", () => {
     axiosMock
       .onGet("/api/systemInfo")
       .reply(200, systemInfoFixtures.showingNeither);
+    axiosMock.onGet("/api/jobs/githubRateLimits").reply(200, []);
   });
 
   test("renders without crashing", async () => {
@@ -40,6 +42,34 @@ describe("AdminJobsPage tests", () => {
     expect(queryClient.getQueryData(["/api/jobs/all"])).toEqual([]);
   });
 
+  test("renders GitHub rate limits", async () => {
+    axiosMock.onGet("/api/jobs/all").reply(200, []);
+    axiosMock
+      .onGet("/api/jobs/githubRateLimits")
+      .reply(200, githubRateLimitFixtures.twoBudgets);
+
+    render(
+      <QueryClientProvider client={queryClient}>
+        <MemoryRouter>
+          <AdminJobsPage />
+        </MemoryRouter>
+      </QueryClientProvider>,
+    );
+
+    expect(await screen.findByText("GitHub Rate Limits")).toBeInTheDocument();
+    expect(
+      await screen.findByTestId(
+        "GithubRateLimitsTable-cell-row-0-col-installationId",
+      ),
+    ).toHaveTextContent("1234");
+    expect(
+      screen.getByTestId("GithubRateLimitsTable-cell-row-0-col-remaining"),
+    ).toHaveTextContent("12 / 5000");
+    expect(queryClient.getQueryData(["/api/jobs/githubRateLimits"])).toEqual(
+      githubRateLimitFixtures.twoBudgets,
+    );
+  });
+
   test("renders job launchers correctly", async () => {
     axiosMock.onGet("/api/jobs/all").reply(200, []);
 
@@ -53,6 +83,7 @@ describe("AdminJobsPage tests", () => {
 
     await screen.findByText("Update All Users");
     expect(screen.getByText("Audit All Courses")).toBeInTheDocument();
+    expect(screen.getByText("Backfill GitHub Org IDs")).toBeInTheDocument();
   });
 
   test("renders job table with data", async () => {
@@ -179,6 +210,47 @@ describe("AdminJobsPage tests", () => {
     ).toBe(updateAllUpdateCount + 1);
   });
 
+  test("clicking Backfill GitHub Org IDs button calls the correct API", async () => {
+    axiosMock.onGet("/api/jobs/all").reply(200, []);
+    axiosMock.onPost("/api/jobs/launch/backfillGithubOrgIds").reply(200, {
+      id: 3,
+      status: "running",
+    });
+    const queryClientSpecific = new QueryClient({
+      defaultOptions: {
+        queries: {
+          retry: false,
+          staleTime: Infinity,
+        },
+      },
+    });
+
+    render(
+      <QueryClientProvider client={queryClientSpecific}>
+        <MemoryRouter>
+          <AdminJobsPage />
+        </MemoryRouter>
+      </QueryClientProvider>,
+    );
+
+    const jobsUpdateCount = queryClientSpecific.getQueryState([
+      "/api/jobs/all",
+    ]).dataUpdateCount;
+    const backfillButton = await screen.findByTestId(
+      "backfillGithubOrgIdsJob-job-submit",
+    );
+    expect(backfillButton).toHaveTextContent("Start");
+    fireEvent.click(backfillButton);
+
+    await waitFor(() => expect(axiosMock.history.post.length).toBe(1));
+    expect(axiosMock.history.post[0].url).toBe(
+      "/api/jobs/launch/backfillGithubOrgIds",
+    );
+    expect(
+      queryClientSpecific.getQueryState(["/api/jobs/all"]).dataUpdateCount,
+    ).toBe(jobsUpdateCount + 1);
+  });
+
   test("clicking Purge Job Log button calls the correct API", async () => {
     axiosMock.onGet("/api/jobs/all").reply(200, []);
     axiosMock.onDelete("/api/jobs/all").reply(200, {
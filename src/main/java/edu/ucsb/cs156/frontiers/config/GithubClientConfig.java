@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.frontiers.config;
+
+import edu.ucsb.cs156.frontiers.services.GithubEtagCache;
+import edu.ucsb.cs156.frontiers.services.GithubRateLimitGovernor;
+import io.netty.channel.ChannelOption;
+import io.netty.resolver.DefaultAddressResolverGroup;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Configures the single HTTP client that every service talking to the GitHub REST API shares.
+ *
+ * <p>The client is backed by Reactor Netty so that connections to api.github.com are pooled and
+ * kept alive between calls, HTTP/2 is negotiated when GitHub offers it (multiplexing concurrent
+ * requests over one connection), and gzip responses are decoded transparently. Pool and client
+ * metrics are published to Micrometer under the <code>reactor.netty.connection.provider</code> and
+ * <code>reactor.netty.http.client</code> prefixes.
+ *
+ * <p>Every request passes through the {@link GithubRateLimitGovernor}, which paces requests per app
+ * installation to stay inside GitHub's rate limits.
+ *
+ * <p>All settings can be overridden with the <code>app.github.client.*</code> properties.
+ */
+@Configuration
+public class GithubClientConfig {
+
+  @Value("${app.github.client.maxConnections:50}")
+  private int maxConnections;
+
+  @Value("${app.github.client.pendingAcquireTimeout:PT30S}")
+  private Duration pendingAcquireTimeout;
+
+  @Value("${app.github.client.maxIdleTime:PT60S}")
+  private Duration maxIdleTime;
+
+  @Value("${app.github.client.maxLifeTime:PT10M}")
+  private Duration maxLifeTime;
+
+  @Value("${app.github.client.connectTimeout:PT5S}")
+  private Duration connectTimeout;
+
+  @Value("${app.github.client.readTimeout:PT30S}")
+  private Duration readTimeout;
+
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider githubConnectionProvider() {
+    return ConnectionProvider.builder("github")
+        .maxConnections(maxConnections)
+        .pendingAcquireTimeout(pendingAcquireTimeout)
+        .maxIdleTime(maxIdleTime)
+        .maxLifeTime(maxLifeTime)
+        .evictInBackground(maxIdleTime)
+        .metrics(true)
+        .build();
+  }
+
+  @Bean
+  public ClientHttpRequestFactory githubClientHttpRequestFactory(
+      ConnectionProvider githubConnectionProvider) {
+    HttpClient httpClient =
+        HttpClient.create(githubConnectionProvider)
+            .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+            .secure()
+            .compress(true)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .responseTimeout(readTimeout)
+            // Resolve hosts with the JDK, as the previous HTTP clients did, so that the operating
+            // system's resolver configuration is honored
+            .resolver(DefaultAddressResolverGroup.INSTANCE)
+            // Tag metrics by host only; per-URI tags would create a meter per team and repository
+            .metrics(true, uri -> "github");
+    return new ReactorClientHttpRequestFactory(httpClient);
+  }
+
+  @Bean
+  public RestTemplate githubRestTemplate(
+      RestTemplateBuilder restTemplateBuilder,
+      ClientHttpRequestFactory githubClientHttpRequestFactory,
+      GithubEtagCache githubEtagCache,
+      GithubRateLimitGovernor githubRateLimitGovernor) {
+    // The governor retries rate limited requests, so it must stay the last interceptor
+    return restTemplateBuilder
+        .requestFactory(() -> githubClientHttpRequestFactory)
+        .additionalInterceptors(githubEtagCache, githubRateLimitGovernor)
+        .build();
+  }
+}
@@ -11,6 +11,7 @@ import edu.ucsb.cs156.frontiers.errors.EntityNotFoundException;
 import edu.ucsb.cs156.frontiers.errors.InvalidInstallationTypeException;
 import edu.ucsb.cs156.frontiers.models.CourseWarning;
 import edu.ucsb.cs156.frontiers.models.CurrentUser;
+import edu.ucsb.cs156.frontiers.models.GithubOrganization;
 import edu.ucsb.cs156.frontiers.repositories.AdminRepository;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.CourseStaffRepository;
@@ -270,9 +271,10 @@ public class CoursesController extends ApiController {
           && !course.getInstructorEmail().equals(getCurrentUser().getUser().getEmail())) {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
       } else {
-        String orgName = linkerService.getOrgName(installation_id.get());
+        GithubOrganization organization = linkerService.getOrganization(installation_id.get());
         course.setInstallationId(installation_id.get());
-        course.setOrgName(orgName);
+        course.setOrgName(organization.login());
+        course.setGithubOrgId(organization.id());
         course
             .getRosterStudents()
             .forEach(
@@ -4,15 +4,19 @@ import com.opencsv.bean.StatefulBeanToCsv;
 import com.opencsv.bean.StatefulBeanToCsvBuilder;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
-import edu.ucsb.cs156.frontiers.entities.DownloadedCommit;
 import edu.ucsb.cs156.frontiers.entities.Job;
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
 import edu.ucsb.cs156.frontiers.enums.DownloadRequestType;
 import edu.ucsb.cs156.frontiers.errors.EntityNotFoundException;
+import edu.ucsb.cs156.frontiers.errors.NoLinkedOrganizationException;
 import edu.ucsb.cs156.frontiers.jobs.CommitDownloadRequestJob;
+import edu.ucsb.cs156.frontiers.jobs.OrgCommitDownloadJob;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestCommitRepository;
 import edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository;
-import edu.ucsb.cs156.frontiers.repositories.DownloadedCommitRepository;
 import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.RepositoryService;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -21,6 +25,7 @@ import java.io.OutputStreamWriter;
 import java.time.Instant;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
@@ -42,25 +47,38 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class DownloadRequestController extends ApiController {
 
-  private final DownloadedCommitRepository downloadedCommitRepository;
+  private final DownloadRequestCommitRepository downloadRequestCommitRepository;
   private final DownloadRequestRepository downloadRequestRepository;
   private final CourseRepository courseRepository;
   private final JobService jobService;
   private final GithubGraphQLService githubGraphQLService;
+  private final RepositoryService repositoryService;
+
+  /** Number of repositories an org-wide download fetches at the same time. */
+  @Value("${app.jobs.orgCommitDownload.parallelism:8}")
+  private int orgCommitDownloadParallelism;
 
   public DownloadRequestController(
-      DownloadedCommitRepository downloadedCommitRepository,
+      DownloadRequestCommitRepository downloadRequestCommitRepository,
       DownloadRequestRepository downloadRequestRepository,
       CourseRepository courseRepository,
       JobService jobService,
-      GithubGraphQLService githubGraphQLService) {
-    this.downloadedCommitRepository = downloadedCommitRepository;
+      GithubGraphQLService githubGraphQLService,
+      RepositoryService repositoryService) {
+    this.downloadRequestCommitRepository = downloadRequestCommitRepository;
     this.downloadRequestRepository = downloadRequestRepository;
     this.courseRepository = courseRepository;
     this.jobService = jobService;
     this.githubGraphQLService = githubGraphQLService;
+    this.repositoryService = repositoryService;
   }
 
+  /**
+   * Creates a download request and starts the job that downloads it. For {@link
+   * DownloadRequestType#ORG_COMMITS} requests, <code>repo</code> is the prefix of the names of the
+   * repositories to download, which are looked up in the course's org; <code>org</code> must name
+   * that org.
+   */
   @PostMapping("/create")
   @PreAuthorize("@CourseSecurity.hasManagePermissions(#root, #courseId)")
   public ResponseEntity<DownloadRequest> createDownloadRequest(
@@ -70,12 +88,26 @@ public class DownloadRequestController extends ApiController {
       @RequestParam(required = false) String branch,
       @RequestParam DownloadRequestType type,
       @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) Instant startDate,
-      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) Instant endDate) {
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) Instant endDate,
+      @RequestParam(defaultValue = "false") boolean incremental,
+      @RequestParam(defaultValue = "false") boolean sharded) {
 
     Course course =
         courseRepository
             .findById(courseId)
             .orElseThrow(() -> new EntityNotFoundException(Course.class, courseId));
+    if (type == DownloadRequestType.ORG_COMMITS) {
+      if (course.getOrgName() == null || course.getInstallationId() == null) {
+        throw new NoLinkedOrganizationException(course.getCourseName());
+      }
+      if (!course.getOrgName().equalsIgnoreCase(org)) {
+        throw new IllegalArgumentException(
+            "Repositories matching a prefix can only be downloaded from the course's organization, %s."
+                .formatted(course.getOrgName()));
+      }
+      // Stored as the course spells it, so that its commits are stored under the same org
+      org = course.getOrgName();
+    }
     DownloadRequest request =
         DownloadRequest.builder()
             .course(course)
@@ -84,6 +116,8 @@ public class DownloadRequestController extends ApiController {
             .downloadType(type)
             .startDate(startDate)
             .endDate(endDate)
+            .incremental(incremental)
+            .sharded(sharded)
             .build();
 
     if (branch != null) {
@@ -92,19 +126,52 @@ public class DownloadRequestController extends ApiController {
 
     request = downloadRequestRepository.save(request);
 
-    CommitDownloadRequestJob job =
-        CommitDownloadRequestJob.builder()
-            .request(request)
-            .githubService(githubGraphQLService)
-            .build();
-
-    Job startedJob = jobService.runAsJob(job);
+    Job startedJob = jobService.runAsJob(downloadJob(request));
 
     request.setJob(startedJob);
 
     return ResponseEntity.status(HttpStatus.ACCEPTED).body(downloadRequestRepository.save(request));
   }
 
+  /**
+   * Restarts a download request whose job failed. Commits that were already saved are kept, and the
+   * download continues after the last of them.
+   */
+  @PostMapping("{downloadRequestId}/resume")
+  @PreAuthorize("@CourseSecurity.hasDownloadPermissions(#root, #downloadRequestId)")
+  public ResponseEntity<Object> resumeDownloadRequest(@PathVariable Long downloadRequestId) {
+    DownloadRequest request =
+        downloadRequestRepository
+            .findById(downloadRequestId)
+            .orElseThrow(
+                () -> new EntityNotFoundException(DownloadRequest.class, downloadRequestId));
+
+    if (!request.getJob().getStatus().equals("error")) {
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+          .body(Map.of("message", "Only a download request that failed can be resumed."));
+    }
+
+    request.setJob(jobService.runAsJob(downloadJob(request)));
+
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(downloadRequestRepository.save(request));
+  }
+
+  /** The job that downloads the commits of a request, depending on its type. */
+  private JobContextConsumer downloadJob(DownloadRequest request) {
+    if (request.getDownloadType() == DownloadRequestType.ORG_COMMITS) {
+      return OrgCommitDownloadJob.builder()
+          .request(request)
+          .githubService(githubGraphQLService)
+          .repositoryService(repositoryService)
+          .parallelism(orgCommitDownloadParallelism)
+          .build();
+    }
+    return CommitDownloadRequestJob.builder()
+        .request(request)
+        .githubService(githubGraphQLService)
+        .build();
+  }
+
   @PostMapping("{downloadRequestId}")
   @PreAuthorize("@CourseSecurity.hasDownloadPermissions(#root, #downloadRequestId)")
   public ResponseEntity<Object> getDownload(@PathVariable Long downloadRequestId) throws Exception {
@@ -129,9 +196,9 @@ public class DownloadRequestController extends ApiController {
 
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try (OutputStreamWriter writer = new OutputStreamWriter(baos)) {
-      StatefulBeanToCsv<DownloadedCommit> csvWriter =
-          new StatefulBeanToCsvBuilder<DownloadedCommit>(writer).build();
-      csvWriter.write(downloadedCommitRepository.findByRequest(request).iterator());
+      StatefulBeanToCsv<RepositoryCommit> csvWriter =
+          new StatefulBeanToCsvBuilder<RepositoryCommit>(writer).build();
+      csvWriter.write(downloadRequestCommitRepository.findCommitsByRequest(request).iterator());
     }
 
     HttpHeaders headers = new HttpHeaders();
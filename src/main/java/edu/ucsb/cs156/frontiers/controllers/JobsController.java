@@ -8,30 +8,39 @@ import edu.ucsb.cs156.frontiers.entities.Job;
 import edu.ucsb.cs156.frontiers.errors.EntityNotFoundException;
 import edu.ucsb.cs156.frontiers.jobs.AddTeamMemberToGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.AddTeamToGithubJob;
+import edu.ucsb.cs156.frontiers.jobs.BackfillGithubOrgIdsJob;
 import edu.ucsb.cs156.frontiers.jobs.DeleteTeamFromGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.DeleteTeamMemberFromGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.MembershipAuditJob;
 import edu.ucsb.cs156.frontiers.jobs.PullTeamsFromGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.PushTeamsToGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.UpdateAllJob;
+import edu.ucsb.cs156.frontiers.models.GithubRateLimitStatus;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.CourseStaffRepository;
 import edu.ucsb.cs156.frontiers.repositories.JobsRepository;
 import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubRateLimitGovernor;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
-import edu.ucsb.cs156.frontiers.services.OrganizationMemberService;
+import edu.ucsb.cs156.frontiers.services.OrganizationLinkerService;
 import edu.ucsb.cs156.frontiers.services.UpdateUserService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -54,11 +63,27 @@ public class JobsController extends ApiController {
   @Autowired ObjectMapper mapper;
   @Autowired private RosterStudentRepository rosterStudentRepository;
   @Autowired private CourseRepository courseRepository;
-  @Autowired private OrganizationMemberService organizationMemberService;
+  @Autowired private GithubGraphQLService githubGraphQLService;
   @Autowired private CourseStaffRepository courseStaffRepository;
   @Autowired private TeamRepository teamRepository;
   @Autowired private TeamMemberRepository teamMemberRepository;
   @Autowired private GithubTeamService githubTeamService;
+  @Autowired private GithubShadowService githubShadowService;
+  @Autowired private TransactionTemplate transactionTemplate;
+  @Autowired private GithubRateLimitGovernor githubRateLimitGovernor;
+  @Autowired private OrganizationLinkerService organizationLinkerService;
+
+  @Value("${app.jobs.pushTeamsToGithub.parallelism:8}")
+  private int pushTeamsParallelism;
+
+  @Value("${app.jobs.MembershipAuditJob.parallelism:4}")
+  private int membershipAuditParallelism;
+
+  @Value("${app.jobs.MembershipAuditJob.freshness:PT1H}")
+  private Duration membershipAuditFreshness;
+
+  @Value("${app.jobs.MembershipAuditJob.maxAuditInterval:P1D}")
+  private Duration membershipAuditMaxInterval;
 
   @Operation(summary = "List all jobs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -108,6 +133,13 @@ public class JobsController extends ApiController {
     return jobService.getJobLogs(id);
   }
 
+  @Operation(summary = "Get the GitHub rate limit budget of each app installation")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/githubRateLimits")
+  public List<GithubRateLimitStatus> githubRateLimits() {
+    return githubRateLimitGovernor.getStatus();
+  }
+
   @Operation(summary = "Launch UpdateAll job")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/launch/updateAll")
@@ -126,8 +158,26 @@ public class JobsController extends ApiController {
         MembershipAuditJob.builder()
             .rosterStudentRepository(rosterStudentRepository)
             .courseRepository(courseRepository)
-            .organizationMemberService(organizationMemberService)
+            .githubGraphQLService(githubGraphQLService)
+            .githubShadowService(githubShadowService)
             .courseStaffRepository(courseStaffRepository)
+            .transactionTemplate(transactionTemplate)
+            .parallelism(membershipAuditParallelism)
+            .freshness(membershipAuditFreshness)
+            .maxAuditInterval(membershipAuditMaxInterval)
+            .build();
+    return jobService.runAsJob(job);
+  }
+
+  @Operation(summary = "Launch Backfill GitHub Org IDs Job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/launch/backfillGithubOrgIds")
+  public Job launchBackfillGithubOrgIdsJob() {
+
+    BackfillGithubOrgIdsJob job =
+        BackfillGithubOrgIdsJob.builder()
+            .courseRepository(courseRepository)
+            .organizationLinkerService(organizationLinkerService)
             .build();
     return jobService.runAsJob(job);
   }
@@ -144,6 +194,8 @@ public class JobsController extends ApiController {
             .teamRepository(teamRepository)
             .teamMemberRepository(teamMemberRepository)
             .githubTeamService(githubTeamService)
+            .githubShadowService(githubShadowService)
+            .parallelism(pushTeamsParallelism)
             .build();
     return jobService.runAsJob(job);
   }
@@ -9,12 +9,14 @@ import edu.ucsb.cs156.frontiers.errors.NoLinkedOrganizationException;
 import edu.ucsb.cs156.frontiers.jobs.CreateStudentOrStaffRepositoriesJob;
 import edu.ucsb.cs156.frontiers.jobs.CreateTeamRepositoriesJob;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.RepositoryService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -34,6 +36,12 @@ public class RepositoryController extends ApiController {
 
   @Autowired GithubTeamService githubTeamService;
 
+  @Autowired GithubShadowService githubShadowService;
+
+  /** Number of student and staff repositories a createRepos job works on at once. */
+  @Value("${app.jobs.createRepositories.parallelism:8}")
+  private int createRepositoriesParallelism;
+
   /**
    * Fires a job that creates a repo for every RosterStudent with a linked user with a GitHub
    * account.
@@ -68,6 +76,7 @@ public class RepositoryController extends ApiController {
               .course(course)
               .permissions(permissions)
               .creationOption(creationOption)
+              .parallelism(createRepositoriesParallelism)
               .build();
       return jobService.runAsJob(job);
     }
@@ -103,6 +112,7 @@ public class RepositoryController extends ApiController {
               .isPrivate(isPrivate.orElse(false))
               .repositoryService(repositoryService)
               .githubTeamService(githubTeamService)
+              .githubShadowService(githubShadowService)
               .course(course)
               .permissions(permissions)
               .teamRegex(teamRegex.orElse(null))
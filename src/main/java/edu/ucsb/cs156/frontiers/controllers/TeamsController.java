@@ -12,6 +12,7 @@ import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -24,6 +25,7 @@ import java.io.InputStreamReader;
 import java.util.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -50,6 +52,11 @@ public class TeamsController extends ApiController {
 
   @Autowired private GithubTeamService githubTeamService;
 
+  @Autowired private GithubShadowService githubShadowService;
+
+  @Value("${app.jobs.pushTeamsToGithub.parallelism:8}")
+  private int pushTeamsParallelism;
+
   public record TeamMemberResult(
       TeamMember teamMember, TeamMemberStatus status, String rejectedEmail) {
     public TeamMemberResult(TeamMember teamMember, TeamMemberStatus status) {
@@ -416,6 +423,8 @@ public class TeamsController extends ApiController {
             .teamRepository(teamRepository)
             .teamMemberRepository(teamMemberRepository)
             .githubTeamService(githubTeamService)
+            .githubShadowService(githubShadowService)
+            .parallelism(pushTeamsParallelism)
             .build();
     jobService.runAsJob(pushTeamsToGithubJob);
   }
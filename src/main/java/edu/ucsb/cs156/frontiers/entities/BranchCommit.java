@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A commit on a branch, kept for incremental download requests so that later requests for the same
+ * branch only need to fetch the commits made since. See {@link BranchDownloadState}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(
+    name = "branch_commit",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"branch", "commit_id"}))
+public class BranchCommit {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  private String branch;
+
+  @ManyToOne
+  @JoinColumn(name = "commit_id", nullable = false)
+  private RepositoryCommit commit;
+}
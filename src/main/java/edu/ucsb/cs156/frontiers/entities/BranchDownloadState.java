@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.*;
+
+/**
+ * How much of a branch's history is kept as {@link BranchCommit}s: every commit from {@link
+ * #coveredSince} up to the newest one seen.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(
+    name = "branch_download_state",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"org", "repo", "branch"}))
+public class BranchDownloadState {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  private String org;
+
+  private String repo;
+
+  private String branch;
+
+  /** The earliest commit time that is kept, or null if the whole history is. */
+  private Instant coveredSince;
+
+  /** The SHA of the newest commit that is kept. */
+  private String newestOid;
+
+  private Instant newestCommittedDate;
+}
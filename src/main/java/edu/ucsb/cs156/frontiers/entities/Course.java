@@ -3,6 +3,7 @@ package edu.ucsb.cs156.frontiers.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import edu.ucsb.cs156.frontiers.enums.School;
 import jakarta.persistence.*;
+import java.time.Instant;
 import java.util.List;
 import lombok.*;
 import org.hibernate.annotations.Fetch;
@@ -22,6 +23,32 @@ public class Course {
 
   private String orgName;
 
+  /** GitHub's ID for the linked organization, stored at link time since it never changes. */
+  private Integer githubOrgId;
+
+  /**
+   * When a GitHub webhook last reported someone joining or being invited to the linked
+   * organization. The membership audit skips courses whose webhooks have been heard from recently.
+   */
+  @JsonIgnore private Instant lastMembershipWebhookAt;
+
+  /**
+   * When the membership audit last read the linked organization and reconciled the course's
+   * statuses with it. Courses are audited again once this is too old, however recent their
+   * webhooks.
+   */
+  @JsonIgnore private Instant lastMembershipAuditAt;
+
+  /**
+   * When the shadow copies of the linked organization's members, teams and repositories were last
+   * refreshed from GitHub; see {@link edu.ucsb.cs156.frontiers.services.GithubShadowService}.
+   */
+  @JsonIgnore private Instant orgMembersSyncedAt;
+
+  @JsonIgnore private Instant teamsSyncedAt;
+
+  @JsonIgnore private Instant repositoriesSyncedAt;
+
   private String instructorEmail;
 
   private String courseName;
@@ -50,6 +50,10 @@ public class DownloadRequest {
 
   @NotBlank @NotNull private String org;
 
+  /**
+   * The repository to download, or for {@link DownloadRequestType#ORG_COMMITS} requests the prefix
+   * that the names of the repositories to download start with.
+   */
   @NotBlank @NotNull private String repo;
 
   @NotBlank @NotNull @Builder.Default private String branch = "main";
@@ -59,4 +63,26 @@ public class DownloadRequest {
 
   @Column(nullable = true)
   private Instant endDate;
+
+  /**
+   * Whether to reuse the commits kept from earlier incremental requests for the same branch,
+   * fetching only the ones made since. See {@link BranchDownloadState}.
+   */
+  @Builder.Default private boolean incremental = false;
+
+  /**
+   * Whether to split the time range into shards that are read at the same time, rather than reading
+   * the history page after page. Meant for repositories with very long histories; ignored for
+   * incremental requests.
+   */
+  @Builder.Default private boolean sharded = false;
+
+  /**
+   * The GraphQL cursor after the last page of commits that has been saved, so that an interrupted
+   * download can continue from there. Null until the first chunk of commits is saved. Only ever set
+   * with {@link edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository#setLastCursor}, so
+   * that saving a request elsewhere cannot overwrite it.
+   */
+  @Column(nullable = true, updatable = false)
+  private String lastCursor;
 }
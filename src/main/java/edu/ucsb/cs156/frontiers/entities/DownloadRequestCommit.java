@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/** A commit included in the result of a download request. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "download_request_commit")
+public class DownloadRequestCommit {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne
+  @JoinColumn(name = "request_id", nullable = false)
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @ToString.Exclude
+  private DownloadRequest request;
+
+  @ManyToOne
+  @JoinColumn(name = "commit_id", nullable = false)
+  private RepositoryCommit commit;
+}
@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import com.opencsv.bean.CsvIgnore;
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.*;
+
+/**
+ * A commit in a GitHub repository. Each commit is stored once, however many download requests and
+ * branches include it; see {@link DownloadRequestCommit} and {@link BranchCommit}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(
+    name = "repository_commit",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"org", "repo", "oid"}))
+public class RepositoryCommit {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @CsvIgnore
+  private Long id;
+
+  private String org;
+
+  private String repo;
+
+  /** The SHA of the commit. */
+  private String oid;
+
+  private String url;
+
+  private String messageHeadline;
+
+  private Instant committedDate;
+
+  private String authorName;
+
+  private String authorEmail;
+
+  /** The GitHub login of the author, if their email is linked to an account. */
+  private String authorLogin;
+
+  private String committerName;
+
+  private String committerEmail;
+
+  /** The GitHub login of the committer, if their email is linked to an account. */
+  private String committerLogin;
+}
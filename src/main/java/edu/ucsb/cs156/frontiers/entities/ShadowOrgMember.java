@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.ucsb.cs156.frontiers.enums.OrgStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Someone in a course's GitHub organization, as last seen by {@link
+ * edu.ucsb.cs156.frontiers.services.GithubShadowService}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(
+    name = "shadow_org_member",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "github_id"}))
+public class ShadowOrgMember {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne
+  @JoinColumn(name = "course_id")
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @JsonIgnore
+  @ToString.Exclude
+  private Course course;
+
+  private Integer githubId;
+
+  private String githubLogin;
+
+  /** {@link OrgStatus#OWNER}, {@link OrgStatus#MEMBER} or {@link OrgStatus#INVITED}. */
+  @Enumerated(EnumType.STRING)
+  private OrgStatus orgStatus;
+}
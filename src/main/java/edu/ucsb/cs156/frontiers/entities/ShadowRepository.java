@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * A repository in a course's GitHub organization, as last seen by {@link
+ * edu.ucsb.cs156.frontiers.services.GithubShadowService}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(
+    name = "shadow_repository",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "name"}))
+public class ShadowRepository {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne
+  @JoinColumn(name = "course_id")
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @JsonIgnore
+  @ToString.Exclude
+  private Course course;
+
+  /** The repository name, without the organization, in lower case. */
+  private String name;
+}
@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * A team in a course's GitHub organization, as last seen by {@link
+ * edu.ucsb.cs156.frontiers.services.GithubShadowService}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(
+    name = "shadow_team",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "github_team_id"}))
+public class ShadowTeam {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne
+  @JoinColumn(name = "course_id")
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @JsonIgnore
+  @ToString.Exclude
+  private Course course;
+
+  private Integer githubTeamId;
+
+  private String name;
+
+  private String slug;
+}
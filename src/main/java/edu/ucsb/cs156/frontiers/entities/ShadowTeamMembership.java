@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.ucsb.cs156.frontiers.enums.TeamStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * A member of a team in a course's GitHub organization, as last seen by {@link
+ * edu.ucsb.cs156.frontiers.services.GithubShadowService}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(
+    name = "shadow_team_membership",
+    uniqueConstraints =
+        @UniqueConstraint(columnNames = {"course_id", "github_team_id", "github_login"}))
+public class ShadowTeamMembership {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne
+  @JoinColumn(name = "course_id")
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @JsonIgnore
+  @ToString.Exclude
+  private Course course;
+
+  private Integer githubTeamId;
+
+  private String githubLogin;
+
+  /** {@link TeamStatus#TEAM_MEMBER} or {@link TeamStatus#TEAM_MAINTAINER}. */
+  @Enumerated(EnumType.STRING)
+  private TeamStatus teamStatus;
+}
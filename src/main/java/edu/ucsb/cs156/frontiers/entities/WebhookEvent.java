@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.frontiers.entities;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.*;
+
+/**
+ * A webhook delivery from GitHub, stored as it was received and processed later by {@link
+ * edu.ucsb.cs156.frontiers.services.WebhookEventService}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class WebhookEvent {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /** The <code>X-GitHub-Delivery</code> header. Redeliveries of an event reuse the same ID. */
+  @Column(unique = true, nullable = false)
+  private String deliveryId;
+
+  /** The <code>X-GitHub-Event</code> header, for example <code>organization</code>. */
+  private String eventType;
+
+  @Column(columnDefinition = "TEXT", length = 1048576)
+  @ToString.Exclude
+  private String payload;
+
+  private Instant receivedAt;
+
+  /** When the event was processed, or null while it is waiting in the queue. */
+  private Instant processedAt;
+
+  /** Why the event could not be processed, if it could not. */
+  private String error;
+}
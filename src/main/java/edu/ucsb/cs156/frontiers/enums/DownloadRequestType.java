@@ -4,7 +4,9 @@ import lombok.Getter;
 
 @Getter
 public enum DownloadRequestType {
-  COMMITS("Commits");
+  COMMITS("Commits"),
+  /** Commits from every repository in the org whose name starts with the request's prefix. */
+  ORG_COMMITS("Commits from matching repositories");
 
   private String prettyName;
 
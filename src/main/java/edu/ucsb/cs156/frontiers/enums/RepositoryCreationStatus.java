@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.frontiers.enums;
+
+public enum RepositoryCreationStatus {
+  CREATED,
+  EXISTING,
+  FAILED
+}
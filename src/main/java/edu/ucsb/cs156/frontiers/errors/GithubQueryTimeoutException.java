@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.frontiers.errors;
+
+public class GithubQueryTimeoutException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param owner owner of the repository that was being read
+   * @param repo name of the repository that was being read
+   * @param cause the error response, if GitHub answered with an HTTP error
+   */
+  public GithubQueryTimeoutException(String owner, String repo, Throwable cause) {
+    super("GitHub timed out reading the commit history of " + owner + "/" + repo + ".", cause);
+  }
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.frontiers.errors;
+
+import java.time.Instant;
+
+public class GithubRateLimitExceededException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param installationId ID of the app installation whose rate limit is exhausted
+   * @param resource GitHub rate limit resource that is exhausted
+   * @param availableAt when GitHub will accept requests again
+   */
+  public GithubRateLimitExceededException(
+      String installationId, String resource, Instant availableAt) {
+    super(
+        "GitHub "
+            + resource
+            + " rate limit for installation "
+            + installationId
+            + " is exhausted until "
+            + availableAt
+            + ", which is longer than the configured maximum wait.");
+  }
+}
@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.frontiers.jobs;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.models.GithubOrganization;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.services.OrganizationLinkerService;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
+import java.util.List;
+import lombok.Builder;
+
+/**
+ * One-off job that stores the GitHub organization ID on courses that were linked to an organization
+ * before the ID was recorded at link time.
+ */
+@Builder
+public class BackfillGithubOrgIdsJob implements JobContextConsumer {
+
+  private final CourseRepository courseRepository;
+  private final OrganizationLinkerService organizationLinkerService;
+
+  @Override
+  public Course getCourse() {
+    return null;
+  }
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    List<Course> courses = courseRepository.findByInstallationIdIsNotNullAndGithubOrgIdIsNull();
+    ctx.log("Backfilling GitHub organization IDs for " + courses.size() + " courses");
+    int updated = 0;
+    for (Course course : courses) {
+      try {
+        GithubOrganization organization =
+            organizationLinkerService.getOrganization(course.getInstallationId());
+        course.setGithubOrgId(organization.id());
+        courseRepository.save(course);
+        updated++;
+        ctx.log(
+            "Course "
+                + course.getId()
+                + " ("
+                + course.getOrgName()
+                + "): organization ID "
+                + organization.id());
+      } catch (Exception e) {
+        ctx.log(
+            "ERROR: Could not get organization ID for course "
+                + course.getId()
+                + " ("
+                + course.getOrgName()
+                + "): "
+                + e.getMessage());
+      }
+    }
+    ctx.log("Done; updated " + updated + " of " + courses.size() + " courses");
+  }
+}
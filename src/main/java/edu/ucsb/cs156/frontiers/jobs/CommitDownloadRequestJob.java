@@ -20,9 +20,26 @@ public class CommitDownloadRequestJob implements JobContextConsumer {
     return request.getCourse();
   }
 
+  /**
+   * Each chunk of commits is committed together with the cursor after it, so that a download that
+   * fails partway can be resumed rather than started over.
+   */
+  @Override
+  public boolean runsInOneTransaction() {
+    return false;
+  }
+
   @Override
   public void accept(JobContext c) throws Exception {
     c.log("Starting download for course " + request.getCourse().getCourseName());
+    if (request.getLastCursor() != null) {
+      c.log("Resuming after the commits saved by an earlier attempt");
+    }
+    if (request.getIncremental()) {
+      c.log("Only fetching commits newer than those kept from earlier incremental downloads");
+    } else if (request.getSharded()) {
+      c.log("Fetching the history in time shards, several at a time");
+    }
     githubService.downloadCommitHistory(request);
     c.log("Download completed successfully");
   }
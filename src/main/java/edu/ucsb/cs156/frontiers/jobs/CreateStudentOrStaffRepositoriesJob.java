@@ -5,10 +5,20 @@ import edu.ucsb.cs156.frontiers.entities.CourseStaff;
 import edu.ucsb.cs156.frontiers.entities.RosterStudent;
 import edu.ucsb.cs156.frontiers.enums.OrgStatus;
 import edu.ucsb.cs156.frontiers.enums.RepositoryCreationOption;
+import edu.ucsb.cs156.frontiers.enums.RepositoryCreationStatus;
 import edu.ucsb.cs156.frontiers.enums.RepositoryPermissions;
+import edu.ucsb.cs156.frontiers.services.GithubRepositoryIndex;
 import edu.ucsb.cs156.frontiers.services.RepositoryService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.Builder;
 
 @Builder
@@ -21,11 +31,29 @@ public class CreateStudentOrStaffRepositoriesJob implements JobContextConsumer {
 
   @Builder.Default RepositoryCreationOption creationOption = RepositoryCreationOption.STUDENTS_ONLY;
 
+  /**
+   * Number of repositories that are checked and created at the same time. Content-creating calls
+   * are still paced by the rate limit governor, so this mostly overlaps the existence checks and
+   * the round trip latency of each call.
+   */
+  @Builder.Default int parallelism = 1;
+
   @Override
   public Course getCourse() {
     return course;
   }
 
+  /** A repository to create, and the call that creates it. */
+  private record RepositoryTask(String repositoryName, RepositoryCreator creator) {}
+
+  @FunctionalInterface
+  private interface RepositoryCreator {
+    RepositoryCreationStatus create(GithubRepositoryIndex repositoryIndex) throws Exception;
+  }
+
+  private record RepositoryResult(
+      String repositoryName, RepositoryCreationStatus status, String error) {}
+
   @Override
   public void accept(JobContext ctx) throws Exception {
     ctx.log("repositoryPrefix=" + repositoryPrefix);
@@ -33,14 +61,24 @@ public class CreateStudentOrStaffRepositoriesJob implements JobContextConsumer {
     ctx.log("permissions=" + permissions);
     ctx.log("creationOption=" + creationOption);
 
+    List<RepositoryTask> tasks = new ArrayList<>();
     if (creationOption == RepositoryCreationOption.STUDENTS_ONLY
         || creationOption == RepositoryCreationOption.STUDENTS_AND_STAFF) {
       for (RosterStudent student : course.getRosterStudents()) {
         if (student.getGithubLogin() != null
             && (student.getOrgStatus() == OrgStatus.MEMBER
                 || student.getOrgStatus() == OrgStatus.OWNER)) {
-          repositoryService.createStudentRepository(
-              course, student, repositoryPrefix, isPrivate, permissions);
+          tasks.add(
+              new RepositoryTask(
+                  repositoryPrefix + "-" + student.getGithubLogin(),
+                  repositoryIndex ->
+                      repositoryService.createStudentRepository(
+                          course,
+                          student,
+                          repositoryPrefix,
+                          isPrivate,
+                          permissions,
+                          repositoryIndex)));
         }
       }
     }
@@ -51,12 +89,75 @@ public class CreateStudentOrStaffRepositoriesJob implements JobContextConsumer {
         if (staff.getGithubLogin() != null
             && (staff.getOrgStatus() == OrgStatus.MEMBER
                 || staff.getOrgStatus() == OrgStatus.OWNER)) {
-          repositoryService.createStaffRepository(
-              course, staff, repositoryPrefix, isPrivate, permissions);
+          tasks.add(
+              new RepositoryTask(
+                  repositoryPrefix + "-" + staff.getGithubLogin(),
+                  repositoryIndex ->
+                      repositoryService.createStaffRepository(
+                          course,
+                          staff,
+                          repositoryPrefix,
+                          isPrivate,
+                          permissions,
+                          repositoryIndex)));
         }
       }
     }
 
-    ctx.log("Done");
+    // Whether each repository exists is answered from one listing of the org's repositories
+    GithubRepositoryIndex repositoryIndex =
+        tasks.isEmpty() ? null : repositoryService.getRepositoryIndex(course);
+    if (repositoryIndex != null) {
+      ctx.log("Found " + repositoryIndex.size() + " existing repositories in the org");
+    }
+
+    // Repositories are created on up to `parallelism` threads; each one is logged here, on the job
+    // thread, as soon as it finishes.
+    Map<RepositoryCreationStatus, Integer> counts = new EnumMap<>(RepositoryCreationStatus.class);
+    try (ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            Thread.ofVirtual().name("create-repos-" + course.getId() + "-", 0).factory())) {
+      CompletionService<RepositoryResult> completionService =
+          new ExecutorCompletionService<>(executor);
+      for (RepositoryTask task : tasks) {
+        completionService.submit(() -> createRepository(task, repositoryIndex));
+      }
+      for (int done = 1; done <= tasks.size(); done++) {
+        RepositoryResult result = completionService.take().get();
+        counts.merge(result.status(), 1, Integer::sum);
+        ctx.log("[%d/%d] %s".formatted(done, tasks.size(), describe(result)));
+      }
+    }
+
+    ctx.log(
+        "Done: %d created, %d already existed, %d failed"
+            .formatted(
+                counts.getOrDefault(RepositoryCreationStatus.CREATED, 0),
+                counts.getOrDefault(RepositoryCreationStatus.EXISTING, 0),
+                counts.getOrDefault(RepositoryCreationStatus.FAILED, 0)));
+  }
+
+  /** Creates one repository. Runs on a worker thread. */
+  private static RepositoryResult createRepository(
+      RepositoryTask task, GithubRepositoryIndex repositoryIndex) {
+    try {
+      return new RepositoryResult(
+          task.repositoryName(), task.creator().create(repositoryIndex), null);
+    } catch (Exception e) {
+      return new RepositoryResult(
+          task.repositoryName(), RepositoryCreationStatus.FAILED, e.getMessage());
+    }
+  }
+
+  private static String describe(RepositoryResult result) {
+    return switch (result.status()) {
+      case CREATED -> "Created " + result.repositoryName();
+      case EXISTING -> result.repositoryName() + " already exists";
+      case FAILED ->
+          "ERROR: Failed to create "
+              + result.repositoryName()
+              + (result.error() == null ? "" : ": " + result.error());
+    };
   }
 }
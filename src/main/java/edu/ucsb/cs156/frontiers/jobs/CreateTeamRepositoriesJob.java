@@ -3,10 +3,15 @@ package edu.ucsb.cs156.frontiers.jobs;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.Team;
 import edu.ucsb.cs156.frontiers.enums.RepositoryPermissions;
+import edu.ucsb.cs156.frontiers.services.GithubRepositoryIndex;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
+import edu.ucsb.cs156.frontiers.services.GithubTeamIndex;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.RepositoryService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Builder;
 
 @Builder
@@ -19,6 +24,12 @@ public class CreateTeamRepositoriesJob implements JobContextConsumer {
   RepositoryPermissions permissions;
   String teamRegex;
 
+  /**
+   * When set, the org's teams and repositories are read from the local shadow copy, which only goes
+   * to GitHub when the copy is stale, and the repositories created are recorded in it.
+   */
+  GithubShadowService githubShadowService;
+
   @Override
   public Course getCourse() {
     return course;
@@ -37,12 +48,49 @@ public class CreateTeamRepositoriesJob implements JobContextConsumer {
           e);
     }
 
-    for (Team team : course.getTeams()) {
-      if (teamRegex != null && !team.getName().matches(teamRegex)) {
-        continue;
+    List<Team> teams =
+        course.getTeams().stream()
+            .filter(team -> teamRegex == null || team.getName().matches(teamRegex))
+            .toList();
+
+    // Teams without a stored slug are looked up in one listing of the org's teams
+    GithubTeamIndex teamIndex = null;
+    if (teams.stream()
+        .anyMatch(team -> team.getGithubTeamSlug() == null || team.getGithubTeamSlug().isBlank())) {
+      teamIndex =
+          githubShadowService != null
+              ? githubShadowService.getTeamIndex(course)
+              : githubTeamService.getTeamIndex(course);
+    }
+
+    // Whether each repository exists is answered from one listing of the org's repositories
+    GithubRepositoryIndex repositoryIndex = null;
+    if (!teams.isEmpty()) {
+      repositoryIndex =
+          githubShadowService != null
+              ? githubShadowService.getRepositoryIndex(course)
+              : repositoryService.getRepositoryIndex(course);
+    }
+
+    List<String> repositoryNames = new ArrayList<>();
+    for (Team team : teams) {
+      String repositoryName =
+          repositoryService.createTeamRepository(
+              course,
+              team,
+              repositoryPrefix,
+              isPrivate,
+              permissions,
+              orgId,
+              teamIndex,
+              repositoryIndex);
+      if (repositoryName != null) {
+        repositoryNames.add(repositoryName);
       }
-      repositoryService.createTeamRepository(
-          course, team, repositoryPrefix, isPrivate, permissions, orgId);
+    }
+    // Only the team repositories are recorded; the rest of the org is already in the shadow copy
+    if (githubShadowService != null && !repositoryNames.isEmpty()) {
+      githubShadowService.recordRepositories(course, repositoryNames);
     }
     ctx.log("Done");
   }
@@ -4,104 +4,240 @@ import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.CourseStaff;
 import edu.ucsb.cs156.frontiers.entities.RosterStudent;
 import edu.ucsb.cs156.frontiers.enums.OrgStatus;
-import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.CourseStaffRepository;
 import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
-import edu.ucsb.cs156.frontiers.services.OrganizationMemberService;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.Builder;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Builder
 public class MembershipAuditJob implements JobContextConsumer {
   CourseRepository courseRepository;
-  OrganizationMemberService organizationMemberService;
+  GithubGraphQLService githubGraphQLService;
   RosterStudentRepository rosterStudentRepository;
   CourseStaffRepository courseStaffRepository;
+  TransactionTemplate transactionTemplate;
+
+  /**
+   * When set, each org's membership is read from the local shadow copy, which only goes to GitHub
+   * when the copy is stale. Otherwise every org is read from GitHub.
+   */
+  GithubShadowService githubShadowService;
+
+  /** Number of courses whose organizations are audited at the same time. */
+  @Builder.Default int parallelism = 1;
+
+  /**
+   * Courses that received a membership webhook within this long are skipped, since their statuses
+   * are already being kept up to date. Zero audits every course.
+   */
+  @Builder.Default Duration freshness = Duration.ZERO;
+
+  /**
+   * Longest a course may go without a full audit. A course not audited for this long is audited
+   * whatever webhooks it has received, since a steady trickle of them would otherwise keep it from
+   * ever being reconciled.
+   */
+  @Builder.Default Duration maxAuditInterval = Duration.ofDays(1);
+
+  @Builder.Default Clock clock = Clock.systemUTC();
 
   @Override
   public Course getCourse() {
     return null;
   }
 
+  /** Each course is committed on its own, so one slow or failing org does not hold up the rest. */
+  @Override
+  public boolean runsInOneTransaction() {
+    return false;
+  }
+
+  private record AuditResult(
+      Course course,
+      OrgMembership membership,
+      int studentsUpdated,
+      int staffUpdated,
+      long elapsedMs,
+      String error) {}
+
   @Override
   public void accept(JobContext ctx) throws Exception {
     ctx.log("Auditing membership for each course with an attached GitHub Organization...");
-    Iterable<Course> courses = courseRepository.findAll();
-    for (Course course : courses) {
-      if (course.getOrgName() != null && course.getInstallationId() != null) {
-        Iterable<OrgMember> members = organizationMemberService.getOrganizationMembers(course);
-        Iterable<OrgMember> admins = organizationMemberService.getOrganizationAdmins(course);
-        Iterable<OrgMember> invitees = organizationMemberService.getOrganizationInvitees(course);
-        List<RosterStudent> rosterStudents = course.getRosterStudents();
-        List<CourseStaff> courseStaff = course.getCourseStaff();
-        for (int i = 0; i < rosterStudents.size(); i++) {
-          Integer studentGithubId = rosterStudents.get(i).getGithubId();
-          String studentGithubLogin = rosterStudents.get(i).getGithubLogin();
-          if (studentGithubId != null && studentGithubLogin != null) {
-            Optional<OrgMember> member =
-                StreamSupport.stream(members.spliterator(), false)
-                    .filter(s -> studentGithubId.equals(s.getGithubId()))
-                    .findFirst();
-            Optional<OrgMember> admin =
-                StreamSupport.stream(admins.spliterator(), false)
-                    .filter(s -> studentGithubId.equals(s.getGithubId()))
-                    .findFirst();
-            Optional<OrgMember> invitee =
-                StreamSupport.stream(invitees.spliterator(), false)
-                    .filter(s -> studentGithubId.equals(s.getGithubId()))
-                    .findFirst();
-
-            OrgStatus updatedStatus = OrgStatus.JOINCOURSE;
-
-            if (admin.isPresent()) {
-              updatedStatus = OrgStatus.OWNER;
-            } else if (member.isPresent()) {
-              updatedStatus = OrgStatus.MEMBER;
-            } else if (invitee.isPresent()) {
-              updatedStatus = OrgStatus.INVITED;
-            }
-            rosterStudents.get(i).setOrgStatus(updatedStatus);
-          }
+    Instant now = clock.instant();
+    Instant staleBefore = now.minus(freshness);
+    Instant auditDueBefore = now.minus(maxAuditInterval);
+    List<Course> courses = new ArrayList<>();
+    int skipped = 0;
+    for (Course course : courseRepository.findAll()) {
+      if (course.getOrgName() == null || course.getInstallationId() == null) {
+        continue;
+      }
+      Instant lastWebhook = course.getLastMembershipWebhookAt();
+      Instant lastAudit = course.getLastMembershipAuditAt();
+      if (lastWebhook != null
+          && lastWebhook.isAfter(staleBefore)
+          && lastAudit != null
+          && lastAudit.isAfter(auditDueBefore)) {
+        ctx.log(
+            "%s: skipped, membership webhook received at %s"
+                .formatted(course.getOrgName(), lastWebhook));
+        skipped++;
+      } else {
+        courses.add(course);
+      }
+    }
+
+    // Courses are audited on up to `parallelism` threads; each one is logged here, on the job
+    // thread, as soon as it finishes.
+    int failed = 0;
+    int totalQueries = 0;
+    int totalCost = 0;
+    int totalRestCalls = 0;
+    try (ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism, Thread.ofVirtual().name("membership-audit-", 0).factory())) {
+      CompletionService<AuditResult> completionService = new ExecutorCompletionService<>(executor);
+      for (Course course : courses) {
+        completionService.submit(() -> audit(course));
+      }
+      for (int done = 0; done < courses.size(); done++) {
+        AuditResult result = completionService.take().get();
+        String orgName = result.course().getOrgName();
+        if (result.error() != null) {
+          failed++;
+          ctx.log("ERROR: %s: %s (%dms)".formatted(orgName, result.error(), result.elapsedMs()));
+          continue;
         }
-        rosterStudentRepository.saveAll(rosterStudents);
-
-        for (int i = 0; i < courseStaff.size(); i++) {
-          Integer staffGithubId = courseStaff.get(i).getGithubId();
-          String staffGithubLogin = courseStaff.get(i).getGithubLogin();
-          if (staffGithubId != null && staffGithubLogin != null) {
-            Optional<OrgMember> member =
-                StreamSupport.stream(members.spliterator(), false)
-                    .filter(s -> staffGithubId.equals(s.getGithubId()))
-                    .findFirst();
-            Optional<OrgMember> admin =
-                StreamSupport.stream(admins.spliterator(), false)
-                    .filter(s -> staffGithubId.equals(s.getGithubId()))
-                    .findFirst();
-            Optional<OrgMember> invitee =
-                StreamSupport.stream(invitees.spliterator(), false)
-                    .filter(s -> staffGithubId.equals(s.getGithubId()))
-                    .findFirst();
-
-            OrgStatus updatedStatus = OrgStatus.JOINCOURSE;
-
-            if (admin.isPresent()) {
-              updatedStatus = OrgStatus.OWNER;
-            } else if (member.isPresent()) {
-              updatedStatus = OrgStatus.MEMBER;
-            } else if (invitee.isPresent()) {
-              updatedStatus = OrgStatus.INVITED;
+        OrgMembership membership = result.membership();
+        ctx.log(
+            ("%s: members=%d admins=%d invitees=%d graphqlRequests=%d graphqlCost=%d restCalls=%d"
+                    + " studentsUpdated=%d staffUpdated=%d (%dms)")
+                .formatted(
+                    orgName,
+                    membership.members().size(),
+                    membership.admins().size(),
+                    membership.invitees().size(),
+                    membership.queries(),
+                    membership.cost(),
+                    membership.restCalls(),
+                    result.studentsUpdated(),
+                    result.staffUpdated(),
+                    result.elapsedMs()));
+        totalQueries += membership.queries();
+        totalCost += membership.cost();
+        totalRestCalls += membership.restCalls();
+      }
+    }
+    ctx.log(
+        "Done: audited=%d skipped=%d failed=%d graphqlRequests=%d graphqlCost=%d restCalls=%d"
+            .formatted(
+                courses.size() - failed, skipped, failed, totalQueries, totalCost, totalRestCalls));
+  }
+
+  /** Audits one course and commits its changes. Runs on a worker thread. */
+  private AuditResult audit(Course course) {
+    Instant start = clock.instant();
+    try {
+      OrgMembership membership =
+          githubShadowService != null
+              ? githubShadowService.getOrganizationMembership(course)
+              : githubGraphQLService.getOrganizationMembership(course);
+      Map<Integer, OrgStatus> statuses = indexByGithubId(membership);
+      List<RosterStudent> changedStudents =
+          auditRosterStudents(course.getRosterStudents(), statuses);
+      List<CourseStaff> changedStaff = auditCourseStaff(course.getCourseStaff(), statuses);
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            if (!changedStudents.isEmpty() || !changedStaff.isEmpty()) {
+              rosterStudentRepository.saveAll(changedStudents);
+              courseStaffRepository.saveAll(changedStaff);
             }
-            courseStaff.get(i).setOrgStatus(updatedStatus);
-          }
+            courseRepository.setLastMembershipAuditAt(course.getId(), start);
+          });
+      return new AuditResult(
+          course, membership, changedStudents.size(), changedStaff.size(), elapsedMs(start), null);
+    } catch (Exception e) {
+      return new AuditResult(course, null, 0, 0, elapsedMs(start), e.getMessage());
+    }
+  }
+
+  private long elapsedMs(Instant start) {
+    return Duration.between(start, clock.instant()).toMillis();
+  }
+
+  /**
+   * Indexes everyone in the organization by GitHub ID, with the status they should have in the
+   * course. Someone who is in more than one list gets the first of owner, member and invited.
+   */
+  public static Map<Integer, OrgStatus> indexByGithubId(OrgMembership membership) {
+    Map<Integer, OrgStatus> statuses =
+        HashMap.newHashMap(
+            membership.admins().size()
+                + membership.members().size()
+                + membership.invitees().size());
+    // Lowest precedence first, so that higher ones overwrite it
+    membership
+        .invitees()
+        .forEach(invitee -> statuses.put(invitee.getGithubId(), OrgStatus.INVITED));
+    membership.members().forEach(member -> statuses.put(member.getGithubId(), OrgStatus.MEMBER));
+    membership.admins().forEach(admin -> statuses.put(admin.getGithubId(), OrgStatus.OWNER));
+    return statuses;
+  }
+
+  /**
+   * Sets the org status of each roster student with a linked GitHub account from the index.
+   *
+   * @return the students whose status changed
+   */
+  public static List<RosterStudent> auditRosterStudents(
+      List<RosterStudent> rosterStudents, Map<Integer, OrgStatus> statuses) {
+    List<RosterStudent> changed = new ArrayList<>();
+    for (RosterStudent student : rosterStudents) {
+      if (student.getGithubId() != null && student.getGithubLogin() != null) {
+        OrgStatus status = statuses.getOrDefault(student.getGithubId(), OrgStatus.JOINCOURSE);
+        if (status != student.getOrgStatus()) {
+          student.setOrgStatus(status);
+          changed.add(student);
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Sets the org status of each staff member with a linked GitHub account from the index.
+   *
+   * @return the staff members whose status changed
+   */
+  public static List<CourseStaff> auditCourseStaff(
+      List<CourseStaff> courseStaff, Map<Integer, OrgStatus> statuses) {
+    List<CourseStaff> changed = new ArrayList<>();
+    for (CourseStaff staff : courseStaff) {
+      if (staff.getGithubId() != null && staff.getGithubLogin() != null) {
+        OrgStatus status = statuses.getOrDefault(staff.getGithubId(), OrgStatus.JOINCOURSE);
+        if (status != staff.getOrgStatus()) {
+          staff.setOrgStatus(status);
+          changed.add(staff);
         }
-        courseStaffRepository.saveAll(courseStaff);
       }
     }
-    ctx.log("Done");
+    return changed;
   }
 }
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.frontiers.jobs;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.RepositoryService;
+import edu.ucsb.cs156.frontiers.services.RepositoryService.GithubRepository;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Downloads the commits of every repository in the course's org whose name starts with the prefix
+ * of an {@link edu.ucsb.cs156.frontiers.enums.DownloadRequestType#ORG_COMMITS} request, all into
+ * that one request.
+ *
+ * <p>If the job is run again for the same request, for example to resume it after some repositories
+ * failed, the repositories that were already downloaded are skipped.
+ */
+@Builder
+@EqualsAndHashCode
+public class OrgCommitDownloadJob implements JobContextConsumer {
+  DownloadRequest request;
+  GithubGraphQLService githubService;
+  RepositoryService repositoryService;
+
+  /**
+   * Number of repositories whose histories are downloaded at the same time. The rate limit governor
+   * separately caps the requests in flight and paces them for the whole installation.
+   */
+  @Builder.Default int parallelism = 1;
+
+  @Override
+  public Course getCourse() {
+    return request.getCourse();
+  }
+
+  /**
+   * Each repository's commits are committed by the worker that downloads it, so the job thread has
+   * nothing to hold a transaction open for while it waits on them.
+   */
+  @Override
+  public boolean runsInOneTransaction() {
+    return false;
+  }
+
+  private record RepositoryResult(String repositoryName, int commits, String error) {}
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    String prefix = request.getRepo();
+    ctx.log(
+        "Starting download of branch %s of the repositories starting with '%s'"
+            .formatted(request.getBranch(), prefix));
+
+    List<GithubRepository> repositories =
+        repositoryService.getRepositoriesMatchingPrefix(request.getCourse(), prefix);
+    Set<String> downloaded = githubService.getDownloadedRepositories(request);
+    List<String> pending =
+        repositories.stream()
+            .map(GithubRepository::name)
+            .filter(name -> !downloaded.contains(name))
+            .toList();
+    ctx.log("Found %d matching repositories".formatted(repositories.size()));
+    if (pending.size() < repositories.size()) {
+      ctx.log(
+          "Skipping %d repositories downloaded by an earlier attempt"
+              .formatted(repositories.size() - pending.size()));
+    }
+
+    // Repositories are downloaded on up to `parallelism` threads; each one is logged here, on the
+    // job thread, as soon as it finishes.
+    int failed = 0;
+    try (ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            Thread.ofVirtual().name("org-commits-" + request.getId() + "-", 0).factory())) {
+      CompletionService<RepositoryResult> completionService =
+          new ExecutorCompletionService<>(executor);
+      for (String repositoryName : pending) {
+        completionService.submit(() -> downloadRepository(repositoryName));
+      }
+      for (int done = 1; done <= pending.size(); done++) {
+        RepositoryResult result = completionService.take().get();
+        if (result.error() != null) {
+          failed++;
+          ctx.log(
+              "[%d/%d] ERROR: Failed to download %s: %s"
+                  .formatted(done, pending.size(), result.repositoryName(), result.error()));
+        } else {
+          ctx.log(
+              "[%d/%d] %s: %d commits"
+                  .formatted(done, pending.size(), result.repositoryName(), result.commits()));
+        }
+      }
+    }
+
+    if (failed > 0) {
+      throw new IllegalStateException(
+          "%d of %d repositories could not be downloaded; resume the download to retry them"
+              .formatted(failed, pending.size()));
+    }
+    ctx.log("Download completed successfully");
+  }
+
+  /** Downloads one repository. Runs on a worker thread. */
+  private RepositoryResult downloadRepository(String repositoryName) {
+    try {
+      return new RepositoryResult(
+          repositoryName, githubService.downloadRepositoryHistory(request, repositoryName), null);
+    } catch (Exception e) {
+      return new RepositoryResult(repositoryName, 0, e.getMessage());
+    }
+  }
+}
@@ -8,12 +8,20 @@ import edu.ucsb.cs156.frontiers.enums.TeamStatus;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
+import edu.ucsb.cs156.frontiers.services.GithubTeamIndex;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import lombok.Builder;
 
 @Builder
@@ -24,6 +32,20 @@ public class PushTeamsToGithubJob implements JobContextConsumer {
   TeamMemberRepository teamMemberRepository;
   GithubTeamService githubTeamService;
 
+  /**
+   * When set, the org's teams and team memberships are read from the local shadow copy, which only
+   * goes to GitHub when the copy is stale, so GitHub is only called to create teams and add
+   * members. Those changes are recorded in the copy. Otherwise each membership is checked on
+   * GitHub.
+   */
+  GithubShadowService githubShadowService;
+
+  /**
+   * Number of team members whose GitHub membership is checked and updated at the same time. The
+   * rate limit governor separately caps the requests in flight for the whole installation.
+   */
+  @Builder.Default int parallelism = 1;
+
   @Override
   public Course getCourse() {
     Optional<Course> courseOpt = courseRepository.findById(courseId);
@@ -50,7 +72,7 @@ public class PushTeamsToGithubJob implements JobContextConsumer {
 
     // Get the organization id
 
-    Integer orgId = null;
+    Integer orgId;
     try {
       orgId = githubTeamService.getOrgId(course.getOrgName(), course);
     } catch (Exception e) {
@@ -59,6 +81,18 @@ public class PushTeamsToGithubJob implements JobContextConsumer {
           e);
     }
 
+    // List the organization's teams once, rather than once per team
+    GithubTeamIndex teamIndex;
+    try {
+      teamIndex =
+          githubShadowService != null
+              ? githubShadowService.getTeamIndex(course)
+              : githubTeamService.getTeamIndex(course);
+    } catch (Exception e) {
+      throw new IllegalStateException(
+          "Failed to list teams for org: " + course.getOrgName() + " - " + e.getMessage(), e);
+    }
+
     // Get all teams for this course
     Iterable<Team> teams = teamRepository.findByCourseId(courseId);
 
@@ -66,7 +100,12 @@ public class PushTeamsToGithubJob implements JobContextConsumer {
     for (Team team : teams) {
       ctx.log("Processing team: " + team.getName());
       try {
-        GithubTeamInfo githubTeamInfo = githubTeamService.createOrGetTeamInfo(team, course);
+        int knownTeams = teamIndex.size();
+        GithubTeamInfo githubTeamInfo =
+            githubTeamService.createOrGetTeamInfo(team, course, teamIndex);
+        if (githubShadowService != null && teamIndex.size() > knownTeams) {
+          githubShadowService.recordTeam(course, githubTeamInfo);
+        }
         if (!githubTeamInfo.id().equals(team.getGithubTeamId())
             || !Objects.equals(githubTeamInfo.slug(), team.getGithubTeamSlug())) {
           team.setGithubTeamId(githubTeamInfo.id());
@@ -86,62 +125,136 @@ public class PushTeamsToGithubJob implements JobContextConsumer {
       }
     }
 
-    // Second pass: Process team members
-    for (Team team : teams) {
-      if (team.getGithubTeamId() == null) {
-        ctx.log("Skipping team members for '" + team.getName() + "' - no GitHub team ID");
-        continue;
+    // Second pass: Process team members. The GitHub calls for all members are spread over up to
+    // `parallelism` threads; results are logged and saved team by team, in the original order.
+    Map<Integer, Map<String, TeamStatus>> shadowMemberships =
+        githubShadowService != null ? githubShadowService.getTeamMemberships(course) : null;
+    List<PendingTeam> pendingTeams = new ArrayList<>();
+    try (ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism, Thread.ofVirtual().name("push-teams-" + courseId + "-", 0).factory())) {
+      for (Team team : teams) {
+        List<Future<MemberUpdate>> updates = new ArrayList<>();
+        if (team.getGithubTeamId() != null) {
+          Integer githubTeamId = team.getGithubTeamId();
+          String teamName = team.getName();
+          Map<String, TeamStatus> knownMembers =
+              shadowMemberships != null
+                  ? shadowMemberships.getOrDefault(githubTeamId, Map.of())
+                  : null;
+          for (TeamMember teamMember : team.getTeamMembers()) {
+            // Read the entities here; only plain values are handed to the worker threads
+            RosterStudent student = teamMember.getRosterStudent();
+            String githubLogin = student.getGithubLogin();
+            String email = student.getEmail();
+            updates.add(
+                executor.submit(
+                    () ->
+                        updateMember(
+                            teamMember,
+                            githubLogin,
+                            email,
+                            githubTeamId,
+                            teamName,
+                            knownMembers,
+                            course,
+                            orgId)));
+          }
+        }
+        pendingTeams.add(new PendingTeam(team, updates));
       }
 
-      ctx.log("Processing members for team: " + team.getName());
-      for (TeamMember teamMember : team.getTeamMembers()) {
-        RosterStudent student = teamMember.getRosterStudent();
-        if (student.getGithubLogin() == null) {
-          // Update status to NO_GITHUB_ID
-          teamMember.setTeamStatus(TeamStatus.NO_GITHUB_ID);
-          teamMemberRepository.save(teamMember);
-          ctx.log(
-              "Student " + student.getEmail() + " has no GitHub login - marked as NO_GITHUB_ID");
+      for (PendingTeam pendingTeam : pendingTeams) {
+        Team team = pendingTeam.team();
+        if (team.getGithubTeamId() == null) {
+          ctx.log("Skipping team members for '" + team.getName() + "' - no GitHub team ID");
           continue;
         }
 
-        try {
-          // Check current status
-          TeamStatus currentStatus =
-              githubTeamService.getTeamMembershipStatus(
-                  student.getGithubLogin(), team.getGithubTeamId(), course, orgId);
-
-          if (currentStatus == TeamStatus.TEAM_MEMBER
-              || currentStatus == TeamStatus.TEAM_MAINTAINER) {
-            // Already a member, just update the status
-            teamMember.setTeamStatus(currentStatus);
-            teamMemberRepository.save(teamMember);
-            ctx.log(
-                "Student " + student.getGithubLogin() + " already has status: " + currentStatus);
-          } else {
-            // Add as member
-            TeamStatus newStatus =
-                githubTeamService.addMemberToGithubTeam(
-                    student.getGithubLogin(), team.getGithubTeamId(), "member", course, orgId);
-            teamMember.setTeamStatus(newStatus);
-            teamMemberRepository.save(teamMember);
-            ctx.log(
-                "Added student " + student.getGithubLogin() + " to team with status: " + newStatus);
+        ctx.log("Processing members for team: " + team.getName());
+        List<TeamMember> updatedMembers = new ArrayList<>();
+        for (Future<MemberUpdate> future : pendingTeam.updates()) {
+          MemberUpdate update = future.get();
+          update.teamMember().setTeamStatus(update.status());
+          updatedMembers.add(update.teamMember());
+          ctx.log(update.message());
+          if (githubShadowService != null && update.addedOnGithub()) {
+            githubShadowService.recordTeamMembership(
+                course,
+                team.getGithubTeamId(),
+                update.teamMember().getRosterStudent().getGithubLogin(),
+                update.status());
           }
-        } catch (Exception e) {
-          ctx.log(
-              "ERROR: Failed to process team member "
-                  + student.getGithubLogin()
-                  + " for team '"
-                  + team.getName()
-                  + "': "
-                  + e.getMessage());
-          teamMember.setTeamStatus(TeamStatus.NOT_ORG_MEMBER);
-          teamMemberRepository.save(teamMember);
         }
+        teamMemberRepository.saveAll(updatedMembers);
       }
     }
 
     ctx.log("Completed push teams to GitHub job for course ID: " + courseId);
   }
+
+  private record PendingTeam(Team team, List<Future<MemberUpdate>> updates) {}
+
+  private record MemberUpdate(
+      TeamMember teamMember, TeamStatus status, String message, boolean addedOnGithub) {}
+
+  /**
+   * Brings one student's GitHub team membership up to date. Runs on a worker thread.
+   *
+   * @param knownMembers the team's members from the shadow copy, or null to check on GitHub
+   */
+  private MemberUpdate updateMember(
+      TeamMember teamMember,
+      String githubLogin,
+      String email,
+      Integer githubTeamId,
+      String teamName,
+      Map<String, TeamStatus> knownMembers,
+      Course course,
+      Integer orgId) {
+    if (githubLogin == null) {
+      return new MemberUpdate(
+          teamMember,
+          TeamStatus.NO_GITHUB_ID,
+          "Student " + email + " has no GitHub login - marked as NO_GITHUB_ID",
+          false);
+    }
+
+    try {
+      // Check current status
+      TeamStatus currentStatus =
+          knownMembers != null
+              ? knownMembers.getOrDefault(githubLogin, TeamStatus.NOT_ORG_MEMBER)
+              : githubTeamService.getTeamMembershipStatus(githubLogin, githubTeamId, course, orgId);
+
+      if (currentStatus == TeamStatus.TEAM_MEMBER || currentStatus == TeamStatus.TEAM_MAINTAINER) {
+        // Already a member, just update the status
+        return new MemberUpdate(
+            teamMember,
+            currentStatus,
+            "Student " + githubLogin + " already has status: " + currentStatus,
+            false);
+      }
+      // Add as member
+      TeamStatus newStatus =
+          githubTeamService.addMemberToGithubTeam(
+              githubLogin, githubTeamId, "member", course, orgId);
+      return new MemberUpdate(
+          teamMember,
+          newStatus,
+          "Added student " + githubLogin + " to team with status: " + newStatus,
+          true);
+    } catch (Exception e) {
+      return new MemberUpdate(
+          teamMember,
+          TeamStatus.NOT_ORG_MEMBER,
+          "ERROR: Failed to process team member "
+              + githubLogin
+              + " for team '"
+              + teamName
+              + "': "
+              + e.getMessage(),
+          false);
+    }
+  }
 }
@@ -3,12 +3,16 @@ package edu.ucsb.cs156.frontiers.jobs;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.CourseStaffRepository;
 import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
-import edu.ucsb.cs156.frontiers.services.OrganizationMemberService;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
+import java.time.Duration;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * This class contains methods that are scheduled to run at certain times to launch particular jobs.
@@ -31,18 +35,36 @@ public class ScheduledJobs {
 
   @Autowired private CourseRepository courseRepository;
 
-  @Autowired private OrganizationMemberService organizationMemberService;
+  @Autowired private GithubGraphQLService githubGraphQLService;
+
+  @Autowired private GithubShadowService githubShadowService;
 
   @Autowired private CourseStaffRepository courseStaffRepository;
 
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Value("${app.jobs.MembershipAuditJob.parallelism:4}")
+  private int membershipAuditParallelism;
+
+  @Value("${app.jobs.MembershipAuditJob.freshness:PT1H}")
+  private Duration membershipAuditFreshness;
+
+  @Value("${app.jobs.MembershipAuditJob.maxAuditInterval:P1D}")
+  private Duration membershipAuditMaxInterval;
+
   @Scheduled(cron = "${app.jobs.MembershipAuditJob.cron}", zone = "${spring.jackson.time-zone}")
   public void runMembershipAuditJobBasedOnCron() throws Exception {
     MembershipAuditJob job =
         MembershipAuditJob.builder()
             .rosterStudentRepository(rosterStudentRepository)
             .courseRepository(courseRepository)
-            .organizationMemberService(organizationMemberService)
+            .githubGraphQLService(githubGraphQLService)
+            .githubShadowService(githubShadowService)
             .courseStaffRepository(courseStaffRepository)
+            .transactionTemplate(transactionTemplate)
+            .parallelism(membershipAuditParallelism)
+            .freshness(membershipAuditFreshness)
+            .maxAuditInterval(membershipAuditMaxInterval)
             .build();
 
     jobService.runAsJob(job);
@@ -9,6 +9,7 @@ import edu.ucsb.cs156.frontiers.services.OrganizationMemberService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContextConsumer;
 import java.util.Optional;
+import java.util.stream.Stream;
 import lombok.Builder;
 
 @Builder
@@ -25,15 +26,17 @@ public class UpdateOrgMembershipJob implements JobContextConsumer {
   @Override
   public void accept(JobContext ctx) throws Exception {
     ctx.log("Processing...");
-    Iterable<OrgMember> members = organizationMemberService.getOrganizationMembers(course);
-    for (OrgMember member : members) {
-      Optional<RosterStudent> student =
-          rosterStudentRepository.findByCourseAndGithubId(course, member.getGithubId());
-      if (student.isPresent()) {
-        RosterStudent foundStudent = student.get();
-        foundStudent.setOrgStatus(OrgStatus.MEMBER);
-        rosterStudentRepository.save(foundStudent);
-      }
+    try (Stream<OrgMember> members = organizationMemberService.streamOrganizationMembers(course)) {
+      members.forEach(
+          member -> {
+            Optional<RosterStudent> student =
+                rosterStudentRepository.findByCourseAndGithubId(course, member.getGithubId());
+            if (student.isPresent()) {
+              RosterStudent foundStudent = student.get();
+              foundStudent.setOrgStatus(OrgStatus.MEMBER);
+              rosterStudentRepository.save(foundStudent);
+            }
+          });
     }
     ctx.log("Done");
   }
@@ -0,0 +1,9 @@
+package edu.ucsb.cs156.frontiers.models;
+
+/**
+ * The GitHub organization that an app installation belongs to.
+ *
+ * @param login name of the organization, e.g. <code>ucsb-cs156-s25</code>
+ * @param id GitHub's numeric ID for the organization, which unlike the name never changes
+ */
+public record GithubOrganization(String login, Integer id) {}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.frontiers.models;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of what the GitHub rate limit governor knows about one rate limit bucket of one app
+ * installation. Fields GitHub has not reported yet are null.
+ *
+ * @param installationId ID of the app installation, or <code>app</code> for calls made as the app
+ *     itself
+ * @param resource GitHub rate limit resource, e.g. <code>core</code> or <code>graphql</code>
+ * @param limit maximum number of requests (or GraphQL points) per window
+ * @param remaining requests left in the current window
+ * @param used requests used in the current window
+ * @param resetAt when the current window ends
+ * @param pausedUntil when requests may resume after GitHub asked us to back off, if in the future
+ * @param throttledRequests number of requests that have had to wait for the governor
+ * @param rateLimitedResponses number of responses in which GitHub reported that a limit was hit
+ */
+public record GithubRateLimitStatus(
+    String installationId,
+    String resource,
+    Integer limit,
+    Integer remaining,
+    Integer used,
+    Instant resetAt,
+    Instant pausedUntil,
+    long throttledRequests,
+    long rateLimitedResponses) {}
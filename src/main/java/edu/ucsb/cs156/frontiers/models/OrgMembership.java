@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.frontiers.models;
+
+import java.util.List;
+
+/**
+ * The people in a GitHub organization, by role, as read with one paginated GraphQL query.
+ *
+ * @param members users with the member role
+ * @param admins users with the admin (owner) role
+ * @param invitees users who have been invited but have not yet joined
+ * @param queries number of GraphQL requests that were made
+ * @param cost GraphQL rate limit points those requests used
+ */
+public record OrgMembership(
+    List<OrgMember> members,
+    List<OrgMember> admins,
+    List<OrgMember> invitees,
+    int queries,
+    int cost) {
+
+  /** Number of people the REST API returns per page at most. */
+  private static final int REST_PAGE_SIZE = 100;
+
+  /**
+   * @return the number of REST calls it takes to list the same members, admins and invitees
+   */
+  public int restCalls() {
+    return restPages(members.size()) + restPages(admins.size()) + restPages(invitees.size());
+  }
+
+  private static int restPages(int people) {
+    return Math.max(1, (people + REST_PAGE_SIZE - 1) / REST_PAGE_SIZE);
+  }
+}
@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.BranchCommit;
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BranchCommitRepository extends JpaRepository<BranchCommit, Long> {
+
+  @Query(
+      "select b.commit.oid from BranchCommit b where b.commit.org = :org"
+          + " and b.commit.repo = :repo and b.branch = :branch and b.commit.oid in :oids")
+  Set<String> findOidsIn(
+      @Param("org") String org,
+      @Param("repo") String repo,
+      @Param("branch") String branch,
+      @Param("oids") Collection<String> oids);
+
+  Optional<BranchCommit> findFirstByCommitOrgAndCommitRepoAndBranchOrderByCommitCommittedDateDesc(
+      String org, String repo, String branch);
+
+  @Query(
+      "select b.commit from BranchCommit b where b.commit.org = :org and b.commit.repo = :repo"
+          + " and b.branch = :branch and b.commit.committedDate between :from and :to"
+          + " order by b.commit.committedDate desc")
+  List<RepositoryCommit> findCommitsBetween(
+      @Param("org") String org,
+      @Param("repo") String repo,
+      @Param("branch") String branch,
+      @Param("from") Instant from,
+      @Param("to") Instant to);
+}
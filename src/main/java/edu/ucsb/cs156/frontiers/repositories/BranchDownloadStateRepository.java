@@ -0,0 +1,11 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.BranchDownloadState;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BranchDownloadStateRepository extends JpaRepository<BranchDownloadState, Long> {
+  Optional<BranchDownloadState> findByOrgAndRepoAndBranch(String org, String repo, String branch);
+}
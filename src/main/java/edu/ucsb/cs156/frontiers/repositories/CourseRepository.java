@@ -1,13 +1,41 @@
 package edu.ucsb.cs156.frontiers.repositories;
 
 import edu.ucsb.cs156.frontiers.entities.Course;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface CourseRepository extends JpaRepository<Course, Long> {
 
   Optional<Course> findByInstallationId(String installationId);
 
+  List<Course> findByInstallationIdIn(Collection<String> installationIds);
+
   List<Course> findByInstructorEmail(String instructorEmail);
+
+  List<Course> findByInstallationIdIsNotNullAndGithubOrgIdIsNull();
+
+  // The sync times are set on their own, so that a job holding a detached course does not write
+  // back the rest of it
+
+  @Modifying
+  @Query("update Course c set c.lastMembershipAuditAt = :auditedAt where c.id = :id")
+  void setLastMembershipAuditAt(@Param("id") Long id, @Param("auditedAt") Instant auditedAt);
+
+  @Modifying
+  @Query("update Course c set c.orgMembersSyncedAt = :syncedAt where c.id = :id")
+  void setOrgMembersSyncedAt(@Param("id") Long id, @Param("syncedAt") Instant syncedAt);
+
+  @Modifying
+  @Query("update Course c set c.teamsSyncedAt = :syncedAt where c.id = :id")
+  void setTeamsSyncedAt(@Param("id") Long id, @Param("syncedAt") Instant syncedAt);
+
+  @Modifying
+  @Query("update Course c set c.repositoriesSyncedAt = :syncedAt where c.id = :id")
+  void setRepositoriesSyncedAt(@Param("id") Long id, @Param("syncedAt") Instant syncedAt);
 }
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
+import edu.ucsb.cs156.frontiers.entities.DownloadRequestCommit;
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DownloadRequestCommitRepository
+    extends JpaRepository<DownloadRequestCommit, Long> {
+
+  /** The commits of a download request, in the order they were added to it. */
+  @Query("select l.commit from DownloadRequestCommit l where l.request = :request order by l.id")
+  List<RepositoryCommit> findCommitsByRequest(@Param("request") DownloadRequest request);
+
+  /** The repositories that commits of a download request have been linked from. */
+  @Query("select distinct l.commit.repo from DownloadRequestCommit l where l.request = :request")
+  Set<String> findRepositoriesByRequest(@Param("request") DownloadRequest request);
+
+  void deleteByRequest(DownloadRequest request);
+}
@@ -1,6 +1,15 @@
 package edu.ucsb.cs156.frontiers.repositories;
 
 import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
-public interface DownloadRequestRepository extends CrudRepository<DownloadRequest, Long> {}
+public interface DownloadRequestRepository extends CrudRepository<DownloadRequest, Long> {
+
+  // Set on its own, so that a download in progress never writes back the rest of a stale request
+  @Modifying
+  @Query("update DownloadRequest r set r.lastCursor = :cursor where r.id = :id")
+  void setLastCursor(@Param("id") Long id, @Param("cursor") String cursor);
+}
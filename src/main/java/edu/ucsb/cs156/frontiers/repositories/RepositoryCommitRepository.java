@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RepositoryCommitRepository extends JpaRepository<RepositoryCommit, Long> {
+  List<RepositoryCommit> findByOrgAndRepoAndOidIn(String org, String repo, Collection<String> oids);
+}
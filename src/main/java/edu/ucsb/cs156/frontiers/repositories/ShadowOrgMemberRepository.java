@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.ShadowOrgMember;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ShadowOrgMemberRepository extends JpaRepository<ShadowOrgMember, Long> {
+  List<ShadowOrgMember> findByCourse(Course course);
+
+  Optional<ShadowOrgMember> findByCourseAndGithubId(Course course, Integer githubId);
+
+  // A bulk delete, so that the rows are gone before a resync inserts their replacements
+  @Modifying
+  @Query("delete from ShadowOrgMember s where s.course = :course")
+  void deleteByCourse(@Param("course") Course course);
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.ShadowRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ShadowRepositoryRepository extends JpaRepository<ShadowRepository, Long> {
+  List<ShadowRepository> findByCourse(Course course);
+
+  Optional<ShadowRepository> findByCourseAndName(Course course, String name);
+
+  List<ShadowRepository> findByCourseAndNameIn(Course course, Collection<String> names);
+
+  // A bulk delete, so that the rows are gone before a resync inserts their replacements
+  @Modifying
+  @Query("delete from ShadowRepository s where s.course = :course")
+  void deleteByCourse(@Param("course") Course course);
+}
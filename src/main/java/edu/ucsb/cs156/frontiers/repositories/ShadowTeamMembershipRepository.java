@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.ShadowTeamMembership;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ShadowTeamMembershipRepository extends JpaRepository<ShadowTeamMembership, Long> {
+  List<ShadowTeamMembership> findByCourse(Course course);
+
+  Optional<ShadowTeamMembership> findByCourseAndGithubTeamIdAndGithubLogin(
+      Course course, Integer githubTeamId, String githubLogin);
+
+  // A bulk delete, so that the rows are gone before a resync inserts their replacements
+  @Modifying
+  @Query("delete from ShadowTeamMembership s where s.course = :course")
+  void deleteByCourse(@Param("course") Course course);
+
+  void deleteByCourseAndGithubTeamId(Course course, Integer githubTeamId);
+}
@@ -12,4 +12,6 @@ public interface TeamRepository extends JpaRepository<Team, Long> {
   Iterable<Team> findByCourseIdOrderByNameAsc(Long courseId);
 
   Optional<Team> findByCourseIdAndName(Long courseId, String name);
+
+  Optional<Team> findByCourseIdAndGithubTeamId(Long courseId, Integer githubTeamId);
 }
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.frontiers.repositories;
+
+import edu.ucsb.cs156.frontiers.entities.WebhookEvent;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+  boolean existsByDeliveryId(String deliveryId);
+
+  /**
+   * Returns the oldest events that have not been processed yet.
+   *
+   * @param limit the most events to return
+   * @return events in the order they were received
+   */
+  List<WebhookEvent> findByProcessedAtIsNullOrderByIdAsc(Limit limit);
+
+  long deleteByProcessedAtBefore(Instant cutoff);
+}
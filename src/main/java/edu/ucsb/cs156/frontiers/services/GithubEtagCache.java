@@ -0,0 +1,181 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Makes GET requests to GitHub conditional, so that unchanged resources are not downloaded again.
+ *
+ * <p>Successful responses that carry an <code>ETag</code> are kept in a bounded cache keyed by
+ * installation, URL and <code>Accept</code> header. The next GET for the same resource sends <code>
+ * If-None-Match</code>; when GitHub answers <code>304 Not Modified</code> (which does not count
+ * against the primary rate limit) the cached body is returned to the caller, with the headers of
+ * the 304 laid over the cached ones, as if GitHub had sent it again. Every request still reaches
+ * GitHub, so callers never see stale data.
+ *
+ * <p>The cache is bounded by the total size of the cached bodies and entries expire after a fixed
+ * time; both can be set with the <code>app.github.etagCache.*</code> properties. Cache statistics
+ * are published under <code>cache.*{cache=github.etag}</code> and revalidation outcomes under
+ * <code>github.etag.responses</code>.
+ */
+@Service
+public class GithubEtagCache implements ClientHttpRequestInterceptor {
+
+  private record CacheKey(String installationId, URI uri, String accept) {}
+
+  private record CachedResponse(
+      HttpStatusCode status, String statusText, HttpHeaders headers, byte[] body) {}
+
+  private final GithubRateLimitGovernor rateLimitGovernor;
+
+  private final Cache<CacheKey, CachedResponse> cache;
+
+  private final Counter notModified;
+  private final Counter modified;
+  private final Counter uncached;
+
+  public GithubEtagCache(
+      GithubRateLimitGovernor rateLimitGovernor,
+      MeterRegistry meterRegistry,
+      @Value("${app.github.etagCache.maxSize:50MB}") DataSize maxSize,
+      @Value("${app.github.etagCache.ttl:PT1H}") Duration ttl) {
+    this.rateLimitGovernor = rateLimitGovernor;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxSize.toBytes())
+            .weigher((CacheKey key, CachedResponse value) -> value.body().length)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "github.etag");
+    this.notModified = responseCounter(meterRegistry, "not_modified");
+    this.modified = responseCounter(meterRegistry, "modified");
+    this.uncached = responseCounter(meterRegistry, "uncached");
+  }
+
+  private static Counter responseCounter(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("github.etag.responses")
+        .description("GitHub GET responses by whether a cached body could be reused")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    HttpHeaders requestHeaders = request.getHeaders();
+    if (request.getMethod() != HttpMethod.GET
+        || requestHeaders.containsKey(HttpHeaders.IF_NONE_MATCH)) {
+      return execution.execute(request, body);
+    }
+    CacheKey key =
+        new CacheKey(
+            rateLimitGovernor.installationFor(requestHeaders.getFirst(HttpHeaders.AUTHORIZATION)),
+            request.getURI(),
+            requestHeaders.getFirst(HttpHeaders.ACCEPT));
+    CachedResponse cached = cache.getIfPresent(key);
+    if (cached != null) {
+      requestHeaders.set(HttpHeaders.IF_NONE_MATCH, cached.headers().getETag());
+    }
+
+    ClientHttpResponse response = execution.execute(request, body);
+    if (cached != null && response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+      HttpHeaders headers = revalidatedHeaders(cached.headers(), response.getHeaders());
+      response.close();
+      notModified.increment();
+      return new CachedClientHttpResponse(
+          new CachedResponse(cached.status(), cached.statusText(), headers, cached.body()));
+    }
+    (cached == null ? uncached : modified).increment();
+
+    String etag = response.getHeaders().getETag();
+    if (etag == null || !response.getStatusCode().is2xxSuccessful()) {
+      if (cached != null) {
+        cache.invalidate(key);
+      }
+      return response;
+    }
+    CachedResponse fresh;
+    try (response) {
+      HttpHeaders headers = new HttpHeaders();
+      headers.addAll(response.getHeaders());
+      fresh =
+          new CachedResponse(
+              response.getStatusCode(),
+              response.getStatusText(),
+              HttpHeaders.readOnlyHttpHeaders(headers),
+              response.getBody().readAllBytes());
+    }
+    cache.put(key, fresh);
+    return new CachedClientHttpResponse(fresh);
+  }
+
+  /**
+   * Returns the cached headers updated with those of the 304, so that the replayed response reports
+   * the current <code>X-RateLimit-*</code>, <code>Date</code> and so on. The headers that describe
+   * the 304's own (empty) body are left as they were.
+   */
+  private static HttpHeaders revalidatedHeaders(HttpHeaders cached, HttpHeaders fresh) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.addAll(cached);
+    fresh.forEach(
+        (name, values) -> {
+          if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)
+              && !name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)) {
+            headers.put(name, values);
+          }
+        });
+    return HttpHeaders.readOnlyHttpHeaders(headers);
+  }
+
+  /** Replays a cached GitHub response. */
+  private static final class CachedClientHttpResponse implements ClientHttpResponse {
+    private final CachedResponse cached;
+
+    CachedClientHttpResponse(CachedResponse cached) {
+      this.cached = cached;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() {
+      return cached.status();
+    }
+
+    @Override
+    public String getStatusText() {
+      return cached.statusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return cached.headers();
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(cached.body());
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -1,25 +1,56 @@
 package edu.ucsb.cs156.frontiers.services;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.frontiers.entities.BranchCommit;
+import edu.ucsb.cs156.frontiers.entities.BranchDownloadState;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
-import edu.ucsb.cs156.frontiers.entities.DownloadedCommit;
+import edu.ucsb.cs156.frontiers.entities.DownloadRequestCommit;
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
+import edu.ucsb.cs156.frontiers.errors.GithubQueryTimeoutException;
 import edu.ucsb.cs156.frontiers.errors.NoLinkedOrganizationException;
-import edu.ucsb.cs156.frontiers.repositories.DownloadedCommitRepository;
+import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
+import edu.ucsb.cs156.frontiers.repositories.BranchCommitRepository;
+import edu.ucsb.cs156.frontiers.repositories.BranchDownloadStateRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestCommitRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository;
+import edu.ucsb.cs156.frontiers.repositories.RepositoryCommitRepository;
+import edu.ucsb.cs156.frontiers.services.RepositoryService.GithubRepository;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.graphql.GraphQlResponse;
+import org.springframework.graphql.client.ClientGraphQlResponse;
+import org.springframework.graphql.client.GraphQlClient;
 import org.springframework.graphql.client.HttpSyncGraphQlClient;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClient;
 
 @Service
@@ -28,25 +59,78 @@ public class GithubGraphQLService {
 
   private final HttpSyncGraphQlClient graphQlClient;
 
+  /** A client that sends an installation token, kept while that token is the one in use. */
+  private record AuthorizedClient(String token, HttpSyncGraphQlClient client) {}
+
+  private final AtomicReference<AuthorizedClient> authorizedClient = new AtomicReference<>();
+
   private final JwtService jwtService;
 
   private final String githubBaseUrl = "https://api.github.com/graphql";
 
   private final ObjectMapper jacksonObjectMapper;
-  private final DownloadedCommitRepository downloadedCommitRepository;
+  private final RepositoryCommitRepository repositoryCommitRepository;
+  private final DownloadRequestCommitRepository downloadRequestCommitRepository;
+  private final DownloadRequestRepository downloadRequestRepository;
+  private final BranchCommitRepository branchCommitRepository;
+  private final BranchDownloadStateRepository branchDownloadStateRepository;
+  private final TransactionTemplate transactionTemplate;
+
+  /** Commits are saved once at least this many have been downloaded, a whole page at a time. */
+  @Value("${app.github.commitDownload.chunkSize:1000}")
+  private int commitChunkSize;
+
+  /** Number of commits that each time shard of a sharded download is planned to hold. */
+  @Value("${app.github.commitDownload.shardSize:2000}")
+  private int shardSize;
+
+  /** Number of time shards of a sharded download that are read at the same time. */
+  @Value("${app.github.commitDownload.shardParallelism:4}")
+  private int shardParallelism;
+
+  /** Attempts at storing commits before giving up on inserts that other downloads got to first. */
+  private static final int INSERT_ATTEMPTS = 3;
 
   public GithubGraphQLService(
       RestClient.Builder builder,
       JwtService jwtService,
       ObjectMapper jacksonObjectMapper,
-      DownloadedCommitRepository downloadedCommitRepository) {
+      RepositoryCommitRepository repositoryCommitRepository,
+      DownloadRequestCommitRepository downloadRequestCommitRepository,
+      DownloadRequestRepository downloadRequestRepository,
+      BranchCommitRepository branchCommitRepository,
+      BranchDownloadStateRepository branchDownloadStateRepository,
+      TransactionTemplate transactionTemplate,
+      GithubRateLimitGovernor rateLimitGovernor) {
     this.jwtService = jwtService;
     this.graphQlClient =
-        HttpSyncGraphQlClient.builder(builder.baseUrl(githubBaseUrl).build())
+        HttpSyncGraphQlClient.builder(
+                builder.baseUrl(githubBaseUrl).requestInterceptor(rateLimitGovernor).build())
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
             .build();
     this.jacksonObjectMapper = jacksonObjectMapper;
-    this.downloadedCommitRepository = downloadedCommitRepository;
+    this.repositoryCommitRepository = repositoryCommitRepository;
+    this.downloadRequestCommitRepository = downloadRequestCommitRepository;
+    this.downloadRequestRepository = downloadRequestRepository;
+    this.branchCommitRepository = branchCommitRepository;
+    this.branchDownloadStateRepository = branchDownloadStateRepository;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  /**
+   * Returns a client that authenticates with the given installation token. Building a client is
+   * much more expensive than the request for one page, so the client for the most recent token is
+   * reused: a job reading many pages uses the same token throughout.
+   */
+  private HttpSyncGraphQlClient clientFor(String githubToken) {
+    AuthorizedClient current = authorizedClient.get();
+    if (current != null && current.token().equals(githubToken)) {
+      return current.client();
+    }
+    HttpSyncGraphQlClient client =
+        graphQlClient.mutate().header("Authorization", "Bearer " + githubToken).build();
+    authorizedClient.set(new AuthorizedClient(githubToken, client));
+    return client;
   }
 
   /**
@@ -80,11 +164,7 @@ public class GithubGraphQLService {
         }
         """;
 
-    return graphQlClient
-        .mutate()
-        .header("Authorization", "Bearer " + githubToken)
-        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-        .build()
+    return clientFor(githubToken)
         .document(query)
         .variable("owner", owner)
         .variable("repo", repo)
@@ -92,6 +172,217 @@ public class GithubGraphQLService {
         .toEntity(String.class);
   }
 
+  /** GitHub's search API returns at most this many results for one query. */
+  static final int SEARCH_RESULT_LIMIT = 1000;
+
+  /** Characters that end a word in repository names, as GitHub's search splits them. */
+  private static final String SEARCH_WORD_SEPARATORS = "-_.";
+
+  private record SearchPage(int repositoryCount, PageInfo pageInfo, List<SearchNode> nodes) {}
+
+  /** Where a page of a GraphQL connection ends, and whether there are more pages after it. */
+  public record PageInfo(boolean hasNextPage, String endCursor) {}
+
+  private record SearchNode(String name, String nameWithOwner) {}
+
+  /**
+   * Finds the repositories in the course's organization whose names start with a prefix, using
+   * GitHub's repository search so that only candidates are sent back.
+   *
+   * <p>Search matches whole words in repository names rather than prefixes, so it is only used when
+   * the prefix ends where a word does, with a <code>-</code>, <code>_</code> or <code>.</code>;
+   * <code>lab0</code> would not find <code>lab01-team</code>. Results are filtered again here,
+   * ignoring case as GitHub does. Pages are fetched as the stream is consumed; the first page is
+   * fetched before this method returns. Newly created repositories can take a little while to
+   * appear in search.
+   *
+   * @param course the course whose organization should be searched
+   * @param prefix the prefix that repository names must start with
+   * @return the matching repositories, or empty if the prefix does not end at a word boundary or
+   *     more repositories matched than the search API will return, in which case the organization
+   *     should be listed instead
+   */
+  public Optional<Stream<GithubRepository>> searchRepositoriesByPrefix(Course course, String prefix)
+      throws JsonProcessingException,
+          NoSuchAlgorithmException,
+          InvalidKeySpecException,
+          NoLinkedOrganizationException {
+    if (prefix.isEmpty()
+        || SEARCH_WORD_SEPARATORS.indexOf(prefix.charAt(prefix.length() - 1)) < 0) {
+      return Optional.empty();
+    }
+    String githubToken = jwtService.getInstallationToken(course);
+    String searchQuery = "org:" + course.getOrgName() + " " + prefix + " in:name fork:true";
+
+    SearchPage firstPage = searchRepositories(githubToken, searchQuery, null);
+    if (firstPage.repositoryCount() > SEARCH_RESULT_LIMIT) {
+      log.warn(
+          "Repository search for prefix {} in {} matched {} repositories, more than search returns",
+          prefix,
+          course.getOrgName(),
+          firstPage.repositoryCount());
+      return Optional.empty();
+    }
+    return Optional.of(
+        Stream.iterate(
+                firstPage,
+                Objects::nonNull,
+                page ->
+                    page.pageInfo().hasNextPage()
+                        ? searchRepositories(githubToken, searchQuery, page.pageInfo().endCursor())
+                        : null)
+            .flatMap(page -> page.nodes().stream())
+            .filter(node -> node.name().regionMatches(true, 0, prefix, 0, prefix.length()))
+            .map(node -> new GithubRepository(node.name(), node.nameWithOwner())));
+  }
+
+  private SearchPage searchRepositories(String githubToken, String searchQuery, String cursor) {
+    // language=GraphQL
+    String query =
+        """
+        query searchRepositories($query: String!, $first: Int!, $after: String) {
+          search(query: $query, type: REPOSITORY, first: $first, after: $after) {
+            repositoryCount
+            pageInfo {
+              hasNextPage
+              endCursor
+            }
+            nodes {
+              ... on Repository {
+                name
+                nameWithOwner
+              }
+            }
+          }
+        }
+        """;
+
+    return clientFor(githubToken)
+        .document(query)
+        .variable("query", searchQuery)
+        .variable("first", 100)
+        .variable("after", cursor)
+        .retrieveSync("search")
+        .toEntity(SearchPage.class);
+  }
+
+  private record MembershipPage(
+      MemberConnection membersWithRole, PendingConnection pendingMembers) {}
+
+  private record MemberConnection(PageInfo pageInfo, List<MemberEdge> edges) {}
+
+  private record MemberEdge(String role, MemberNode node) {}
+
+  private record PendingConnection(PageInfo pageInfo, List<MemberNode> nodes) {}
+
+  private record MemberNode(int databaseId, String login) {
+    OrgMember toOrgMember() {
+      return OrgMember.builder().githubId(databaseId).githubLogin(login).build();
+    }
+  }
+
+  /**
+   * Reads everyone in the course's organization, with their roles, and everyone who has been
+   * invited but has not yet joined.
+   *
+   * <p>Both lists are paged through together with one query, 100 people of each per request; once
+   * one list runs out the query asks only for the other. This takes far fewer requests than listing
+   * members, admins and invitations separately with the REST API. Invitations sent to an email
+   * address that has no GitHub account are not included.
+   *
+   * @param course the course whose organization should be read
+   * @return the organization's members, admins and invitees, with the number of queries made and
+   *     the GraphQL rate limit points they cost
+   * @throws IllegalStateException if GitHub returns no organization
+   */
+  public OrgMembership getOrganizationMembership(Course course)
+      throws JsonProcessingException,
+          NoSuchAlgorithmException,
+          InvalidKeySpecException,
+          NoLinkedOrganizationException {
+    String githubToken = jwtService.getInstallationToken(course);
+    // language=GraphQL
+    String query =
+        """
+        query organizationMembership($org: String!, $membersAfter: String, $pendingAfter: String, $includeMembers: Boolean!, $includePending: Boolean!) {
+          rateLimit {
+            cost
+          }
+          organization(login: $org) {
+            membersWithRole(first: 100, after: $membersAfter) @include(if: $includeMembers) {
+              pageInfo {
+                hasNextPage
+                endCursor
+              }
+              edges {
+                role
+                node {
+                  databaseId
+                  login
+                }
+              }
+            }
+            pendingMembers(first: 100, after: $pendingAfter) @include(if: $includePending) {
+              pageInfo {
+                hasNextPage
+                endCursor
+              }
+              nodes {
+                databaseId
+                login
+              }
+            }
+          }
+        }
+        """;
+
+    List<OrgMember> members = new ArrayList<>();
+    List<OrgMember> admins = new ArrayList<>();
+    List<OrgMember> invitees = new ArrayList<>();
+    String membersCursor = null;
+    String pendingCursor = null;
+    boolean moreMembers = true;
+    boolean morePending = true;
+    int queries = 0;
+    int cost = 0;
+    while (moreMembers || morePending) {
+      ClientGraphQlResponse response =
+          clientFor(githubToken)
+              .document(query)
+              .variable("org", course.getOrgName())
+              .variable("membersAfter", membersCursor)
+              .variable("pendingAfter", pendingCursor)
+              .variable("includeMembers", moreMembers)
+              .variable("includePending", morePending)
+              .executeSync();
+      queries++;
+      cost += response.field("rateLimit.cost").toEntity(Integer.class);
+      MembershipPage page = response.field("organization").toEntity(MembershipPage.class);
+      if (page == null) {
+        // GitHub answers null without an error when, for example, the organization was deleted
+        throw new IllegalStateException(
+            "GitHub returned no organization %s; it may have been deleted or renamed"
+                .formatted(course.getOrgName()));
+      }
+
+      if (moreMembers) {
+        for (MemberEdge edge : page.membersWithRole().edges()) {
+          ("ADMIN".equals(edge.role()) ? admins : members).add(edge.node().toOrgMember());
+        }
+        moreMembers = page.membersWithRole().pageInfo().hasNextPage();
+        membersCursor = page.membersWithRole().pageInfo().endCursor();
+      }
+      if (morePending) {
+        for (MemberNode node : page.pendingMembers().nodes()) {
+          invitees.add(node.toOrgMember());
+        }
+        morePending = page.pendingMembers().pageInfo().hasNextPage();
+        pendingCursor = page.pendingMembers().pageInfo().endCursor();
+      }
+    }
+    return new OrgMembership(members, admins, invitees, queries, cost);
+  }
+
   public String getCommits(
       Course course, String owner, String repo, String branch, int first, String after)
       throws JsonProcessingException,
@@ -105,6 +396,9 @@ public class GithubGraphQLService {
    * Retrieves the commit history for a specified branch of a GitHub repository within a given time
    * range.
    *
+   * <p>The response is returned as JSON, to be passed on unchanged. Code that reads the commits
+   * itself should use {@link #getCommitHistoryPage} instead, which skips the JSON round trip.
+   *
    * @param course The course entity, used to fetch the associated GitHub installation token.
    * @param owner The owner of the GitHub repository.
    * @param repo The name of the GitHub repository.
@@ -176,10 +470,7 @@ public class GithubGraphQLService {
             """;
 
     GraphQlResponse response =
-        graphQlClient
-            .mutate()
-            .header("Authorization", "Bearer " + githubToken)
-            .build()
+        clientFor(githubToken)
             .document(query)
             .variable("owner", owner)
             .variable("repo", repo)
@@ -195,51 +486,773 @@ public class GithubGraphQLService {
     return jsonData;
   }
 
+  /** One page of a branch's commit history, newest commit first. */
+  public record CommitHistoryPage(PageInfo pageInfo, List<GithubCommit> nodes) {}
+
+  /** A commit, with the fields {@link #getCommitHistoryPage} reads. */
+  public record GithubCommit(
+      String oid,
+      String url,
+      String messageHeadline,
+      Instant committedDate,
+      GitActor author,
+      GitActor committer) {}
+
+  /** The author or committer of a commit, and their GitHub account if it is linked to one. */
+  public record GitActor(String name, String email, GitUser user) {
+    /** The login of the linked GitHub account, or null if there is none. */
+    public String login() {
+      return user != null ? user.login() : null;
+    }
+  }
+
+  /** A GitHub account. */
+  public record GitUser(String login) {}
+
+  /** Stand in for the missing ends of a time range when reading kept commits. */
+  private static final Instant BEGINNING_OF_HISTORY = Instant.EPOCH;
+
+  private static final Instant END_OF_HISTORY = Instant.parse("9999-12-31T23:59:59Z");
+
+  private static final GitActor NO_ACTOR = new GitActor(null, null, null);
+
+  private static final CommitHistoryPage EMPTY_HISTORY =
+      new CommitHistoryPage(new PageInfo(false, null), List.of());
+
+  /**
+   * Reads one page of the commit history of a branch, mapping the response straight into {@link
+   * GithubCommit} records. Use this rather than {@link #getCommits} when the commits are processed
+   * here rather than passed on as JSON.
+   *
+   * @param course the course whose installation token is used
+   * @param owner the owner of the repository
+   * @param repo the name of the repository
+   * @param branch the branch whose history is read
+   * @param since the earliest commit time to include, or null
+   * @param until the latest commit time to include, or null
+   * @param size the number of commits per page, at most 100
+   * @param cursor the end cursor of the previous page, or null for the first page
+   * @return the page, which is empty if the repository or branch does not exist
+   */
+  public CommitHistoryPage getCommitHistoryPage(
+      Course course,
+      String owner,
+      String repo,
+      String branch,
+      Instant since,
+      Instant until,
+      int size,
+      String cursor)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    String githubToken = jwtService.getInstallationToken(course);
+    // language=GraphQL
+    String query =
+        """
+        query GetCommitHistoryPage($owner: String!, $repo: String!, $branch: String!, $first: Int!, $after: String, $since: GitTimestamp, $until: GitTimestamp) {
+          repository(owner: $owner, name: $repo) {
+            ref(qualifiedName: $branch) {
+              target {
+                ... on Commit {
+                  history(first: $first, after: $after, since: $since, until: $until) {
+                    pageInfo {
+                      hasNextPage
+                      endCursor
+                    }
+                    nodes {
+                      oid
+                      url
+                      messageHeadline
+                      committedDate
+                      author {
+                        name
+                        email
+                        user {
+                          login
+                        }
+                      }
+                      committer {
+                        name
+                        email
+                        user {
+                          login
+                        }
+                      }
+                    }
+                  }
+                }
+              }
+            }
+          }
+        }
+        """;
+
+    ClientGraphQlResponse response =
+        executeHistoryQuery(
+            owner,
+            repo,
+            clientFor(githubToken)
+                .document(query)
+                .variable("owner", owner)
+                .variable("repo", repo)
+                .variable("branch", branch)
+                .variable("first", size)
+                .variable("after", cursor)
+                .variable("since", since)
+                .variable("until", until));
+    CommitHistoryPage page =
+        response.field("repository.ref.target.history").toEntity(CommitHistoryPage.class);
+    return page != null ? page : EMPTY_HISTORY;
+  }
+
+  /**
+   * Runs a query on a repository's commit history, turning GitHub's ways of saying that it ran out
+   * of time, a 502 or 504 response or an error in an otherwise successful one, into {@link
+   * GithubQueryTimeoutException}. Queries that filter a long history by time are the ones that time
+   * out.
+   */
+  private ClientGraphQlResponse executeHistoryQuery(
+      String owner, String repo, GraphQlClient.RequestSpec request) {
+    ClientGraphQlResponse response;
+    try {
+      response = request.executeSync();
+    } catch (HttpServerErrorException e) {
+      if (e.getStatusCode() == HttpStatus.BAD_GATEWAY
+          || e.getStatusCode() == HttpStatus.GATEWAY_TIMEOUT) {
+        throw new GithubQueryTimeoutException(owner, repo, e);
+      }
+      throw e;
+    }
+    if (response.getErrors().stream()
+        .anyMatch(error -> String.valueOf(error.getMessage()).contains("timeout"))) {
+      throw new GithubQueryTimeoutException(owner, repo, null);
+    }
+    return response;
+  }
+
+  /**
+   * Downloads the commit history described by a download request and saves it.
+   *
+   * <p>Each commit is stored once per repository, however many requests include it, and linked to
+   * the request. Commits are saved in chunks of about <code>app.github.commitDownload.chunkSize
+   * </code> as the pages arrive, each chunk in its own transaction together with the cursor after
+   * it. If the request already has a cursor, from an earlier attempt that was interrupted, the
+   * download continues from there rather than starting over.
+   *
+   * <p>Incremental requests are handled by {@link #downloadIncrementally}, and sharded ones by
+   * {@link #downloadSharded}.
+   *
+   * @param downloadRequest the repository, branch and time range to download
+   */
   public void downloadCommitHistory(DownloadRequest downloadRequest)
+      throws NoSuchAlgorithmException,
+          InvalidKeySpecException,
+          JsonProcessingException,
+          InterruptedException,
+          ExecutionException {
+    if (downloadRequest.getIncremental()) {
+      downloadIncrementally(downloadRequest);
+      return;
+    }
+    if (downloadRequest.getSharded()) {
+      downloadSharded(downloadRequest);
+      return;
+    }
+    fetchHistory(
+        downloadRequest,
+        downloadRequest.getStartDate(),
+        downloadRequest.getEndDate(),
+        commits ->
+            linkToRequest(
+                downloadRequest,
+                storeCommits(downloadRequest.getOrg(), downloadRequest.getRepo(), commits)));
+  }
+
+  /**
+   * Downloads the history of one of the repositories of an {@link
+   * edu.ucsb.cs156.frontiers.enums.DownloadRequestType#ORG_COMMITS} request, for the request's
+   * branch and time range, and links its commits to the request.
+   *
+   * <p>The commits are stored in chunks as the pages arrive, keeping only their ids, and linked all
+   * at once, once the whole history has been read, so a repository is either wholly part of the
+   * request or not at all; see {@link #getDownloadedRepositories}. This method may be called for
+   * several repositories at the same time.
+   *
+   * @param downloadRequest the bulk request
+   * @param repo the name of the repository
+   * @return the number of commits downloaded
+   */
+  public int downloadRepositoryHistory(DownloadRequest downloadRequest, String repo)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    String org = downloadRequest.getOrg();
+    List<Long> commitIds = new ArrayList<>();
+    List<GithubCommit> commits = new ArrayList<>(commitChunkSize);
+    String cursor = null;
+    boolean hasNextPage;
+    do {
+      CommitHistoryPage page =
+          getCommitHistoryPage(
+              downloadRequest.getCourse(),
+              org,
+              repo,
+              downloadRequest.getBranch(),
+              downloadRequest.getStartDate(),
+              downloadRequest.getEndDate(),
+              100,
+              cursor);
+      commits.addAll(page.nodes());
+      cursor = page.pageInfo().endCursor();
+      hasNextPage = page.pageInfo().hasNextPage();
+
+      if (commits.size() >= commitChunkSize || !hasNextPage) {
+        storeCommits(org, repo, commits).forEach(commit -> commitIds.add(commit.getId()));
+        commits = new ArrayList<>(commitChunkSize);
+      }
+    } while (hasNextPage);
+
+    transactionTemplate.executeWithoutResult(
+        status ->
+            downloadRequestCommitRepository.saveAll(
+                linkToRequest(
+                    downloadRequest,
+                    commitIds.stream()
+                        .map(repositoryCommitRepository::getReferenceById)
+                        .toList())));
+    return commitIds.size();
+  }
+
+  /** The repositories whose commits have already been linked to a download request. */
+  public Set<String> getDownloadedRepositories(DownloadRequest downloadRequest) {
+    return downloadRequestCommitRepository.findRepositoriesByRequest(downloadRequest);
+  }
+
+  /** A stretch of a branch's history, between two commit times; either end may be open. */
+  private record HistoryShard(Instant since, Instant until) {
+    /** The time halfway through the shard, if it has both ends and is at least two seconds long. */
+    Optional<Instant> middle() {
+      if (since == null || until == null || Duration.between(since, until).getSeconds() < 2) {
+        return Optional.empty();
+      }
+      return Optional.of(since.plus(Duration.between(since, until).dividedBy(2)));
+    }
+  }
+
+  private record CommitDate(Instant committedDate) {}
+
+  private record CommitDates(List<CommitDate> nodes) {}
+
+  private record CommitCount(int totalCount) {}
+
+  /** How many commits a proposed shard holds, and the newest commit older than it. */
+  private record ShardProbe(CommitCount shard, CommitDates older) {}
+
+  private static final CommitDates NO_COMMIT_DATES = new CommitDates(List.of());
+
+  private static final ShardProbe EMPTY_PROBE = new ShardProbe(new CommitCount(0), NO_COMMIT_DATES);
+
+  /**
+   * Downloads a sharded request. Its time range is split into shards of about <code>
+   * app.github.commitDownload.shardSize</code> commits each, which are read at the same time, up to
+   * <code>app.github.commitDownload.shardParallelism</code> of them at once, rather than page after
+   * page.
+   *
+   * <p>Each shard is saved as soon as it and every newer shard have been read, so that the commits
+   * are linked to the request newest first, as with an unsharded download. A sharded request that
+   * is resumed starts over; commits that were already stored are not stored again.
+   */
+  private void downloadSharded(DownloadRequest downloadRequest)
+      throws NoSuchAlgorithmException,
+          InvalidKeySpecException,
+          JsonProcessingException,
+          InterruptedException,
+          ExecutionException {
+    String org = downloadRequest.getOrg();
+    String repo = downloadRequest.getRepo();
+    List<HistoryShard> shards = planShards(downloadRequest);
+    log.info("Downloading {}/{} in {} time shards", org, repo, shards.size());
+
+    transactionTemplate.executeWithoutResult(
+        status -> downloadRequestCommitRepository.deleteByRequest(downloadRequest));
+    try (ExecutorService executor =
+        Executors.newFixedThreadPool(
+            shardParallelism,
+            Thread.ofVirtual()
+                .name("history-shards-" + downloadRequest.getId() + "-", 0)
+                .factory())) {
+      List<Future<List<GithubCommit>>> fetches =
+          shards.stream()
+              .map(shard -> executor.submit(() -> fetchShard(downloadRequest, shard)))
+              .toList();
+      List<GithubCommit> newer = List.of();
+      for (Future<List<GithubCommit>> fetch : fetches) {
+        List<GithubCommit> shardCommits;
+        try {
+          shardCommits = fetch.get();
+        } catch (ExecutionException e) {
+          // The download has failed, so the shards still being read are of no use
+          executor.shutdownNow();
+          if (e.getCause() instanceof RuntimeException cause) {
+            throw cause;
+          }
+          throw e;
+        }
+        List<DownloadRequestCommit> links =
+            linkToRequest(
+                downloadRequest, storeCommits(org, repo, withoutCommitsIn(shardCommits, newer)));
+        transactionTemplate.executeWithoutResult(
+            status -> downloadRequestCommitRepository.saveAll(links));
+        newer = shardCommits;
+      }
+    }
+  }
+
+  /**
+   * Splits the time range of a request into shards, newest first, that hold about <code>
+   * app.github.commitDownload.shardSize</code> commits each.
+   *
+   * <p>The length of the first shard is estimated from how close together the newest commits are.
+   * Each shard is counted before it is accepted: one that holds more than twice as many commits as
+   * wanted, or whose count times out, is halved and counted again, and the length of the next one
+   * is scaled by how far off the count was. Periods without commits are skipped by starting each
+   * shard from the newest commit older than the previous one.
+   */
+  private List<HistoryShard> planShards(DownloadRequest downloadRequest)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    Instant start = downloadRequest.getStartDate();
+    Instant end = downloadRequest.getEndDate();
+    List<CommitDate> newest = getCommitDates(downloadRequest, start, end).nodes();
+    if (newest.size() < 100) {
+      return List.of(new HistoryShard(start, end));
+    }
+
+    long window =
+        Math.max(
+            1,
+            Duration.between(newest.getLast().committedDate(), newest.getFirst().committedDate())
+                    .getSeconds()
+                * shardSize
+                / newest.size());
+    List<HistoryShard> shards = new ArrayList<>();
+    Instant upper = newest.getFirst().committedDate();
+    Instant until = end;
+    while (true) {
+      Instant since = upper.minusSeconds(window);
+      if (start != null && !since.isAfter(start)) {
+        break;
+      }
+      ShardProbe probe;
+      try {
+        probe = probeShard(downloadRequest, start, since, until);
+      } catch (GithubQueryTimeoutException e) {
+        if (window == 1) {
+          throw e;
+        }
+        window = window / 2;
+        continue;
+      }
+      int count = probe.shard().totalCount();
+      if (count > 2 * shardSize && window > 1) {
+        window = window / 2;
+        continue;
+      }
+      shards.add(new HistoryShard(since, until));
+      window =
+          Math.max(1, (long) (window * Math.min(4.0, (double) shardSize / Math.max(1, count))));
+      until = since;
+      if (probe.older().nodes().isEmpty()) {
+        return shards;
+      }
+      upper = probe.older().nodes().getFirst().committedDate();
+    }
+    shards.add(new HistoryShard(start, until));
+    return shards;
+  }
+
+  /** Reads the commit times of the newest hundred commits of a request's branch in a range. */
+  private CommitDates getCommitDates(DownloadRequest downloadRequest, Instant since, Instant until)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    String githubToken = jwtService.getInstallationToken(downloadRequest.getCourse());
+    // language=GraphQL
+    String query =
+        """
+        query GetCommitDates($owner: String!, $repo: String!, $branch: String!, $since: GitTimestamp, $until: GitTimestamp) {
+          repository(owner: $owner, name: $repo) {
+            ref(qualifiedName: $branch) {
+              target {
+                ... on Commit {
+                  history(first: 100, since: $since, until: $until) {
+                    nodes {
+                      committedDate
+                    }
+                  }
+                }
+              }
+            }
+          }
+        }
+        """;
+
+    ClientGraphQlResponse response =
+        executeHistoryQuery(
+            downloadRequest.getOrg(),
+            downloadRequest.getRepo(),
+            clientFor(githubToken)
+                .document(query)
+                .variable("owner", downloadRequest.getOrg())
+                .variable("repo", downloadRequest.getRepo())
+                .variable("branch", downloadRequest.getBranch())
+                .variable("since", since)
+                .variable("until", until));
+    return Objects.requireNonNullElse(
+        response.field("repository.ref.target.history").toEntity(CommitDates.class),
+        NO_COMMIT_DATES);
+  }
+
+  /**
+   * Counts the commits of a proposed shard, and finds the newest commit older than it, back to the
+   * start of the request, with one query.
+   */
+  private ShardProbe probeShard(
+      DownloadRequest downloadRequest, Instant start, Instant since, Instant until)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    String githubToken = jwtService.getInstallationToken(downloadRequest.getCourse());
+    // language=GraphQL
+    String query =
+        """
+        query ProbeHistoryShard($owner: String!, $repo: String!, $branch: String!, $start: GitTimestamp, $since: GitTimestamp!, $until: GitTimestamp) {
+          repository(owner: $owner, name: $repo) {
+            ref(qualifiedName: $branch) {
+              target {
+                ... on Commit {
+                  shard: history(first: 1, since: $since, until: $until) {
+                    totalCount
+                  }
+                  older: history(first: 1, since: $start, until: $since) {
+                    nodes {
+                      committedDate
+                    }
+                  }
+                }
+              }
+            }
+          }
+        }
+        """;
+
+    ClientGraphQlResponse response =
+        executeHistoryQuery(
+            downloadRequest.getOrg(),
+            downloadRequest.getRepo(),
+            clientFor(githubToken)
+                .document(query)
+                .variable("owner", downloadRequest.getOrg())
+                .variable("repo", downloadRequest.getRepo())
+                .variable("branch", downloadRequest.getBranch())
+                .variable("start", start)
+                .variable("since", since)
+                .variable("until", until));
+    return Objects.requireNonNullElse(
+        response.field("repository.ref.target").toEntity(ShardProbe.class), EMPTY_PROBE);
+  }
+
+  /**
+   * Reads the commits of one shard, newest first. If GitHub times out, the shard is read as smaller
+   * shards instead: the part older than the commits read so far, or if there are none, each half of
+   * it. Runs on a worker thread.
+   */
+  private List<GithubCommit> fetchShard(DownloadRequest downloadRequest, HistoryShard shard)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
-    String pointer = null;
+    List<GithubCommit> commits = new ArrayList<>();
+    String cursor = null;
     boolean hasNextPage;
-    List<DownloadedCommit> downloadedCommits = new ArrayList<>(4000);
     do {
-      JsonNode currentPage =
-          jacksonObjectMapper.readTree(
-              getCommits(
-                  downloadRequest.getCourse(),
-                  downloadRequest.getOrg(),
-                  downloadRequest.getRepo(),
-                  downloadRequest.getBranch(),
-                  downloadRequest.getStartDate(),
-                  downloadRequest.getEndDate(),
-                  100,
-                  pointer));
-      pointer =
-          currentPage
-              .path("repository")
-              .path("ref")
-              .path("target")
-              .path("history")
-              .path("pageInfo")
-              .path("endCursor")
-              .asText();
-      hasNextPage =
-          currentPage
-              .path("repository")
-              .path("ref")
-              .path("target")
-              .path("history")
-              .path("pageInfo")
-              .path("hasNextPage")
-              .asBoolean();
-      JsonNode commits =
-          currentPage.path("repository").path("ref").path("target").path("history").path("edges");
-      for (JsonNode node : commits) {
-        DownloadedCommit newCommit =
-            jacksonObjectMapper.treeToValue(node.get("node"), DownloadedCommit.class);
-        newCommit.setRequest(downloadRequest);
-        downloadedCommits.add(newCommit);
+      CommitHistoryPage page;
+      try {
+        page =
+            getCommitHistoryPage(
+                downloadRequest.getCourse(),
+                downloadRequest.getOrg(),
+                downloadRequest.getRepo(),
+                downloadRequest.getBranch(),
+                shard.since(),
+                shard.until(),
+                100,
+                cursor);
+      } catch (GithubQueryTimeoutException e) {
+        Instant oldestRead = commits.isEmpty() ? null : commits.getLast().committedDate();
+        if (oldestRead != null && !oldestRead.equals(shard.until())) {
+          HistoryShard rest = new HistoryShard(shard.since(), oldestRead);
+          return withOlder(commits, fetchShard(downloadRequest, rest));
+        }
+        Instant middle = shard.middle().orElseThrow(() -> e);
+        log.info("Reading shard {} as two halves after a timeout", shard);
+        List<GithubCommit> newerHalf =
+            fetchShard(downloadRequest, new HistoryShard(middle, shard.until()));
+        return withOlder(
+            newerHalf, fetchShard(downloadRequest, new HistoryShard(shard.since(), middle)));
+      }
+      commits.addAll(page.nodes());
+      cursor = page.pageInfo().endCursor();
+      hasNextPage = page.pageInfo().hasNextPage();
+    } while (hasNextPage);
+    return commits;
+  }
+
+  /** Appends the commits of the shard before the given ones, leaving out those read with both. */
+  private static List<GithubCommit> withOlder(
+      List<GithubCommit> commits, List<GithubCommit> older) {
+    return Stream.concat(commits.stream(), withoutCommitsIn(older, commits).stream()).toList();
+  }
+
+  /**
+   * Leaves out the commits that were read with a newer shard. Shards share their boundary time, so
+   * the commits made exactly then are read with both.
+   */
+  private static List<GithubCommit> withoutCommitsIn(
+      List<GithubCommit> commits, List<GithubCommit> newer) {
+    Set<String> newerOids = newer.stream().map(GithubCommit::oid).collect(Collectors.toSet());
+    return commits.stream().filter(commit -> !newerOids.contains(commit.oid())).toList();
+  }
+
+  /**
+   * Downloads an incremental request. The commits kept for its branch are first brought up to date,
+   * fetching only the ones made since the newest kept commit, and the kept commits in the requested
+   * range are then linked to the request.
+   *
+   * <p>The kept commits are only reused if they reach back to the start of the requested range;
+   * otherwise the branch is fetched again from there. Commits are found by commit time, so a commit
+   * that reaches the branch after newer ones, for example when an old branch is merged, is missed
+   * until the branch is fetched again from before it.
+   */
+  private void downloadIncrementally(DownloadRequest downloadRequest)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    String org = downloadRequest.getOrg();
+    String repo = downloadRequest.getRepo();
+    String branch = downloadRequest.getBranch();
+    Instant start = downloadRequest.getStartDate();
+    Instant end = downloadRequest.getEndDate();
+
+    Optional<BranchDownloadState> kept =
+        branchDownloadStateRepository
+            .findByOrgAndRepoAndBranch(org, repo, branch)
+            .filter(
+                state ->
+                    state.getCoveredSince() == null
+                        || (start != null && !start.isBefore(state.getCoveredSince())));
+    Instant coveredSince = kept.map(BranchDownloadState::getCoveredSince).orElse(start);
+    Instant since = kept.map(BranchDownloadState::getNewestCommittedDate).orElse(start);
+
+    // Nothing newer than the kept commits can be in a range that ends before the newest of them
+    if (kept.isEmpty() || end == null || end.isAfter(since)) {
+      fetchHistory(
+          downloadRequest,
+          since,
+          null,
+          commits -> {
+            keepBranchCommits(org, repo, branch, commits);
+            return List.of();
+          });
+      insertMissing(
+          () -> {
+            updateBranchDownloadState(org, repo, branch, coveredSince);
+            // The cursor belongs to a query from the old newest commit, which has now moved on
+            downloadRequestRepository.setLastCursor(downloadRequest.getId(), null);
+            return null;
+          });
+    }
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          List<RepositoryCommit> inRange =
+              branchCommitRepository.findCommitsBetween(
+                  org,
+                  repo,
+                  branch,
+                  start != null ? start : BEGINNING_OF_HISTORY,
+                  end != null ? end : END_OF_HISTORY);
+          // A resumed request may already have some of them
+          downloadRequestCommitRepository.deleteByRequest(downloadRequest);
+          downloadRequestCommitRepository.saveAll(linkToRequest(downloadRequest, inRange));
+        });
+  }
+
+  /** Keeps the commits of a branch that are not kept already. */
+  private void keepBranchCommits(
+      String org, String repo, String branch, List<GithubCommit> commits) {
+    if (commits.isEmpty()) {
+      return;
+    }
+    List<RepositoryCommit> stored = storeCommits(org, repo, commits);
+    insertMissing(
+        () -> {
+          Set<String> keptOids =
+              branchCommitRepository.findOidsIn(
+                  org, repo, branch, commits.stream().map(GithubCommit::oid).toList());
+          return branchCommitRepository.saveAll(
+              stored.stream()
+                  .filter(commit -> !keptOids.contains(commit.getOid()))
+                  .map(commit -> BranchCommit.builder().branch(branch).commit(commit).build())
+                  .toList());
+        });
+  }
+
+  /**
+   * Stores the commits of a repository that are not stored already.
+   *
+   * @return the stored commits, in the same order as the given ones
+   */
+  private List<RepositoryCommit> storeCommits(String org, String repo, List<GithubCommit> commits) {
+    if (commits.isEmpty()) {
+      return List.of();
+    }
+    return insertMissing(
+        () -> {
+          Map<String, RepositoryCommit> stored = new HashMap<>();
+          repositoryCommitRepository
+              .findByOrgAndRepoAndOidIn(org, repo, commits.stream().map(GithubCommit::oid).toList())
+              .forEach(commit -> stored.put(commit.getOid(), commit));
+          List<RepositoryCommit> added = new ArrayList<>();
+          for (GithubCommit commit : commits) {
+            if (!stored.containsKey(commit.oid())) {
+              RepositoryCommit repositoryCommit = toRepositoryCommit(org, repo, commit);
+              stored.put(commit.oid(), repositoryCommit);
+              added.add(repositoryCommit);
+            }
+          }
+          // New commits are persisted as they are, so the map ends up holding the saved ones
+          repositoryCommitRepository.saveAll(added);
+          return commits.stream().map(commit -> stored.get(commit.oid())).toList();
+        });
+  }
+
+  /**
+   * Runs a check for rows followed by an insert of the missing ones, in a transaction of its own.
+   * Another download may insert some of the same rows in between, which their unique constraints
+   * reject; the transaction is then retried, and finds the other download's rows. Must not be
+   * called within another transaction, which the rejected insert would leave unusable.
+   */
+  private <T> T insertMissing(Supplier<T> checkThenInsert) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transactionTemplate.execute(status -> checkThenInsert.get());
+      } catch (DataIntegrityViolationException e) {
+        if (attempt == INSERT_ATTEMPTS) {
+          throw e;
+        }
+        log.info("Retrying an insert that another download got to first: {}", e.getMessage());
       }
+    }
+  }
+
+  private static RepositoryCommit toRepositoryCommit(String org, String repo, GithubCommit commit) {
+    GitActor author = Objects.requireNonNullElse(commit.author(), NO_ACTOR);
+    GitActor committer = Objects.requireNonNullElse(commit.committer(), NO_ACTOR);
+    return RepositoryCommit.builder()
+        .org(org)
+        .repo(repo)
+        .oid(commit.oid())
+        .url(commit.url())
+        .messageHeadline(commit.messageHeadline())
+        .committedDate(commit.committedDate())
+        .authorName(author.name())
+        .authorEmail(author.email())
+        .authorLogin(author.login())
+        .committerName(committer.name())
+        .committerEmail(committer.email())
+        .committerLogin(committer.login())
+        .build();
+  }
+
+  private static List<DownloadRequestCommit> linkToRequest(
+      DownloadRequest downloadRequest, List<RepositoryCommit> commits) {
+    return commits.stream()
+        .map(
+            commit ->
+                DownloadRequestCommit.builder().request(downloadRequest).commit(commit).build())
+        .toList();
+  }
+
+  /** Records the newest kept commit of a branch, once it has been brought up to date. */
+  private void updateBranchDownloadState(
+      String org, String repo, String branch, Instant coveredSince) {
+    branchCommitRepository
+        .findFirstByCommitOrgAndCommitRepoAndBranchOrderByCommitCommittedDateDesc(org, repo, branch)
+        .map(BranchCommit::getCommit)
+        .ifPresent(
+            newest -> {
+              BranchDownloadState state =
+                  branchDownloadStateRepository
+                      .findByOrgAndRepoAndBranch(org, repo, branch)
+                      .orElseGet(
+                          () ->
+                              BranchDownloadState.builder()
+                                  .org(org)
+                                  .repo(repo)
+                                  .branch(branch)
+                                  .build());
+              state.setCoveredSince(coveredSince);
+              state.setNewestOid(newest.getOid());
+              state.setNewestCommittedDate(newest.getCommittedDate());
+              branchDownloadStateRepository.save(state);
+            });
+  }
 
+  /**
+   * Reads the history of a request's branch from the request's cursor onwards, and saves it in
+   * chunks with {@link #saveChunk}.
+   *
+   * @param store stores a chunk of commits and returns the links to the request to save with the
+   *     cursor after it
+   */
+  private void fetchHistory(
+      DownloadRequest downloadRequest,
+      Instant since,
+      Instant until,
+      Function<List<GithubCommit>, List<DownloadRequestCommit>> store)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    String pointer = downloadRequest.getLastCursor();
+    boolean hasNextPage;
+    List<GithubCommit> commits = new ArrayList<>(commitChunkSize);
+    do {
+      CommitHistoryPage page =
+          getCommitHistoryPage(
+              downloadRequest.getCourse(),
+              downloadRequest.getOrg(),
+              downloadRequest.getRepo(),
+              downloadRequest.getBranch(),
+              since,
+              until,
+              100,
+              pointer);
+      pointer = page.pageInfo().endCursor();
+      hasNextPage = page.pageInfo().hasNextPage();
+      commits.addAll(page.nodes());
+
+      if (commits.size() >= commitChunkSize || !hasNextPage) {
+        saveChunk(downloadRequest, commits, pointer, store);
+        commits = new ArrayList<>(commitChunkSize);
+      }
     } while (hasNextPage);
-    downloadedCommitRepository.saveAll(downloadedCommits);
+  }
+
+  /**
+   * Saves a chunk of commits and the cursor after them. The commits are stored first, in
+   * transactions of their own since other downloads may be storing the same ones, and their links
+   * to the request are then saved with the cursor, so that neither is saved without the other.
+   */
+  private void saveChunk(
+      DownloadRequest downloadRequest,
+      List<GithubCommit> commits,
+      String cursor,
+      Function<List<GithubCommit>, List<DownloadRequestCommit>> store) {
+    List<DownloadRequestCommit> links = store.apply(commits);
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          if (!links.isEmpty()) {
+            downloadRequestCommitRepository.saveAll(links);
+          }
+          if (cursor != null) {
+            downloadRequestRepository.setLastCursor(downloadRequest.getId(), cursor);
+          }
+        });
   }
 }
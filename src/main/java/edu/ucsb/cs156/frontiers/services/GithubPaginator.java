@@ -0,0 +1,193 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Lists GitHub REST collections that are split into pages.
+ *
+ * <p>The first page is requested with <code>per_page=100</code>, the largest page GitHub allows,
+ * and later pages are found by following the <code>rel="next"</code> URL of each response's <code>
+ * Link</code> header. Results are returned as a lazy {@link Stream}: each page is deserialized
+ * straight from the response body into the target type, and the request for the next page is sent
+ * on a virtual thread as soon as the current page arrives, so that it downloads while the caller
+ * works through the current one. At most two pages are held in memory at a time, however large the
+ * collection is.
+ *
+ * <p>The first page is fetched before {@link #stream} returns, so errors such as a missing
+ * organization are thrown to the caller directly. Streams should be closed, especially by callers
+ * that stop early: closing waits for a next page that is still being fetched and discards it.
+ */
+@Service
+public class GithubPaginator {
+
+  /** The largest page size the GitHub REST API accepts. */
+  public static final int PAGE_SIZE = 100;
+
+  private static final Pattern NEXT_LINK = Pattern.compile("<([^>]*)>; rel=\"next\"");
+  private static final Pattern PER_PAGE = Pattern.compile("[?&]per_page=");
+
+  private static final Executor PREFETCH_EXECUTOR =
+      command -> Thread.ofVirtual().name("github-paginator").start(command);
+
+  /** Reads the items in one page of a GitHub collection from the response body. */
+  @FunctionalInterface
+  public interface PageReader<T> {
+    List<T> read(InputStream body) throws IOException;
+  }
+
+  private final RestTemplate restTemplate;
+  private final ObjectMapper objectMapper;
+
+  public GithubPaginator(RestTemplate githubRestTemplate, ObjectMapper objectMapper) {
+    this.restTemplate = githubRestTemplate;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Streams every item of a GitHub collection, deserializing each one into the given type.
+   * Properties the type does not declare are ignored.
+   *
+   * @param url the URL of the collection, with any filters as query parameters
+   * @param token the installation token to authenticate with
+   * @param type the type of the items in the collection
+   * @return the items, in the order GitHub lists them
+   */
+  public <T> Stream<T> stream(String url, String token, Class<T> type) {
+    ObjectReader reader =
+        objectMapper
+            .readerForListOf(type)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    return stream(url, token, body -> reader.readValue(body));
+  }
+
+  /**
+   * Streams every item of a GitHub collection, reading each page with the given reader. Readers
+   * that parse the body themselves can skip fields or filter out items without building them.
+   *
+   * @param url the URL of the collection, with any filters as query parameters
+   * @param token the installation token to authenticate with
+   * @param pageReader reads the items from the body of one page
+   * @return the items, in the order GitHub lists them
+   */
+  public <T> Stream<T> stream(String url, String token, PageReader<T> pageReader) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Authorization", "Bearer " + token);
+    headers.add("Accept", "application/vnd.github+json");
+    headers.add("X-GitHub-Api-Version", "2022-11-28");
+    RequestCallback requestCallback = restTemplate.httpEntityCallback(new HttpEntity<>(headers));
+
+    PageSpliterator<T> pages =
+        new PageSpliterator<>(
+            fetchPage(withPageSize(url), requestCallback, pageReader), requestCallback, pageReader);
+    return StreamSupport.stream(pages, false).onClose(pages::close);
+  }
+
+  /** One page of a collection, and the URL of the next page if there is one. */
+  private record Page<T>(List<T> items, String next) {}
+
+  private <T> Page<T> fetchPage(
+      String url, RequestCallback requestCallback, PageReader<T> pageReader) {
+    return restTemplate.execute(
+        url,
+        HttpMethod.GET,
+        requestCallback,
+        response ->
+            new Page<>(pageReader.read(response.getBody()), nextPageLink(response.getHeaders())));
+  }
+
+  /** Walks the items of each page in turn, fetching the following page in the background. */
+  private final class PageSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+    private final RequestCallback requestCallback;
+    private final PageReader<T> pageReader;
+    private Iterator<T> items;
+    private CompletableFuture<Page<T>> nextPage;
+
+    PageSpliterator(Page<T> firstPage, RequestCallback requestCallback, PageReader<T> pageReader) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED);
+      this.requestCallback = requestCallback;
+      this.pageReader = pageReader;
+      advanceTo(firstPage);
+    }
+
+    private void advanceTo(Page<T> page) {
+      items = page.items().iterator();
+      nextPage =
+          page.next() == null
+              ? null
+              : CompletableFuture.supplyAsync(
+                  () -> fetchPage(page.next(), requestCallback, pageReader), PREFETCH_EXECUTOR);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      while (!items.hasNext()) {
+        if (nextPage == null) {
+          return false;
+        }
+        advanceTo(awaitNextPage());
+      }
+      action.accept(items.next());
+      return true;
+    }
+
+    private Page<T> awaitNextPage() {
+      try {
+        return nextPage.join();
+      } catch (CompletionException e) {
+        nextPage = null;
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw e;
+      }
+    }
+
+    /** Waits for a page that is still being fetched, so no request outlives the stream. */
+    void close() {
+      if (nextPage != null) {
+        nextPage.handle((page, e) -> null).join();
+        nextPage = null;
+      }
+    }
+  }
+
+  /** Adds the largest page size to a collection URL that does not set one. */
+  private static String withPageSize(String url) {
+    if (PER_PAGE.matcher(url).find()) {
+      return url;
+    }
+    return url + (url.indexOf('?') < 0 ? "?" : "&") + "per_page=" + PAGE_SIZE;
+  }
+
+  /** Returns the URL of the next page from a GitHub <code>Link</code> header, or null. */
+  private static String nextPageLink(HttpHeaders headers) {
+    String link = headers.getFirst(HttpHeaders.LINK);
+    if (link == null) {
+      return null;
+    }
+    Matcher matcher = NEXT_LINK.matcher(link);
+    return matcher.find() ? matcher.group(1) : null;
+  }
+}
@@ -0,0 +1,545 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import edu.ucsb.cs156.frontiers.errors.GithubRateLimitExceededException;
+import edu.ucsb.cs156.frontiers.models.GithubRateLimitStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+
+/**
+ * Paces every request made to GitHub on behalf of an app installation so that large jobs stay
+ * inside GitHub's primary and secondary rate limits instead of failing partway through.
+ *
+ * <p>The governor is registered as an interceptor on the shared GitHub REST client and on the
+ * GraphQL client. For each installation and rate limit resource (<code>core</code>, <code>graphql
+ * </code>, <code>search</code>) it:
+ *
+ * <ul>
+ *   <li>tracks the budget GitHub reports in the <code>X-RateLimit-*</code> response headers,
+ *   <li>caps the number of requests in flight at once for each installation, so that jobs that fan
+ *       out over many threads do not trip GitHub's concurrency limit,
+ *   <li>paces requests with a token bucket, with a tighter bucket for content-creating requests,
+ *   <li>holds requests until the window resets once the budget is exhausted, and
+ *   <li>honors <code>Retry-After</code> on secondary rate limit responses, retrying the request
+ *       once the pause is over.
+ * </ul>
+ *
+ * <p>Requests are attributed to an installation by their bearer token; {@link JwtService} registers
+ * each installation token it mints. Anything else (for example the app JWT used to mint those
+ * tokens) is attributed to {@link #APP}.
+ */
+@Service
+@Slf4j
+public class GithubRateLimitGovernor implements ClientHttpRequestInterceptor {
+
+  /** Installation ID reported for requests that are not made with an installation token. */
+  public static final String APP = "app";
+
+  /** Sustained rate of requests per installation and resource. */
+  @Value("${app.github.rateLimit.requestsPerSecond:10}")
+  private double requestsPerSecond;
+
+  /** Number of requests that may be sent back to back before pacing kicks in. */
+  @Value("${app.github.rateLimit.burst:20}")
+  private int burst;
+
+  /**
+   * Sustained rate of content-creating (non GET) requests per installation. GitHub asks for no more
+   * than 80 per minute.
+   */
+  @Value("${app.github.rateLimit.writesPerMinute:80}")
+  private double writesPerMinute;
+
+  /** Number of content-creating requests that may be sent back to back. */
+  @Value("${app.github.rateLimit.writeBurst:10}")
+  private int writeBurst;
+
+  /** How long to back off after a secondary rate limit response without a Retry-After header. */
+  @Value("${app.github.rateLimit.defaultRetryAfter:PT1M}")
+  private Duration defaultRetryAfter;
+
+  /** How many times a request rejected by a rate limit is retried once the limit has passed. */
+  @Value("${app.github.rateLimit.maxRetries:3}")
+  private int maxRetries;
+
+  /**
+   * Longest a request will wait for a rate limit to pass; longer waits fail with {@link
+   * GithubRateLimitExceededException}. Primary limits reset hourly.
+   */
+  @Value("${app.github.rateLimit.maxWait:PT1H}")
+  private Duration maxWait;
+
+  /**
+   * Most requests that may be in flight at once for one installation, across all resources. Zero or
+   * less disables the cap.
+   */
+  @Value("${app.github.rateLimit.maxConcurrentRequests:10}")
+  private int maxConcurrentRequests;
+
+  private final MeterRegistry meterRegistry;
+
+  private Clock clock = Clock.systemUTC();
+
+  private record BudgetKey(String installationId, String resource) {}
+
+  private final ConcurrentMap<BudgetKey, Budget> budgets = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, String> installationsByToken = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, String> tokensByInstallation = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Semaphore> inFlightByInstallation = new ConcurrentHashMap<>();
+
+  public GithubRateLimitGovernor(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Records which installation a freshly minted installation token belongs to, replacing the
+   * installation's previous token.
+   *
+   * @param installationId ID of the app installation
+   * @param token installation access token
+   */
+  public void registerInstallationToken(String installationId, String token) {
+    String previous = tokensByInstallation.put(installationId, token);
+    if (previous != null && !previous.equals(token)) {
+      installationsByToken.remove(previous);
+    }
+    installationsByToken.put(token, installationId);
+  }
+
+  /**
+   * Forgets the token and rate limit state of an installation, for example because the app was
+   * uninstalled from the organization.
+   *
+   * @param installationId ID of the app installation
+   */
+  public void removeInstallation(String installationId) {
+    String token = tokensByInstallation.remove(installationId);
+    if (token != null) {
+      installationsByToken.remove(token);
+    }
+    budgets.keySet().removeIf(key -> key.installationId().equals(installationId));
+    inFlightByInstallation.remove(installationId);
+  }
+
+  /**
+   * @return the current state of every rate limit bucket the governor has seen, ordered by
+   *     installation and resource
+   */
+  public List<GithubRateLimitStatus> getStatus() {
+    Instant now = clock.instant();
+    return budgets.entrySet().stream()
+        .map(entry -> entry.getValue().status(entry.getKey(), now))
+        .sorted(
+            Comparator.comparing(GithubRateLimitStatus::installationId)
+                .thenComparing(GithubRateLimitStatus::resource))
+        .toList();
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    BudgetKey key =
+        new BudgetKey(
+            installationFor(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION)),
+            resourceFor(request.getURI()));
+    Budget budget = budgets.computeIfAbsent(key, this::newBudget);
+    boolean write = request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD;
+    for (int attempt = 0; ; attempt++) {
+      Semaphore inFlight = acquireInFlight(key.installationId());
+      ClientHttpResponse response;
+      try {
+        acquire(key, budget, write);
+        response = execution.execute(request, body);
+      } finally {
+        if (inFlight != null) {
+          inFlight.release();
+        }
+      }
+      boolean secondaryLimitMessage = false;
+      if (mayBeSecondaryLimit(response)) {
+        response = new BufferedClientHttpResponse(response);
+        secondaryLimitMessage = mentionsSecondaryLimit(response);
+      }
+      boolean rateLimited =
+          budget.record(
+              clock.instant(),
+              response.getStatusCode(),
+              response.getHeaders(),
+              secondaryLimitMessage);
+      if (!rateLimited || attempt >= maxRetries) {
+        return response;
+      }
+      log.warn(
+          "GitHub {} rate limit hit for installation {} on {} {}; retrying after {}",
+          key.resource(),
+          key.installationId(),
+          request.getMethod(),
+          request.getURI().getPath(),
+          budget.availableAt(clock.instant()));
+      response.close();
+    }
+  }
+
+  /**
+   * Whether a response can only be told apart from a permissions error by its body: a 403 that
+   * neither asks to retry later nor reports an exhausted primary limit.
+   */
+  private static boolean mayBeSecondaryLimit(ClientHttpResponse response) throws IOException {
+    HttpHeaders headers = response.getHeaders();
+    return response.getStatusCode().value() == HttpStatus.FORBIDDEN.value()
+        && !headers.containsKey(HttpHeaders.RETRY_AFTER)
+        && !"0".equals(headers.getFirst("X-RateLimit-Remaining"));
+  }
+
+  private static boolean mentionsSecondaryLimit(ClientHttpResponse response) throws IOException {
+    String body = new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+    return body.toLowerCase(Locale.ROOT).contains("secondary rate limit");
+  }
+
+  String installationFor(String authorization) {
+    if (authorization == null || !authorization.startsWith("Bearer ")) {
+      return APP;
+    }
+    return installationsByToken.getOrDefault(authorization.substring("Bearer ".length()), APP);
+  }
+
+  static String resourceFor(URI uri) {
+    String path = uri.getPath();
+    if (path.equals("/graphql")) {
+      return "graphql";
+    }
+    if (path.startsWith("/search/")) {
+      return "search";
+    }
+    return "core";
+  }
+
+  /**
+   * Waits for a free in-flight slot for the installation.
+   *
+   * @return the semaphore to release once the response has arrived, or null if there is no cap
+   */
+  private Semaphore acquireInFlight(String installationId) throws IOException {
+    if (maxConcurrentRequests <= 0) {
+      return null;
+    }
+    Semaphore inFlight =
+        inFlightByInstallation.computeIfAbsent(
+            installationId, id -> new Semaphore(maxConcurrentRequests, true));
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to send a GitHub request");
+    }
+    return inFlight;
+  }
+
+  private void acquire(BudgetKey key, Budget budget, boolean write) throws IOException {
+    boolean throttled = false;
+    Instant started = clock.instant();
+    Duration wait;
+    while (!(wait = budget.take(clock.instant(), write)).isZero()) {
+      if (wait.compareTo(maxWait) > 0) {
+        throw new GithubRateLimitExceededException(
+            key.installationId(), key.resource(), clock.instant().plus(wait));
+      }
+      if (!throttled) {
+        throttled = true;
+        budget.throttledRequests.increment();
+        if (wait.compareTo(Duration.ofSeconds(1)) > 0) {
+          log.info(
+              "Pausing GitHub {} requests for installation {} for {}",
+              key.resource(),
+              key.installationId(),
+              wait);
+        }
+      }
+      sleep(wait);
+    }
+    if (throttled) {
+      budget.throttledTime.record(Duration.between(started, clock.instant()));
+    }
+  }
+
+  void sleep(Duration duration) throws IOException {
+    try {
+      Thread.sleep(duration);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a GitHub rate limit");
+    }
+  }
+
+  private Budget newBudget(BudgetKey key) {
+    Tags tags = Tags.of("installation", key.installationId(), "resource", key.resource());
+    Budget budget =
+        new Budget(
+            new TokenBucket(requestsPerSecond, burst, clock.instant()),
+            new TokenBucket(writesPerMinute / 60.0, writeBurst, clock.instant()),
+            Counter.builder("github.ratelimit.throttled")
+                .description("Requests that had to wait for the GitHub rate limit governor")
+                .tags(tags)
+                .register(meterRegistry),
+            Counter.builder("github.ratelimit.limited")
+                .description("Responses in which GitHub reported that a rate limit was hit")
+                .tags(tags)
+                .register(meterRegistry),
+            Timer.builder("github.ratelimit.wait")
+                .description("Time requests spent waiting for the GitHub rate limit governor")
+                .tags(tags)
+                .register(meterRegistry));
+    Gauge.builder("github.ratelimit.remaining", budget, Budget::remainingOrNaN)
+        .description("Requests left in the current GitHub rate limit window")
+        .tags(tags)
+        .register(meterRegistry);
+    Gauge.builder("github.ratelimit.limit", budget, Budget::limitOrNaN)
+        .description("Requests allowed per GitHub rate limit window")
+        .tags(tags)
+        .register(meterRegistry);
+    return budget;
+  }
+
+  /** A simple token bucket; callers must hold the owning budget's lock. */
+  private static final class TokenBucket {
+    private final double permitsPerSecond;
+    private final double capacity;
+    private double tokens;
+    private Instant refilledAt;
+
+    TokenBucket(double permitsPerSecond, double capacity, Instant now) {
+      this.permitsPerSecond = permitsPerSecond;
+      this.capacity = capacity;
+      this.tokens = capacity;
+      this.refilledAt = now;
+    }
+
+    /** Refills the bucket and returns how long until a token is available. */
+    Duration refill(Instant now) {
+      if (now.isAfter(refilledAt)) {
+        double elapsedSeconds = Duration.between(refilledAt, now).toNanos() / 1e9;
+        tokens = Math.min(capacity, tokens + elapsedSeconds * permitsPerSecond);
+        refilledAt = now;
+      }
+      if (tokens >= 1) {
+        return Duration.ZERO;
+      }
+      return Duration.ofNanos((long) Math.ceil((1 - tokens) / permitsPerSecond * 1e9));
+    }
+
+    void take() {
+      tokens -= 1;
+    }
+  }
+
+  /** What is known about one installation's budget for one rate limit resource. */
+  private final class Budget {
+    private final TokenBucket requests;
+    private final TokenBucket writes;
+    private final Counter throttledRequests;
+    private final Counter rateLimitedResponses;
+    private final Timer throttledTime;
+
+    private Integer limit;
+    private Integer remaining;
+    private Integer used;
+    private Instant resetAt;
+    private Instant pausedUntil;
+
+    Budget(
+        TokenBucket requests,
+        TokenBucket writes,
+        Counter throttledRequests,
+        Counter rateLimitedResponses,
+        Timer throttledTime) {
+      this.requests = requests;
+      this.writes = writes;
+      this.throttledRequests = throttledRequests;
+      this.rateLimitedResponses = rateLimitedResponses;
+      this.throttledTime = throttledTime;
+    }
+
+    /**
+     * Takes a permit for one request if one is available.
+     *
+     * @return zero if the request may be sent now, otherwise how long to wait before trying again
+     */
+    synchronized Duration take(Instant now, boolean write) {
+      Instant availableAt = availableAt(now);
+      if (availableAt.isAfter(now)) {
+        return Duration.between(now, availableAt);
+      }
+      Duration wait = requests.refill(now);
+      if (write) {
+        Duration writeWait = writes.refill(now);
+        wait = writeWait.compareTo(wait) > 0 ? writeWait : wait;
+      }
+      if (!wait.isZero()) {
+        return wait;
+      }
+      requests.take();
+      if (write) {
+        writes.take();
+      }
+      if (remaining != null) {
+        // Count the request against the budget now so that concurrent callers do not overshoot it
+        // before GitHub's response reports the new value
+        remaining--;
+      }
+      return Duration.ZERO;
+    }
+
+    /** Returns the earliest time at which GitHub will accept another request. */
+    synchronized Instant availableAt(Instant now) {
+      Instant availableAt = now;
+      if (pausedUntil != null && pausedUntil.isAfter(availableAt)) {
+        availableAt = pausedUntil;
+      }
+      if (remaining != null && remaining <= 0 && resetAt != null && resetAt.isAfter(availableAt)) {
+        availableAt = resetAt;
+      }
+      return availableAt;
+    }
+
+    /**
+     * Updates the budget from a GitHub response.
+     *
+     * @param secondaryLimitMessage whether the body of a 403 says a secondary rate limit was hit
+     * @return true if GitHub rejected the request because of a rate limit
+     */
+    synchronized boolean record(
+        Instant now, HttpStatusCode status, HttpHeaders headers, boolean secondaryLimitMessage) {
+      Integer reportedRemaining = intHeader(headers, "X-RateLimit-Remaining");
+      Integer reportedReset = intHeader(headers, "X-RateLimit-Reset");
+      if (reportedRemaining != null) {
+        remaining = reportedRemaining;
+        limit = intHeader(headers, "X-RateLimit-Limit");
+        used = intHeader(headers, "X-RateLimit-Used");
+      }
+      if (reportedReset != null) {
+        resetAt = Instant.ofEpochSecond(reportedReset);
+      }
+      if (status.value() != HttpStatus.FORBIDDEN.value()
+          && status.value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+        return false;
+      }
+      Integer retryAfter = intHeader(headers, HttpHeaders.RETRY_AFTER);
+      boolean primaryLimitHit = reportedRemaining != null && reportedRemaining == 0;
+      if (retryAfter != null) {
+        pausedUntil = now.plusSeconds(retryAfter);
+      } else if (!primaryLimitHit) {
+        // GitHub often sends secondary rate limit 403s without Retry-After and with budget left on
+        // the primary limit; any other such 403 is a permissions problem, not a rate limit
+        if (status.value() == HttpStatus.FORBIDDEN.value() && !secondaryLimitMessage) {
+          return false;
+        }
+        pausedUntil = now.plus(defaultRetryAfter);
+      }
+      // When the primary limit is hit, availableAt already holds requests until the reset
+      rateLimitedResponses.increment();
+      return true;
+    }
+
+    synchronized GithubRateLimitStatus status(BudgetKey key, Instant now) {
+      return new GithubRateLimitStatus(
+          key.installationId(),
+          key.resource(),
+          limit,
+          remaining,
+          used,
+          resetAt,
+          pausedUntil != null && pausedUntil.isAfter(now) ? pausedUntil : null,
+          (long) throttledRequests.count(),
+          (long) rateLimitedResponses.count());
+    }
+
+    synchronized double remainingOrNaN() {
+      return remaining == null ? Double.NaN : remaining;
+    }
+
+    synchronized double limitOrNaN() {
+      return limit == null ? Double.NaN : limit;
+    }
+  }
+
+  private static Integer intHeader(HttpHeaders headers, String name) {
+    String value = headers.getFirst(name);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Integer.valueOf(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /** Holds the body of a response in memory, so that it can be read again by the caller. */
+  private static final class BufferedClientHttpResponse implements ClientHttpResponse {
+    private final ClientHttpResponse response;
+    private final byte[] body;
+
+    BufferedClientHttpResponse(ClientHttpResponse response) throws IOException {
+      this.response = response;
+      try (InputStream in = response.getBody()) {
+        this.body = in.readAllBytes();
+      }
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+      return response.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return response.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return response.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public void close() {
+      response.close();
+    }
+  }
+}
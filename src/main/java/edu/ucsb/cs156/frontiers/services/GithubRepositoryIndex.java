@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The names of the repositories in a GitHub organization.
+ *
+ * <p>Jobs that create many repositories fetch the index once with {@link
+ * RepositoryService#getRepositoryIndex(edu.ucsb.cs156.frontiers.entities.Course)} and check it
+ * instead of asking GitHub whether each repository exists. Repositories the job creates are added
+ * with {@link #add(String)} so that later checks see them. GitHub treats repository names case
+ * insensitively, and so does the index. It is safe to use from several threads at once.
+ */
+public class GithubRepositoryIndex {
+
+  private final Set<String> names = ConcurrentHashMap.newKeySet();
+
+  public GithubRepositoryIndex(Collection<String> repositoryNames) {
+    repositoryNames.forEach(this::add);
+  }
+
+  /**
+   * Adds a repository to the index.
+   *
+   * @param name the repository name, without the organization
+   */
+  public void add(String name) {
+    names.add(normalize(name));
+  }
+
+  /**
+   * @param name the repository name, without the organization
+   * @return true if the organization has a repository with this name
+   */
+  public boolean contains(String name) {
+    return names.contains(normalize(name));
+  }
+
+  /**
+   * @return the names of the repositories in the index, in lower case
+   */
+  public Set<String> names() {
+    return Collections.unmodifiableSet(names);
+  }
+
+  /**
+   * @return the number of repositories in the index
+   */
+  public int size() {
+    return names.size();
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
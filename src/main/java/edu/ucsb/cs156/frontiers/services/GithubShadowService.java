@@ -0,0 +1,404 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.ShadowOrgMember;
+import edu.ucsb.cs156.frontiers.entities.ShadowRepository;
+import edu.ucsb.cs156.frontiers.entities.ShadowTeam;
+import edu.ucsb.cs156.frontiers.entities.ShadowTeamMembership;
+import edu.ucsb.cs156.frontiers.enums.OrgStatus;
+import edu.ucsb.cs156.frontiers.enums.TeamStatus;
+import edu.ucsb.cs156.frontiers.errors.NoLinkedOrganizationException;
+import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowOrgMemberRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowRepositoryRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowTeamMembershipRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowTeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
+import edu.ucsb.cs156.frontiers.services.RepositoryService.GithubRepository;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps a local copy of each course's GitHub organization: its members, teams, team memberships and
+ * repositories, so that jobs can work out what to change on GitHub without reading it first.
+ *
+ * <p>Each part of the copy is read from GitHub in full when a job needs it and it was last read
+ * more than <code>app.github.shadow.maxAge</code> ago (or never). In between, it is kept up to date
+ * by {@link WebhookEventService} and by jobs recording the changes they make on GitHub, so reads
+ * only go to GitHub about once per course per period. The full reads also correct any drift from
+ * missed webhooks.
+ */
+@Service
+@Slf4j
+public class GithubShadowService {
+
+  @Value("${app.github.shadow.maxAge:PT24H}")
+  private Duration maxAge;
+
+  private final ShadowOrgMemberRepository shadowOrgMemberRepository;
+  private final ShadowTeamRepository shadowTeamRepository;
+  private final ShadowTeamMembershipRepository shadowTeamMembershipRepository;
+  private final ShadowRepositoryRepository shadowRepositoryRepository;
+  private final CourseRepository courseRepository;
+  private final GithubGraphQLService githubGraphQLService;
+  private final GithubTeamService githubTeamService;
+  private final RepositoryService repositoryService;
+  private final TransactionTemplate transactionTemplate;
+
+  private Clock clock = Clock.systemUTC();
+
+  public GithubShadowService(
+      ShadowOrgMemberRepository shadowOrgMemberRepository,
+      ShadowTeamRepository shadowTeamRepository,
+      ShadowTeamMembershipRepository shadowTeamMembershipRepository,
+      ShadowRepositoryRepository shadowRepositoryRepository,
+      CourseRepository courseRepository,
+      GithubGraphQLService githubGraphQLService,
+      GithubTeamService githubTeamService,
+      RepositoryService repositoryService,
+      TransactionTemplate transactionTemplate) {
+    this.shadowOrgMemberRepository = shadowOrgMemberRepository;
+    this.shadowTeamRepository = shadowTeamRepository;
+    this.shadowTeamMembershipRepository = shadowTeamMembershipRepository;
+    this.shadowRepositoryRepository = shadowRepositoryRepository;
+    this.courseRepository = courseRepository;
+    this.githubGraphQLService = githubGraphQLService;
+    this.githubTeamService = githubTeamService;
+    this.repositoryService = repositoryService;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  private boolean isStale(Instant syncedAt) {
+    return syncedAt == null || syncedAt.isBefore(clock.instant().minus(maxAge));
+  }
+
+  /**
+   * Returns the people in the course's organization. When the copy is stale they are read from
+   * GitHub and stored; otherwise no requests are made, and the result reports zero queries.
+   *
+   * @param course the course whose organization should be read
+   * @return the organization's members, admins and invitees
+   */
+  public OrgMembership getOrganizationMembership(Course course)
+      throws JsonProcessingException,
+          NoSuchAlgorithmException,
+          InvalidKeySpecException,
+          NoLinkedOrganizationException {
+    if (!isStale(course.getOrgMembersSyncedAt())) {
+      Map<OrgStatus, List<OrgMember>> byStatus =
+          shadowOrgMemberRepository.findByCourse(course).stream()
+              .collect(
+                  Collectors.groupingBy(
+                      ShadowOrgMember::getOrgStatus,
+                      Collectors.mapping(
+                          member -> new OrgMember(member.getGithubId(), member.getGithubLogin()),
+                          Collectors.toList())));
+      return new OrgMembership(
+          byStatus.getOrDefault(OrgStatus.MEMBER, List.of()),
+          byStatus.getOrDefault(OrgStatus.OWNER, List.of()),
+          byStatus.getOrDefault(OrgStatus.INVITED, List.of()),
+          0,
+          0);
+    }
+
+    OrgMembership membership = githubGraphQLService.getOrganizationMembership(course);
+    // Lowest precedence first, so that someone in more than one list keeps the highest role
+    Map<Integer, ShadowOrgMember> members = new LinkedHashMap<>();
+    addOrgMembers(members, course, membership.invitees(), OrgStatus.INVITED);
+    addOrgMembers(members, course, membership.members(), OrgStatus.MEMBER);
+    addOrgMembers(members, course, membership.admins(), OrgStatus.OWNER);
+    Instant syncedAt = clock.instant();
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          shadowOrgMemberRepository.deleteByCourse(course);
+          shadowOrgMemberRepository.saveAll(members.values());
+          courseRepository.setOrgMembersSyncedAt(course.getId(), syncedAt);
+        });
+    course.setOrgMembersSyncedAt(syncedAt);
+    return membership;
+  }
+
+  private static void addOrgMembers(
+      Map<Integer, ShadowOrgMember> members,
+      Course course,
+      List<OrgMember> people,
+      OrgStatus orgStatus) {
+    for (OrgMember person : people) {
+      members.put(
+          person.getGithubId(),
+          ShadowOrgMember.builder()
+              .course(course)
+              .githubId(person.getGithubId())
+              .githubLogin(person.getGithubLogin())
+              .orgStatus(orgStatus)
+              .build());
+    }
+  }
+
+  /**
+   * Returns the teams in the course's organization, reading them and their members from GitHub
+   * first if the copy is stale.
+   *
+   * @param course the course whose organization should be read
+   * @return an index of the organization's teams
+   */
+  public GithubTeamIndex getTeamIndex(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    syncTeamsIfStale(course);
+    return new GithubTeamIndex(
+        shadowTeamRepository.findByCourse(course).stream()
+            .map(team -> new GithubTeamInfo(team.getGithubTeamId(), team.getName(), team.getSlug()))
+            .toList());
+  }
+
+  /**
+   * Returns the members of every team in the course's organization, reading them from GitHub first
+   * if the copy is stale.
+   *
+   * @param course the course whose organization should be read
+   * @return for each GitHub team ID, the team's members by GitHub login
+   */
+  public Map<Integer, Map<String, TeamStatus>> getTeamMemberships(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    syncTeamsIfStale(course);
+    Map<Integer, Map<String, TeamStatus>> memberships = new HashMap<>();
+    for (ShadowTeamMembership membership : shadowTeamMembershipRepository.findByCourse(course)) {
+      memberships
+          .computeIfAbsent(membership.getGithubTeamId(), teamId -> new HashMap<>())
+          .put(membership.getGithubLogin(), membership.getTeamStatus());
+    }
+    return memberships;
+  }
+
+  private void syncTeamsIfStale(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    if (!isStale(course.getTeamsSyncedAt())) {
+      return;
+    }
+    List<ShadowTeam> teams = new ArrayList<>();
+    List<ShadowTeamMembership> memberships = new ArrayList<>();
+    for (GithubTeamInfo team : githubTeamService.getAllTeams(course)) {
+      teams.add(
+          ShadowTeam.builder()
+              .course(course)
+              .githubTeamId(team.id())
+              .name(team.name())
+              .slug(team.slug())
+              .build());
+      githubTeamService
+          .getTeamMemberships(team.slug(), course)
+          .forEach(
+              (githubLogin, teamStatus) ->
+                  memberships.add(
+                      ShadowTeamMembership.builder()
+                          .course(course)
+                          .githubTeamId(team.id())
+                          .githubLogin(githubLogin)
+                          .teamStatus(teamStatus)
+                          .build()));
+    }
+    Instant syncedAt = clock.instant();
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          shadowTeamMembershipRepository.deleteByCourse(course);
+          shadowTeamRepository.deleteByCourse(course);
+          shadowTeamRepository.saveAll(teams);
+          shadowTeamMembershipRepository.saveAll(memberships);
+          courseRepository.setTeamsSyncedAt(course.getId(), syncedAt);
+        });
+    course.setTeamsSyncedAt(syncedAt);
+    log.info(
+        "Read {} teams and {} team memberships for {} from GitHub",
+        teams.size(),
+        memberships.size(),
+        course.getOrgName());
+  }
+
+  /**
+   * Returns the names of the repositories in the course's organization, reading them from GitHub
+   * first if the copy is stale.
+   *
+   * @param course the course whose organization should be read
+   * @return an index of the organization's repositories
+   */
+  public GithubRepositoryIndex getRepositoryIndex(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    if (isStale(course.getRepositoriesSyncedAt())) {
+      Set<String> names;
+      try (Stream<GithubRepository> repositories =
+          repositoryService.streamRepositoriesMatchingPrefix(course, "")) {
+        names =
+            repositories
+                .map(repository -> normalize(repository.name()))
+                .collect(Collectors.toSet());
+      }
+      Instant syncedAt = clock.instant();
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            shadowRepositoryRepository.deleteByCourse(course);
+            shadowRepositoryRepository.saveAll(
+                names.stream()
+                    .map(name -> ShadowRepository.builder().course(course).name(name).build())
+                    .toList());
+            courseRepository.setRepositoriesSyncedAt(course.getId(), syncedAt);
+          });
+      course.setRepositoriesSyncedAt(syncedAt);
+      return new GithubRepositoryIndex(names);
+    }
+    return new GithubRepositoryIndex(
+        shadowRepositoryRepository.findByCourse(course).stream()
+            .map(ShadowRepository::getName)
+            .toList());
+  }
+
+  /**
+   * Records someone joining, being invited to or leaving the course's organization.
+   *
+   * @param course the course whose organization changed
+   * @param githubId the person's GitHub ID
+   * @param githubLogin the person's GitHub login
+   * @param orgStatus {@link OrgStatus#OWNER}, {@link OrgStatus#MEMBER} or {@link
+   *     OrgStatus#INVITED}; any other status removes them
+   */
+  public void recordOrgMember(
+      Course course, Integer githubId, String githubLogin, OrgStatus orgStatus) {
+    ShadowOrgMember member =
+        shadowOrgMemberRepository
+            .findByCourseAndGithubId(course, githubId)
+            .orElseGet(() -> ShadowOrgMember.builder().course(course).githubId(githubId).build());
+    if (orgStatus == OrgStatus.OWNER
+        || orgStatus == OrgStatus.MEMBER
+        || orgStatus == OrgStatus.INVITED) {
+      member.setGithubLogin(githubLogin);
+      member.setOrgStatus(orgStatus);
+      shadowOrgMemberRepository.save(member);
+    } else if (member.getId() != null) {
+      shadowOrgMemberRepository.delete(member);
+    }
+  }
+
+  /**
+   * Records a team being created, renamed or linked in the course's organization.
+   *
+   * @param course the course whose organization changed
+   * @param team the team as it now is on GitHub
+   */
+  public void recordTeam(Course course, GithubTeamInfo team) {
+    ShadowTeam shadowTeam =
+        shadowTeamRepository
+            .findByCourseAndGithubTeamId(course, team.id())
+            .orElseGet(() -> ShadowTeam.builder().course(course).githubTeamId(team.id()).build());
+    shadowTeam.setName(team.name());
+    shadowTeam.setSlug(team.slug());
+    shadowTeamRepository.save(shadowTeam);
+  }
+
+  /**
+   * Records a team, and with it all of its memberships, being deleted from the course's
+   * organization.
+   *
+   * @param course the course whose organization changed
+   * @param githubTeamId the ID of the deleted team
+   */
+  public void removeTeam(Course course, Integer githubTeamId) {
+    shadowTeamMembershipRepository.deleteByCourseAndGithubTeamId(course, githubTeamId);
+    shadowTeamRepository
+        .findByCourseAndGithubTeamId(course, githubTeamId)
+        .ifPresent(shadowTeamRepository::delete);
+  }
+
+  /**
+   * Records someone being added to or removed from a team. GitHub's membership webhook does not say
+   * whether someone added is a maintainer, so {@link TeamStatus#TEAM_MEMBER} does not replace a
+   * recorded {@link TeamStatus#TEAM_MAINTAINER}.
+   *
+   * @param course the course whose organization changed
+   * @param githubTeamId the ID of the team
+   * @param githubLogin the GitHub login of the person added or removed
+   * @param teamStatus {@link TeamStatus#TEAM_MEMBER} or {@link TeamStatus#TEAM_MAINTAINER}; any
+   *     other status, or null, removes them from the team
+   */
+  public void recordTeamMembership(
+      Course course, Integer githubTeamId, String githubLogin, TeamStatus teamStatus) {
+    ShadowTeamMembership membership =
+        shadowTeamMembershipRepository
+            .findByCourseAndGithubTeamIdAndGithubLogin(course, githubTeamId, githubLogin)
+            .orElseGet(
+                () ->
+                    ShadowTeamMembership.builder()
+                        .course(course)
+                        .githubTeamId(githubTeamId)
+                        .githubLogin(githubLogin)
+                        .build());
+    if (teamStatus == TeamStatus.TEAM_MEMBER || teamStatus == TeamStatus.TEAM_MAINTAINER) {
+      if (membership.getTeamStatus() != TeamStatus.TEAM_MAINTAINER) {
+        membership.setTeamStatus(teamStatus);
+        shadowTeamMembershipRepository.save(membership);
+      }
+    } else if (membership.getId() != null) {
+      shadowTeamMembershipRepository.delete(membership);
+    }
+  }
+
+  /**
+   * Records repositories that exist in the course's organization, such as ones a job created.
+   *
+   * @param course the course whose organization changed
+   * @param names the names of the repositories, without the organization
+   */
+  public void recordRepositories(Course course, Collection<String> names) {
+    Set<String> missing = new HashSet<>();
+    for (String name : names) {
+      missing.add(normalize(name));
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+    // One query finds the names already recorded, however many repositories there are
+    shadowRepositoryRepository
+        .findByCourseAndNameIn(course, missing)
+        .forEach(existing -> missing.remove(existing.getName()));
+    shadowRepositoryRepository.saveAll(
+        missing.stream()
+            .map(name -> ShadowRepository.builder().course(course).name(name).build())
+            .toList());
+  }
+
+  /**
+   * Records a repository being deleted from the course's organization.
+   *
+   * @param course the course whose organization changed
+   * @param name the name of the repository, without the organization
+   */
+  public void removeRepository(Course course, String name) {
+    shadowRepositoryRepository
+        .findByCourseAndName(course, normalize(name))
+        .ifPresent(shadowRepositoryRepository::delete);
+  }
+
+  /** GitHub treats repository names case insensitively, so they are stored in lower case. */
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The teams of a GitHub organization, indexed by ID, slug and name.
+ *
+ * <p>Jobs that look up many teams fetch the index once with {@link
+ * GithubTeamService#getTeamIndex(edu.ucsb.cs156.frontiers.entities.Course)} instead of listing all
+ * of the organization's teams for every team they look up. Teams the job creates are added to the
+ * index with {@link #add(GithubTeamInfo)} so that later lookups see them.
+ */
+public class GithubTeamIndex {
+
+  private final Map<Integer, GithubTeamInfo> teamsById = new HashMap<>();
+  private final Map<String, GithubTeamInfo> teamsBySlug = new HashMap<>();
+  private final Map<String, GithubTeamInfo> teamsByName = new HashMap<>();
+
+  public GithubTeamIndex(Collection<GithubTeamInfo> teams) {
+    teams.forEach(this::add);
+  }
+
+  /**
+   * Adds a team to the index, replacing any team with the same ID, slug or name.
+   *
+   * @param team the team to add
+   */
+  public void add(GithubTeamInfo team) {
+    teamsById.put(team.id(), team);
+    if (team.slug() != null) {
+      teamsBySlug.put(team.slug(), team);
+    }
+    teamsByName.put(team.name(), team);
+  }
+
+  /**
+   * @param id the GitHub team ID, may be null
+   * @return the team with this ID, or null if there is none
+   */
+  public GithubTeamInfo findById(Integer id) {
+    return teamsById.get(id);
+  }
+
+  /**
+   * @param slug the GitHub team slug, may be null
+   * @return the team with this slug, or null if there is none
+   */
+  public GithubTeamInfo findBySlug(String slug) {
+    return teamsBySlug.get(slug);
+  }
+
+  /**
+   * @param name the display name of the team, may be null
+   * @return the team with this name, or null if there is none
+   */
+  public GithubTeamInfo findByName(String name) {
+    return teamsByName.get(name);
+  }
+
+  /**
+   * @return the number of teams in the index
+   */
+  public int size() {
+    return teamsById.size();
+  }
+}
@@ -1,7 +1,6 @@
 package edu.ucsb.cs156.frontiers.services;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,14 +9,11 @@ import edu.ucsb.cs156.frontiers.entities.Team;
 import edu.ucsb.cs156.frontiers.enums.TeamStatus;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -41,13 +37,18 @@ public class GithubTeamService {
   private final JwtService jwtService;
   private final ObjectMapper objectMapper;
   private final RestTemplate restTemplate;
+  private final GithubPaginator githubPaginator;
 
   public GithubTeamService(
-      JwtService jwtService, ObjectMapper objectMapper, RestTemplateBuilder builder) {
+      JwtService jwtService,
+      ObjectMapper objectMapper,
+      RestTemplate githubRestTemplate,
+      GithubPaginator githubPaginator) {
     this.jwtService = jwtService;
     this.objectMapper = objectMapper;
     this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-    this.restTemplate = builder.build();
+    this.restTemplate = githubRestTemplate;
+    this.githubPaginator = githubPaginator;
   }
 
   /**
@@ -93,11 +94,41 @@ public class GithubTeamService {
     return createTeamInfo(team.getName(), course);
   }
 
+  /**
+   * Creates a team on GitHub if it isn't in the team index, or returns the indexed team info.
+   *
+   * <p>Unlike {@link #createOrGetTeamInfo(Team, Course)} this makes no GitHub calls for teams that
+   * already exist. Teams that are created are added to the index.
+   *
+   * @param team The team to create
+   * @param course The course containing the organization
+   * @param teamIndex The organization's teams, from {@link #getTeamIndex(Course)}
+   * @return The GitHub team info
+   * @throws JsonProcessingException if there is an error processing JSON
+   * @throws NoSuchAlgorithmException if there is an algorithm error
+   * @throws InvalidKeySpecException if there is a key specification error
+   */
+  public GithubTeamInfo createOrGetTeamInfo(Team team, Course course, GithubTeamIndex teamIndex)
+      throws JsonProcessingException, NoSuchAlgorithmException, InvalidKeySpecException {
+    GithubTeamInfo existingTeamInfo = teamIndex.findBySlug(team.getGithubTeamSlug());
+    if (existingTeamInfo == null) {
+      existingTeamInfo = teamIndex.findByName(team.getName());
+    }
+    if (existingTeamInfo != null) {
+      return existingTeamInfo;
+    }
+
+    GithubTeamInfo createdTeamInfo = createTeamInfo(team.getName(), course);
+    teamIndex.add(createdTeamInfo);
+    return createdTeamInfo;
+  }
+
   /**
    * Get the org id, given the org name.
    *
-   * <p>Note: in the future, it would be better to cache this value in the Course row in the
-   * database at the time the Github App is linked to the org, since it doesn't change.
+   * <p>The ID is stored on the Course when the GitHub App is linked to the org, so this only calls
+   * GitHub for courses linked before that column existed and not yet backfilled by the
+   * BackfillGithubOrgIdsJob.
    *
    * @param orgName
    * @param course
@@ -108,6 +139,9 @@ public class GithubTeamService {
    */
   public Integer getOrgId(String orgName, Course course)
       throws JsonProcessingException, NoSuchAlgorithmException, InvalidKeySpecException {
+    if (course.getGithubOrgId() != null) {
+      return course.getGithubOrgId();
+    }
     String endpoint = "https://api.github.com/orgs/" + orgName;
     HttpHeaders headers = new HttpHeaders();
     String token = jwtService.getInstallationToken(course);
@@ -215,12 +249,9 @@ public class GithubTeamService {
    */
   public GithubTeamInfo getTeamInfoByName(String teamName, Course course)
       throws JsonProcessingException, NoSuchAlgorithmException, InvalidKeySpecException {
-    for (GithubTeamInfo teamInfo : getAllTeams(course)) {
-      if (teamName.equals(teamInfo.name())) {
-        return teamInfo;
-      }
+    try (Stream<GithubTeamInfo> teams = streamAllTeams(course)) {
+      return teams.filter(teamInfo -> teamName.equals(teamInfo.name())).findFirst().orElse(null);
     }
-    return null;
   }
 
   /**
@@ -439,57 +470,40 @@ public class GithubTeamService {
     if (teamSlug == null || teamSlug.isBlank()) {
       throw new IllegalArgumentException("teamSlug must be provided");
     }
-    HttpHeaders headers = new HttpHeaders();
     String token = jwtService.getInstallationToken(course);
-    headers.add("Authorization", "Bearer " + token);
-    headers.add("Accept", "application/vnd.github+json");
-    headers.add("X-GitHub-Api-Version", "2022-11-28");
-    HttpEntity<String> entity = new HttpEntity<>(headers);
-
     Map<String, TeamStatus> memberships = new HashMap<>();
-    String endpointPrefix =
+    String endpoint =
         "https://api.github.com/orgs/" + course.getOrgName() + "/teams/" + teamSlug + "/members";
-    addMembershipsByRole(endpointPrefix, "member", TeamStatus.TEAM_MEMBER, entity, memberships);
-    addMembershipsByRole(
-        endpointPrefix, "maintainer", TeamStatus.TEAM_MAINTAINER, entity, memberships);
+    addMembershipsByRole(endpoint, "member", TeamStatus.TEAM_MEMBER, token, memberships);
+    addMembershipsByRole(endpoint, "maintainer", TeamStatus.TEAM_MAINTAINER, token, memberships);
 
     return memberships;
   }
 
   private void addMembershipsByRole(
-      String endpointPrefix,
+      String endpoint,
       String role,
       TeamStatus status,
-      HttpEntity<String> entity,
-      Map<String, TeamStatus> memberships)
-      throws JsonProcessingException {
-    String endpoint = endpointPrefix + "?per_page=100&role=" + role;
-    Pattern pattern = Pattern.compile("(?<=<)([\\S]*)(?=>; rel=\"next\")");
-
-    ResponseEntity<String> response =
-        restTemplate.exchange(endpoint, HttpMethod.GET, entity, String.class);
-    List<String> responseLinks = response.getHeaders().getOrEmpty("link");
-
-    while (!responseLinks.isEmpty() && responseLinks.getFirst().contains("next")) {
-      for (GithubTeamMemberInfo member :
-          objectMapper.convertValue(
-              objectMapper.readTree(response.getBody()),
-              new TypeReference<List<GithubTeamMemberInfo>>() {})) {
-        memberships.put(member.login(), status);
-      }
-
-      Matcher matcher = pattern.matcher(responseLinks.getFirst());
-      matcher.find();
-      response = restTemplate.exchange(matcher.group(0), HttpMethod.GET, entity, String.class);
-      responseLinks = response.getHeaders().getOrEmpty("link");
+      String token,
+      Map<String, TeamStatus> memberships) {
+    try (Stream<GithubTeamMemberInfo> members =
+        githubPaginator.stream(endpoint + "?role=" + role, token, GithubTeamMemberInfo.class)) {
+      members.forEach(member -> memberships.put(member.login(), status));
     }
+  }
 
-    for (GithubTeamMemberInfo member :
-        objectMapper.convertValue(
-            objectMapper.readTree(response.getBody()),
-            new TypeReference<List<GithubTeamMemberInfo>>() {})) {
-      memberships.put(member.login(), status);
-    }
+  /**
+   * Lists all teams for an organization once and indexes them by ID, slug and name.
+   *
+   * @param course The course containing the organization
+   * @return An index of the organization's teams
+   * @throws NoSuchAlgorithmException if there is an algorithm error
+   * @throws InvalidKeySpecException if there is a key specification error
+   * @throws JsonProcessingException if there is an error processing JSON
+   */
+  public GithubTeamIndex getTeamIndex(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    return new GithubTeamIndex(getAllTeams(course));
   }
 
   /**
@@ -503,38 +517,15 @@ public class GithubTeamService {
    */
   public List<GithubTeamInfo> getAllTeams(Course course)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
-    String endpoint = "https://api.github.com/orgs/" + course.getOrgName() + "/teams?per_page=100";
-    Pattern pattern = Pattern.compile("(?<=<)([\\S]*)(?=>; rel=\"next\")");
-
-    HttpHeaders headers = new HttpHeaders();
-    String token = jwtService.getInstallationToken(course);
-    headers.add("Authorization", "Bearer " + token);
-    headers.add("Accept", "application/vnd.github+json");
-    headers.add("X-GitHub-Api-Version", "2022-11-28");
-    HttpEntity<String> entity = new HttpEntity<>(headers);
-
-    ResponseEntity<String> response =
-        restTemplate.exchange(endpoint, HttpMethod.GET, entity, String.class);
-    List<String> responseLinks = response.getHeaders().getOrEmpty("link");
-    List<GithubTeamInfo> teams = new ArrayList<>();
-
-    while (!responseLinks.isEmpty() && responseLinks.getFirst().contains("next")) {
-      teams.addAll(
-          objectMapper.convertValue(
-              objectMapper.readTree(response.getBody()),
-              new TypeReference<List<GithubTeamInfo>>() {}));
-
-      Matcher matcher = pattern.matcher(responseLinks.getFirst());
-      matcher.find();
-      response = restTemplate.exchange(matcher.group(0), HttpMethod.GET, entity, String.class);
-      responseLinks = response.getHeaders().getOrEmpty("link");
+    try (Stream<GithubTeamInfo> teams = streamAllTeams(course)) {
+      return teams.toList();
     }
+  }
 
-    teams.addAll(
-        objectMapper.convertValue(
-            objectMapper.readTree(response.getBody()),
-            new TypeReference<List<GithubTeamInfo>>() {}));
-
-    return teams;
+  private Stream<GithubTeamInfo> streamAllTeams(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    String endpoint = "https://api.github.com/orgs/" + course.getOrgName() + "/teams";
+    return githubPaginator.stream(
+        endpoint, jwtService.getInstallationToken(course), GithubTeamInfo.class);
   }
 }
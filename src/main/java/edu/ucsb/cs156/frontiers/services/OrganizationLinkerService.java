@@ -7,11 +7,11 @@ import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.errors.InvalidInstallationTypeException;
 import edu.ucsb.cs156.frontiers.errors.NoLinkedOrganizationException;
 import edu.ucsb.cs156.frontiers.models.CourseWarning;
+import edu.ucsb.cs156.frontiers.models.GithubOrganization;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.time.ZonedDateTime;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -31,8 +31,8 @@ public class OrganizationLinkerService {
 
   @Autowired DateTimeProvider provider;
 
-  public OrganizationLinkerService(RestTemplateBuilder restTemplateBuilder) {
-    restTemplate = restTemplateBuilder.build();
+  public OrganizationLinkerService(RestTemplate githubRestTemplate) {
+    restTemplate = githubRestTemplate;
   }
 
   /**
@@ -59,12 +59,12 @@ public class OrganizationLinkerService {
   }
 
   /**
-   * Provides the name of the organization attached to a particular installation ID
+   * Provides the name and ID of the organization attached to a particular installation ID
    *
    * @param installation_id ID of the app installation
-   * @return name of the organization attached to the installation
+   * @return the organization attached to the installation
    */
-  public String getOrgName(String installation_id)
+  public GithubOrganization getOrganization(String installation_id)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
     String token = jwtService.getJwt();
     String ENDPOINT = "https://api.github.com/app/installations/" + installation_id;
@@ -81,8 +81,9 @@ public class OrganizationLinkerService {
     if (!type.equals("Organization")) {
       throw new InvalidInstallationTypeException(type);
     }
-    String orgName = responseJson.get("account").get("login").asText();
-    return orgName;
+    return new GithubOrganization(
+        responseJson.get("account").get("login").asText(),
+        responseJson.get("account").get("id").asInt());
   }
 
   public CourseWarning checkCourseWarnings(Course course)
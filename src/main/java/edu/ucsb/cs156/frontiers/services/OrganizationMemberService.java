@@ -1,7 +1,6 @@
 package edu.ucsb.cs156.frontiers.services;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,14 +12,10 @@ import edu.ucsb.cs156.frontiers.models.OrgMember;
 import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -37,17 +32,20 @@ public class OrganizationMemberService {
   private final ObjectMapper objectMapper;
   private final RestTemplate restTemplate;
   private final RosterStudentRepository rosterStudentRepository;
+  private final GithubPaginator githubPaginator;
 
   public OrganizationMemberService(
       JwtService jwtService,
       ObjectMapper objectMapper,
-      RestTemplateBuilder builder,
-      RosterStudentRepository rosterStudentRepository) {
+      RestTemplate githubRestTemplate,
+      RosterStudentRepository rosterStudentRepository,
+      GithubPaginator githubPaginator) {
     this.jwtService = jwtService;
     this.objectMapper = objectMapper;
     this.rosterStudentRepository = rosterStudentRepository;
     this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-    this.restTemplate = builder.build();
+    this.restTemplate = githubRestTemplate;
+    this.githubPaginator = githubPaginator;
   }
 
   /**
@@ -56,8 +54,21 @@ public class OrganizationMemberService {
    */
   public Iterable<OrgMember> getOrganizationMembers(Course course)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    try (Stream<OrgMember> members = streamOrganizationMembers(course)) {
+      return members.toList();
+    }
+  }
+
+  /**
+   * Streams the **members** of the organization, not admins, one page at a time. Callers that only
+   * need to look at each member once should prefer this to {@link #getOrganizationMembers(Course)},
+   * since it never holds the whole organization in memory. The stream should be closed.
+   */
+  public Stream<OrgMember> streamOrganizationMembers(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
     String ENDPOINT = "https://api.github.com/orgs/" + course.getOrgName() + "/members?role=member";
-    return getOrganizationMembersWithRole(course, ENDPOINT);
+    return githubPaginator.stream(
+        ENDPOINT, jwtService.getInstallationToken(course), OrgMember.class);
   }
 
   /**
@@ -82,32 +93,11 @@ public class OrganizationMemberService {
 
   private Iterable<OrgMember> getOrganizationMembersWithRole(Course course, String ENDPOINT)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
-    // happily stolen directly from GitHub:
-    // https://docs.github.com/en/rest/using-the-rest-api/using-pagination-in-the-rest-api?apiVersion=2022-11-28
-    Pattern pattern = Pattern.compile("(?<=<)([\\S]*)(?=>; rel=\"next\")");
-    String token = jwtService.getInstallationToken(course);
-    HttpHeaders headers = new HttpHeaders();
-    headers.add("Authorization", "Bearer " + token);
-    headers.add("Accept", "application/vnd.github+json");
-    headers.add("X-GitHub-Api-Version", "2022-11-28");
-    HttpEntity<String> entity = new HttpEntity<>(headers);
-    ResponseEntity<String> response =
-        restTemplate.exchange(ENDPOINT, HttpMethod.GET, entity, String.class);
-    List<String> responseLinks = response.getHeaders().getOrEmpty("link");
-    List<OrgMember> orgMembers = new ArrayList<>();
-    while (!responseLinks.isEmpty() && responseLinks.getFirst().contains("next")) {
-      orgMembers.addAll(
-          objectMapper.convertValue(
-              objectMapper.readTree(response.getBody()), new TypeReference<List<OrgMember>>() {}));
-      Matcher matcher = pattern.matcher(responseLinks.getFirst());
-      matcher.find();
-      response = restTemplate.exchange(matcher.group(0), HttpMethod.GET, entity, String.class);
-      responseLinks = response.getHeaders().getOrEmpty("link");
+    try (Stream<OrgMember> members =
+        githubPaginator.stream(
+            ENDPOINT, jwtService.getInstallationToken(course), OrgMember.class)) {
+      return members.toList();
     }
-    orgMembers.addAll(
-        objectMapper.convertValue(
-            objectMapper.readTree(response.getBody()), new TypeReference<List<OrgMember>>() {}));
-    return orgMembers;
   }
 
   public OrgStatus inviteOrganizationMember(RosterStudent student)
@@ -1,22 +1,30 @@
 package edu.ucsb.cs156.frontiers.services;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.CourseStaff;
 import edu.ucsb.cs156.frontiers.entities.RosterStudent;
 import edu.ucsb.cs156.frontiers.entities.Team;
+import edu.ucsb.cs156.frontiers.enums.RepositoryCreationStatus;
 import edu.ucsb.cs156.frontiers.enums.RepositoryPermissions;
 import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
@@ -30,6 +38,12 @@ public class RepositoryService {
   private final TeamRepository teamRepository;
   private final RestTemplate restTemplate;
   private final ObjectMapper mapper;
+  private final GithubGraphQLService githubGraphQLService;
+  private final GithubPaginator githubPaginator;
+
+  /** Whether to find repositories by prefix with GitHub's search rather than listing them all. */
+  @Value("${app.github.searchRepositoriesByPrefix:false}")
+  private boolean searchRepositoriesByPrefix;
 
   public record GithubRepository(String name, String fullName) {}
 
@@ -45,8 +59,9 @@ public class RepositoryService {
    * Creates a GitHub repository for a user (student or staff), given only their GitHub login.
    *
    * <p>This helper method contains the shared logic used by both {@link
-   * #createStudentRepository(Course, RosterStudent, String, Boolean, RepositoryPermissions)} and
-   * {@link #createStaffRepository(Course, CourseStaff, String, Boolean, RepositoryPermissions)}.
+   * #createStudentRepository(Course, RosterStudent, String, Boolean, RepositoryPermissions,
+   * GithubRepositoryIndex)} and {@link #createStaffRepository(Course, CourseStaff, String, Boolean,
+   * RepositoryPermissions, GithubRepositoryIndex)}.
    *
    * <ul>
    *   <li>Checks whether the repository already exists.
@@ -59,24 +74,25 @@ public class RepositoryService {
    * @param repoPrefix prefix for the repository name (repoPrefix-githubLogin)
    * @param isPrivate whether the created repository should be private
    * @param permissions collaborator permissions to grant the user
+   * @param repositoryIndex the organization's repositories, used to check whether the repository
+   *     exists; if null, GitHub is asked
+   * @return whether the repository was created, already existed, or could not be checked
    * @throws NoSuchAlgorithmException if signing fails
    * @throws InvalidKeySpecException if signing fails
    * @throws JsonProcessingException if JSON serialization fails
    */
-  private void createRepositoryForStudentOrStaff(
+  private RepositoryCreationStatus createRepositoryForStudentOrStaff(
       Course course,
       String githubLogin,
       String repoPrefix,
       Boolean isPrivate,
-      RepositoryPermissions permissions)
+      RepositoryPermissions permissions,
+      GithubRepositoryIndex repositoryIndex)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
 
     String newRepoName = repoPrefix + "-" + githubLogin;
     String token = jwtService.getInstallationToken(course);
 
-    String existenceEndpoint =
-        "https://api.github.com/repos/" + course.getOrgName() + "/" + newRepoName;
-    String createEndpoint = "https://api.github.com/orgs/" + course.getOrgName() + "/repos";
     String provisionEndpoint =
         "https://api.github.com/repos/"
             + course.getOrgName()
@@ -85,42 +101,95 @@ public class RepositoryService {
             + "/collaborators/"
             + githubLogin;
 
-    HttpHeaders existenceHeaders = githubHeaders(token);
-
-    HttpEntity<String> existenceEntity = new HttpEntity<>(existenceHeaders);
+    RepositoryCreationStatus status =
+        createRepositoryIfMissing(course, token, newRepoName, isPrivate, repositoryIndex);
+    if (status == RepositoryCreationStatus.FAILED) {
+      return status;
+    }
 
     try {
-      restTemplate.exchange(existenceEndpoint, HttpMethod.GET, existenceEntity, String.class);
-    } catch (HttpClientErrorException e) {
-      if (e.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
-        HttpHeaders createHeaders = githubHeaders(token);
-
-        Map<String, Object> body = new HashMap<>();
-        body.put("name", newRepoName);
-        body.put("private", isPrivate);
-        String bodyAsJson = mapper.writeValueAsString(body);
+      Map<String, Object> provisionBody = new HashMap<>();
+      provisionBody.put("permission", permissions.getApiName());
+      String provisionAsJson = mapper.writeValueAsString(provisionBody);
 
-        HttpEntity<String> createEntity = new HttpEntity<>(bodyAsJson, createHeaders);
+      HttpEntity<String> provisionEntity = new HttpEntity<>(provisionAsJson, githubHeaders(token));
+      restTemplate.exchange(provisionEndpoint, HttpMethod.PUT, provisionEntity, String.class);
+    } catch (HttpClientErrorException ignored) {
+      // silently ignore if provisioning fails (same as before)
+    }
+    return status;
+  }
 
-        restTemplate.exchange(createEndpoint, HttpMethod.POST, createEntity, String.class);
-      } else {
+  /**
+   * Creates a repository in the course's organization unless it already exists.
+   *
+   * <p>When an index is given, existence is read from it and repositories that are created are
+   * added to it. If GitHub rejects the create because a repository of that name was made after the
+   * index was listed, the repository is reported as existing.
+   *
+   * @return CREATED or EXISTING, or FAILED if GitHub gave an unexpected answer to the existence
+   *     check
+   */
+  private RepositoryCreationStatus createRepositoryIfMissing(
+      Course course,
+      String token,
+      String newRepoName,
+      Boolean isPrivate,
+      GithubRepositoryIndex repositoryIndex)
+      throws JsonProcessingException {
+    if (repositoryIndex != null) {
+      if (repositoryIndex.contains(newRepoName)) {
+        return RepositoryCreationStatus.EXISTING;
+      }
+    } else {
+      HttpStatusCode existence = checkRepositoryExists(course, token, newRepoName);
+      if (!existence.isError()) {
+        return RepositoryCreationStatus.EXISTING;
+      }
+      if (!existence.equals(HttpStatus.NOT_FOUND)) {
         log.warn(
             "Unexpected response code {} when checking for existence of repository {}",
-            e.getStatusCode(),
+            existence,
             newRepoName);
-        return;
+        return RepositoryCreationStatus.FAILED;
       }
     }
 
+    String createEndpoint = "https://api.github.com/orgs/" + course.getOrgName() + "/repos";
+    Map<String, Object> body = new HashMap<>();
+    body.put("name", newRepoName);
+    body.put("private", isPrivate);
+    String bodyAsJson = mapper.writeValueAsString(body);
+    HttpEntity<String> createEntity = new HttpEntity<>(bodyAsJson, githubHeaders(token));
+
     try {
-      Map<String, Object> provisionBody = new HashMap<>();
-      provisionBody.put("permission", permissions.getApiName());
-      String provisionAsJson = mapper.writeValueAsString(provisionBody);
+      restTemplate.exchange(createEndpoint, HttpMethod.POST, createEntity, String.class);
+    } catch (HttpClientErrorException e) {
+      if (repositoryIndex == null
+          || !e.getStatusCode().equals(HttpStatus.UNPROCESSABLE_ENTITY)
+          || checkRepositoryExists(course, token, newRepoName).isError()) {
+        throw e;
+      }
+      repositoryIndex.add(newRepoName);
+      return RepositoryCreationStatus.EXISTING;
+    }
+    if (repositoryIndex != null) {
+      repositoryIndex.add(newRepoName);
+    }
+    return RepositoryCreationStatus.CREATED;
+  }
 
-      HttpEntity<String> provisionEntity = new HttpEntity<>(provisionAsJson, existenceHeaders);
-      restTemplate.exchange(provisionEndpoint, HttpMethod.PUT, provisionEntity, String.class);
-    } catch (HttpClientErrorException ignored) {
-      // silently ignore if provisioning fails (same as before)
+  /** Asks GitHub for a repository and returns the status code it answered with. */
+  private HttpStatusCode checkRepositoryExists(Course course, String token, String repositoryName) {
+    String existenceEndpoint =
+        "https://api.github.com/repos/" + course.getOrgName() + "/" + repositoryName;
+    HttpEntity<String> existenceEntity = new HttpEntity<>(githubHeaders(token));
+    try {
+      return restTemplate
+          .exchange(existenceEndpoint, HttpMethod.GET, existenceEntity, String.class)
+          .getStatusCode();
+    } catch (HttpClientErrorException e) {
+      return e.getStatusCode();
     }
   }
 
@@ -128,13 +197,17 @@ public class RepositoryService {
       JwtService jwtService,
       GithubTeamService githubTeamService,
       TeamRepository teamRepository,
-      RestTemplateBuilder restTemplateBuilder,
-      ObjectMapper mapper) {
+      RestTemplate githubRestTemplate,
+      ObjectMapper mapper,
+      GithubGraphQLService githubGraphQLService,
+      GithubPaginator githubPaginator) {
     this.jwtService = jwtService;
     this.githubTeamService = githubTeamService;
     this.teamRepository = teamRepository;
-    this.restTemplate = restTemplateBuilder.build();
+    this.restTemplate = githubRestTemplate;
     this.mapper = mapper;
+    this.githubGraphQLService = githubGraphQLService;
+    this.githubPaginator = githubPaginator;
   }
 
   /**
@@ -146,16 +219,20 @@ public class RepositoryService {
    * @param repoPrefix Name of the project or assignment. Used to title the repository, in the
    *     format repoPrefix-githubLogin
    * @param isPrivate Whether the repository is private or not
+   * @param repositoryIndex the organization's repositories, from {@link
+   *     #getRepositoryIndex(Course)}; if null, GitHub is asked whether the repository exists
+   * @return whether the repository was created, already existed, or could not be checked
    */
-  public void createStudentRepository(
+  public RepositoryCreationStatus createStudentRepository(
       Course course,
       RosterStudent student,
       String repoPrefix,
       Boolean isPrivate,
-      RepositoryPermissions permissions)
+      RepositoryPermissions permissions,
+      GithubRepositoryIndex repositoryIndex)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
-    createRepositoryForStudentOrStaff(
-        course, student.getGithubLogin(), repoPrefix, isPrivate, permissions);
+    return createRepositoryForStudentOrStaff(
+        course, student.getGithubLogin(), repoPrefix, isPrivate, permissions, repositoryIndex);
   }
 
   /**
@@ -167,41 +244,111 @@ public class RepositoryService {
    * @param repoPrefix Name of the project or assignment. Used to title the repository, in the
    *     format repoPrefix-githubLogin
    * @param isPrivate Whether the repository is private or not
+   * @param repositoryIndex the organization's repositories, from {@link
+   *     #getRepositoryIndex(Course)}; if null, GitHub is asked whether the repository exists
+   * @return whether the repository was created, already existed, or could not be checked
    */
-  public void createStaffRepository(
+  public RepositoryCreationStatus createStaffRepository(
       Course course,
       CourseStaff staff,
       String repoPrefix,
       Boolean isPrivate,
-      RepositoryPermissions permissions)
+      RepositoryPermissions permissions,
+      GithubRepositoryIndex repositoryIndex)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
 
-    createRepositoryForStudentOrStaff(
-        course, staff.getGithubLogin(), repoPrefix, isPrivate, permissions);
+    return createRepositoryForStudentOrStaff(
+        course, staff.getGithubLogin(), repoPrefix, isPrivate, permissions, repositoryIndex);
+  }
+
+  /**
+   * Lists every repository in the course's GitHub organization, following pagination links, and
+   * returns an index of their names.
+   *
+   * @param course the course whose organization should be listed
+   * @return the names of the organization's repositories
+   */
+  public GithubRepositoryIndex getRepositoryIndex(Course course)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    try (Stream<GithubRepository> repositories = streamRepositoriesMatchingPrefix(course, "")) {
+      return new GithubRepositoryIndex(repositories.map(GithubRepository::name).toList());
+    }
   }
 
   /**
    * Lists repositories in the course GitHub organization whose names start with the provided
    * prefix.
+   *
+   * <p>By default every page of the organization's repositories is listed with the REST API. When
+   * <code>app.github.searchRepositoriesByPrefix</code> is set, GitHub's repository search is used
+   * instead, so that only matching repositories are sent; it falls back to listing when the search
+   * could not return every match, such as for a prefix that ends partway through a word.
    */
   public List<GithubRepository> getRepositoriesMatchingPrefix(Course course, String prefix)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
+    if (searchRepositoriesByPrefix) {
+      Optional<Stream<GithubRepository>> searchResults =
+          githubGraphQLService.searchRepositoriesByPrefix(course, prefix);
+      if (searchResults.isPresent()) {
+        try (Stream<GithubRepository> repositories = searchResults.get()) {
+          return repositories.toList();
+        }
+      }
+    }
+    try (Stream<GithubRepository> repositories = streamRepositoriesMatchingPrefix(course, prefix)) {
+      return repositories.toList();
+    }
+  }
+
+  /**
+   * Streams the repositories in the course GitHub organization whose names start with the provided
+   * prefix, using the REST API.
+   *
+   * <p>Pages are fetched by the {@link GithubPaginator} as the stream is consumed, so a caller that
+   * stops early does not list the rest of the organization. Each page is read with a streaming
+   * parser that keeps only the matching repositories' names. The first page is fetched before this
+   * method returns.
+   *
+   * @param course the course whose organization should be listed
+   * @param prefix the prefix that repository names must start with, ignoring case
+   * @return the matching repositories, in the order GitHub lists them
+   */
+  public Stream<GithubRepository> streamRepositoriesMatchingPrefix(Course course, String prefix)
+      throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
     String token = jwtService.getInstallationToken(course);
-    String endpoint = "https://api.github.com/orgs/" + course.getOrgName() + "/repos?per_page=100";
+    String endpoint = "https://api.github.com/orgs/" + course.getOrgName() + "/repos";
+    return githubPaginator.stream(endpoint, token, body -> parseRepositories(body, prefix));
+  }
 
-    HttpEntity<String> entity = new HttpEntity<>(githubHeaders(token));
-    ResponseEntity<String> response =
-        restTemplate.exchange(endpoint, HttpMethod.GET, entity, String.class);
-
-    JsonNode repos = mapper.readTree(response.getBody());
-    List<GithubRepository> matchingRepos = new ArrayList<>();
-    for (JsonNode repo : repos) {
-      String name = repo.path("name").asText();
-      if (name.startsWith(prefix)) {
-        matchingRepos.add(new GithubRepository(name, repo.path("full_name").asText()));
+  /**
+   * Reads a JSON array of GitHub repositories token by token, keeping only the names of those that
+   * start with the prefix.
+   */
+  private List<GithubRepository> parseRepositories(InputStream body, String prefix)
+      throws IOException {
+    List<GithubRepository> repositories = new ArrayList<>();
+    try (JsonParser parser = mapper.getFactory().createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new JsonParseException(parser, "Expected a JSON array of repositories");
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        String name = null;
+        String fullName = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String field = parser.currentName();
+          parser.nextToken();
+          switch (field) {
+            case "name" -> name = parser.getText();
+            case "full_name" -> fullName = parser.getText();
+            default -> parser.skipChildren();
+          }
+        }
+        if (name != null && name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+          repositories.add(new GithubRepository(name, fullName));
+        }
       }
     }
-    return matchingRepos;
+    return repositories;
   }
 
   /** Returns true when the repository has no commits. */
@@ -259,25 +406,30 @@ public class RepositoryService {
    * @param isPrivate whether the created repository should be private
    * @param permissions collaborator permissions to grant the user
    * @param orgId GitHub organization ID used for team-based repo provisioning
+   * @param teamIndex the organization's teams, used to look up the slug of a team that has none
+   *     stored; if null, the slug is fetched from GitHub by team ID
+   * @param repositoryIndex the organization's repositories, used to check whether the repository
+   *     exists; if null, GitHub is asked
+   * @return the name of the repository, which now exists in the organization, or null if it could
+   *     not be created
    * @throws NoSuchAlgorithmException if signing fails
    * @throws InvalidKeySpecException if signing fails
    * @throws JsonProcessingException if JSON serialization fails
    */
-  public void createTeamRepository(
+  public String createTeamRepository(
       Course course,
       Team team,
       String repoPrefix,
       Boolean isPrivate,
       RepositoryPermissions permissions,
-      Integer orgId)
+      Integer orgId,
+      GithubTeamIndex teamIndex,
+      GithubRepositoryIndex repositoryIndex)
       throws NoSuchAlgorithmException, InvalidKeySpecException, JsonProcessingException {
-    String teamSlug = getOrFetchTeamSlug(course, team, orgId);
+    String teamSlug = getOrFetchTeamSlug(course, team, orgId, teamIndex);
     String newRepoName = repoPrefix + "-" + teamSlug;
     String token = jwtService.getInstallationToken(course);
 
-    String existenceEndpoint =
-        "https://api.github.com/repos/" + course.getOrgName() + "/" + newRepoName;
-    String createEndpoint = "https://api.github.com/orgs/" + course.getOrgName() + "/repos";
     String provisionEndpoint =
         "https://api.github.com/organizations/"
             + orgId
@@ -288,45 +440,25 @@ public class RepositoryService {
             + "/"
             + newRepoName;
 
-    HttpHeaders existenceHeaders = githubHeaders(token);
-
-    HttpEntity<String> existenceEntity = new HttpEntity<>(existenceHeaders);
-
-    try {
-      restTemplate.exchange(existenceEndpoint, HttpMethod.GET, existenceEntity, String.class);
-    } catch (HttpClientErrorException e) {
-      if (e.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
-        HttpHeaders createHeaders = githubHeaders(token);
-
-        Map<String, Object> body = new HashMap<>();
-        body.put("name", newRepoName);
-        body.put("private", isPrivate);
-        String bodyAsJson = mapper.writeValueAsString(body);
-
-        HttpEntity<String> createEntity = new HttpEntity<>(bodyAsJson, createHeaders);
-
-        restTemplate.exchange(createEndpoint, HttpMethod.POST, createEntity, String.class);
-      } else {
-        log.warn(
-            "Unexpected response code {} when checking for existence of repository {}",
-            e.getStatusCode(),
-            newRepoName);
-        return;
-      }
+    if (createRepositoryIfMissing(course, token, newRepoName, isPrivate, repositoryIndex)
+        == RepositoryCreationStatus.FAILED) {
+      return null;
     }
     try {
       Map<String, Object> provisionBody = new HashMap<>();
       provisionBody.put("permission", permissions.getApiName());
       String provisionAsJson = mapper.writeValueAsString(provisionBody);
 
-      HttpEntity<String> provisionEntity = new HttpEntity<>(provisionAsJson, existenceHeaders);
+      HttpEntity<String> provisionEntity = new HttpEntity<>(provisionAsJson, githubHeaders(token));
       restTemplate.exchange(provisionEndpoint, HttpMethod.PUT, provisionEntity, String.class);
     } catch (HttpClientErrorException ignored) {
       // silently ignore if provisioning fails (same as before)
     }
+    return newRepoName;
   }
 
-  private String getOrFetchTeamSlug(Course course, Team team, Integer orgId)
+  private String getOrFetchTeamSlug(
+      Course course, Team team, Integer orgId, GithubTeamIndex teamIndex)
       throws JsonProcessingException, NoSuchAlgorithmException, InvalidKeySpecException {
     if (team.getGithubTeamSlug() != null && !team.getGithubTeamSlug().isBlank()) {
       return team.getGithubTeamSlug();
@@ -340,7 +472,9 @@ public class RepositoryService {
     }
 
     GithubTeamService.GithubTeamInfo teamInfo =
-        githubTeamService.getTeamInfoById(orgId, team.getGithubTeamId(), course);
+        teamIndex != null
+            ? teamIndex.findById(team.getGithubTeamId())
+            : githubTeamService.getTeamInfoById(orgId, team.getGithubTeamId(), course);
 
     if (teamInfo == null || teamInfo.slug() == null || teamInfo.slug().isBlank()) {
       throw new IllegalStateException(
@@ -0,0 +1,524 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.Team;
+import edu.ucsb.cs156.frontiers.entities.TeamMember;
+import edu.ucsb.cs156.frontiers.entities.WebhookEvent;
+import edu.ucsb.cs156.frontiers.enums.OrgStatus;
+import edu.ucsb.cs156.frontiers.enums.TeamStatus;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.CourseStaffRepository;
+import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
+import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
+import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.repositories.WebhookEventRepository;
+import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Queues webhook deliveries from GitHub and processes them in the background.
+ *
+ * <p>The webhook endpoint only checks the signature and stores the raw delivery with {@link
+ * #enqueue}, so that it can reply well within GitHub's 10 second timeout. Deliveries are keyed by
+ * their <code>X-GitHub-Delivery</code> ID, so an event that GitHub delivers again is dropped as a
+ * duplicate.
+ *
+ * <p>{@link #drain} runs every <code>app.webhooks.drainInterval</code> and works through the queue
+ * oldest first, in batches of <code>app.webhooks.batchSize</code> that are each committed in their
+ * own transaction. The courses for a whole batch are found with one query by installation ID. An
+ * event whose handler fails is marked processed with the error, so that it does not hold up the
+ * queue; if the failure breaks the batch's transaction, the batch is processed again one event per
+ * transaction. Processed events are kept for <code>app.webhooks.retention</code>, so that late
+ * redeliveries are still recognized, and then deleted.
+ *
+ * <p>Events are handled by their <code>X-GitHub-Event</code> type and action, and update the
+ * matching local records in place: organization membership updates roster students and course
+ * staff, team membership updates team members, and team changes create, rename or unlink teams.
+ * Each of these, and repositories being created or deleted, also updates the course's shadow copy
+ * of its organization in {@link GithubShadowService}.
+ */
+@Service
+@Slf4j
+public class WebhookEventService {
+
+  /** Webhook events, as "event.action", that update a course; only their courses are looked up. */
+  private static final Set<String> HANDLED_EVENTS =
+      Set.of(
+          "installation.deleted",
+          "organization.member_added",
+          "organization.member_invited",
+          "organization.member_removed",
+          "membership.added",
+          "membership.removed",
+          "team.created",
+          "team.edited",
+          "team.deleted",
+          "repository.created",
+          "repository.deleted");
+
+  @Value("${app.webhooks.batchSize:100}")
+  private int batchSize;
+
+  @Value("${app.webhooks.retention:P7D}")
+  private Duration retention;
+
+  private final WebhookEventRepository webhookEventRepository;
+  private final CourseRepository courseRepository;
+  private final RosterStudentRepository rosterStudentRepository;
+  private final CourseStaffRepository courseStaffRepository;
+  private final TeamRepository teamRepository;
+  private final TeamMemberRepository teamMemberRepository;
+  private final GithubShadowService githubShadowService;
+  private final JwtService jwtService;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate transactionTemplate;
+
+  private Clock clock = Clock.systemUTC();
+
+  public WebhookEventService(
+      WebhookEventRepository webhookEventRepository,
+      CourseRepository courseRepository,
+      RosterStudentRepository rosterStudentRepository,
+      CourseStaffRepository courseStaffRepository,
+      TeamRepository teamRepository,
+      TeamMemberRepository teamMemberRepository,
+      GithubShadowService githubShadowService,
+      JwtService jwtService,
+      ObjectMapper objectMapper,
+      TransactionTemplate transactionTemplate) {
+    this.webhookEventRepository = webhookEventRepository;
+    this.courseRepository = courseRepository;
+    this.rosterStudentRepository = rosterStudentRepository;
+    this.courseStaffRepository = courseStaffRepository;
+    this.teamRepository = teamRepository;
+    this.teamMemberRepository = teamMemberRepository;
+    this.githubShadowService = githubShadowService;
+    this.jwtService = jwtService;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  /**
+   * Stores a webhook delivery to be processed later.
+   *
+   * @param deliveryId the <code>X-GitHub-Delivery</code> header
+   * @param eventType the <code>X-GitHub-Event</code> header, if there was one
+   * @param payload the raw body of the delivery
+   * @return false if the delivery was already stored, in which case it is ignored
+   */
+  public boolean enqueue(String deliveryId, String eventType, String payload) {
+    if (webhookEventRepository.existsByDeliveryId(deliveryId)) {
+      return false;
+    }
+    try {
+      webhookEventRepository.save(
+          WebhookEvent.builder()
+              .deliveryId(deliveryId)
+              .eventType(eventType)
+              .payload(payload)
+              .receivedAt(clock.instant())
+              .build());
+      return true;
+    } catch (DataIntegrityViolationException e) {
+      // The same delivery arrived twice at once, and the other request stored it first
+      return false;
+    }
+  }
+
+  /** Processes every queued event, then deletes processed events older than the retention. */
+  @Scheduled(fixedDelayString = "${app.webhooks.drainInterval:PT2S}")
+  public void drain() {
+    int processed;
+    do {
+      try {
+        processed = transactionTemplate.execute(status -> processBatch());
+      } catch (RuntimeException e) {
+        // An event broke the batch's transaction, for example with a database error, so nothing in
+        // the batch was committed. Going through it again one event at a time confines the failure
+        // to that event, which would otherwise block the queue.
+        log.warn("Webhook batch failed, processing its events one at a time", e);
+        processed = processSeparately();
+      }
+    } while (processed == batchSize);
+
+    Instant cutoff = clock.instant().minus(retention);
+    transactionTemplate.executeWithoutResult(
+        status -> webhookEventRepository.deleteByProcessedAtBefore(cutoff));
+  }
+
+  private record Delivery(WebhookEvent event, JsonNode body) {}
+
+  /** Processes the oldest queued events, and returns how many there were. */
+  private int processBatch() {
+    return processEvents(
+        webhookEventRepository.findByProcessedAtIsNullOrderByIdAsc(Limit.of(batchSize)));
+  }
+
+  /**
+   * Processes the oldest queued events, each in its own transaction. An event whose transaction
+   * fails is marked processed with the error, so that it is not tried again.
+   *
+   * @return how many events there were
+   */
+  private int processSeparately() {
+    List<WebhookEvent> events =
+        webhookEventRepository.findByProcessedAtIsNullOrderByIdAsc(Limit.of(batchSize));
+    for (WebhookEvent event : events) {
+      try {
+        transactionTemplate.executeWithoutResult(status -> processEvents(List.of(event)));
+      } catch (RuntimeException e) {
+        log.warn("Webhook delivery {} could not be processed", event.getDeliveryId(), e);
+        event.setError(errorMessage(e));
+        event.setProcessedAt(clock.instant());
+        transactionTemplate.executeWithoutResult(status -> webhookEventRepository.save(event));
+      }
+    }
+    return events.size();
+  }
+
+  private int processEvents(List<WebhookEvent> events) {
+    if (events.isEmpty()) {
+      return 0;
+    }
+
+    List<Delivery> deliveries = new ArrayList<>();
+    Set<String> installationIds = new HashSet<>();
+    for (WebhookEvent event : events) {
+      try {
+        JsonNode body = objectMapper.readTree(event.getPayload());
+        deliveries.add(new Delivery(event, body));
+        String installationId = installationId(body);
+        if (HANDLED_EVENTS.contains(eventKey(event, body)) && installationId != null) {
+          installationIds.add(installationId);
+        }
+      } catch (JsonProcessingException e) {
+        log.warn("Webhook delivery {} is not valid JSON", event.getDeliveryId());
+        event.setError("Invalid JSON");
+      }
+    }
+
+    Map<String, Course> coursesByInstallationId = new HashMap<>();
+    if (!installationIds.isEmpty()) {
+      for (Course course : courseRepository.findByInstallationIdIn(installationIds)) {
+        coursesByInstallationId.put(course.getInstallationId(), course);
+      }
+    }
+
+    for (Delivery delivery : deliveries) {
+      try {
+        process(delivery.event(), delivery.body(), coursesByInstallationId);
+      } catch (RuntimeException e) {
+        log.warn("Webhook delivery {} could not be processed", delivery.event().getDeliveryId(), e);
+        delivery.event().setError(errorMessage(e));
+      }
+    }
+
+    Instant processedAt = clock.instant();
+    events.forEach(event -> event.setProcessedAt(processedAt));
+    webhookEventRepository.saveAll(events);
+    return events.size();
+  }
+
+  private void process(
+      WebhookEvent event, JsonNode body, Map<String, Course> coursesByInstallationId) {
+    if (!body.has("action")) {
+      return;
+    }
+    String action = body.get("action").asText();
+    String eventKey = eventKey(event, body);
+    log.info("Processing webhook delivery {}, event: {}", event.getDeliveryId(), eventKey);
+    switch (eventKey) {
+      case "installation.deleted" -> uninstall(body, coursesByInstallationId);
+      case "organization.member_added",
+              "organization.member_invited",
+              "organization.member_removed" ->
+          updateMembership(event, body, action, coursesByInstallationId);
+      case "membership.added", "membership.removed" ->
+          updateTeamMembership(body, action, coursesByInstallationId);
+      case "team.created", "team.edited" -> saveTeam(body, coursesByInstallationId);
+      case "team.deleted" -> unlinkTeam(body, coursesByInstallationId);
+      case "repository.created", "repository.deleted" ->
+          updateRepository(body, action, coursesByInstallationId);
+      default -> {}
+    }
+  }
+
+  /**
+   * Returns the event type and action of a delivery as "event.action". Deliveries stored without an
+   * <code>X-GitHub-Event</code> header are taken to be installation or organization events, which
+   * were the only ones handled before the header was used.
+   */
+  private static String eventKey(WebhookEvent event, JsonNode body) {
+    String action = body.path("action").asText();
+    String eventType = event.getEventType();
+    if (eventType == null) {
+      eventType = action.equals("deleted") ? "installation" : "organization";
+    }
+    return eventType + "." + action;
+  }
+
+  /** Unlinks the course of a GitHub App installation that was uninstalled. */
+  private void uninstall(JsonNode body, Map<String, Course> coursesByInstallationId) {
+    String installationId = installationId(body);
+    if (installationId == null) {
+      return;
+    }
+    jwtService.evictInstallationToken(installationId);
+    Course course = coursesByInstallationId.remove(installationId);
+    if (course == null) {
+      log.warn("No course found with installation ID for uninstall: {}", installationId);
+      return;
+    }
+    course.setInstallationId(null);
+    course.setOrgName(null);
+    course.setGithubOrgId(null);
+    courseRepository.save(course);
+  }
+
+  /**
+   * Updates the org status of the student or staff member who joined, was invited or was removed.
+   * Someone removed from the org goes back to {@link OrgStatus#JOINCOURSE}, as in the membership
+   * audit.
+   */
+  private void updateMembership(
+      WebhookEvent event,
+      JsonNode body,
+      String action,
+      Map<String, Course> coursesByInstallationId) {
+    JsonNode user;
+    OrgStatus status;
+    JsonNode membership = body.path("membership");
+    switch (action) {
+      case "member_added" -> {
+        if (!membership.has("role")) {
+          return;
+        }
+        user = membership.path("user");
+        status =
+            membership.get("role").asText().equals("admin") ? OrgStatus.OWNER : OrgStatus.MEMBER;
+      }
+      case "member_removed" -> {
+        user = membership.path("user");
+        status = OrgStatus.JOINCOURSE;
+      }
+      default -> {
+        user = body.path("user");
+        status = OrgStatus.INVITED;
+      }
+    }
+    if (!user.has("login")) {
+      return;
+    }
+    String githubLogin = user.get("login").asText();
+
+    Course course = courseFor(body, coursesByInstallationId);
+    if (course == null) {
+      return;
+    }
+    if (user.has("id")) {
+      githubShadowService.recordOrgMember(course, user.get("id").asInt(), githubLogin, status);
+    }
+
+    // Lets the membership audit skip orgs whose webhooks are keeping statuses up to date
+    course.setLastMembershipWebhookAt(event.getReceivedAt());
+    courseRepository.save(course);
+
+    rosterStudentRepository
+        .findByCourseAndGithubLogin(course, githubLogin)
+        .ifPresent(
+            student -> {
+              student.setOrgStatus(status);
+              rosterStudentRepository.save(student);
+              log.info("Student {} now has org status {}", githubLogin, status);
+            });
+    courseStaffRepository
+        .findByCourseAndGithubLogin(course, githubLogin)
+        .ifPresent(
+            staff -> {
+              staff.setOrgStatus(status);
+              courseStaffRepository.save(staff);
+              log.info("Course staff member {} now has org status {}", githubLogin, status);
+            });
+  }
+
+  /**
+   * Updates the status of a roster student who was added to or removed from a GitHub team. A
+   * student added to a team gets a team member if they did not have one; one removed is marked
+   * {@link TeamStatus#NOT_ORG_MEMBER}, as when the membership is checked on GitHub.
+   */
+  private void updateTeamMembership(
+      JsonNode body, String action, Map<String, Course> coursesByInstallationId) {
+    if (!body.path("member").has("login") || !body.path("team").has("id")) {
+      return;
+    }
+    String githubLogin = body.get("member").get("login").asText();
+    int githubTeamId = body.get("team").get("id").asInt();
+    Course course = courseFor(body, coursesByInstallationId);
+    if (course == null) {
+      return;
+    }
+    githubShadowService.recordTeamMembership(
+        course, githubTeamId, githubLogin, action.equals("added") ? TeamStatus.TEAM_MEMBER : null);
+    Optional<Team> team =
+        teamRepository.findByCourseIdAndGithubTeamId(course.getId(), githubTeamId);
+    if (team.isEmpty()) {
+      return;
+    }
+    rosterStudentRepository
+        .findByCourseAndGithubLogin(course, githubLogin)
+        .ifPresent(
+            student -> {
+              Optional<TeamMember> existing =
+                  teamMemberRepository.findByTeamAndRosterStudent(team.get(), student);
+              TeamMember teamMember;
+              if (action.equals("added")) {
+                teamMember =
+                    existing.orElseGet(
+                        () -> TeamMember.builder().team(team.get()).rosterStudent(student).build());
+                // The event does not say whether the student is a maintainer, so keep that status
+                if (teamMember.getTeamStatus() != TeamStatus.TEAM_MAINTAINER) {
+                  teamMember.setTeamStatus(TeamStatus.TEAM_MEMBER);
+                }
+              } else if (existing.isPresent()) {
+                teamMember = existing.get();
+                teamMember.setTeamStatus(TeamStatus.NOT_ORG_MEMBER);
+              } else {
+                return;
+              }
+              teamMemberRepository.save(teamMember);
+              log.info(
+                  "Team member {} in team {} now has status {}",
+                  githubLogin,
+                  team.get().getName(),
+                  teamMember.getTeamStatus());
+            });
+  }
+
+  /**
+   * Creates or updates the local team for a GitHub team that was created or edited. As in {@link
+   * edu.ucsb.cs156.frontiers.jobs.PullTeamsFromGithubJob}, a local team is matched by GitHub team
+   * ID, then by name. A rename that would clash with another local team's name is skipped.
+   */
+  private void saveTeam(JsonNode body, Map<String, Course> coursesByInstallationId) {
+    JsonNode githubTeam = body.path("team");
+    if (!githubTeam.has("id") || !githubTeam.has("name") || !githubTeam.has("slug")) {
+      return;
+    }
+    Course course = courseFor(body, coursesByInstallationId);
+    if (course == null) {
+      return;
+    }
+    int githubTeamId = githubTeam.get("id").asInt();
+    String name = githubTeam.get("name").asText();
+    String slug = githubTeam.get("slug").asText();
+    githubShadowService.recordTeam(course, new GithubTeamInfo(githubTeamId, name, slug));
+    Optional<Team> sameName = teamRepository.findByCourseIdAndName(course.getId(), name);
+    Team team =
+        teamRepository
+            .findByCourseIdAndGithubTeamId(course.getId(), githubTeamId)
+            .or(() -> sameName)
+            .orElseGet(() -> Team.builder().name(name).course(course).build());
+
+    if (sameName.isPresent() && sameName.get() != team) {
+      log.warn(
+          "Not renaming team {} to {}, which is already used in the course", team.getName(), name);
+    } else {
+      team.setName(name);
+    }
+    team.setGithubTeamId(githubTeamId);
+    team.setGithubTeamSlug(slug);
+    teamRepository.save(team);
+    log.info("Team {} is linked to GitHub team {}", team.getName(), githubTeamId);
+  }
+
+  /**
+   * Unlinks the local team of a GitHub team that was deleted, so that it can be pushed to GitHub
+   * again. Its members are marked {@link TeamStatus#NOT_ORG_MEMBER}.
+   */
+  private void unlinkTeam(JsonNode body, Map<String, Course> coursesByInstallationId) {
+    if (!body.path("team").has("id")) {
+      return;
+    }
+    int githubTeamId = body.get("team").get("id").asInt();
+    Course course = courseFor(body, coursesByInstallationId);
+    if (course == null) {
+      return;
+    }
+    githubShadowService.removeTeam(course, githubTeamId);
+    teamRepository
+        .findByCourseIdAndGithubTeamId(course.getId(), githubTeamId)
+        .ifPresent(
+            team -> {
+              team.setGithubTeamId(null);
+              team.setGithubTeamSlug(null);
+              if (team.getTeamMembers() != null) {
+                team.getTeamMembers()
+                    .forEach(member -> member.setTeamStatus(TeamStatus.NOT_ORG_MEMBER));
+              }
+              teamRepository.save(team);
+              log.info("Team {} was deleted on GitHub and is now unlinked", team.getName());
+            });
+  }
+
+  /** Records a repository that was created or deleted in the shadow copy of the organization. */
+  private void updateRepository(
+      JsonNode body, String action, Map<String, Course> coursesByInstallationId) {
+    if (!body.path("repository").has("name")) {
+      return;
+    }
+    String name = body.get("repository").get("name").asText();
+    Course course = courseFor(body, coursesByInstallationId);
+    if (course == null) {
+      return;
+    }
+    if (action.equals("created")) {
+      githubShadowService.recordRepositories(course, List.of(name));
+    } else {
+      githubShadowService.removeRepository(course, name);
+    }
+  }
+
+  /** Describes a failure in a form that fits in {@link WebhookEvent#getError()}. */
+  private static String errorMessage(RuntimeException e) {
+    String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+    return message.length() > 255 ? message.substring(0, 255) : message;
+  }
+
+  /** Returns the course of the installation that sent a webhook, or null if there is none. */
+  private static Course courseFor(JsonNode body, Map<String, Course> coursesByInstallationId) {
+    String installationId = installationId(body);
+    if (installationId == null) {
+      return null;
+    }
+    Course course = coursesByInstallationId.get(installationId);
+    if (course == null) {
+      log.warn("No course found with installation ID: {}", installationId);
+    }
+    return course;
+  }
+
+  /** Returns the ID of the installation that sent a webhook, or null if there is none. */
+  private static String installationId(JsonNode body) {
+    JsonNode id = body.path("installation").path("id");
+    return id.isMissingNode() ? null : id.asText();
+  }
+}
@@ -9,4 +9,13 @@ public interface JobContextConsumer {
   default Course getCourse() {
     return null;
   }
+
+  /**
+   * Whether {@link JobService} runs the whole job in one transaction. Jobs that return false open
+   * their own, shorter transactions, and do not hold a database connection while they wait on
+   * GitHub.
+   */
+  default boolean runsInOneTransaction() {
+    return true;
+  }
 }
@@ -59,6 +59,9 @@ public class JobService {
    *
    * <p>However, the job entity metadata will still be saved.
    *
+   * <p>Jobs whose {@link JobContextConsumer#runsInOneTransaction()} returns false are run without
+   * the transactionTemplate, and manage their own transactions.
+   *
    * @param job metadata entity about the job
    * @param jobFunction runnable job function
    */
@@ -67,17 +70,21 @@ public class JobService {
     JobContext context = contextFactory.createContext(job);
 
     try {
-      transactionTemplate.executeWithoutResult(
-          status -> {
-            try {
-              jobFunction.accept(context);
-              /*lambdas cannot throw checked exceptions
-              have to repackage as a runtime exception
-              to catch outside transactional boundary*/
-            } catch (Exception e) {
-              throw new RuntimeException(e);
-            }
-          });
+      if (jobFunction.runsInOneTransaction()) {
+        transactionTemplate.executeWithoutResult(
+            status -> {
+              try {
+                jobFunction.accept(context);
+                /*lambdas cannot throw checked exceptions
+                have to repackage as a runtime exception
+                to catch outside transactional boundary*/
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+      } else {
+        jobFunction.accept(context);
+      }
     } catch (Exception e) {
       job.setStatus("error");
       context.log(e.getMessage());
@@ -1,15 +1,12 @@
 package edu.ucsb.cs156.frontiers.utilities;
 
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.regex.Pattern;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import lombok.extern.slf4j.Slf4j;
 
-/** Utility class for webhook security validation */
+/**
+ * Utility class for webhook security validation. Code that checks many deliveries against the same
+ * secret should keep a {@link WebhookSignatureVerifier} instead.
+ */
 @Slf4j
 public class WebhookSecurityUtils {
 
@@ -17,10 +14,6 @@ public class WebhookSecurityUtils {
     // Utility Class
   }
 
-  private static final String HMAC_SHA256 = "HmacSHA256";
-  private static final Pattern GITHUB_SIGNATURE_PATTERN =
-      Pattern.compile("^sha256=[a-fA-F0-9]{64}$");
-
   /**
    * Validates GitHub webhook signature using HMAC-SHA256
    *
@@ -29,69 +22,19 @@ public class WebhookSecurityUtils {
    * @param secret the webhook secret
    * @return true if signature is valid, false otherwise
    */
-  public static boolean validateGitHubSignature(String payload, String signature, String secret)
-      throws NoSuchAlgorithmException, InvalidKeyException {
+  public static boolean validateGitHubSignature(String payload, String signature, String secret) {
     if (payload == null || signature == null || secret == null) {
       log.warn("Null values provided for webhook validation");
       return false;
     }
 
-    if (!GITHUB_SIGNATURE_PATTERN.matcher(signature).matches()) {
-      log.warn("Invalid signature format");
-      return false;
-    }
-
-    String expectedSignature = "sha256=" + calculateHmacSha256(payload, secret);
-    boolean isValid = safeEquals(signature, expectedSignature);
+    boolean isValid =
+        new WebhookSignatureVerifier(secret)
+            .verify(payload.getBytes(StandardCharsets.UTF_8), signature);
 
     if (!isValid) {
       log.warn("Webhook signature validation failed");
-      return false;
-    }
-
-    return true;
-  }
-
-  /**
-   * Calculates HMAC-SHA256 signature for given payload and secret
-   *
-   * @param payload the payload to sign
-   * @param secret the secret key
-   * @return hex-encoded signature
-   */
-  private static String calculateHmacSha256(String payload, String secret)
-      throws NoSuchAlgorithmException, InvalidKeyException {
-    Mac mac = Mac.getInstance(HMAC_SHA256);
-    SecretKeySpec secretKeySpec =
-        new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
-    mac.init(secretKeySpec);
-    byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
-    return bytesToHex(signature);
-  }
-
-  /**
-   * Converts byte array to hexadecimal string
-   *
-   * @param bytes the byte array
-   * @return hex string
-   */
-  private static String bytesToHex(byte[] bytes) {
-    StringBuilder result = new StringBuilder();
-    for (byte b : bytes) {
-      result.append(String.format("%02x", b));
     }
-    return result.toString();
-  }
-
-  /**
-   * Constant-time string comparison to prevent timing attacks
-   *
-   * @param a first string
-   * @param b second string
-   * @return true if strings are equal
-   */
-  private static boolean safeEquals(String a, String b) {
-    return MessageDigest.isEqual(
-        a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    return isValid;
   }
 }
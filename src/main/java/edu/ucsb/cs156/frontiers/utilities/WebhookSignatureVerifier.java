@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.frontiers.utilities;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Checks the <code>X-Hub-Signature-256</code> header of GitHub webhooks against one secret.
+ *
+ * <p>The key is built once, and each thread keeps its own initialized {@link Mac}, so checking a
+ * delivery only hashes its body. The signature is decoded from hex and compared to the computed
+ * HMAC as bytes, in constant time. Instances are safe to share between threads.
+ */
+public final class WebhookSignatureVerifier {
+
+  private static final String HMAC_SHA256 = "HmacSHA256";
+  private static final String PREFIX = "sha256=";
+  private static final int SIGNATURE_BYTES = 32;
+
+  private final SecretKeySpec key;
+  private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+  /**
+   * @param secret the webhook secret; a null or empty secret rejects every delivery
+   */
+  public WebhookSignatureVerifier(String secret) {
+    this.key =
+        secret == null || secret.isEmpty()
+            ? null
+            : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
+  }
+
+  /**
+   * Checks a GitHub webhook signature.
+   *
+   * @param payload the raw body of the delivery, exactly as it was received
+   * @param signature the signature header, e.g. "sha256=abc123..."
+   * @return true if the signature matches the payload
+   */
+  public boolean verify(byte[] payload, String signature) {
+    if (key == null || payload == null || signature == null) {
+      return false;
+    }
+    byte[] expected = decode(signature);
+    if (expected == null) {
+      return false;
+    }
+    // doFinal also resets the Mac for the next delivery on this thread
+    return MessageDigest.isEqual(expected, macs.get().doFinal(payload));
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(HMAC_SHA256);
+      mac.init(key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      // Every Java runtime is required to support HmacSHA256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Decodes a "sha256=" followed by 64 hex digits, or returns null if it is not one. */
+  private static byte[] decode(String signature) {
+    if (signature.length() != PREFIX.length() + 2 * SIGNATURE_BYTES
+        || !signature.startsWith(PREFIX)) {
+      return null;
+    }
+    byte[] bytes = new byte[SIGNATURE_BYTES];
+    for (int i = 0; i < SIGNATURE_BYTES; i++) {
+      char high = signature.charAt(PREFIX.length() + 2 * i);
+      char low = signature.charAt(PREFIX.length() + 2 * i + 1);
+      if (!HexFormat.isHexDigit(high) || !HexFormat.isHexDigit(low)) {
+        return null;
+      }
+      bytes[i] = (byte) (HexFormat.fromHexDigit(high) << 4 | HexFormat.fromHexDigit(low));
+    }
+    return bytes;
+  }
+}
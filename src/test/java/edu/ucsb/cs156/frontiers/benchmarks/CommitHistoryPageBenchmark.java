@@ -0,0 +1,191 @@
+package edu.ucsb.cs156.frontiers.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService.CommitHistoryPage;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService.GithubCommit;
+import edu.ucsb.cs156.frontiers.services.GithubRateLimitGovernor;
+import edu.ucsb.cs156.frontiers.services.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Compares reading one 100-commit page of a branch's history into downloaded commits by writing the
+ * GraphQL response out as pretty-printed JSON, parsing it back into a tree and converting each node
+ * (the previous behavior of {@link GithubGraphQLService#downloadCommitHistory}) against mapping the
+ * response straight into {@link CommitHistoryPage} records.
+ *
+ * <p>Responses are answered in memory, so the numbers are the client-side cost of handling a page,
+ * without network time.
+ *
+ * <p>Run with <code>mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=CommitHistoryPageBenchmark
+ * </code>. Add <code>-prof gc</code> to the JMH arguments to also see allocation per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommitHistoryPageBenchmark {
+
+  private static final int COMMITS_PER_PAGE = 100;
+
+  /** What was saved for each downloaded commit. */
+  record DownloadedCommit(@JsonAlias("url") String commitUrl) {}
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final Course course = Course.builder().id(1L).orgName("benchmark-org").build();
+
+  private GithubGraphQLService roundTripService;
+  private GithubGraphQLService typedService;
+
+  @Setup
+  public void setup() throws Exception {
+    // The string form is passed on as GitHub returns it, with edges; the typed query asks for nodes
+    roundTripService = service(page(true));
+    typedService = service(page(false));
+  }
+
+  private GithubGraphQLService service(String responseBody) throws Exception {
+    // Every request is answered in memory with the same page
+    byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+    RestClient.Builder builder =
+        RestClient.builder()
+            // As Spring Boot does, so that every request shares one ObjectMapper and its caches
+            .messageConverters(
+                converters -> {
+                  converters.clear();
+                  converters.add(new MappingJackson2HttpMessageConverter(objectMapper));
+                })
+            .requestFactory(
+                (uri, httpMethod) -> {
+                  MockClientHttpRequest request = new MockClientHttpRequest(httpMethod, uri);
+                  MockClientHttpResponse page = new MockClientHttpResponse(response, HttpStatus.OK);
+                  page.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                  request.setResponse(page);
+                  return request;
+                });
+    JwtService jwtService = mock(JwtService.class);
+    when(jwtService.getInstallationToken(any())).thenReturn("benchmark-token");
+    return new GithubGraphQLService(
+        builder,
+        jwtService,
+        objectMapper,
+        null,
+        null,
+        mock(DownloadRequestRepository.class),
+        null,
+        null,
+        null,
+        // Passes requests straight through, so that the benchmark is not throttled
+        new GithubRateLimitGovernor(new SimpleMeterRegistry()) {
+          @Override
+          public ClientHttpResponse intercept(
+              HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+              throws IOException {
+            return execution.execute(request, body);
+          }
+        });
+  }
+
+  private String page(boolean asEdges) throws Exception {
+    List<Object> commits = new ArrayList<>();
+    Instant committedDate = Instant.parse("2025-01-01T00:00:00Z");
+    for (int i = 0; i < COMMITS_PER_PAGE; i++) {
+      String oid = String.format("%040x", i);
+      Map<String, Object> actor =
+          Map.of(
+              "name", "Student " + i % 4,
+              "email", "student" + i % 4 + "@ucsb.edu",
+              "user", Map.of("login", "student" + i % 4));
+      Map<String, Object> commit =
+          Map.of(
+              "oid",
+              oid,
+              "url",
+              "https://github.com/benchmark-org/team-repo/commit/" + oid,
+              "messageHeadline",
+              "Commit number " + i + " with a typical length message",
+              "committedDate",
+              committedDate.minusSeconds(3600L * i).toString(),
+              "author",
+              actor,
+              "committer",
+              actor);
+      commits.add(asEdges ? Map.of("node", commit) : commit);
+    }
+    Map<String, Object> history =
+        Map.of(
+            "pageInfo",
+            Map.of("hasNextPage", true, "endCursor", "cursor"),
+            asEdges ? "edges" : "nodes",
+            commits);
+    return objectMapper.writeValueAsString(
+        Map.of(
+            "data",
+            Map.of("repository", Map.of("ref", Map.of("target", Map.of("history", history))))));
+  }
+
+  /** Previous behavior: pretty-printed JSON string, parsed back into a tree, node by node. */
+  @Benchmark
+  public List<DownloadedCommit> stringRoundTrip() throws Exception {
+    JsonNode currentPage =
+        objectMapper.readTree(
+            roundTripService.getCommits(
+                course, "benchmark-org", "team-repo", "main", null, null, 100, null));
+    List<DownloadedCommit> downloadedCommits = new ArrayList<>(COMMITS_PER_PAGE);
+    for (JsonNode node :
+        currentPage.path("repository").path("ref").path("target").path("history").path("edges")) {
+      downloadedCommits.add(objectMapper.treeToValue(node.get("node"), DownloadedCommit.class));
+    }
+    return downloadedCommits;
+  }
+
+  /** Current behavior: the response mapped straight into records. */
+  @Benchmark
+  public List<DownloadedCommit> typedPage() throws Exception {
+    CommitHistoryPage page =
+        typedService.getCommitHistoryPage(
+            course, "benchmark-org", "team-repo", "main", null, null, 100, null);
+    List<DownloadedCommit> downloadedCommits = new ArrayList<>(COMMITS_PER_PAGE);
+    for (GithubCommit commit : page.nodes()) {
+      downloadedCommits.add(new DownloadedCommit(commit.url()));
+    }
+    return downloadedCommits;
+  }
+}
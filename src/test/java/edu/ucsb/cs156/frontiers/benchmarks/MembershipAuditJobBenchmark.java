@@ -0,0 +1,117 @@
+package edu.ucsb.cs156.frontiers.benchmarks;
+
+import edu.ucsb.cs156.frontiers.entities.RosterStudent;
+import edu.ucsb.cs156.frontiers.enums.OrgStatus;
+import edu.ucsb.cs156.frontiers.jobs.MembershipAuditJob;
+import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares matching a 2,000 student roster against a 5,000 person organization by scanning the
+ * member, admin and invitee lists for each student (the previous behavior of {@link
+ * MembershipAuditJob}) against looking each student up in an index of GitHub IDs built once.
+ *
+ * <p>Run with <code>mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=MembershipAuditJobBenchmark
+ * </code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MembershipAuditJobBenchmark {
+
+  private static final int STUDENTS = 2_000;
+  private static final int ADMINS = 50;
+  private static final int MEMBERS = 4_700;
+  private static final int INVITEES = 250;
+
+  private OrgMembership membership;
+  private List<RosterStudent> rosterStudents;
+
+  @Setup
+  public void setup() {
+    List<OrgMember> admins = new ArrayList<>();
+    List<OrgMember> members = new ArrayList<>();
+    List<OrgMember> invitees = new ArrayList<>();
+    int githubId = 1;
+    for (int i = 0; i < ADMINS; i++, githubId++) {
+      admins.add(OrgMember.builder().githubId(githubId).githubLogin("user" + githubId).build());
+    }
+    for (int i = 0; i < MEMBERS; i++, githubId++) {
+      members.add(OrgMember.builder().githubId(githubId).githubLogin("user" + githubId).build());
+    }
+    for (int i = 0; i < INVITEES; i++, githubId++) {
+      invitees.add(OrgMember.builder().githubId(githubId).githubLogin("user" + githubId).build());
+    }
+    membership = new OrgMembership(members, admins, invitees, 1, 1);
+
+    // Spread the roster over the whole org, with every tenth student not in it at all
+    rosterStudents = new ArrayList<>();
+    for (int i = 0; i < STUDENTS; i++) {
+      int id = i % 10 == 0 ? 1_000_000 + i : 1 + (i * 7919) % (ADMINS + MEMBERS + INVITEES);
+      rosterStudents.add(
+          RosterStudent.builder().studentId("s" + i).githubId(id).githubLogin("user" + id).build());
+    }
+  }
+
+  /** Previous behavior: three linear scans of the organization per student. */
+  @Benchmark
+  public List<RosterStudent> scanPerStudent() {
+    Iterable<OrgMember> members = membership.members();
+    Iterable<OrgMember> admins = membership.admins();
+    Iterable<OrgMember> invitees = membership.invitees();
+    for (RosterStudent student : rosterStudents) {
+      Integer studentGithubId = student.getGithubId();
+      if (studentGithubId != null && student.getGithubLogin() != null) {
+        Optional<OrgMember> member =
+            StreamSupport.stream(members.spliterator(), false)
+                .filter(s -> studentGithubId.equals(s.getGithubId()))
+                .findFirst();
+        Optional<OrgMember> admin =
+            StreamSupport.stream(admins.spliterator(), false)
+                .filter(s -> studentGithubId.equals(s.getGithubId()))
+                .findFirst();
+        Optional<OrgMember> invitee =
+            StreamSupport.stream(invitees.spliterator(), false)
+                .filter(s -> studentGithubId.equals(s.getGithubId()))
+                .findFirst();
+
+        OrgStatus updatedStatus = OrgStatus.JOINCOURSE;
+        if (admin.isPresent()) {
+          updatedStatus = OrgStatus.OWNER;
+        } else if (member.isPresent()) {
+          updatedStatus = OrgStatus.MEMBER;
+        } else if (invitee.isPresent()) {
+          updatedStatus = OrgStatus.INVITED;
+        }
+        student.setOrgStatus(updatedStatus);
+      }
+    }
+    return rosterStudents;
+  }
+
+  /** Current behavior: one index of the organization, then a lookup per student. */
+  @Benchmark
+  public List<RosterStudent> indexedLookup() {
+    Map<Integer, OrgStatus> statuses = MembershipAuditJob.indexByGithubId(membership);
+    return MembershipAuditJob.auditRosterStudents(rosterStudents, statuses);
+  }
+}
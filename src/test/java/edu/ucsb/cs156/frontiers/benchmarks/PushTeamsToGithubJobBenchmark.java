@@ -0,0 +1,206 @@
+package edu.ucsb.cs156.frontiers.benchmarks;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.Job;
+import edu.ucsb.cs156.frontiers.entities.RosterStudent;
+import edu.ucsb.cs156.frontiers.entities.Team;
+import edu.ucsb.cs156.frontiers.entities.TeamMember;
+import edu.ucsb.cs156.frontiers.jobs.PushTeamsToGithubJob;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
+import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubPaginator;
+import edu.ucsb.cs156.frontiers.services.GithubTeamService;
+import edu.ucsb.cs156.frontiers.services.JwtService;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Measures the wall-clock time of the member pass of {@link PushTeamsToGithubJob} against a
+ * WireMock stand-in for GitHub that answers every call after a fixed delay, comparing processing
+ * members one at a time (<code>parallelism=1</code>, the previous behavior) with concurrent
+ * processing.
+ *
+ * <p>Every student is reported as not yet on their team, so each one costs a membership check and
+ * an add, as on the first push of a new course.
+ *
+ * <p>Run with <code>mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=PushTeamsToGithubJob
+ * </code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PushTeamsToGithubJobBenchmark {
+
+  private static final int TEAMS = 10;
+  private static final int STUDENTS_PER_TEAM = 4;
+
+  /** Simulated GitHub response time for every call. */
+  @Param({"50"})
+  public int latencyMillis;
+
+  @Param({"1", "8", "32"})
+  public int parallelism;
+
+  private WireMockServer wireMockServer;
+  private PushTeamsToGithubJob job;
+
+  @Setup
+  public void setup() throws Exception {
+    wireMockServer =
+        new WireMockServer(
+            options()
+                .dynamicPort()
+                .containerThreads(100)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(64));
+    wireMockServer.start();
+    wireMockServer.stubFor(
+        get(urlPathEqualTo("/orgs/benchmark-org/teams"))
+            .willReturn(
+                aResponse()
+                    .withFixedDelay(latencyMillis)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(teamsJson())));
+    wireMockServer.stubFor(
+        get(urlPathMatching("/organizations/1/team/\\d+/memberships/.*"))
+            .willReturn(aResponse().withFixedDelay(latencyMillis).withStatus(404)));
+    wireMockServer.stubFor(
+        put(urlPathMatching("/organizations/1/team/\\d+/memberships/.*"))
+            .willReturn(
+                aResponse()
+                    .withFixedDelay(latencyMillis)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"role\":\"member\"}")));
+
+    // Send requests for https://api.github.com to the WireMock server instead
+    URI wireMockBase = URI.create("http://127.0.0.1:" + wireMockServer.port());
+    RestTemplate restTemplate =
+        new RestTemplate(
+            new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()));
+    restTemplate
+        .getInterceptors()
+        .add(
+            (request, body, execution) ->
+                execution.execute(
+                    new HttpRequestWrapper(request) {
+                      @Override
+                      public URI getURI() {
+                        URI uri = request.getURI();
+                        return wireMockBase.resolve(
+                            uri.getRawPath()
+                                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery()));
+                      }
+                    },
+                    body));
+
+    JwtService jwtService = mock(JwtService.class);
+    when(jwtService.getInstallationToken(any())).thenReturn("benchmark-token");
+    GithubTeamService githubTeamService =
+        new GithubTeamService(
+            jwtService,
+            new ObjectMapper(),
+            restTemplate,
+            new GithubPaginator(restTemplate, new ObjectMapper()));
+
+    Course course =
+        Course.builder()
+            .id(1L)
+            .courseName("Benchmark Course")
+            .orgName("benchmark-org")
+            .installationId("1234")
+            .githubOrgId(1)
+            .build();
+    List<Team> teams = new ArrayList<>();
+    for (int t = 0; t < TEAMS; t++) {
+      List<TeamMember> members = new ArrayList<>();
+      for (int s = 0; s < STUDENTS_PER_TEAM; s++) {
+        String login = "student-" + t + "-" + s;
+        members.add(
+            TeamMember.builder()
+                .rosterStudent(
+                    RosterStudent.builder().email(login + "@ucsb.edu").githubLogin(login).build())
+                .build());
+      }
+      teams.add(
+          Team.builder()
+              .name("team-" + t)
+              .githubTeamId(1000 + t)
+              .githubTeamSlug("team-" + t)
+              .teamMembers(members)
+              .build());
+    }
+
+    CourseRepository courseRepository = mock(CourseRepository.class);
+    when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+    TeamRepository teamRepository = mock(TeamRepository.class);
+    when(teamRepository.findByCourseId(1L)).thenReturn(teams);
+
+    job =
+        PushTeamsToGithubJob.builder()
+            .courseId(1L)
+            .courseRepository(courseRepository)
+            .teamRepository(teamRepository)
+            .teamMemberRepository(mock(TeamMemberRepository.class))
+            .githubTeamService(githubTeamService)
+            .parallelism(parallelism)
+            .build();
+  }
+
+  private static String teamsJson() throws Exception {
+    List<Map<String, Object>> teams = new ArrayList<>();
+    for (int t = 0; t < TEAMS; t++) {
+      teams.add(Map.of("id", 1000 + t, "name", "team-" + t, "slug", "team-" + t));
+    }
+    return new ObjectMapper().writeValueAsString(teams);
+  }
+
+  @TearDown
+  public void tearDown() {
+    wireMockServer.stop();
+  }
+
+  @Benchmark
+  public Job pushTeams() throws Exception {
+    Job jobRecord = Job.builder().build();
+    job.accept(new JobContext(null, jobRecord));
+    return jobRecord;
+  }
+}
@@ -0,0 +1,255 @@
+package edu.ucsb.cs156.frontiers.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestCommitRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository;
+import edu.ucsb.cs156.frontiers.repositories.RepositoryCommitRepository;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubRateLimitGovernor;
+import edu.ucsb.cs156.frontiers.services.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Measures the wall-clock time of downloading the history of a 4,000 commit branch with {@link
+ * GithubGraphQLService#downloadCommitHistory}, reading it page after page (<code>
+ * shardParallelism=0</code>, the behavior of unsharded requests) versus in time shards of about
+ * 1,000 commits read several at a time.
+ *
+ * <p>GitHub is stood in for by an in-memory history that answers each query after a fixed delay;
+ * history queries on large repositories are slow, which is what sharding works around. Commits come
+ * in bursts, a minute apart for a while and then an hour apart, so the shard lengths have to adapt.
+ * Requests are not paced by the rate limit governor here; in production its default of 10 requests
+ * per second for each installation also applies.
+ *
+ * <p>Run with <code>mvn -Pbenchmarks test-compile exec:exec
+ * -Dbenchmark=ShardedCommitHistoryBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShardedCommitHistoryBenchmark {
+
+  private static final int COMMITS = 4000;
+
+  /** Simulated GitHub response time for every query. */
+  @Param({"200"})
+  public int latencyMillis;
+
+  /** Number of shards read at once, or 0 to read the history page after page. */
+  @Param({"0", "4", "8"})
+  public int shardParallelism;
+
+  /** As Spring Boot configures it, so that times are sent as ISO 8601 strings. */
+  private final ObjectMapper objectMapper =
+      Jackson2ObjectMapperBuilder.json()
+          .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+          .build();
+
+  /** The branch's commits, newest first. */
+  private final List<Map<String, Object>> commits = new ArrayList<>();
+
+  private final List<Instant> committedDates = new ArrayList<>();
+
+  private GithubGraphQLService service;
+  private DownloadRequest request;
+
+  @Setup
+  public void setup() throws Exception {
+    Instant committedDate = Instant.parse("2025-06-01T00:00:00Z");
+    for (int i = 0; i < COMMITS; i++) {
+      String oid = String.format("%040x", i);
+      Map<String, Object> actor =
+          Map.of(
+              "name", "Student " + i % 4,
+              "email", "student" + i % 4 + "@ucsb.edu",
+              "user", Map.of("login", "student" + i % 4));
+      commits.add(
+          Map.of(
+              "oid",
+              oid,
+              "url",
+              "https://github.com/benchmark-org/big-repo/commit/" + oid,
+              "messageHeadline",
+              "Commit number " + i,
+              "committedDate",
+              committedDate.toString(),
+              "author",
+              actor,
+              "committer",
+              actor));
+      committedDates.add(committedDate);
+      committedDate = committedDate.minusSeconds(i / 500 % 2 == 0 ? 60 : 3600);
+    }
+
+    RestClient.Builder builder =
+        RestClient.builder()
+            .messageConverters(
+                converters -> {
+                  converters.clear();
+                  converters.add(new MappingJackson2HttpMessageConverter(objectMapper));
+                })
+            .requestFactory(
+                (uri, httpMethod) ->
+                    new MockClientHttpRequest(httpMethod, uri) {
+                      @Override
+                      protected ClientHttpResponse executeInternal() throws IOException {
+                        return answer(getBodyAsBytes());
+                      }
+                    });
+    JwtService jwtService = mock(JwtService.class);
+    when(jwtService.getInstallationToken(any())).thenReturn("benchmark-token");
+    // Stub only, so that the commits saved are not kept for verification
+    service =
+        new GithubGraphQLService(
+            builder,
+            jwtService,
+            objectMapper,
+            mock(RepositoryCommitRepository.class, withSettings().stubOnly()),
+            mock(DownloadRequestCommitRepository.class, withSettings().stubOnly()),
+            mock(DownloadRequestRepository.class, withSettings().stubOnly()),
+            null,
+            null,
+            new TransactionTemplate(
+                mock(PlatformTransactionManager.class, withSettings().stubOnly())),
+            // Passes requests straight through, so that only the simulated latency counts
+            new GithubRateLimitGovernor(new SimpleMeterRegistry()) {
+              @Override
+              public ClientHttpResponse intercept(
+                  HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+                  throws IOException {
+                return execution.execute(request, body);
+              }
+            });
+    ReflectionTestUtils.setField(service, "commitChunkSize", 1000);
+    ReflectionTestUtils.setField(service, "shardSize", 1000);
+    ReflectionTestUtils.setField(service, "shardParallelism", Math.max(1, shardParallelism));
+
+    request =
+        DownloadRequest.builder()
+            .id(1L)
+            .course(Course.builder().id(1L).orgName("benchmark-org").build())
+            .org("benchmark-org")
+            .repo("big-repo")
+            .branch("main")
+            .sharded(shardParallelism > 0)
+            .build();
+  }
+
+  /** Answers a history query from the in-memory history, after the simulated latency. */
+  private ClientHttpResponse answer(byte[] body) throws IOException {
+    JsonNode graphQlRequest = objectMapper.readTree(body);
+    String query = graphQlRequest.path("query").asText();
+    JsonNode variables = graphQlRequest.path("variables");
+    List<Integer> inRange = between(instant(variables, "since"), instant(variables, "until"));
+
+    Map<String, Object> target;
+    if (query.contains("ProbeHistoryShard")) {
+      List<Integer> older = between(instant(variables, "start"), instant(variables, "since"));
+      target =
+          Map.of(
+              "shard",
+              Map.of("totalCount", inRange.size()),
+              "older",
+              Map.of("nodes", dates(older.stream().limit(1).toList())));
+    } else if (query.contains("GetCommitDates")) {
+      target = Map.of("history", Map.of("nodes", dates(inRange.stream().limit(100).toList())));
+    } else {
+      int from = variables.hasNonNull("after") ? variables.get("after").asInt() : 0;
+      int to = Math.min(inRange.size(), from + variables.get("first").asInt());
+      List<Map<String, Object>> nodes = new ArrayList<>();
+      for (int i = from; i < to; i++) {
+        nodes.add(commits.get(inRange.get(i)));
+      }
+      Map<String, Object> pageInfo = new HashMap<>();
+      pageInfo.put("hasNextPage", to < inRange.size());
+      pageInfo.put("endCursor", String.valueOf(to));
+      target = Map.of("history", Map.of("pageInfo", pageInfo, "nodes", nodes));
+    }
+
+    try {
+      Thread.sleep(latencyMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    MockClientHttpResponse response =
+        new MockClientHttpResponse(
+            objectMapper.writeValueAsBytes(
+                Map.of("data", Map.of("repository", Map.of("ref", Map.of("target", target))))),
+            HttpStatus.OK);
+    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    return response;
+  }
+
+  private static Instant instant(JsonNode variables, String name) {
+    return variables.hasNonNull(name) ? Instant.parse(variables.get(name).asText()) : null;
+  }
+
+  /** The indexes of the commits made in a range, both ends included, newest first. */
+  private List<Integer> between(Instant since, Instant until) {
+    List<Integer> indexes = new ArrayList<>();
+    for (int i = 0; i < COMMITS; i++) {
+      Instant committedDate = committedDates.get(i);
+      if ((since == null || !committedDate.isBefore(since))
+          && (until == null || !committedDate.isAfter(until))) {
+        indexes.add(i);
+      }
+    }
+    return indexes;
+  }
+
+  private List<Map<String, Object>> dates(List<Integer> indexes) {
+    return indexes.stream()
+        .map(i -> Map.<String, Object>of("committedDate", committedDates.get(i).toString()))
+        .toList();
+  }
+
+  @Benchmark
+  public void downloadHistory() throws Exception {
+    service.downloadCommitHistory(request);
+  }
+}
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.frontiers.benchmarks;
+
+import edu.ucsb.cs156.frontiers.utilities.WebhookSignatureVerifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares checking the signature of a 25 KB webhook delivery by building a new {@link Mac} and key
+ * and hex-encoding the HMAC with <code>String.format</code> (the previous behavior of {@link
+ * edu.ucsb.cs156.frontiers.utilities.WebhookSecurityUtils}) against a {@link
+ * WebhookSignatureVerifier} that reuses its key and {@link Mac} and compares decoded bytes.
+ *
+ * <p>Run with <code>mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=WebhookSignatureBenchmark
+ * </code>. Add <code>-prof gc</code> to the JMH arguments to also see allocation per delivery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebhookSignatureBenchmark {
+
+  private static final String SECRET = "benchmark_webhook_secret";
+  private static final int PAYLOAD_BYTES = 25 * 1024;
+  private static final Pattern GITHUB_SIGNATURE_PATTERN =
+      Pattern.compile("^sha256=[a-fA-F0-9]{64}$");
+
+  private byte[] body;
+  private String signature;
+  private WebhookSignatureVerifier verifier;
+
+  @Setup
+  public void setup() throws Exception {
+    StringBuilder payload = new StringBuilder("{\"action\":\"member_added\",\"padding\":\"");
+    while (payload.length() < PAYLOAD_BYTES - 2) {
+      payload.append('x');
+    }
+    body = payload.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+    signature = "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+    verifier = new WebhookSignatureVerifier(SECRET);
+  }
+
+  /**
+   * Previous behavior: decode the body to a String, then per delivery build a Mac and key, encode
+   * the String again, hex-encode the HMAC one byte at a time and compare the two hex strings.
+   */
+  @Benchmark
+  public boolean newMacPerDelivery() throws Exception {
+    String payload = new String(body, StandardCharsets.UTF_8);
+    if (!GITHUB_SIGNATURE_PATTERN.matcher(signature).matches()) {
+      return false;
+    }
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+    byte[] hmac = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    StringBuilder hex = new StringBuilder();
+    for (byte b : hmac) {
+      hex.append(String.format("%02x", b));
+    }
+    String expected = "sha256=" + hex;
+    return MessageDigest.isEqual(
+        signature.getBytes(StandardCharsets.UTF_8), expected.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Current behavior: the raw body is hashed with this thread's Mac and compared as bytes. */
+  @Benchmark
+  public boolean cachedVerifier() {
+    return verifier.verify(body, signature);
+  }
+}
@@ -24,6 +24,7 @@ import edu.ucsb.cs156.frontiers.enums.OrgStatus;
 import edu.ucsb.cs156.frontiers.enums.School;
 import edu.ucsb.cs156.frontiers.errors.InvalidInstallationTypeException;
 import edu.ucsb.cs156.frontiers.models.CourseWarning;
+import edu.ucsb.cs156.frontiers.models.GithubOrganization;
 import edu.ucsb.cs156.frontiers.models.RosterStudentDTO;
 import edu.ucsb.cs156.frontiers.repositories.AdminRepository;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
@@ -274,6 +275,7 @@ public class CoursesControllerTests extends ControllerTestCase {
             .instructorEmail(user.getEmail())
             .installationId("1234")
             .orgName("ucsb-cs156-s25")
+            .githubOrgId(1001)
             .id(1L)
             .build();
 
@@ -281,7 +283,9 @@ public class CoursesControllerTests extends ControllerTestCase {
     course2.setRosterStudents(List.of(rs1Updated));
 
     doReturn(Optional.of(course1)).when(courseRepository).findById(eq(1L));
-    doReturn("ucsb-cs156-s25").when(linkerService).getOrgName("1234");
+    doReturn(new GithubOrganization("ucsb-cs156-s25", 1001))
+        .when(linkerService)
+        .getOrganization("1234");
     MvcResult response =
         mockMvc
             .perform(
@@ -321,13 +325,16 @@ public class CoursesControllerTests extends ControllerTestCase {
             .instructorEmail(user.getEmail())
             .installationId("1234")
             .orgName("ucsb-cs156-s25")
+            .githubOrgId(1001)
             .id(1L)
             .courseStaff(List.of())
             .rosterStudents(List.of())
             .build();
 
     doReturn(Optional.of(course1)).when(courseRepository).findById(eq(1L));
-    doReturn("ucsb-cs156-s25").when(linkerService).getOrgName("1234");
+    doReturn(new GithubOrganization("ucsb-cs156-s25", 1001))
+        .when(linkerService)
+        .getOrganization("1234");
     MvcResult response =
         mockMvc
             .perform(
@@ -376,7 +383,9 @@ public class CoursesControllerTests extends ControllerTestCase {
             .build();
 
     doReturn(Optional.of(course1)).when(courseRepository).findById(eq(1L));
-    doReturn("ucsb-cs156-s25").when(linkerService).getOrgName("1234");
+    doReturn(new GithubOrganization("ucsb-cs156-s25", 1001))
+        .when(linkerService)
+        .getOrganization("1234");
     MvcResult response =
         mockMvc
             .perform(
@@ -414,13 +423,16 @@ public class CoursesControllerTests extends ControllerTestCase {
             .instructorEmail(separateUser.getEmail())
             .installationId("1234")
             .orgName("ucsb-cs156-s25")
+            .githubOrgId(1001)
             .courseStaff(List.of())
             .rosterStudents(List.of())
             .id(1L)
             .build();
 
     doReturn(Optional.of(courseBefore)).when(courseRepository).findById(eq(1L));
-    doReturn("ucsb-cs156-s25").when(linkerService).getOrgName("1234");
+    doReturn(new GithubOrganization("ucsb-cs156-s25", 1001))
+        .when(linkerService)
+        .getOrganization("1234");
     MvcResult response =
         mockMvc
             .perform(
@@ -476,7 +488,7 @@ public class CoursesControllerTests extends ControllerTestCase {
 
     doThrow(new InvalidInstallationTypeException("User"))
         .when(linkerService)
-        .getOrgName(eq("1234"));
+        .getOrganization(eq("1234"));
     doReturn(Optional.of(course1)).when(courseRepository).findById(eq(1L));
     MvcResult response =
         mockMvc
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.frontiers.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -16,15 +17,18 @@ import edu.ucsb.cs156.frontiers.ControllerTestCase;
 import edu.ucsb.cs156.frontiers.annotations.WithInstructorCoursePermissions;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
-import edu.ucsb.cs156.frontiers.entities.DownloadedCommit;
 import edu.ucsb.cs156.frontiers.entities.Job;
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
 import edu.ucsb.cs156.frontiers.enums.DownloadRequestType;
 import edu.ucsb.cs156.frontiers.jobs.CommitDownloadRequestJob;
+import edu.ucsb.cs156.frontiers.jobs.OrgCommitDownloadJob;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestCommitRepository;
 import edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository;
-import edu.ucsb.cs156.frontiers.repositories.DownloadedCommitRepository;
 import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.RepositoryService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -36,11 +40,12 @@ import org.springframework.test.web.servlet.MvcResult;
 @WebMvcTest(controllers = DownloadRequestController.class)
 public class DownloadRequestControllerTests extends ControllerTestCase {
 
-  @MockitoBean DownloadedCommitRepository downloadedCommitRepository;
+  @MockitoBean DownloadRequestCommitRepository downloadRequestCommitRepository;
   @MockitoBean DownloadRequestRepository downloadRequestRepository;
   @MockitoBean CourseRepository courseRepository;
   @MockitoBean JobService jobService;
   @MockitoBean GithubGraphQLService githubGraphQLService;
+  @MockitoBean RepositoryService repositoryService;
 
   @Test
   @WithInstructorCoursePermissions
@@ -167,6 +172,225 @@ public class DownloadRequestControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @Test
+  @WithInstructorCoursePermissions
+  public void test_download_request_incremental() throws Exception {
+
+    Course course = Course.builder().id(1L).build();
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .course(course)
+            .incremental(true)
+            .build();
+
+    DownloadRequest requestSaved =
+        DownloadRequest.builder()
+            .id(1L)
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .course(course)
+            .incremental(true)
+            .build();
+
+    Job job = Job.builder().id(1L).build();
+
+    DownloadRequest finalRequest =
+        DownloadRequest.builder()
+            .id(1L)
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .course(course)
+            .incremental(true)
+            .job(job)
+            .build();
+
+    when(courseRepository.findById(eq(1L))).thenReturn(Optional.of(course));
+    when(downloadRequestRepository.save(request)).thenReturn(requestSaved);
+    when(downloadRequestRepository.save(finalRequest)).thenReturn(finalRequest);
+    when(jobService.runAsJob(any(CommitDownloadRequestJob.class))).thenReturn(job);
+
+    mockMvc
+        .perform(
+            post("/api/downloads/create")
+                .with(csrf())
+                .param("courseId", "1")
+                .param("type", "COMMITS")
+                .param("org", "ucsb-cs156")
+                .param("repo", "proj-frontiers")
+                .param("incremental", "true"))
+        .andExpect(status().isAccepted());
+    verify(downloadRequestRepository).save(request);
+    verify(downloadRequestRepository).save(finalRequest);
+  }
+
+  @Test
+  @WithInstructorCoursePermissions
+  public void test_download_request_sharded() throws Exception {
+
+    Course course = Course.builder().id(1L).build();
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .course(course)
+            .sharded(true)
+            .build();
+
+    DownloadRequest requestSaved =
+        DownloadRequest.builder()
+            .id(1L)
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .course(course)
+            .sharded(true)
+            .build();
+
+    Job job = Job.builder().id(1L).build();
+
+    DownloadRequest finalRequest =
+        DownloadRequest.builder()
+            .id(1L)
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .course(course)
+            .sharded(true)
+            .job(job)
+            .build();
+
+    when(courseRepository.findById(eq(1L))).thenReturn(Optional.of(course));
+    when(downloadRequestRepository.save(request)).thenReturn(requestSaved);
+    when(downloadRequestRepository.save(finalRequest)).thenReturn(finalRequest);
+    when(jobService.runAsJob(any(CommitDownloadRequestJob.class))).thenReturn(job);
+
+    mockMvc
+        .perform(
+            post("/api/downloads/create")
+                .with(csrf())
+                .param("courseId", "1")
+                .param("type", "COMMITS")
+                .param("org", "ucsb-cs156")
+                .param("repo", "proj-frontiers")
+                .param("sharded", "true"))
+        .andExpect(status().isAccepted());
+    verify(downloadRequestRepository).save(request);
+    verify(downloadRequestRepository).save(finalRequest);
+  }
+
+  @Test
+  @WithInstructorCoursePermissions
+  public void test_download_request_for_matching_repositories() throws Exception {
+
+    Course course = Course.builder().id(1L).orgName("ucsb-cs156").installationId("1234").build();
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .downloadType(DownloadRequestType.ORG_COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-")
+            .branch("main")
+            .course(course)
+            .build();
+
+    DownloadRequest requestSaved =
+        DownloadRequest.builder()
+            .id(1L)
+            .downloadType(DownloadRequestType.ORG_COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-")
+            .branch("main")
+            .course(course)
+            .build();
+
+    Job job = Job.builder().id(1L).build();
+
+    when(courseRepository.findById(eq(1L))).thenReturn(Optional.of(course));
+    when(downloadRequestRepository.save(request)).thenReturn(requestSaved);
+    when(downloadRequestRepository.save(requestSaved)).thenReturn(requestSaved);
+    when(jobService.runAsJob(any(OrgCommitDownloadJob.class))).thenReturn(job);
+
+    mockMvc
+        .perform(
+            post("/api/downloads/create")
+                .with(csrf())
+                .param("courseId", "1")
+                .param("type", "ORG_COMMITS")
+                .param("org", "UCSB-CS156")
+                .param("repo", "proj-"))
+        .andExpect(status().isAccepted());
+    verify(jobService)
+        .runAsJob(
+            OrgCommitDownloadJob.builder()
+                .request(requestSaved)
+                .githubService(githubGraphQLService)
+                .repositoryService(repositoryService)
+                .parallelism(8)
+                .build());
+    verify(jobService, never()).runAsJob(any(CommitDownloadRequestJob.class));
+    assertEquals(job, requestSaved.getJob());
+  }
+
+  @Test
+  @WithInstructorCoursePermissions
+  public void matching_repositories_are_only_downloaded_from_the_course_org() throws Exception {
+    Course course = Course.builder().id(1L).orgName("ucsb-cs156").installationId("1234").build();
+    when(courseRepository.findById(eq(1L))).thenReturn(Optional.of(course));
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/downloads/create")
+                    .with(csrf())
+                    .param("courseId", "1")
+                    .param("type", "ORG_COMMITS")
+                    .param("org", "ucsb-cs148")
+                    .param("repo", "proj-"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    Map<String, String> actualMap =
+        mapper.readValue(
+            response.getResponse().getContentAsString(),
+            new TypeReference<Map<String, String>>() {});
+    assertEquals(
+        "Repositories matching a prefix can only be downloaded from the course's organization,"
+            + " ucsb-cs156.",
+        actualMap.get("message"));
+    verify(downloadRequestRepository, never()).save(any());
+    verify(jobService, never()).runAsJob(any());
+  }
+
+  @Test
+  @WithInstructorCoursePermissions
+  public void matching_repositories_need_a_linked_org() throws Exception {
+    when(courseRepository.findById(eq(1L)))
+        .thenReturn(Optional.of(Course.builder().id(1L).courseName("CS156").build()));
+    when(courseRepository.findById(eq(2L)))
+        .thenReturn(
+            Optional.of(Course.builder().id(2L).courseName("CS148").orgName("ucsb-cs148").build()));
+
+    for (String courseId : new String[] {"1", "2"}) {
+      mockMvc
+          .perform(
+              post("/api/downloads/create")
+                  .with(csrf())
+                  .param("courseId", courseId)
+                  .param("type", "ORG_COMMITS")
+                  .param("org", "ucsb-cs148")
+                  .param("repo", "proj-"))
+          .andExpect(status().isBadRequest());
+    }
+
+    verify(downloadRequestRepository, never()).save(any());
+    verify(jobService, never()).runAsJob(any());
+  }
+
   @Test
   @WithInstructorCoursePermissions
   public void testCreateDownloadRequestWithInvalidCourseId() throws Exception {
@@ -265,11 +489,110 @@ public class DownloadRequestControllerTests extends ControllerTestCase {
     assertEquals(expectedMap, actualMap);
   }
 
+  @Test
+  @WithInstructorCoursePermissions
+  public void failed_request_is_resumed() throws Exception {
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(1L)
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .lastCursor("page2")
+            .job(Job.builder().id(1L).status("error").build())
+            .build();
+    Job job = Job.builder().id(2L).status("running").build();
+
+    when(downloadRequestRepository.findById(eq(1L))).thenReturn(Optional.of(request));
+    when(jobService.runAsJob(any(CommitDownloadRequestJob.class))).thenReturn(job);
+    when(downloadRequestRepository.save(request)).thenReturn(request);
+
+    MvcResult result =
+        mockMvc
+            .perform(post("/api/downloads/1/resume").with(csrf()))
+            .andExpect(status().isAccepted())
+            .andReturn();
+
+    verify(jobService)
+        .runAsJob(
+            CommitDownloadRequestJob.builder()
+                .request(request)
+                .githubService(githubGraphQLService)
+                .build());
+    assertEquals(job, request.getJob());
+    assertEquals(mapper.writeValueAsString(request), result.getResponse().getContentAsString());
+  }
+
+  @Test
+  @WithInstructorCoursePermissions
+  public void failed_request_for_matching_repositories_is_resumed() throws Exception {
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(1L)
+            .downloadType(DownloadRequestType.ORG_COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-")
+            .job(Job.builder().id(1L).status("error").build())
+            .build();
+    Job job = Job.builder().id(2L).status("running").build();
+
+    when(downloadRequestRepository.findById(eq(1L))).thenReturn(Optional.of(request));
+    when(jobService.runAsJob(any(OrgCommitDownloadJob.class))).thenReturn(job);
+    when(downloadRequestRepository.save(request)).thenReturn(request);
+
+    mockMvc.perform(post("/api/downloads/1/resume").with(csrf())).andExpect(status().isAccepted());
+
+    verify(jobService)
+        .runAsJob(
+            OrgCommitDownloadJob.builder()
+                .request(request)
+                .githubService(githubGraphQLService)
+                .repositoryService(repositoryService)
+                .parallelism(8)
+                .build());
+    assertEquals(job, request.getJob());
+  }
+
+  @Test
+  @WithInstructorCoursePermissions
+  public void only_failed_requests_are_resumed() throws Exception {
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(1L)
+            .job(Job.builder().id(1L).status("running").build())
+            .build();
+
+    when(downloadRequestRepository.findById(eq(1L))).thenReturn(Optional.of(request));
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/downloads/1/resume").with(csrf()))
+            .andExpect(status().isConflict())
+            .andReturn();
+
+    Map<String, String> actualMap =
+        mapper.readValue(
+            response.getResponse().getContentAsString(),
+            new TypeReference<Map<String, String>>() {});
+    assertEquals(
+        Map.of("message", "Only a download request that failed can be resumed."), actualMap);
+    verify(jobService, never()).runAsJob(any());
+  }
+
+  @Test
+  @WithInstructorCoursePermissions
+  public void resume_request_not_found() throws Exception {
+    when(downloadRequestRepository.findById(eq(1L))).thenReturn(Optional.empty());
+
+    mockMvc.perform(post("/api/downloads/1/resume").with(csrf())).andExpect(status().isNotFound());
+    verify(jobService, never()).runAsJob(any());
+  }
+
   final String writeout_commit =
       """
-      "COMMITURL","ID"
-      "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058","1"
-      "https://github.com/ucsb-cs156/proj-frontiers/commit/f0497a983b1533f4b7f9f2779030d3fa62fd6031","2"
+      "AUTHOREMAIL","AUTHORLOGIN","AUTHORNAME","COMMITTEDDATE","COMMITTEREMAIL","COMMITTERLOGIN","COMMITTERNAME","MESSAGEHEADLINE","OID","ORG","REPO","URL"
+      "djensen2@outlook.com","Division7","Daniel Jensen","2026-01-27T00:55:00Z","noreply@github.com","","GitHub","dj - added actual constraint validating dependency","9df9217b7f66102d0dcaecf48ef48af16facb058","ucsb-cs156","proj-frontiers","https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058"
+      "","","","","","","","","f0497a983b1533f4b7f9f2779030d3fa62fd6031","ucsb-cs156","proj-frontiers","https://github.com/ucsb-cs156/proj-frontiers/commit/f0497a983b1533f4b7f9f2779030d3fa62fd6031"
       """;
 
   @Test
@@ -283,24 +606,35 @@ public class DownloadRequestControllerTests extends ControllerTestCase {
             .repo("proj-frontiers")
             .build();
 
-    DownloadedCommit firstCommit =
-        DownloadedCommit.builder()
-            .request(request)
+    RepositoryCommit firstCommit =
+        RepositoryCommit.builder()
             .id(1L)
-            .commitUrl(
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .oid("9df9217b7f66102d0dcaecf48ef48af16facb058")
+            .url(
                 "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058")
+            .messageHeadline("dj - added actual constraint validating dependency")
+            .committedDate(Instant.parse("2026-01-27T00:55:00Z"))
+            .authorName("Daniel Jensen")
+            .authorEmail("djensen2@outlook.com")
+            .authorLogin("Division7")
+            .committerName("GitHub")
+            .committerEmail("noreply@github.com")
             .build();
 
-    DownloadedCommit secondCommit =
-        DownloadedCommit.builder()
-            .request(request)
+    RepositoryCommit secondCommit =
+        RepositoryCommit.builder()
             .id(2L)
-            .commitUrl(
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .oid("f0497a983b1533f4b7f9f2779030d3fa62fd6031")
+            .url(
                 "https://github.com/ucsb-cs156/proj-frontiers/commit/f0497a983b1533f4b7f9f2779030d3fa62fd6031")
             .build();
 
     when(downloadRequestRepository.findById(eq(1L))).thenReturn(Optional.of(request));
-    when(downloadedCommitRepository.findByRequest(eq(request)))
+    when(downloadRequestCommitRepository.findCommitsByRequest(eq(request)))
         .thenReturn(List.of(firstCommit, secondCommit));
 
     mockMvc
@@ -16,13 +16,20 @@ import edu.ucsb.cs156.frontiers.ControllerTestCase;
 import edu.ucsb.cs156.frontiers.entities.Job;
 import edu.ucsb.cs156.frontiers.entities.User;
 import edu.ucsb.cs156.frontiers.jobs.UpdateAllJob;
+import edu.ucsb.cs156.frontiers.models.GithubRateLimitStatus;
 import edu.ucsb.cs156.frontiers.repositories.*;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubRateLimitGovernor;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
+import edu.ucsb.cs156.frontiers.services.OrganizationLinkerService;
 import edu.ucsb.cs156.frontiers.services.OrganizationMemberService;
 import edu.ucsb.cs156.frontiers.services.UpdateUserService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +40,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * This class tests the ability of the JobsController to manipulate jobs, and the funcitonality of
@@ -68,12 +76,22 @@ public class JobsControllerDetailedTests extends ControllerTestCase {
 
   @MockitoBean OrganizationMemberService organizationMemberService;
 
+  @MockitoBean GithubGraphQLService githubGraphQLService;
+
+  @MockitoBean TransactionTemplate transactionTemplate;
+
   @MockitoBean TeamRepository teamRepository;
 
   @MockitoBean TeamMemberRepository teamMemberRepository;
 
   @MockitoBean GithubTeamService githubTeamService;
 
+  @MockitoBean GithubShadowService githubShadowService;
+
+  @MockitoBean GithubRateLimitGovernor githubRateLimitGovernor;
+
+  @MockitoBean OrganizationLinkerService organizationLinkerService;
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_get_all_jobs() throws Exception {
@@ -317,4 +335,40 @@ public class JobsControllerDetailedTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_github_rate_limits() throws Exception {
+
+    // arrange
+
+    List<GithubRateLimitStatus> expectedStatus =
+        List.of(
+            new GithubRateLimitStatus(
+                "1234",
+                "core",
+                5000,
+                12,
+                4988,
+                Instant.parse("2024-05-23T09:00:00Z"),
+                Instant.parse("2024-05-23T08:01:00Z"),
+                3,
+                1));
+    when(githubRateLimitGovernor.getStatus()).thenReturn(expectedStatus);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/githubRateLimits")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(expectedStatus);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void non_admin_cannot_get_github_rate_limits() throws Exception {
+    mockMvc.perform(get("/api/jobs/githubRateLimits")).andExpect(status().isForbidden());
+  }
 }
@@ -20,6 +20,7 @@ import edu.ucsb.cs156.frontiers.entities.TeamMember;
 import edu.ucsb.cs156.frontiers.entities.User;
 import edu.ucsb.cs156.frontiers.jobs.AddTeamMemberToGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.AddTeamToGithubJob;
+import edu.ucsb.cs156.frontiers.jobs.BackfillGithubOrgIdsJob;
 import edu.ucsb.cs156.frontiers.jobs.DeleteTeamFromGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.DeleteTeamMemberFromGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.MembershipAuditJob;
@@ -27,7 +28,11 @@ import edu.ucsb.cs156.frontiers.jobs.PullTeamsFromGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.PushTeamsToGithubJob;
 import edu.ucsb.cs156.frontiers.jobs.UpdateAllJob;
 import edu.ucsb.cs156.frontiers.repositories.*;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubRateLimitGovernor;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
+import edu.ucsb.cs156.frontiers.services.OrganizationLinkerService;
 import edu.ucsb.cs156.frontiers.services.OrganizationMemberService;
 import edu.ucsb.cs156.frontiers.services.UpdateUserService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
@@ -39,6 +44,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * This class tests the ability of the JobsController to launch jobs. By contrast,
@@ -68,6 +74,10 @@ public class JobsControllerJobsTests extends ControllerTestCase {
 
   @MockitoBean OrganizationMemberService organizationMemberService;
 
+  @MockitoBean GithubGraphQLService githubGraphQLService;
+
+  @MockitoBean TransactionTemplate transactionTemplate;
+
   @MockitoBean CourseStaffRepository courseStaffRepository;
 
   @MockitoBean TeamRepository teamRepository;
@@ -76,6 +86,12 @@ public class JobsControllerJobsTests extends ControllerTestCase {
 
   @MockitoBean GithubTeamService githubTeamService;
 
+  @MockitoBean GithubShadowService githubShadowService;
+
+  @MockitoBean GithubRateLimitGovernor githubRateLimitGovernor;
+
+  @MockitoBean OrganizationLinkerService organizationLinkerService;
+
   @Autowired ObjectMapper objectMapper;
 
   @WithMockUser(roles = {"ADMIN"})
@@ -143,6 +159,41 @@ public class JobsControllerJobsTests extends ControllerTestCase {
     assertEquals(expectedResponse, response);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_backfillGithubOrgIds_job() throws Exception {
+
+    // arrange
+
+    User user = currentUserService.getUser();
+
+    Job jobStarted =
+        Job.builder()
+            .id(0L)
+            .createdBy(user)
+            .createdAt(null)
+            .updatedAt(null)
+            .status("started")
+            .build();
+
+    String expectedResponse = objectMapper.writeValueAsString(jobStarted);
+
+    when(jobService.runAsJob(any(BackfillGithubOrgIdsJob.class))).thenReturn(jobStarted);
+
+    // act
+    MvcResult result =
+        mockMvc
+            .perform(post("/api/jobs/launch/backfillGithubOrgIds").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    String response = result.getResponse().getContentAsString();
+    verify(jobService, times(1)).runAsJob(any(BackfillGithubOrgIdsJob.class));
+    assertEquals(expectedResponse, response);
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_launch_pushTeamsToGithub_job() throws Exception {
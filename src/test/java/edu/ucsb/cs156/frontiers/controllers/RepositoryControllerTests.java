@@ -17,6 +17,7 @@ import edu.ucsb.cs156.frontiers.jobs.CreateStudentOrStaffRepositoriesJob;
 import edu.ucsb.cs156.frontiers.jobs.CreateTeamRepositoriesJob;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.services.CurrentUserService;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.RepositoryService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
@@ -41,6 +42,8 @@ public class RepositoryControllerTests extends ControllerTestCase {
 
   @MockitoBean private GithubTeamService githubTeamService;
 
+  @MockitoBean private GithubShadowService githubShadowService;
+
   @Autowired private CurrentUserService currentUserService;
   @Autowired private ObjectMapper objectMapper;
 
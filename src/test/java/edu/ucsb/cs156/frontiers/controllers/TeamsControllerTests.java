@@ -20,6 +20,7 @@ import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobService;
 import java.util.ArrayList;
@@ -50,6 +51,8 @@ public class TeamsControllerTests extends ControllerTestCase {
 
   @MockitoBean GithubTeamService githubTeamService;
 
+  @MockitoBean GithubShadowService githubShadowService;
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void testPostTeam_byAdmin() throws Exception {
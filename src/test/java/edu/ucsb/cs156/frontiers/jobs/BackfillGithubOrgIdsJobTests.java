@@ -0,0 +1,73 @@
+package edu.ucsb.cs156.frontiers.jobs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.Job;
+import edu.ucsb.cs156.frontiers.models.GithubOrganization;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.services.OrganizationLinkerService;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class BackfillGithubOrgIdsJobTests {
+
+  @Mock private CourseRepository courseRepository;
+  @Mock private OrganizationLinkerService organizationLinkerService;
+
+  Job jobStarted = Job.builder().build();
+  JobContext ctx = new JobContext(null, jobStarted);
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  private BackfillGithubOrgIdsJob job() {
+    return BackfillGithubOrgIdsJob.builder()
+        .courseRepository(courseRepository)
+        .organizationLinkerService(organizationLinkerService)
+        .build();
+  }
+
+  @Test
+  public void test_getCourse_returnsNull() {
+    assertNull(job().getCourse());
+  }
+
+  @Test
+  public void test_backfills_org_ids_and_continues_after_errors() throws Exception {
+    Course first = Course.builder().id(1L).orgName("ucsb-cs156-s25").installationId("1234").build();
+    Course second =
+        Course.builder().id(2L).orgName("ucsb-cs156-f25").installationId("5678").build();
+    when(courseRepository.findByInstallationIdIsNotNullAndGithubOrgIdIsNull())
+        .thenReturn(List.of(first, second));
+    when(organizationLinkerService.getOrganization("1234"))
+        .thenThrow(new IllegalStateException("Not Found"));
+    when(organizationLinkerService.getOrganization("5678"))
+        .thenReturn(new GithubOrganization("ucsb-cs156-f25", 42));
+
+    job().accept(ctx);
+
+    assertNull(first.getGithubOrgId());
+    assertEquals(42, second.getGithubOrgId());
+    verify(courseRepository, never()).save(first);
+    verify(courseRepository, times(1)).save(second);
+
+    String expected =
+        """
+        Backfilling GitHub organization IDs for 2 courses
+        ERROR: Could not get organization ID for course 1 (ucsb-cs156-s25): Not Found
+        Course 2 (ucsb-cs156-f25): organization ID 42
+        Done; updated 1 of 2 courses""";
+    assertEquals(expected, jobStarted.getLog());
+  }
+}
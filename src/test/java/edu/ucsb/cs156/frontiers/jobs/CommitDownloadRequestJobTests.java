@@ -1,8 +1,10 @@
 package edu.ucsb.cs156.frontiers.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -40,6 +42,54 @@ public class CommitDownloadRequestJobTests {
 
     verify(ctx, times(1)).log(contains("Starting download for course banana"));
     verify(ctx, times(1)).log(contains("Download completed successfully"));
+    verify(ctx, never()).log(contains("Resuming"));
+    verify(ctx, never()).log(contains("incremental"));
     assertEquals(course, job.getCourse());
+    assertFalse(job.runsInOneTransaction());
+  }
+
+  @Test
+  public void resumed_download_is_logged() throws Exception {
+    Course course = Course.builder().courseName("banana").build();
+    DownloadRequest request =
+        DownloadRequest.builder().id(1L).course(course).lastCursor("page2").build();
+
+    CommitDownloadRequestJob job =
+        CommitDownloadRequestJob.builder().request(request).githubService(githubService).build();
+
+    job.accept(ctx);
+
+    verify(githubService, times(1)).downloadCommitHistory(eq(request));
+    verify(ctx, times(1)).log("Resuming after the commits saved by an earlier attempt");
+  }
+
+  @Test
+  public void incremental_download_is_logged() throws Exception {
+    Course course = Course.builder().courseName("banana").build();
+    DownloadRequest request =
+        DownloadRequest.builder().id(1L).course(course).incremental(true).build();
+
+    CommitDownloadRequestJob job =
+        CommitDownloadRequestJob.builder().request(request).githubService(githubService).build();
+
+    job.accept(ctx);
+
+    verify(githubService, times(1)).downloadCommitHistory(eq(request));
+    verify(ctx, times(1))
+        .log("Only fetching commits newer than those kept from earlier incremental downloads");
+  }
+
+  @Test
+  public void sharded_download_is_logged() throws Exception {
+    Course course = Course.builder().courseName("banana").build();
+    DownloadRequest request = DownloadRequest.builder().id(1L).course(course).sharded(true).build();
+
+    CommitDownloadRequestJob job =
+        CommitDownloadRequestJob.builder().request(request).githubService(githubService).build();
+
+    job.accept(ctx);
+
+    verify(githubService, times(1)).downloadCommitHistory(eq(request));
+    verify(ctx, times(1)).log("Fetching the history in time shards, several at a time");
   }
 }
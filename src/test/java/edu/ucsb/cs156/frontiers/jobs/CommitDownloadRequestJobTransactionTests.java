@@ -0,0 +1,507 @@
+package edu.ucsb.cs156.frontiers.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.ucsb.cs156.frontiers.entities.BranchCommit;
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
+import edu.ucsb.cs156.frontiers.entities.Job;
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
+import edu.ucsb.cs156.frontiers.enums.DownloadRequestType;
+import edu.ucsb.cs156.frontiers.repositories.BranchCommitRepository;
+import edu.ucsb.cs156.frontiers.repositories.BranchDownloadStateRepository;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestCommitRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository;
+import edu.ucsb.cs156.frontiers.repositories.JobsRepository;
+import edu.ucsb.cs156.frontiers.repositories.RepositoryCommitRepository;
+import edu.ucsb.cs156.frontiers.services.CurrentUserService;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubRateLimitGovernor;
+import edu.ucsb.cs156.frontiers.services.JwtService;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContextFactory;
+import edu.ucsb.cs156.frontiers.services.jobs.JobService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Runs download jobs through {@link JobService} against the database, to check what a download that
+ * fails partway leaves behind. Each test commits its own transactions, so nothing is rolled back
+ * between tests; the tables are emptied afterwards instead.
+ */
+@DataJpaTest
+@Import({
+  JobService.class,
+  JobContextFactory.class,
+  GithubRateLimitGovernor.class,
+  CommitDownloadRequestJobTransactionTests.MetricsConfig.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CommitDownloadRequestJobTransactionTests {
+
+  @TestConfiguration
+  static class MetricsConfig {
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+
+  private static final String PAGE_ONE_OID = "9df9217b7f66102d0dcaecf48ef48af16facb058";
+  private static final String PAGE_TWO_OID = "f0497a983b1533f4b7f9f2779030d3fa62fd6031";
+
+  @Autowired private JobService jobService;
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private CourseRepository courseRepository;
+
+  @Autowired private RepositoryCommitRepository repositoryCommitRepository;
+
+  @Autowired private DownloadRequestCommitRepository downloadRequestCommitRepository;
+
+  @Autowired private DownloadRequestRepository downloadRequestRepository;
+
+  @Autowired private BranchCommitRepository branchCommitRepository;
+
+  @Autowired private BranchDownloadStateRepository branchDownloadStateRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private GithubRateLimitGovernor rateLimitGovernor;
+
+  @MockitoBean private CurrentUserService currentUserService;
+
+  /** As Spring Boot configures it, so that times are sent as ISO 8601 strings. */
+  private final ObjectMapper objectMapper =
+      Jackson2ObjectMapperBuilder.json()
+          .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+          .build();
+
+  private MockRestServiceServer mockServer;
+  private GithubGraphQLService githubService;
+  private Course course;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    githubService = githubService(repositoryCommitRepository, branchCommitRepository);
+
+    course =
+        courseRepository.save(
+            Course.builder()
+                .installationId("12345")
+                .orgName("ucsb-cs156")
+                .courseName("CS156")
+                .build());
+  }
+
+  /** A service reading from {@link #mockServer} and storing commits with the given repositories. */
+  private GithubGraphQLService githubService(
+      RepositoryCommitRepository repositoryCommits, BranchCommitRepository branchCommits)
+      throws Exception {
+    RestClient.Builder builder =
+        RestClient.builder()
+            .messageConverters(
+                converters -> {
+                  converters.clear();
+                  converters.add(new MappingJackson2HttpMessageConverter(objectMapper));
+                });
+    mockServer = MockRestServiceServer.bindTo(builder).build();
+    JwtService jwtService = mock(JwtService.class);
+    when(jwtService.getInstallationToken(any())).thenReturn("mocked-token");
+    GithubGraphQLService service =
+        new GithubGraphQLService(
+            builder,
+            jwtService,
+            objectMapper,
+            repositoryCommits,
+            downloadRequestCommitRepository,
+            downloadRequestRepository,
+            branchCommits,
+            branchDownloadStateRepository,
+            transactionTemplate,
+            rateLimitGovernor);
+    ReflectionTestUtils.setField(service, "commitChunkSize", 1);
+    ReflectionTestUtils.setField(service, "shardSize", 2000);
+    ReflectionTestUtils.setField(service, "shardParallelism", 4);
+    return service;
+  }
+
+  /** Runs the given insert the way another download would, in a transaction of its own. */
+  private void onAnotherThread(Runnable insert) {
+    CompletableFuture.runAsync(insert).join();
+  }
+
+  @AfterEach
+  public void cleanup() {
+    downloadRequestCommitRepository.deleteAll();
+    branchCommitRepository.deleteAll();
+    branchDownloadStateRepository.deleteAll();
+    repositoryCommitRepository.deleteAll();
+    downloadRequestRepository.deleteAll();
+    jobsRepository.deleteAll();
+    courseRepository.deleteAll();
+  }
+
+  private static Map<String, Object> commit(String oid, Instant committedDate) {
+    Map<String, Object> actor =
+        Map.of("name", "Daniel Jensen", "email", "djensen2@outlook.com", "user", Map.of());
+    return Map.of(
+        "oid",
+        oid,
+        "url",
+        "https://github.com/ucsb-cs156/proj-frontiers/commit/" + oid,
+        "messageHeadline",
+        "Commit " + oid,
+        "committedDate",
+        committedDate.toString(),
+        "author",
+        actor,
+        "committer",
+        actor);
+  }
+
+  /** A response to a query on the target commit of the branch. */
+  private String response(Map<String, Object> target) throws Exception {
+    return objectMapper.writeValueAsString(
+        Map.of("data", Map.of("repository", Map.of("ref", Map.of("target", target)))));
+  }
+
+  /** A page of the branch's history. */
+  private String page(List<Map<String, Object>> commits, boolean hasNextPage, String endCursor)
+      throws Exception {
+    Map<String, Object> pageInfo = new HashMap<>();
+    pageInfo.put("hasNextPage", hasNextPage);
+    pageInfo.put("endCursor", endCursor);
+    return response(Map.of("history", Map.of("pageInfo", pageInfo, "nodes", commits)));
+  }
+
+  private DownloadRequest saveRequest(DownloadRequest.DownloadRequestBuilder builder) {
+    return downloadRequestRepository.save(
+        builder
+            .course(course)
+            .downloadType(DownloadRequestType.COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .build());
+  }
+
+  /** Runs a download job and waits for it to finish. */
+  private Job run(DownloadRequest request) {
+    long id =
+        jobService
+            .runAsJob(
+                CommitDownloadRequestJob.builder()
+                    .request(request)
+                    .githubService(githubService)
+                    .build())
+            .getId();
+    return await()
+        .atMost(10, SECONDS)
+        .until(
+            () -> jobsRepository.findById(id).orElseThrow(),
+            job -> !job.getStatus().equals("running"));
+  }
+
+  private List<String> downloadedOids(DownloadRequest request) {
+    return downloadRequestCommitRepository.findCommitsByRequest(request).stream()
+        .map(RepositoryCommit::getOid)
+        .toList();
+  }
+
+  @Test
+  public void failed_download_keeps_the_chunks_and_cursor_saved_before_the_failure()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(
+            withSuccess(
+                page(
+                    List.of(commit(PAGE_ONE_OID, Instant.parse("2026-01-27T00:55:00Z"))),
+                    true,
+                    "page2"),
+                MediaType.APPLICATION_JSON));
+    mockServer.expect(requestTo("https://api.github.com/graphql")).andRespond(withServerError());
+
+    DownloadRequest request = saveRequest(DownloadRequest.builder());
+
+    Job job = run(request);
+
+    assertEquals("error", job.getStatus());
+    assertEquals(List.of(PAGE_ONE_OID), downloadedOids(request));
+    assertEquals(
+        "page2", downloadRequestRepository.findById(request.getId()).orElseThrow().getLastCursor());
+    mockServer.verify();
+  }
+
+  @Test
+  public void failed_incremental_download_keeps_the_branch_commits_and_cursor_and_resumes()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(
+            withSuccess(
+                page(
+                    List.of(commit(PAGE_ONE_OID, Instant.parse("2026-01-27T00:55:00Z"))),
+                    true,
+                    "page2"),
+                MediaType.APPLICATION_JSON));
+    mockServer.expect(requestTo("https://api.github.com/graphql")).andRespond(withServerError());
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(
+            withSuccess(
+                page(
+                    List.of(commit(PAGE_TWO_OID, Instant.parse("2026-01-26T00:58:12Z"))),
+                    false,
+                    "end"),
+                MediaType.APPLICATION_JSON));
+
+    DownloadRequest request = saveRequest(DownloadRequest.builder().incremental(true));
+
+    Job failed = run(request);
+
+    assertEquals("error", failed.getStatus());
+    assertEquals(
+        Set.of(PAGE_ONE_OID),
+        branchCommitRepository.findOidsIn(
+            "ucsb-cs156", "proj-frontiers", "main", List.of(PAGE_ONE_OID, PAGE_TWO_OID)));
+    DownloadRequest saved = downloadRequestRepository.findById(request.getId()).orElseThrow();
+    assertEquals("page2", saved.getLastCursor());
+
+    Job resumed = run(saved);
+
+    assertEquals("complete", resumed.getStatus());
+    assertEquals(List.of(PAGE_ONE_OID, PAGE_TWO_OID), downloadedOids(request));
+    assertNull(downloadRequestRepository.findById(request.getId()).orElseThrow().getLastCursor());
+    mockServer.verify();
+  }
+
+  @Test
+  public void download_keeps_commits_that_another_download_stored_first() throws Exception {
+    Instant committedDate = Instant.parse("2026-01-27T00:55:00Z");
+    // Another download stores the commit, and then keeps it for the branch, each time between this
+    // download finding it missing and inserting it
+    RepositoryCommitRepository racingCommits =
+        mock(RepositoryCommitRepository.class, delegatesTo(repositoryCommitRepository));
+    doAnswer(
+            invocation -> {
+              onAnotherThread(
+                  () ->
+                      repositoryCommitRepository.save(
+                          RepositoryCommit.builder()
+                              .org("ucsb-cs156")
+                              .repo("proj-frontiers")
+                              .oid(PAGE_ONE_OID)
+                              .committedDate(committedDate)
+                              .build()));
+              return List.of();
+            })
+        .doAnswer(delegatesTo(repositoryCommitRepository))
+        .when(racingCommits)
+        .findByOrgAndRepoAndOidIn(any(), any(), any());
+    BranchCommitRepository racingBranchCommits =
+        mock(BranchCommitRepository.class, delegatesTo(branchCommitRepository));
+    doAnswer(
+            invocation -> {
+              onAnotherThread(
+                  () ->
+                      branchCommitRepository.save(
+                          BranchCommit.builder()
+                              .branch("main")
+                              .commit(
+                                  repositoryCommitRepository
+                                      .findByOrgAndRepoAndOidIn(
+                                          "ucsb-cs156", "proj-frontiers", List.of(PAGE_ONE_OID))
+                                      .getFirst())
+                              .build()));
+              return Set.of();
+            })
+        .doAnswer(delegatesTo(branchCommitRepository))
+        .when(racingBranchCommits)
+        .findOidsIn(any(), any(), any(), any());
+    githubService = githubService(racingCommits, racingBranchCommits);
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                page(List.of(commit(PAGE_ONE_OID, committedDate)), false, "end"),
+                MediaType.APPLICATION_JSON));
+
+    DownloadRequest request = saveRequest(DownloadRequest.builder().incremental(true));
+
+    Job job = run(request);
+
+    assertEquals("complete", job.getStatus());
+    assertEquals(List.of(PAGE_ONE_OID), downloadedOids(request));
+    assertEquals(1, repositoryCommitRepository.count());
+    assertEquals(1, branchCommitRepository.count());
+    mockServer.verify();
+  }
+
+  @Test
+  public void repository_history_is_linked_once_every_chunk_is_stored() throws Exception {
+    // Both pages fit in one chunk, which is stored once the last of them is read
+    ReflectionTestUtils.setField(githubService, "commitChunkSize", 1000);
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.repo").value("proj-team01"))
+        .andRespond(
+            withSuccess(
+                page(
+                    List.of(commit(PAGE_ONE_OID, Instant.parse("2026-01-27T00:55:00Z"))),
+                    true,
+                    "page2"),
+                MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(
+            withSuccess(
+                page(
+                    List.of(commit(PAGE_TWO_OID, Instant.parse("2026-01-26T00:58:12Z"))),
+                    false,
+                    "end"),
+                MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        downloadRequestRepository.save(
+            DownloadRequest.builder()
+                .course(course)
+                .downloadType(DownloadRequestType.ORG_COMMITS)
+                .org("ucsb-cs156")
+                .repo("proj-")
+                .build());
+
+    assertEquals(2, githubService.downloadRepositoryHistory(request, "proj-team01"));
+
+    assertEquals(List.of(PAGE_ONE_OID, PAGE_TWO_OID), downloadedOids(request));
+    assertEquals(Set.of("proj-team01"), githubService.getDownloadedRepositories(request));
+    mockServer.verify();
+  }
+
+  @Test
+  public void failed_sharded_download_keeps_the_shards_saved_before_the_failure() throws Exception {
+    // 150 commits a minute apart, newest first, which are read as three shards of 50
+    Instant newest = Instant.parse("2026-01-27T00:00:00Z");
+    List<Map<String, Object>> history =
+        IntStream.range(0, 150)
+            .mapToObj(i -> commit(String.format("%040x", i), newest.minusSeconds(60L * i)))
+            .toList();
+    ReflectionTestUtils.setField(githubService, "shardSize", 50);
+    ReflectionTestUtils.setField(githubService, "shardParallelism", 1);
+    mockServer
+        .expect(ExpectedCount.manyTimes(), requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            request -> {
+              JsonNode graphQlRequest =
+                  objectMapper.readTree(((MockClientHttpRequest) request).getBodyAsBytes());
+              String query = graphQlRequest.path("query").asText();
+              JsonNode variables = graphQlRequest.path("variables");
+              List<Map<String, Object>> inRange =
+                  between(history, instant(variables, "since"), instant(variables, "until"));
+              try {
+                if (query.contains("GetCommitDates")) {
+                  return withSuccess(
+                          response(Map.of("history", Map.of("nodes", inRange.subList(0, 100)))),
+                          MediaType.APPLICATION_JSON)
+                      .createResponse(request);
+                }
+                if (query.contains("ProbeHistoryShard")) {
+                  List<Map<String, Object>> older =
+                      between(history, instant(variables, "start"), instant(variables, "since"));
+                  return withSuccess(
+                          response(
+                              Map.of(
+                                  "shard",
+                                  Map.of("totalCount", inRange.size()),
+                                  "older",
+                                  Map.of("nodes", older.stream().limit(1).toList()))),
+                          MediaType.APPLICATION_JSON)
+                      .createResponse(request);
+                }
+                // Only the newest shard, the one without an end, can be read
+                if (variables.hasNonNull("until")) {
+                  return withServerError().createResponse(request);
+                }
+                return withSuccess(page(inRange, false, "end"), MediaType.APPLICATION_JSON)
+                    .createResponse(request);
+              } catch (Exception e) {
+                throw new IOException(e);
+              }
+            });
+
+    DownloadRequest request = saveRequest(DownloadRequest.builder().sharded(true));
+
+    Job job = run(request);
+
+    assertEquals("error", job.getStatus());
+    assertEquals(
+        history.subList(0, 50).stream().map(commit -> commit.get("oid")).toList(),
+        downloadedOids(request));
+  }
+
+  private static Instant instant(JsonNode variables, String name) {
+    return variables.hasNonNull(name) ? Instant.parse(variables.get(name).asText()) : null;
+  }
+
+  /** The commits made in a range, both ends included, newest first. */
+  private static List<Map<String, Object>> between(
+      List<Map<String, Object>> history, Instant since, Instant until) {
+    return history.stream()
+        .filter(
+            commit -> {
+              Instant committedDate = Instant.parse((String) commit.get("committedDate"));
+              return (since == null || !committedDate.isBefore(since))
+                  && (until == null || !committedDate.isAfter(until));
+            })
+        .toList();
+  }
+}
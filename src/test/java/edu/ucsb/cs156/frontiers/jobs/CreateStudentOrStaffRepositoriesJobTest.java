@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.frontiers.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
@@ -12,10 +13,14 @@ import edu.ucsb.cs156.frontiers.entities.Job;
 import edu.ucsb.cs156.frontiers.entities.RosterStudent;
 import edu.ucsb.cs156.frontiers.enums.OrgStatus;
 import edu.ucsb.cs156.frontiers.enums.RepositoryCreationOption;
+import edu.ucsb.cs156.frontiers.enums.RepositoryCreationStatus;
 import edu.ucsb.cs156.frontiers.enums.RepositoryPermissions;
+import edu.ucsb.cs156.frontiers.services.GithubRepositoryIndex;
 import edu.ucsb.cs156.frontiers.services.RepositoryService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
 import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -28,6 +33,8 @@ public class CreateStudentOrStaffRepositoriesJobTest {
 
   @Mock private RepositoryService service;
 
+  GithubRepositoryIndex repositoryIndex = new GithubRepositoryIndex(List.of("repo-prefix-old"));
+
   Job jobStarted = Job.builder().build();
   JobContext ctx = new JobContext(null, jobStarted);
 
@@ -36,14 +43,16 @@ public class CreateStudentOrStaffRepositoriesJobTest {
     MockitoAnnotations.openMocks(this);
   }
 
-  private String expectedLog(Boolean isPrivate, RepositoryCreationOption creationOption) {
-    return """
+  private String expectedLog(
+      Boolean isPrivate, RepositoryCreationOption creationOption, String... results) {
+    String header =
+        """
         repositoryPrefix=repo-prefix
         isPrivate=%s
         permissions=WRITE
-        creationOption=%s
-        Done"""
-        .formatted(isPrivate, creationOption);
+        creationOption=%s"""
+            .formatted(isPrivate, creationOption);
+    return String.join("\n", header, String.join("\n", results));
   }
 
   @Test
@@ -63,6 +72,12 @@ public class CreateStudentOrStaffRepositoriesJobTest {
         RosterStudent.builder().githubLogin("studentLogin").orgStatus(OrgStatus.MEMBER).build();
     course.setRosterStudents(List.of(student));
 
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doReturn(RepositoryCreationStatus.CREATED)
+        .when(service)
+        .createStudentRepository(
+            course, student, "repo-prefix", false, RepositoryPermissions.WRITE, repositoryIndex);
+
     var repoJob =
         spy(
             CreateStudentOrStaffRepositoriesJob.builder()
@@ -74,7 +89,13 @@ public class CreateStudentOrStaffRepositoriesJobTest {
                 .build());
 
     repoJob.accept(ctx);
-    String expected = expectedLog(false, RepositoryCreationOption.STUDENTS_ONLY);
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STUDENTS_ONLY,
+            "Found 1 existing repositories in the org",
+            "[1/1] Created repo-prefix-studentLogin",
+            "Done: 1 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
     verify(service, times(1))
@@ -83,7 +104,8 @@ public class CreateStudentOrStaffRepositoriesJobTest {
             eq(student),
             contains("repo-prefix"),
             eq(false),
-            eq(RepositoryPermissions.WRITE));
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
   }
 
   @Test
@@ -93,6 +115,12 @@ public class CreateStudentOrStaffRepositoriesJobTest {
         RosterStudent.builder().githubLogin("studentLogin").orgStatus(OrgStatus.MEMBER).build();
     course.setRosterStudents(List.of(student));
 
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doReturn(RepositoryCreationStatus.EXISTING)
+        .when(service)
+        .createStudentRepository(
+            course, student, "repo-prefix", true, RepositoryPermissions.WRITE, repositoryIndex);
+
     var repoJob =
         spy(
             CreateStudentOrStaffRepositoriesJob.builder()
@@ -104,7 +132,13 @@ public class CreateStudentOrStaffRepositoriesJobTest {
                 .build());
 
     repoJob.accept(ctx);
-    String expected = expectedLog(true, RepositoryCreationOption.STUDENTS_ONLY);
+    String expected =
+        expectedLog(
+            true,
+            RepositoryCreationOption.STUDENTS_ONLY,
+            "Found 1 existing repositories in the org",
+            "[1/1] repo-prefix-studentLogin already exists",
+            "Done: 0 created, 1 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
     verify(service, times(1))
@@ -113,7 +147,8 @@ public class CreateStudentOrStaffRepositoriesJobTest {
             eq(student),
             contains("repo-prefix"),
             eq(true),
-            eq(RepositoryPermissions.WRITE));
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
   }
 
   @Test
@@ -123,6 +158,12 @@ public class CreateStudentOrStaffRepositoriesJobTest {
         RosterStudent.builder().githubLogin("studentLogin").orgStatus(OrgStatus.OWNER).build();
     course.setRosterStudents(List.of(student));
 
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doReturn(RepositoryCreationStatus.CREATED)
+        .when(service)
+        .createStudentRepository(
+            course, student, "repo-prefix", true, RepositoryPermissions.WRITE, repositoryIndex);
+
     var repoJob =
         spy(
             CreateStudentOrStaffRepositoriesJob.builder()
@@ -134,7 +175,13 @@ public class CreateStudentOrStaffRepositoriesJobTest {
                 .build());
 
     repoJob.accept(ctx);
-    String expected = expectedLog(true, RepositoryCreationOption.STUDENTS_ONLY);
+    String expected =
+        expectedLog(
+            true,
+            RepositoryCreationOption.STUDENTS_ONLY,
+            "Found 1 existing repositories in the org",
+            "[1/1] Created repo-prefix-studentLogin",
+            "Done: 1 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
     verify(service, times(1))
@@ -143,7 +190,8 @@ public class CreateStudentOrStaffRepositoriesJobTest {
             eq(student),
             contains("repo-prefix"),
             eq(true),
-            eq(RepositoryPermissions.WRITE));
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
   }
 
   @Test
@@ -163,10 +211,15 @@ public class CreateStudentOrStaffRepositoriesJobTest {
                 .build());
 
     repoJob.accept(ctx);
-    String expected = expectedLog(false, RepositoryCreationOption.STUDENTS_ONLY);
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STUDENTS_ONLY,
+            "Done: 0 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
-    verify(service, times(0)).createStudentRepository(any(), any(), any(), any(), any());
+    verify(service, never()).getRepositoryIndex(any());
+    verify(service, times(0)).createStudentRepository(any(), any(), any(), any(), any(), any());
   }
 
   @Test
@@ -186,10 +239,14 @@ public class CreateStudentOrStaffRepositoriesJobTest {
                 .build());
 
     repoJob.accept(ctx);
-    String expected = expectedLog(false, RepositoryCreationOption.STUDENTS_ONLY);
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STUDENTS_ONLY,
+            "Done: 0 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
-    verify(service, times(0)).createStudentRepository(any(), any(), any(), any(), any());
+    verify(service, times(0)).createStudentRepository(any(), any(), any(), any(), any(), any());
   }
 
   @Test
@@ -204,6 +261,12 @@ public class CreateStudentOrStaffRepositoriesJobTest {
         CourseStaff.builder().githubLogin("staffLogin").orgStatus(OrgStatus.MEMBER).build();
     course.setCourseStaff(List.of(staff));
 
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doReturn(RepositoryCreationStatus.CREATED)
+        .when(service)
+        .createStaffRepository(
+            course, staff, "repo-prefix", false, RepositoryPermissions.WRITE, repositoryIndex);
+
     var repoJob =
         spy(
             CreateStudentOrStaffRepositoriesJob.builder()
@@ -217,10 +280,16 @@ public class CreateStudentOrStaffRepositoriesJobTest {
 
     repoJob.accept(ctx);
 
-    String expected = expectedLog(false, RepositoryCreationOption.STAFF_ONLY);
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STAFF_ONLY,
+            "Found 1 existing repositories in the org",
+            "[1/1] Created repo-prefix-staffLogin",
+            "Done: 1 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
-    verify(service, times(0)).createStudentRepository(any(), any(), any(), any(), any());
+    verify(service, times(0)).createStudentRepository(any(), any(), any(), any(), any(), any());
 
     verify(service, times(1))
         .createStaffRepository(
@@ -228,7 +297,8 @@ public class CreateStudentOrStaffRepositoriesJobTest {
             eq(staff),
             contains("repo-prefix"),
             eq(false),
-            eq(RepositoryPermissions.WRITE));
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
   }
 
   @Test
@@ -243,6 +313,16 @@ public class CreateStudentOrStaffRepositoriesJobTest {
         CourseStaff.builder().githubLogin("staffLogin").orgStatus(OrgStatus.MEMBER).build();
     course.setCourseStaff(List.of(staff));
 
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doReturn(RepositoryCreationStatus.CREATED)
+        .when(service)
+        .createStudentRepository(
+            course, student, "repo-prefix", true, RepositoryPermissions.WRITE, repositoryIndex);
+    doReturn(RepositoryCreationStatus.FAILED)
+        .when(service)
+        .createStaffRepository(
+            course, staff, "repo-prefix", true, RepositoryPermissions.WRITE, repositoryIndex);
+
     var repoJob =
         spy(
             CreateStudentOrStaffRepositoriesJob.builder()
@@ -256,7 +336,14 @@ public class CreateStudentOrStaffRepositoriesJobTest {
 
     repoJob.accept(ctx);
 
-    String expected = expectedLog(true, RepositoryCreationOption.STUDENTS_AND_STAFF);
+    String expected =
+        expectedLog(
+            true,
+            RepositoryCreationOption.STUDENTS_AND_STAFF,
+            "Found 1 existing repositories in the org",
+            "[1/2] Created repo-prefix-studentLogin",
+            "[2/2] ERROR: Failed to create repo-prefix-staffLogin",
+            "Done: 1 created, 0 already existed, 1 failed");
     assertEquals(expected, jobStarted.getLog());
 
     verify(service, times(1))
@@ -265,7 +352,8 @@ public class CreateStudentOrStaffRepositoriesJobTest {
             eq(student),
             contains("repo-prefix"),
             eq(true),
-            eq(RepositoryPermissions.WRITE));
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
 
     verify(service, times(1))
         .createStaffRepository(
@@ -273,7 +361,8 @@ public class CreateStudentOrStaffRepositoriesJobTest {
             eq(staff),
             contains("repo-prefix"),
             eq(true),
-            eq(RepositoryPermissions.WRITE));
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
   }
 
   @Test
@@ -296,10 +385,14 @@ public class CreateStudentOrStaffRepositoriesJobTest {
 
     repoJob.accept(ctx);
 
-    String expected = expectedLog(false, RepositoryCreationOption.STAFF_ONLY);
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STAFF_ONLY,
+            "Done: 0 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
-    verify(service, times(0)).createStaffRepository(any(), any(), any(), any(), any());
+    verify(service, times(0)).createStaffRepository(any(), any(), any(), any(), any(), any());
   }
 
   @Test
@@ -326,10 +419,14 @@ public class CreateStudentOrStaffRepositoriesJobTest {
 
     repoJob.accept(ctx);
 
-    String expected = expectedLog(false, RepositoryCreationOption.STAFF_ONLY);
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STAFF_ONLY,
+            "Done: 0 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
-    verify(service, times(0)).createStaffRepository(any(), any(), any(), any(), any());
+    verify(service, times(0)).createStaffRepository(any(), any(), any(), any(), any(), any());
   }
 
   @Test
@@ -341,6 +438,12 @@ public class CreateStudentOrStaffRepositoriesJobTest {
 
     course.setCourseStaff(List.of(staff));
 
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doReturn(RepositoryCreationStatus.CREATED)
+        .when(service)
+        .createStaffRepository(
+            course, staff, "repo-prefix", false, RepositoryPermissions.WRITE, repositoryIndex);
+
     var repoJob =
         spy(
             CreateStudentOrStaffRepositoriesJob.builder()
@@ -354,7 +457,13 @@ public class CreateStudentOrStaffRepositoriesJobTest {
 
     repoJob.accept(ctx);
 
-    String expected = expectedLog(false, RepositoryCreationOption.STAFF_ONLY);
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STAFF_ONLY,
+            "Found 1 existing repositories in the org",
+            "[1/1] Created repo-prefix-staffOwner",
+            "Done: 1 created, 0 already existed, 0 failed");
     assertEquals(expected, jobStarted.getLog());
 
     verify(service, times(1))
@@ -363,6 +472,102 @@ public class CreateStudentOrStaffRepositoriesJobTest {
             eq(staff),
             contains("repo-prefix"),
             eq(false),
-            eq(RepositoryPermissions.WRITE));
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
+  }
+
+  @Test
+  public void testCreateStudentRepository_exceptionCountsAsFailedAndContinues() throws Exception {
+    Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
+    RosterStudent first =
+        RosterStudent.builder().githubLogin("first").orgStatus(OrgStatus.MEMBER).build();
+    RosterStudent second =
+        RosterStudent.builder().githubLogin("second").orgStatus(OrgStatus.MEMBER).build();
+    course.setRosterStudents(List.of(first, second));
+
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doThrow(new IllegalStateException("GitHub is down"))
+        .when(service)
+        .createStudentRepository(
+            course, first, "repo-prefix", false, RepositoryPermissions.WRITE, repositoryIndex);
+    doReturn(RepositoryCreationStatus.CREATED)
+        .when(service)
+        .createStudentRepository(
+            course, second, "repo-prefix", false, RepositoryPermissions.WRITE, repositoryIndex);
+
+    CreateStudentOrStaffRepositoriesJob.builder()
+        .repositoryService(service)
+        .repositoryPrefix("repo-prefix")
+        .course(course)
+        .isPrivate(false)
+        .permissions(RepositoryPermissions.WRITE)
+        .build()
+        .accept(ctx);
+
+    String expected =
+        expectedLog(
+            false,
+            RepositoryCreationOption.STUDENTS_ONLY,
+            "Found 1 existing repositories in the org",
+            "[1/2] ERROR: Failed to create repo-prefix-first: GitHub is down",
+            "[2/2] Created repo-prefix-second",
+            "Done: 1 created, 0 already existed, 1 failed");
+    assertEquals(expected, jobStarted.getLog());
+  }
+
+  @Test
+  public void testCreateRepositories_runsInParallel() throws Exception {
+    Course course = Course.builder().id(7L).orgName("ucsb-cs156").installationId("1234").build();
+    RosterStudent first =
+        RosterStudent.builder().githubLogin("first").orgStatus(OrgStatus.MEMBER).build();
+    RosterStudent second =
+        RosterStudent.builder().githubLogin("second").orgStatus(OrgStatus.MEMBER).build();
+    CourseStaff staff =
+        CourseStaff.builder().githubLogin("staff").orgStatus(OrgStatus.MEMBER).build();
+    course.setRosterStudents(List.of(first, second));
+    course.setCourseStaff(List.of(staff));
+
+    // Every call waits until all three are in flight, so this only finishes if they run together
+    CyclicBarrier allInFlight = new CyclicBarrier(3);
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    doAnswer(
+            invocation -> {
+              allInFlight.await(5, TimeUnit.SECONDS);
+              return RepositoryCreationStatus.CREATED;
+            })
+        .when(service)
+        .createStudentRepository(
+            eq(course),
+            any(),
+            eq("repo-prefix"),
+            eq(false),
+            eq(RepositoryPermissions.WRITE),
+            eq(repositoryIndex));
+    doAnswer(
+            invocation -> {
+              allInFlight.await(5, TimeUnit.SECONDS);
+              return RepositoryCreationStatus.EXISTING;
+            })
+        .when(service)
+        .createStaffRepository(
+            course, staff, "repo-prefix", false, RepositoryPermissions.WRITE, repositoryIndex);
+
+    CreateStudentOrStaffRepositoriesJob.builder()
+        .repositoryService(service)
+        .repositoryPrefix("repo-prefix")
+        .course(course)
+        .isPrivate(false)
+        .permissions(RepositoryPermissions.WRITE)
+        .creationOption(RepositoryCreationOption.STUDENTS_AND_STAFF)
+        .parallelism(3)
+        .build()
+        .accept(ctx);
+
+    String log = jobStarted.getLog();
+    assertTrue(log.contains("Created repo-prefix-first"));
+    assertTrue(log.contains("Created repo-prefix-second"));
+    assertTrue(log.contains("repo-prefix-staff already exists"));
+    assertTrue(log.contains("[3/3] "));
+    assertTrue(log.endsWith("Done: 2 created, 1 already existed, 0 failed"));
   }
 }
@@ -15,6 +15,9 @@ import edu.ucsb.cs156.frontiers.entities.Team;
 import edu.ucsb.cs156.frontiers.entities.TeamMember;
 import edu.ucsb.cs156.frontiers.enums.OrgStatus;
 import edu.ucsb.cs156.frontiers.enums.RepositoryPermissions;
+import edu.ucsb.cs156.frontiers.services.GithubRepositoryIndex;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
+import edu.ucsb.cs156.frontiers.services.GithubTeamIndex;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.RepositoryService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
@@ -31,6 +34,10 @@ public class CreateTeamRepositoriesJobTest {
 
   @Mock private RepositoryService service;
   @Mock private GithubTeamService githubTeamService;
+  @Mock private GithubShadowService githubShadowService;
+
+  GithubTeamIndex teamIndex = new GithubTeamIndex(List.of());
+  GithubRepositoryIndex repositoryIndex = new GithubRepositoryIndex(List.of());
 
   Job jobStarted = Job.builder().build();
   JobContext ctx = new JobContext(null, jobStarted);
@@ -69,6 +76,8 @@ public class CreateTeamRepositoriesJobTest {
 
     course.setTeams(List.of(team1, team2));
     when(githubTeamService.getOrgId("ucsb-cs156", course)).thenReturn(1);
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
 
     var repoJob =
         spy(
@@ -94,7 +103,9 @@ public class CreateTeamRepositoriesJobTest {
             contains("repo-prefix"),
             eq(false),
             eq(RepositoryPermissions.WRITE),
-            eq(1));
+            eq(1),
+            eq(teamIndex),
+            eq(repositoryIndex));
     verify(service, times(1))
         .createTeamRepository(
             eq(course),
@@ -102,7 +113,9 @@ public class CreateTeamRepositoriesJobTest {
             contains("repo-prefix"),
             eq(false),
             eq(RepositoryPermissions.WRITE),
-            eq(1));
+            eq(1),
+            eq(teamIndex),
+            eq(repositoryIndex));
   }
 
   @Test
@@ -111,7 +124,7 @@ public class CreateTeamRepositoriesJobTest {
     RosterStudent student1 =
         RosterStudent.builder().githubLogin("student1").orgStatus(OrgStatus.MEMBER).build();
     TeamMember member1 = TeamMember.builder().rosterStudent(student1).build();
-    Team team1 = Team.builder().name("test-team1").build();
+    Team team1 = Team.builder().name("test-team1").githubTeamSlug("test-team1").build();
     team1.setTeamMembers(List.of(member1));
 
     RosterStudent student2 =
@@ -120,11 +133,13 @@ public class CreateTeamRepositoriesJobTest {
     RosterStudent student3 =
         RosterStudent.builder().githubLogin("student3").orgStatus(OrgStatus.MEMBER).build();
     TeamMember member3 = TeamMember.builder().rosterStudent(student3).build();
-    Team team2 = Team.builder().name("test-team2").build();
+    Team team2 = Team.builder().name("test-team2").githubTeamSlug(" ").build();
     team2.setTeamMembers(List.of(member2, member3));
 
     course.setTeams(List.of(team1, team2));
     when(githubTeamService.getOrgId("ucsb-cs156", course)).thenReturn(1);
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
 
     var repoJob =
         spy(
@@ -150,7 +165,9 @@ public class CreateTeamRepositoriesJobTest {
             contains("repo-prefix"),
             eq(true),
             eq(RepositoryPermissions.WRITE),
-            eq(1));
+            eq(1),
+            eq(teamIndex),
+            eq(repositoryIndex));
     verify(service, times(1))
         .createTeamRepository(
             eq(course),
@@ -158,7 +175,9 @@ public class CreateTeamRepositoriesJobTest {
             contains("repo-prefix"),
             eq(true),
             eq(RepositoryPermissions.WRITE),
-            eq(1));
+            eq(1),
+            eq(teamIndex),
+            eq(repositoryIndex));
   }
 
   @Test
@@ -199,6 +218,8 @@ public class CreateTeamRepositoriesJobTest {
 
     course.setTeams(List.of(team1, team2));
     when(githubTeamService.getOrgId("ucsb-cs156", course)).thenReturn(1);
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
 
     var repoJob =
         spy(
@@ -225,9 +246,11 @@ public class CreateTeamRepositoriesJobTest {
             contains("repo-prefix"),
             eq(false),
             eq(RepositoryPermissions.WRITE),
-            eq(1));
+            eq(1),
+            eq(teamIndex),
+            eq(repositoryIndex));
     verify(service, never())
-        .createTeamRepository(eq(course), eq(team2), any(), any(), any(), any());
+        .createTeamRepository(eq(course), eq(team2), any(), any(), any(), any(), any(), any());
   }
 
   @Test
@@ -258,9 +281,155 @@ public class CreateTeamRepositoriesJobTest {
         Done""";
     assertEquals(expected, jobStarted.getLog());
 
+    verify(githubTeamService, never()).getTeamIndex(any());
+    verify(service, never()).getRepositoryIndex(any());
     verify(service, never())
-        .createTeamRepository(eq(course), eq(team1), any(), any(), any(), any());
+        .createTeamRepository(eq(course), eq(team1), any(), any(), any(), any(), any(), any());
     verify(service, never())
-        .createTeamRepository(eq(course), eq(team2), any(), any(), any(), any());
+        .createTeamRepository(eq(course), eq(team2), any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testCreateTeamRepository_skipsTeamIndexWhenAllTeamsHaveSlugs() throws Exception {
+    Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
+
+    Team team1 = Team.builder().name("test-team1").githubTeamSlug("test-team1").build();
+    Team team2 = Team.builder().name("test-team2").build();
+
+    course.setTeams(List.of(team1, team2));
+    when(githubTeamService.getOrgId("ucsb-cs156", course)).thenReturn(1);
+    when(service.getRepositoryIndex(course)).thenReturn(repositoryIndex);
+
+    var repoJob =
+        CreateTeamRepositoriesJob.builder()
+            .repositoryService(service)
+            .githubTeamService(githubTeamService)
+            .repositoryPrefix("repo-prefix")
+            .course(course)
+            .isPrivate(false)
+            .permissions(RepositoryPermissions.WRITE)
+            .teamRegex("test-team1")
+            .build();
+
+    repoJob.accept(ctx);
+
+    verify(githubTeamService, never()).getTeamIndex(any());
+    verify(service, times(1))
+        .createTeamRepository(
+            eq(course),
+            eq(team1),
+            contains("repo-prefix"),
+            eq(false),
+            eq(RepositoryPermissions.WRITE),
+            eq(1),
+            isNull(),
+            eq(repositoryIndex));
+  }
+
+  @Test
+  public void testCreateTeamRepository_withShadow_readsIndexesLocallyAndRecordsRepositories()
+      throws Exception {
+    Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
+    Team team1 = Team.builder().name("test-team1").build();
+    Team team2 = Team.builder().name("test-team2").build();
+    course.setTeams(List.of(team1, team2));
+    GithubRepositoryIndex shadowRepositories = new GithubRepositoryIndex(List.of("existing"));
+    when(githubTeamService.getOrgId("ucsb-cs156", course)).thenReturn(1);
+    when(githubShadowService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubShadowService.getRepositoryIndex(course)).thenReturn(shadowRepositories);
+    doAnswer(
+            invocation -> {
+              shadowRepositories.add("repo-prefix-test-team1");
+              return "repo-prefix-test-team1";
+            })
+        .when(service)
+        .createTeamRepository(
+            course,
+            team1,
+            "repo-prefix",
+            false,
+            RepositoryPermissions.WRITE,
+            1,
+            teamIndex,
+            shadowRepositories);
+    // The second team's repository could not be created
+    doReturn(null)
+        .when(service)
+        .createTeamRepository(
+            course,
+            team2,
+            "repo-prefix",
+            false,
+            RepositoryPermissions.WRITE,
+            1,
+            teamIndex,
+            shadowRepositories);
+
+    var repoJob =
+        CreateTeamRepositoriesJob.builder()
+            .repositoryService(service)
+            .githubTeamService(githubTeamService)
+            .githubShadowService(githubShadowService)
+            .repositoryPrefix("repo-prefix")
+            .course(course)
+            .isPrivate(false)
+            .permissions(RepositoryPermissions.WRITE)
+            .build();
+
+    repoJob.accept(ctx);
+
+    verify(githubTeamService, never()).getTeamIndex(any());
+    verify(service, never()).getRepositoryIndex(any());
+    // Only the repository this job created is recorded, not the rest of the org
+    verify(githubShadowService).recordRepositories(course, List.of("repo-prefix-test-team1"));
+  }
+
+  @Test
+  public void testCreateTeamRepository_withShadow_recordsNothingWhenNoRepositoryIsCreated()
+      throws Exception {
+    Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
+    Team team1 = Team.builder().name("test-team1").githubTeamSlug("test-team1").build();
+    course.setTeams(List.of(team1));
+    GithubRepositoryIndex shadowRepositories = new GithubRepositoryIndex(List.of("existing"));
+    when(githubTeamService.getOrgId("ucsb-cs156", course)).thenReturn(1);
+    when(githubShadowService.getRepositoryIndex(course)).thenReturn(shadowRepositories);
+
+    var repoJob =
+        CreateTeamRepositoriesJob.builder()
+            .repositoryService(service)
+            .githubTeamService(githubTeamService)
+            .githubShadowService(githubShadowService)
+            .repositoryPrefix("repo-prefix")
+            .course(course)
+            .isPrivate(false)
+            .permissions(RepositoryPermissions.WRITE)
+            .build();
+
+    repoJob.accept(ctx);
+
+    verify(githubShadowService, never()).recordRepositories(any(), any());
+  }
+
+  @Test
+  public void testCreateTeamRepository_withShadow_noMatches() throws Exception {
+    Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
+    course.setTeams(List.of(Team.builder().name("test-team1").build()));
+    when(githubTeamService.getOrgId("ucsb-cs156", course)).thenReturn(1);
+
+    var repoJob =
+        CreateTeamRepositoriesJob.builder()
+            .repositoryService(service)
+            .githubTeamService(githubTeamService)
+            .githubShadowService(githubShadowService)
+            .repositoryPrefix("repo-prefix")
+            .course(course)
+            .isPrivate(false)
+            .permissions(RepositoryPermissions.WRITE)
+            .teamRegex("no_matches_regex")
+            .build();
+
+    repoJob.accept(ctx);
+
+    verifyNoInteractions(githubShadowService, service);
   }
 }
@@ -1,7 +1,9 @@
 package edu.ucsb.cs156.frontiers.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -12,19 +14,30 @@ import edu.ucsb.cs156.frontiers.entities.Job;
 import edu.ucsb.cs156.frontiers.entities.RosterStudent;
 import edu.ucsb.cs156.frontiers.enums.OrgStatus;
 import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.CourseStaffRepository;
 import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
 import edu.ucsb.cs156.frontiers.repositories.UserRepository;
-import edu.ucsb.cs156.frontiers.services.OrganizationMemberService;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 public class MembershipAuditJobTests {
@@ -32,12 +45,19 @@ public class MembershipAuditJobTests {
 
   @Mock private RosterStudentRepository rosterStudentRepository;
 
-  @Mock private OrganizationMemberService organizationMemberService;
+  @Mock private GithubGraphQLService githubGraphQLService;
+
+  @Mock private GithubShadowService githubShadowService;
 
   @Mock private CourseRepository courseRepository;
 
   @Mock CourseStaffRepository courseStaffRepository;
 
+  @Mock PlatformTransactionManager transactionManager;
+
+  private static final Instant NOW = Instant.parse("2025-09-01T08:00:00Z");
+  private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
   Job jobStarted = Job.builder().build();
   JobContext ctx = new JobContext(null, jobStarted);
 
@@ -51,6 +71,7 @@ public class MembershipAuditJobTests {
     MembershipAuditJob job = MembershipAuditJob.builder().build();
 
     assertNull(job.getCourse());
+    assertFalse(job.runsInOneTransaction());
   }
 
   @Test
@@ -193,37 +214,43 @@ public class MembershipAuditJobTests {
     CourseStaff courseStaff4Updated =
         CourseStaff.builder().githubLogin(null).githubId(722).course(course2).build();
 
-    doReturn(orgMembers).when(organizationMemberService).getOrganizationMembers(eq(course));
-    doReturn(secondCourse).when(organizationMemberService).getOrganizationMembers(eq(course2));
-    doReturn(emptyAdmins).when(organizationMemberService).getOrganizationAdmins(eq(course));
-    doReturn(emptyAdmins).when(organizationMemberService).getOrganizationAdmins(eq(course2));
+    doReturn(new OrgMembership(orgMembers, emptyAdmins, List.of(), 1, 1))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(eq(course));
+    doReturn(new OrgMembership(secondCourse, emptyAdmins, List.of(), 1, 1))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(eq(course2));
     doReturn(List.of(course, course2, course3, course4)).when(courseRepository).findAll();
 
     var matchJob =
         spy(
             MembershipAuditJob.builder()
                 .rosterStudentRepository(rosterStudentRepository)
-                .organizationMemberService(organizationMemberService)
+                .githubGraphQLService(githubGraphQLService)
                 .courseRepository(courseRepository)
                 .courseStaffRepository(courseStaffRepository)
+                .transactionTemplate(new TransactionTemplate(transactionManager))
+                .clock(CLOCK)
                 .build());
 
     matchJob.accept(ctx);
     String expected =
         """
                 Auditing membership for each course with an attached GitHub Organization...
-                Done""";
+                ucsb-cs156: members=3 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=2 staffUpdated=1 (0ms)
+                ucsb-cs156-f25: members=3 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=2 staffUpdated=1 (0ms)
+                Done: audited=2 skipped=0 failed=0 graphqlRequests=2 graphqlCost=2 restCalls=6""";
     assertEquals(expected, jobStarted.getLog());
 
     verify(rosterStudentRepository, atLeastOnce())
         .saveAll(eq(List.of(student1Updated, student2Updated)));
     verify(courseStaffRepository, atLeastOnce()).saveAll(eq(List.of(courseStaff1Updated)));
-    verify(courseStaffRepository, atLeastOnce())
-        .saveAll(eq(List.of(courseStaff2Updated, courseStaff3Updated, courseStaff4Updated)));
+    verify(courseStaffRepository, atLeastOnce()).saveAll(eq(List.of(courseStaff2Updated)));
     verify(rosterStudentRepository, atLeastOnce())
-        .saveAll(eq(List.of(student3Updated, student4Updated, student5Updated, student6Updated)));
+        .saveAll(eq(List.of(student3Updated, student4Updated)));
     verify(rosterStudentRepository, times(2)).saveAll(any());
     verify(courseStaffRepository, times(2)).saveAll(any());
+    verify(transactionManager, times(2)).commit(any());
     verifyNoMoreInteractions(courseStaffRepository, rosterStudentRepository);
   }
 
@@ -260,25 +287,27 @@ public class MembershipAuditJobTests {
             .course(course)
             .orgStatus(OrgStatus.JOINCOURSE)
             .build();
-    when(organizationMemberService.getOrganizationMembers(course)).thenReturn(orgMembers);
-    when(organizationMemberService.getOrganizationAdmins(course)).thenReturn(emptyAdmins);
-    when(organizationMemberService.getOrganizationInvitees(course)).thenReturn(List.of());
+    when(githubGraphQLService.getOrganizationMembership(course))
+        .thenReturn(new OrgMembership(orgMembers, emptyAdmins, List.of(), 1, 1));
     when(courseRepository.findAll()).thenReturn(List.of(course));
 
     var matchJob =
         spy(
             MembershipAuditJob.builder()
                 .rosterStudentRepository(rosterStudentRepository)
-                .organizationMemberService(organizationMemberService)
+                .githubGraphQLService(githubGraphQLService)
                 .courseRepository(courseRepository)
                 .courseStaffRepository(courseStaffRepository)
+                .transactionTemplate(new TransactionTemplate(transactionManager))
+                .clock(CLOCK)
                 .build());
 
     matchJob.accept(ctx);
     String expected =
         """
                 Auditing membership for each course with an attached GitHub Organization...
-                Done""";
+                ucsb-cs156: members=2 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=1 staffUpdated=1 (0ms)
+                Done: audited=1 skipped=0 failed=0 graphqlRequests=1 graphqlCost=1 restCalls=3""";
     assertEquals(expected, jobStarted.getLog());
 
     verify(rosterStudentRepository, times(1)).saveAll(eq(List.of(student1Updated)));
@@ -350,24 +379,28 @@ public class MembershipAuditJobTests {
             .orgStatus(OrgStatus.MEMBER)
             .build();
 
-    doReturn(orgMembers).when(organizationMemberService).getOrganizationMembers(eq(course));
-    doReturn(orgAdmins).when(organizationMemberService).getOrganizationAdmins(eq(course));
+    doReturn(new OrgMembership(orgMembers, orgAdmins, List.of(), 1, 1))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(eq(course));
     doReturn(List.of(course)).when(courseRepository).findAll();
 
     var matchJob =
         spy(
             MembershipAuditJob.builder()
                 .rosterStudentRepository(rosterStudentRepository)
-                .organizationMemberService(organizationMemberService)
+                .githubGraphQLService(githubGraphQLService)
                 .courseRepository(courseRepository)
                 .courseStaffRepository(courseStaffRepository)
+                .transactionTemplate(new TransactionTemplate(transactionManager))
+                .clock(CLOCK)
                 .build());
 
     matchJob.accept(ctx);
     String expected =
         """
                 Auditing membership for each course with an attached GitHub Organization...
-                Done""";
+                ucsb-cs156: members=2 admins=2 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=2 staffUpdated=2 (0ms)
+                Done: audited=1 skipped=0 failed=0 graphqlRequests=1 graphqlCost=1 restCalls=3""";
     assertEquals(expected, jobStarted.getLog());
 
     verify(rosterStudentRepository, times(1))
@@ -458,18 +491,20 @@ public class MembershipAuditJobTests {
             .orgStatus(OrgStatus.JOINCOURSE)
             .build();
 
-    doReturn(emptyMembers).when(organizationMemberService).getOrganizationMembers(eq(course));
-    doReturn(emptyAdmins).when(organizationMemberService).getOrganizationAdmins(eq(course));
-    doReturn(orgInvitees).when(organizationMemberService).getOrganizationInvitees(eq(course));
+    doReturn(new OrgMembership(emptyMembers, emptyAdmins, orgInvitees, 2, 3))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(eq(course));
     doReturn(List.of(course)).when(courseRepository).findAll();
 
     var matchJob =
         spy(
             MembershipAuditJob.builder()
                 .rosterStudentRepository(rosterStudentRepository)
-                .organizationMemberService(organizationMemberService)
+                .githubGraphQLService(githubGraphQLService)
                 .courseRepository(courseRepository)
                 .courseStaffRepository(courseStaffRepository)
+                .transactionTemplate(new TransactionTemplate(transactionManager))
+                .clock(CLOCK)
                 .build());
 
     matchJob.accept(ctx);
@@ -477,12 +512,297 @@ public class MembershipAuditJobTests {
     String expected =
         """
                 Auditing membership for each course with an attached GitHub Organization...
-                Done""";
+                ucsb-cs156: members=0 admins=0 invitees=2 graphqlRequests=2 graphqlCost=3 restCalls=3 studentsUpdated=1 staffUpdated=1 (0ms)
+                Done: audited=1 skipped=0 failed=0 graphqlRequests=2 graphqlCost=3 restCalls=3""";
     assertEquals(expected, jobStarted.getLog());
 
-    verify(rosterStudentRepository, times(1))
-        .saveAll(eq(List.of(studentUpdated, student2NotUpdated)));
-    verify(courseStaffRepository).saveAll(eq(List.of(courseStaff1Updated, courseStaff2NotUpdated)));
+    verify(rosterStudentRepository, times(1)).saveAll(eq(List.of(studentUpdated)));
+    verify(courseStaffRepository).saveAll(eq(List.of(courseStaff1Updated)));
+    assertEquals(student2NotUpdated, student2);
+    assertEquals(courseStaff2NotUpdated, courseStaff2);
     verifyNoMoreInteractions(courseStaffRepository, rosterStudentRepository);
   }
+
+  @Test
+  public void unchanged_statuses_are_not_saved() throws Exception {
+    OrgMember orgMember = OrgMember.builder().githubId(123456).githubLogin("division7").build();
+    Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
+    RosterStudent student =
+        RosterStudent.builder()
+            .studentId("banana")
+            .githubLogin("division7")
+            .githubId(123456)
+            .course(course)
+            .orgStatus(OrgStatus.MEMBER)
+            .build();
+    course.setRosterStudents(List.of(student));
+    CourseStaff courseStaff =
+        CourseStaff.builder()
+            .githubLogin("division6")
+            .githubId(777)
+            .course(course)
+            .orgStatus(OrgStatus.JOINCOURSE)
+            .build();
+    course.setCourseStaff(List.of(courseStaff));
+
+    doReturn(new OrgMembership(List.of(orgMember), List.of(), List.of(), 1, 1))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(eq(course));
+    doReturn(List.of(course)).when(courseRepository).findAll();
+
+    var matchJob =
+        MembershipAuditJob.builder()
+            .rosterStudentRepository(rosterStudentRepository)
+            .githubGraphQLService(githubGraphQLService)
+            .courseRepository(courseRepository)
+            .courseStaffRepository(courseStaffRepository)
+            .transactionTemplate(new TransactionTemplate(transactionManager))
+            .clock(CLOCK)
+            .build();
+
+    matchJob.accept(ctx);
+
+    assertEquals(OrgStatus.MEMBER, student.getOrgStatus());
+    assertEquals(OrgStatus.JOINCOURSE, courseStaff.getOrgStatus());
+    verifyNoInteractions(courseStaffRepository, rosterStudentRepository);
+    // The audit time is still recorded, so that webhooks alone do not keep the course from audits
+    verify(courseRepository).setLastMembershipAuditAt(course.getId(), NOW);
+  }
+
+  @Test
+  public void indexByGithubId_prefers_owner_then_member_then_invited() {
+    OrgMember owner = OrgMember.builder().githubId(1).githubLogin("owner").build();
+    OrgMember member = OrgMember.builder().githubId(2).githubLogin("member").build();
+    OrgMember invitee = OrgMember.builder().githubId(3).githubLogin("invitee").build();
+
+    Map<Integer, OrgStatus> statuses =
+        MembershipAuditJob.indexByGithubId(
+            new OrgMembership(
+                List.of(owner, member), List.of(owner), List.of(owner, member, invitee), 1, 1));
+
+    assertEquals(Map.of(1, OrgStatus.OWNER, 2, OrgStatus.MEMBER, 3, OrgStatus.INVITED), statuses);
+  }
+
+  @Test
+  public void courses_with_recent_membership_webhook_are_skipped() throws Exception {
+    Course recent =
+        Course.builder()
+            .orgName("recent-org")
+            .installationId("1234")
+            .lastMembershipWebhookAt(NOW.minus(Duration.ofMinutes(30)))
+            .lastMembershipAuditAt(NOW.minus(Duration.ofHours(12)))
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+    // Webhooks keep arriving, but it has not been audited for too long
+    Course overdue =
+        Course.builder()
+            .orgName("overdue-org")
+            .installationId("1237")
+            .lastMembershipWebhookAt(NOW.minus(Duration.ofMinutes(10)))
+            .lastMembershipAuditAt(NOW.minus(Duration.ofDays(2)))
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+    // Webhooks keep arriving, and it has never been audited
+    Course unaudited =
+        Course.builder()
+            .orgName("unaudited-org")
+            .installationId("1238")
+            .lastMembershipWebhookAt(NOW.minus(Duration.ofMinutes(10)))
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+    Course stale =
+        Course.builder()
+            .orgName("stale-org")
+            .installationId("1235")
+            .lastMembershipWebhookAt(NOW.minus(Duration.ofHours(2)))
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+    Course neverHeard =
+        Course.builder()
+            .orgName("quiet-org")
+            .installationId("1236")
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+
+    doReturn(new OrgMembership(List.of(), List.of(), List.of(), 1, 1))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(any());
+    doReturn(List.of(recent, overdue, unaudited, stale, neverHeard))
+        .when(courseRepository)
+        .findAll();
+
+    var matchJob =
+        MembershipAuditJob.builder()
+            .rosterStudentRepository(rosterStudentRepository)
+            .githubGraphQLService(githubGraphQLService)
+            .courseRepository(courseRepository)
+            .courseStaffRepository(courseStaffRepository)
+            .transactionTemplate(new TransactionTemplate(transactionManager))
+            .freshness(Duration.ofHours(1))
+            .maxAuditInterval(Duration.ofDays(1))
+            .clock(CLOCK)
+            .build();
+
+    matchJob.accept(ctx);
+
+    String expected =
+        """
+                Auditing membership for each course with an attached GitHub Organization...
+                recent-org: skipped, membership webhook received at 2025-09-01T07:30:00Z
+                overdue-org: members=0 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=0 staffUpdated=0 (0ms)
+                unaudited-org: members=0 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=0 staffUpdated=0 (0ms)
+                stale-org: members=0 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=0 staffUpdated=0 (0ms)
+                quiet-org: members=0 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=0 staffUpdated=0 (0ms)
+                Done: audited=4 skipped=1 failed=0 graphqlRequests=4 graphqlCost=4 restCalls=12""";
+    assertEquals(expected, jobStarted.getLog());
+    verify(githubGraphQLService, never()).getOrganizationMembership(recent);
+  }
+
+  @Test
+  public void failed_course_is_logged_and_other_courses_are_still_committed() throws Exception {
+    Course failing =
+        Course.builder()
+            .orgName("failing-org")
+            .installationId("1234")
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+    Course working = Course.builder().orgName("working-org").installationId("1235").build();
+    CourseStaff staff =
+        CourseStaff.builder().githubLogin("division6").githubId(777).course(working).build();
+    working.setRosterStudents(List.of());
+    working.setCourseStaff(List.of(staff));
+
+    doThrow(new RuntimeException("Organization not found"))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(failing);
+    doReturn(
+            new OrgMembership(
+                List.of(OrgMember.builder().githubId(777).githubLogin("division6").build()),
+                List.of(),
+                List.of(),
+                1,
+                1))
+        .when(githubGraphQLService)
+        .getOrganizationMembership(working);
+    doReturn(List.of(failing, working)).when(courseRepository).findAll();
+
+    var matchJob =
+        MembershipAuditJob.builder()
+            .rosterStudentRepository(rosterStudentRepository)
+            .githubGraphQLService(githubGraphQLService)
+            .courseRepository(courseRepository)
+            .courseStaffRepository(courseStaffRepository)
+            .transactionTemplate(new TransactionTemplate(transactionManager))
+            .clock(CLOCK)
+            .build();
+
+    matchJob.accept(ctx);
+
+    String expected =
+        """
+                Auditing membership for each course with an attached GitHub Organization...
+                ERROR: failing-org: Organization not found (0ms)
+                working-org: members=1 admins=0 invitees=0 graphqlRequests=1 graphqlCost=1 restCalls=3 studentsUpdated=0 staffUpdated=1 (0ms)
+                Done: audited=1 skipped=0 failed=1 graphqlRequests=1 graphqlCost=1 restCalls=3""";
+    assertEquals(expected, jobStarted.getLog());
+    assertEquals(OrgStatus.MEMBER, staff.getOrgStatus());
+    verify(courseStaffRepository).saveAll(List.of(staff));
+    verify(rosterStudentRepository).saveAll(List.of());
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  public void courses_are_audited_in_parallel() throws Exception {
+    Course course1 =
+        Course.builder()
+            .orgName("org-one")
+            .installationId("1234")
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+    Course course2 =
+        Course.builder()
+            .orgName("org-two")
+            .installationId("1235")
+            .rosterStudents(List.of())
+            .courseStaff(List.of())
+            .build();
+
+    // Each audit waits for the other to start, which only happens if they run at the same time
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    doAnswer(
+            invocation -> {
+              bothStarted.countDown();
+              if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("audits did not overlap");
+              }
+              return new OrgMembership(List.of(), List.of(), List.of(), 1, 1);
+            })
+        .when(githubGraphQLService)
+        .getOrganizationMembership(any());
+    doReturn(List.of(course1, course2)).when(courseRepository).findAll();
+
+    var matchJob =
+        MembershipAuditJob.builder()
+            .rosterStudentRepository(rosterStudentRepository)
+            .githubGraphQLService(githubGraphQLService)
+            .courseRepository(courseRepository)
+            .courseStaffRepository(courseStaffRepository)
+            .transactionTemplate(new TransactionTemplate(transactionManager))
+            .parallelism(2)
+            .clock(CLOCK)
+            .build();
+
+    matchJob.accept(ctx);
+
+    assertTrue(
+        jobStarted
+            .getLog()
+            .endsWith(
+                "Done: audited=2 skipped=0 failed=0 graphqlRequests=2 graphqlCost=2 restCalls=6"));
+  }
+
+  @Test
+  public void membership_is_read_from_shadow_when_available() throws Exception {
+    OrgMember orgMember = OrgMember.builder().githubId(123456).githubLogin("division7").build();
+    Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
+    RosterStudent student =
+        RosterStudent.builder()
+            .studentId("banana")
+            .githubLogin("division7")
+            .githubId(123456)
+            .course(course)
+            .orgStatus(OrgStatus.JOINCOURSE)
+            .build();
+    course.setRosterStudents(List.of(student));
+    course.setCourseStaff(List.of());
+
+    doReturn(new OrgMembership(List.of(orgMember), List.of(), List.of(), 0, 0))
+        .when(githubShadowService)
+        .getOrganizationMembership(course);
+    doReturn(List.of(course)).when(courseRepository).findAll();
+
+    var matchJob =
+        MembershipAuditJob.builder()
+            .rosterStudentRepository(rosterStudentRepository)
+            .githubGraphQLService(githubGraphQLService)
+            .githubShadowService(githubShadowService)
+            .courseRepository(courseRepository)
+            .courseStaffRepository(courseStaffRepository)
+            .transactionTemplate(new TransactionTemplate(transactionManager))
+            .clock(CLOCK)
+            .build();
+
+    matchJob.accept(ctx);
+
+    assertEquals(OrgStatus.MEMBER, student.getOrgStatus());
+    verify(rosterStudentRepository).saveAll(List.of(student));
+    verifyNoInteractions(githubGraphQLService);
+  }
 }
@@ -0,0 +1,178 @@
+package edu.ucsb.cs156.frontiers.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
+import edu.ucsb.cs156.frontiers.entities.Job;
+import edu.ucsb.cs156.frontiers.enums.DownloadRequestType;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService;
+import edu.ucsb.cs156.frontiers.services.RepositoryService;
+import edu.ucsb.cs156.frontiers.services.RepositoryService.GithubRepository;
+import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class OrgCommitDownloadJobTests {
+
+  @Mock private GithubGraphQLService githubService;
+
+  @Mock private RepositoryService repositoryService;
+
+  Course course = Course.builder().id(1L).orgName("ucsb-cs156-f25").courseName("CS156").build();
+
+  DownloadRequest request =
+      DownloadRequest.builder()
+          .id(7L)
+          .course(course)
+          .downloadType(DownloadRequestType.ORG_COMMITS)
+          .org("ucsb-cs156-f25")
+          .repo("proj-")
+          .build();
+
+  Job jobStarted = Job.builder().build();
+  JobContext ctx = new JobContext(null, jobStarted);
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  private static List<GithubRepository> repositories(String... names) {
+    return Stream.of(names)
+        .map(name -> new GithubRepository(name, "ucsb-cs156-f25/" + name))
+        .toList();
+  }
+
+  @Test
+  public void getCourse_returns_the_course_of_the_request() {
+    OrgCommitDownloadJob job = OrgCommitDownloadJob.builder().request(request).build();
+
+    assertEquals(course, job.getCourse());
+    assertFalse(job.runsInOneTransaction());
+  }
+
+  @Test
+  public void downloads_every_matching_repository_and_logs_each_one() throws Exception {
+    when(repositoryService.getRepositoriesMatchingPrefix(course, "proj-"))
+        .thenReturn(repositories("proj-team01", "proj-team02"));
+    when(githubService.getDownloadedRepositories(request)).thenReturn(Set.of());
+    when(githubService.downloadRepositoryHistory(request, "proj-team01")).thenReturn(12);
+    when(githubService.downloadRepositoryHistory(request, "proj-team02")).thenReturn(0);
+
+    OrgCommitDownloadJob.builder()
+        .request(request)
+        .githubService(githubService)
+        .repositoryService(repositoryService)
+        .build()
+        .accept(ctx);
+
+    assertEquals(
+        """
+        Starting download of branch main of the repositories starting with 'proj-'
+        Found 2 matching repositories
+        [1/2] proj-team01: 12 commits
+        [2/2] proj-team02: 0 commits
+        Download completed successfully""",
+        jobStarted.getLog());
+  }
+
+  @Test
+  public void skips_repositories_downloaded_by_an_earlier_attempt() throws Exception {
+    when(repositoryService.getRepositoriesMatchingPrefix(course, "proj-"))
+        .thenReturn(repositories("proj-team01", "proj-team02", "proj-team03"));
+    when(githubService.getDownloadedRepositories(request))
+        .thenReturn(Set.of("proj-team01", "proj-team03"));
+    when(githubService.downloadRepositoryHistory(request, "proj-team02")).thenReturn(5);
+
+    OrgCommitDownloadJob.builder()
+        .request(request)
+        .githubService(githubService)
+        .repositoryService(repositoryService)
+        .build()
+        .accept(ctx);
+
+    assertEquals(
+        """
+        Starting download of branch main of the repositories starting with 'proj-'
+        Found 3 matching repositories
+        Skipping 2 repositories downloaded by an earlier attempt
+        [1/1] proj-team02: 5 commits
+        Download completed successfully""",
+        jobStarted.getLog());
+    verify(githubService, times(1)).downloadRepositoryHistory(any(), any());
+  }
+
+  @Test
+  public void logs_failed_repositories_and_fails_once_the_others_are_done() throws Exception {
+    when(repositoryService.getRepositoriesMatchingPrefix(course, "proj-"))
+        .thenReturn(repositories("proj-team01", "proj-team02"));
+    when(githubService.getDownloadedRepositories(request)).thenReturn(Set.of());
+    when(githubService.downloadRepositoryHistory(request, "proj-team01"))
+        .thenThrow(new IllegalStateException("GitHub is down"));
+    when(githubService.downloadRepositoryHistory(request, "proj-team02")).thenReturn(3);
+
+    OrgCommitDownloadJob job =
+        OrgCommitDownloadJob.builder()
+            .request(request)
+            .githubService(githubService)
+            .repositoryService(repositoryService)
+            .build();
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> job.accept(ctx));
+
+    assertEquals(
+        "1 of 2 repositories could not be downloaded; resume the download to retry them",
+        e.getMessage());
+    assertEquals(
+        """
+        Starting download of branch main of the repositories starting with 'proj-'
+        Found 2 matching repositories
+        [1/2] ERROR: Failed to download proj-team01: GitHub is down
+        [2/2] proj-team02: 3 commits""",
+        jobStarted.getLog());
+  }
+
+  @Test
+  public void downloads_repositories_at_the_same_time() throws Exception {
+    when(repositoryService.getRepositoriesMatchingPrefix(course, "proj-"))
+        .thenReturn(repositories("proj-team01", "proj-team02", "proj-team03"));
+    when(githubService.getDownloadedRepositories(request)).thenReturn(Set.of());
+    // Every download waits for the others, so this only finishes if all three run at once
+    CyclicBarrier barrier = new CyclicBarrier(3);
+    when(githubService.downloadRepositoryHistory(eq(request), any()))
+        .thenAnswer(
+            invocation -> {
+              barrier.await(5, TimeUnit.SECONDS);
+              return 1;
+            });
+
+    OrgCommitDownloadJob.builder()
+        .request(request)
+        .githubService(githubService)
+        .repositoryService(repositoryService)
+        .parallelism(3)
+        .build()
+        .accept(ctx);
+
+    verify(githubService).downloadRepositoryHistory(request, "proj-team01");
+    verify(githubService).downloadRepositoryHistory(request, "proj-team02");
+    verify(githubService).downloadRepositoryHistory(request, "proj-team03");
+    verify(githubService, never()).downloadCommitHistory(any());
+  }
+}
@@ -16,11 +16,17 @@ import edu.ucsb.cs156.frontiers.enums.TeamStatus;
 import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
 import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubShadowService;
+import edu.ucsb.cs156.frontiers.services.GithubTeamIndex;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService;
 import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
 import edu.ucsb.cs156.frontiers.services.jobs.JobContext;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -35,6 +41,9 @@ public class PushTeamsToGithubJobTests {
   @Mock private TeamRepository teamRepository;
   @Mock private TeamMemberRepository teamMemberRepository;
   @Mock private GithubTeamService githubTeamService;
+  @Mock private GithubShadowService githubShadowService;
+
+  GithubTeamIndex teamIndex = new GithubTeamIndex(List.of());
 
   Job jobStarted = Job.builder().build();
   JobContext ctx = new JobContext(null, jobStarted);
@@ -194,9 +203,10 @@ public class PushTeamsToGithubJobTests {
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team1, team2));
 
     // Mock GitHub service calls
-    when(githubTeamService.createOrGetTeamInfo(team1, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team1, course, teamIndex))
         .thenReturn(new GithubTeamInfo(123, "team1", "team1"));
-    when(githubTeamService.createOrGetTeamInfo(team2, course))
+    when(githubTeamService.createOrGetTeamInfo(team2, course, teamIndex))
         .thenReturn(new GithubTeamInfo(456, "team2", "team2"));
     when(githubTeamService.getTeamMembershipStatus("student1", 123, course, 1))
         .thenReturn(TeamStatus.NOT_ORG_MEMBER);
@@ -219,8 +229,9 @@ public class PushTeamsToGithubJobTests {
     // Assert
     verify(courseRepository).findById(courseId);
     verify(teamRepository).findByCourseId(courseId);
-    verify(githubTeamService).createOrGetTeamInfo(team1, course);
-    verify(githubTeamService).createOrGetTeamInfo(team2, course);
+    verify(githubTeamService).createOrGetTeamInfo(team1, course, teamIndex);
+    verify(githubTeamService).createOrGetTeamInfo(team2, course, teamIndex);
+    verify(githubTeamService, times(1)).getTeamIndex(course);
     verify(githubTeamService).getTeamMembershipStatus("student1", 123, course, 1);
     verify(githubTeamService).addMemberToGithubTeam("student1", 123, "member", course, 1);
 
@@ -233,19 +244,10 @@ public class PushTeamsToGithubJobTests {
                         && t.getGithubTeamId().equals(123)
                         && t.getGithubTeamSlug().equals("team1")));
 
-    // Verify team members were updated with correct status
-    verify(teamMemberRepository)
-        .save(
-            argThat(
-                tm ->
-                    tm.getRosterStudent().equals(student1)
-                        && tm.getTeamStatus().equals(TeamStatus.TEAM_MEMBER)));
-    verify(teamMemberRepository)
-        .save(
-            argThat(
-                tm ->
-                    tm.getRosterStudent().equals(student2)
-                        && tm.getTeamStatus().equals(TeamStatus.NO_GITHUB_ID)));
+    // Verify team members were updated with correct status and saved together
+    assertEquals(TeamStatus.TEAM_MEMBER, teamMember1.getTeamStatus());
+    assertEquals(TeamStatus.NO_GITHUB_ID, teamMember2.getTeamStatus());
+    verify(teamMemberRepository).saveAll(List.of(teamMember1, teamMember2));
   }
 
   @Test
@@ -276,7 +278,8 @@ public class PushTeamsToGithubJobTests {
 
     when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team));
-    when(githubTeamService.createOrGetTeamInfo(team, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team, course, teamIndex))
         .thenReturn(new GithubTeamInfo(123, "team1", "team1"));
     // This specifically tests the TEAM_MEMBER branch of the condition (first part of ||)
     when(githubTeamService.getTeamMembershipStatus("student", 123, course, 1))
@@ -300,8 +303,8 @@ public class PushTeamsToGithubJobTests {
     verify(teamRepository, never()).save(any(Team.class));
     // Should not try to add member since they're already a member
     verify(githubTeamService, never()).addMemberToGithubTeam(any(), any(), any(), any(), any());
-    verify(teamMemberRepository)
-        .save(argThat(tm -> tm.getTeamStatus().equals(TeamStatus.TEAM_MEMBER)));
+    assertEquals(TeamStatus.TEAM_MEMBER, teamMember.getTeamStatus());
+    verify(teamMemberRepository).saveAll(List.of(teamMember));
     assertTrue(jobStarted.getLog().contains("already has correct GitHub team ID: 123"));
   }
 
@@ -333,7 +336,8 @@ public class PushTeamsToGithubJobTests {
 
     when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team));
-    when(githubTeamService.createOrGetTeamInfo(team, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team, course, teamIndex))
         .thenReturn(new GithubTeamInfo(123, "team1", "team1"));
     // This specifically tests the TEAM_MAINTAINER branch of the condition
     when(githubTeamService.getTeamMembershipStatus("student", 123, course, 1))
@@ -357,8 +361,8 @@ public class PushTeamsToGithubJobTests {
     verify(teamRepository, never()).save(any(Team.class));
     // Should not try to add member since they're already a maintainer
     verify(githubTeamService, never()).addMemberToGithubTeam(any(), any(), any(), any(), any());
-    verify(teamMemberRepository)
-        .save(argThat(tm -> tm.getTeamStatus().equals(TeamStatus.TEAM_MAINTAINER)));
+    assertEquals(TeamStatus.TEAM_MAINTAINER, teamMember.getTeamStatus());
+    verify(teamMemberRepository).saveAll(List.of(teamMember));
     assertTrue(jobStarted.getLog().contains("already has correct GitHub team ID: 123"));
   }
 
@@ -384,7 +388,8 @@ public class PushTeamsToGithubJobTests {
     when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team));
     when(githubTeamService.getOrgId("test-org", course)).thenReturn(1);
-    when(githubTeamService.createOrGetTeamInfo(team, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team, course, teamIndex))
         .thenReturn(new GithubTeamInfo(123, "team1", "team1"));
 
     PushTeamsToGithubJob job =
@@ -430,7 +435,8 @@ public class PushTeamsToGithubJobTests {
     when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team));
     when(githubTeamService.getOrgId("test-org", course)).thenReturn(1);
-    when(githubTeamService.createOrGetTeamInfo(team, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team, course, teamIndex))
         .thenReturn(new GithubTeamInfo(123, "team1", "team1"));
 
     PushTeamsToGithubJob job =
@@ -472,7 +478,8 @@ public class PushTeamsToGithubJobTests {
 
     when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team));
-    when(githubTeamService.createOrGetTeamInfo(team, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team, course, teamIndex))
         .thenThrow(new RuntimeException("GitHub API error"));
 
     PushTeamsToGithubJob job =
@@ -490,7 +497,7 @@ public class PushTeamsToGithubJobTests {
     // Assert
     verify(courseRepository).findById(courseId);
     verify(teamRepository).findByCourseId(courseId);
-    verify(githubTeamService).createOrGetTeamInfo(team, course);
+    verify(githubTeamService).createOrGetTeamInfo(team, course, teamIndex);
     // Should not save team or process members when creation fails
     verify(teamRepository, never()).save(any());
   }
@@ -523,7 +530,8 @@ public class PushTeamsToGithubJobTests {
     when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team));
     // Make team creation fail so GitHub team ID remains null
-    when(githubTeamService.createOrGetTeamInfo(team, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team, course, teamIndex))
         .thenThrow(new RuntimeException("Creation failed"));
 
     PushTeamsToGithubJob job =
@@ -541,11 +549,11 @@ public class PushTeamsToGithubJobTests {
     // Assert
     verify(courseRepository).findById(courseId);
     verify(teamRepository).findByCourseId(courseId);
-    verify(githubTeamService).createOrGetTeamInfo(team, course);
+    verify(githubTeamService).createOrGetTeamInfo(team, course, teamIndex);
     // Should not process team members when team has no GitHub team ID
     verify(githubTeamService, never()).getTeamMembershipStatus(any(), any(), any(), any());
     verify(githubTeamService, never()).addMemberToGithubTeam(any(), any(), any(), any(), any());
-    verify(teamMemberRepository, never()).save(any());
+    verify(teamMemberRepository, never()).saveAll(any());
   }
 
   @Test
@@ -574,7 +582,8 @@ public class PushTeamsToGithubJobTests {
 
     when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
     when(teamRepository.findByCourseId(courseId)).thenReturn(Arrays.asList(team));
-    when(githubTeamService.createOrGetTeamInfo(team, course))
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team, course, teamIndex))
         .thenReturn(new GithubTeamInfo(123, "team1", "team1"));
     // Make team member processing fail
     when(githubTeamService.getTeamMembershipStatus("student", 123, course, 1))
@@ -596,11 +605,11 @@ public class PushTeamsToGithubJobTests {
     // Assert
     verify(courseRepository).findById(courseId);
     verify(teamRepository).findByCourseId(courseId);
-    verify(githubTeamService).createOrGetTeamInfo(team, course);
+    verify(githubTeamService).createOrGetTeamInfo(team, course, teamIndex);
     verify(githubTeamService).getTeamMembershipStatus("student", 123, course, 1);
     // Should set status to NOT_ORG_MEMBER when processing fails
-    verify(teamMemberRepository)
-        .save(argThat(tm -> tm.getTeamStatus().equals(TeamStatus.NOT_ORG_MEMBER)));
+    assertEquals(TeamStatus.NOT_ORG_MEMBER, teamMember.getTeamStatus());
+    verify(teamMemberRepository).saveAll(List.of(teamMember));
   }
 
   @Test
@@ -636,4 +645,192 @@ public class PushTeamsToGithubJobTests {
     assertEquals(
         "Failed to get organization ID for org: test-org - GitHub API error", e.getMessage());
   }
+
+  @Test
+  public void test_Accept_GetTeamIndexFailure() throws Exception {
+    // Arrange
+    Long courseId = 1L;
+    Course course =
+        Course.builder()
+            .id(courseId)
+            .courseName("Test Course")
+            .orgName("test-org")
+            .installationId("123")
+            .build();
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+    when(githubTeamService.getOrgId(course.getOrgName(), course)).thenReturn(1);
+    when(githubTeamService.getTeamIndex(course))
+        .thenThrow(new RuntimeException("GitHub API error"));
+
+    PushTeamsToGithubJob job =
+        PushTeamsToGithubJob.builder()
+            .courseId(courseId)
+            .courseRepository(courseRepository)
+            .teamRepository(teamRepository)
+            .teamMemberRepository(teamMemberRepository)
+            .githubTeamService(githubTeamService)
+            .build();
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> job.accept(ctx));
+
+    verify(githubTeamService).getTeamIndex(course);
+    verifyNoInteractions(teamRepository, teamMemberRepository);
+    assertEquals("Failed to list teams for org: test-org - GitHub API error", e.getMessage());
+  }
+
+  @Test
+  public void testAccept_ProcessesMembersConcurrentlyAndLogsInTeamOrder() throws Exception {
+    Long courseId = 1L;
+    Course course =
+        Course.builder()
+            .id(courseId)
+            .courseName("Test Course")
+            .orgName("test-org")
+            .installationId("123")
+            .build();
+
+    TeamMember member1 =
+        TeamMember.builder()
+            .rosterStudent(RosterStudent.builder().githubLogin("student1").build())
+            .build();
+    TeamMember member2 =
+        TeamMember.builder()
+            .rosterStudent(RosterStudent.builder().githubLogin("student2").build())
+            .build();
+    TeamMember member3 =
+        TeamMember.builder()
+            .rosterStudent(RosterStudent.builder().githubLogin("student3").build())
+            .build();
+    Team team1 =
+        Team.builder()
+            .name("team1")
+            .githubTeamId(123)
+            .githubTeamSlug("team1")
+            .teamMembers(List.of(member1, member2))
+            .build();
+    Team team2 =
+        Team.builder()
+            .name("team2")
+            .githubTeamId(456)
+            .githubTeamSlug("team2")
+            .teamMembers(List.of(member3))
+            .build();
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+    when(teamRepository.findByCourseId(courseId)).thenReturn(List.of(team1, team2));
+    when(githubTeamService.getOrgId("test-org", course)).thenReturn(1);
+    when(githubTeamService.getTeamIndex(course)).thenReturn(teamIndex);
+    when(githubTeamService.createOrGetTeamInfo(team1, course, teamIndex))
+        .thenReturn(new GithubTeamInfo(123, "team1", "team1"));
+    when(githubTeamService.createOrGetTeamInfo(team2, course, teamIndex))
+        .thenReturn(new GithubTeamInfo(456, "team2", "team2"));
+
+    // Every membership check waits until all three are in flight, so this only completes if the
+    // members are processed concurrently; later students are answered first.
+    CyclicBarrier allInFlight = new CyclicBarrier(3);
+    when(githubTeamService.getTeamMembershipStatus(anyString(), anyInt(), eq(course), eq(1)))
+        .thenAnswer(
+            invocation -> {
+              allInFlight.await(5, TimeUnit.SECONDS);
+              String login = invocation.getArgument(0);
+              Thread.sleep(login.equals("student1") ? 100 : 0);
+              return TeamStatus.TEAM_MEMBER;
+            });
+
+    PushTeamsToGithubJob job =
+        PushTeamsToGithubJob.builder()
+            .courseId(courseId)
+            .courseRepository(courseRepository)
+            .teamRepository(teamRepository)
+            .teamMemberRepository(teamMemberRepository)
+            .githubTeamService(githubTeamService)
+            .parallelism(3)
+            .build();
+
+    job.accept(ctx);
+
+    String log = jobStarted.getLog();
+    assertTrue(
+        log.contains(
+            """
+            Processing members for team: team1
+            Student student1 already has status: TEAM_MEMBER
+            Student student2 already has status: TEAM_MEMBER
+            Processing members for team: team2
+            Student student3 already has status: TEAM_MEMBER
+            Completed push teams to GitHub job for course ID: 1"""));
+    verify(teamMemberRepository).saveAll(List.of(member1, member2));
+    verify(teamMemberRepository).saveAll(List.of(member3));
+    verify(teamMemberRepository, never()).save(any());
+  }
+
+  @Test
+  public void testAccept_WithShadow_ChecksMembersLocallyAndRecordsChanges() throws Exception {
+    Long courseId = 1L;
+    Course course =
+        Course.builder()
+            .id(courseId)
+            .courseName("Test Course")
+            .orgName("test-org")
+            .installationId("123")
+            .build();
+
+    RosterStudent student1 =
+        RosterStudent.builder().email("student1@test.com").githubLogin("student1").build();
+    RosterStudent student2 =
+        RosterStudent.builder().email("student2@test.com").githubLogin("student2").build();
+    TeamMember teamMember1 = TeamMember.builder().rosterStudent(student1).build();
+    TeamMember teamMember2 = TeamMember.builder().rosterStudent(student2).build();
+    Team team1 = Team.builder().name("team1").teamMembers(List.of(teamMember1)).build();
+    Team team2 =
+        Team.builder()
+            .name("team2")
+            .githubTeamId(456)
+            .githubTeamSlug("team2")
+            .teamMembers(List.of(teamMember2))
+            .build();
+    GithubTeamInfo team1Info = new GithubTeamInfo(123, "team1", "team1");
+    GithubTeamInfo team2Info = new GithubTeamInfo(456, "team2", "team2");
+    GithubTeamIndex shadowIndex = new GithubTeamIndex(List.of(team2Info));
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+    when(teamRepository.findByCourseId(courseId)).thenReturn(List.of(team1, team2));
+    when(githubTeamService.getOrgId("test-org", course)).thenReturn(1);
+    when(githubShadowService.getTeamIndex(course)).thenReturn(shadowIndex);
+    // team1 is created on GitHub, so it is added to the index; team2 is already there
+    when(githubTeamService.createOrGetTeamInfo(team1, course, shadowIndex))
+        .thenAnswer(
+            invocation -> {
+              shadowIndex.add(team1Info);
+              return team1Info;
+            });
+    when(githubTeamService.createOrGetTeamInfo(team2, course, shadowIndex)).thenReturn(team2Info);
+    when(githubShadowService.getTeamMemberships(course))
+        .thenReturn(Map.of(456, Map.of("student2", TeamStatus.TEAM_MAINTAINER)));
+    when(githubTeamService.addMemberToGithubTeam("student1", 123, "member", course, 1))
+        .thenReturn(TeamStatus.TEAM_MEMBER);
+
+    PushTeamsToGithubJob job =
+        PushTeamsToGithubJob.builder()
+            .courseId(courseId)
+            .courseRepository(courseRepository)
+            .teamRepository(teamRepository)
+            .teamMemberRepository(teamMemberRepository)
+            .githubTeamService(githubTeamService)
+            .githubShadowService(githubShadowService)
+            .build();
+
+    job.accept(ctx);
+
+    verify(githubTeamService, never()).getTeamIndex(any());
+    verify(githubTeamService, never()).getTeamMembershipStatus(any(), any(), any(), any());
+    verify(githubShadowService).recordTeam(course, team1Info);
+    verify(githubShadowService, never()).recordTeam(course, team2Info);
+    verify(githubShadowService)
+        .recordTeamMembership(course, 123, "student1", TeamStatus.TEAM_MEMBER);
+    verify(githubShadowService, never()).recordTeamMembership(any(), eq(456), any(), any());
+    assertEquals(TeamStatus.TEAM_MEMBER, teamMember1.getTeamStatus());
+    assertEquals(TeamStatus.TEAM_MAINTAINER, teamMember2.getTeamStatus());
+  }
 }
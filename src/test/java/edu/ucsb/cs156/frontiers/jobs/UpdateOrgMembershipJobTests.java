@@ -86,7 +86,9 @@ public class UpdateOrgMembershipJobTests {
             .orgStatus(OrgStatus.MEMBER)
             .build();
 
-    doReturn(orgMembers).when(organizationMemberService).getOrganizationMembers(eq(course));
+    doReturn(orgMembers.stream())
+        .when(organizationMemberService)
+        .streamOrganizationMembers(eq(course));
     doReturn(Optional.of(student1))
         .when(rosterStudentRepository)
         .findByCourseAndGithubId(eq(course), eq(123456));
@@ -118,7 +120,9 @@ public class UpdateOrgMembershipJobTests {
     List<OrgMember> orgMembers = List.of(orgMember1);
     Course course = Course.builder().orgName("ucsb-cs156").installationId("1234").build();
 
-    doReturn(orgMembers).when(organizationMemberService).getOrganizationMembers(eq(course));
+    doReturn(orgMembers.stream())
+        .when(organizationMemberService)
+        .streamOrganizationMembers(eq(course));
     doReturn(Optional.empty())
         .when(rosterStudentRepository)
         .findByCourseAndGithubId(eq(course), eq(123456));
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.frontiers.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class OrgMembershipTests {
+
+  private static List<OrgMember> people(int count) {
+    return Collections.nCopies(count, OrgMember.builder().githubId(1).githubLogin("user").build());
+  }
+
+  @Test
+  public void each_empty_list_still_takes_one_rest_call() {
+    assertEquals(3, new OrgMembership(List.of(), List.of(), List.of(), 1, 1).restCalls());
+  }
+
+  @Test
+  public void rest_calls_are_counted_in_pages_of_one_hundred() {
+    assertEquals(6, new OrgMembership(people(100), people(101), people(250), 3, 3).restCalls());
+  }
+}
@@ -0,0 +1,291 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withResourceNotFound;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+public class GithubEtagCacheTests {
+
+  private static final String URL = "https://api.github.com/orgs/ucsb-cs156/members?per_page=100";
+
+  private SimpleMeterRegistry meterRegistry;
+  private GithubRateLimitGovernor rateLimitGovernor;
+  private RestTemplate restTemplate;
+  private MockRestServiceServer mockServer;
+
+  @BeforeEach
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    rateLimitGovernor = new GithubRateLimitGovernor(meterRegistry);
+    rateLimitGovernor.registerInstallationToken("1234", "token-1234");
+    rateLimitGovernor.registerInstallationToken("5678", "token-5678");
+    GithubEtagCache etagCache =
+        new GithubEtagCache(
+            rateLimitGovernor, meterRegistry, DataSize.ofMegabytes(1), Duration.ofHours(1));
+
+    restTemplate = new RestTemplate();
+    restTemplate.setInterceptors(List.of(etagCache));
+    mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+  }
+
+  private HttpEntity<Void> as(String token) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Authorization", "Bearer " + token);
+    headers.add("Accept", "application/vnd.github+json");
+    return new HttpEntity<>(headers);
+  }
+
+  private ResponseEntity<String> get(String token) {
+    return restTemplate.exchange(URL, HttpMethod.GET, as(token), String.class);
+  }
+
+  private HttpHeaders etag(String etag) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(etag);
+    headers.add("link", "<https://api.github.com/next>; rel=\"next\"");
+    return headers;
+  }
+
+  private double responses(String result) {
+    return meterRegistry.get("github.etag.responses").tag("result", result).counter().count();
+  }
+
+  @Test
+  public void not_modified_response_replays_cached_body() {
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(headerDoesNotExist("If-None-Match"))
+        .andRespond(
+            withSuccess("[{\"login\":\"cgaucho\"}]", MediaType.APPLICATION_JSON)
+                .headers(etag("\"v1\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(header("If-None-Match", "\"v1\""))
+        .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+    ResponseEntity<String> first = get("token-1234");
+    ResponseEntity<String> second = get("token-1234");
+
+    mockServer.verify();
+    assertEquals("[{\"login\":\"cgaucho\"}]", first.getBody());
+    assertEquals(HttpStatus.OK, second.getStatusCode());
+    assertEquals("[{\"login\":\"cgaucho\"}]", second.getBody());
+    assertEquals(
+        "<https://api.github.com/next>; rel=\"next\"", second.getHeaders().getFirst("link"));
+    assertEquals(1.0, responses("uncached"));
+    assertEquals(1.0, responses("not_modified"));
+    assertEquals(0.0, responses("modified"));
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("cache.gets")
+            .tags("cache", "github.etag", "result", "hit")
+            .functionCounter()
+            .count());
+  }
+
+  @Test
+  public void not_modified_response_updates_replayed_headers() {
+    HttpHeaders original = etag("\"v1\"");
+    original.add("X-RateLimit-Remaining", "4999");
+    original.add("Date", "Thu, 23 May 2024 08:00:00 GMT");
+    original.setContentLength(8);
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess("[\"one\"]", MediaType.APPLICATION_JSON).headers(original));
+    HttpHeaders revalidated = new HttpHeaders();
+    revalidated.setETag("\"v1\"");
+    revalidated.add("x-ratelimit-remaining", "4998");
+    revalidated.add("Date", "Thu, 23 May 2024 08:05:00 GMT");
+    revalidated.setContentLength(0);
+    revalidated.add("Transfer-Encoding", "identity");
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withStatus(HttpStatus.NOT_MODIFIED).headers(revalidated));
+
+    get("token-1234");
+    ResponseEntity<String> second = get("token-1234");
+
+    mockServer.verify();
+    assertEquals("[\"one\"]", second.getBody());
+    HttpHeaders headers = second.getHeaders();
+    assertEquals("4998", headers.getFirst("X-RateLimit-Remaining"));
+    assertEquals(List.of("Thu, 23 May 2024 08:05:00 GMT"), headers.get("Date"));
+    assertEquals(8, headers.getContentLength());
+    assertNull(headers.getFirst("Transfer-Encoding"));
+    assertEquals(MediaType.APPLICATION_JSON, headers.getContentType());
+    assertEquals("<https://api.github.com/next>; rel=\"next\"", headers.getFirst("link"));
+  }
+
+  @Test
+  public void modified_response_replaces_cached_body() {
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess("old", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(header("If-None-Match", "\"v1\""))
+        .andRespond(withSuccess("new", MediaType.APPLICATION_JSON).headers(etag("\"v2\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(header("If-None-Match", "\"v2\""))
+        .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+    assertEquals("old", get("token-1234").getBody());
+    assertEquals("new", get("token-1234").getBody());
+    assertEquals("new", get("token-1234").getBody());
+
+    mockServer.verify();
+    assertEquals(1.0, responses("modified"));
+    assertEquals(1.0, responses("not_modified"));
+  }
+
+  @Test
+  public void response_without_etag_is_not_cached() {
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess("body", MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(headerDoesNotExist("If-None-Match"))
+        .andRespond(withSuccess("body", MediaType.APPLICATION_JSON));
+
+    get("token-1234");
+    get("token-1234");
+
+    mockServer.verify();
+    assertEquals(2.0, responses("uncached"));
+  }
+
+  @Test
+  public void error_response_evicts_cached_body() {
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess("body", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(header("If-None-Match", "\"v1\""))
+        .andRespond(withResourceNotFound().headers(etag("\"gone\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(headerDoesNotExist("If-None-Match"))
+        .andRespond(withSuccess("body", MediaType.APPLICATION_JSON));
+
+    get("token-1234");
+    assertThrows(HttpClientErrorException.NotFound.class, () -> get("token-1234"));
+    get("token-1234");
+
+    mockServer.verify();
+  }
+
+  @Test
+  public void modified_response_without_etag_evicts_cached_body() {
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess("old", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(header("If-None-Match", "\"v1\""))
+        .andRespond(withSuccess("new", MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(headerDoesNotExist("If-None-Match"))
+        .andRespond(withSuccess("new", MediaType.APPLICATION_JSON));
+
+    get("token-1234");
+    assertEquals("new", get("token-1234").getBody());
+    get("token-1234");
+
+    mockServer.verify();
+  }
+
+  @Test
+  public void cache_is_keyed_by_installation() {
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess("org one", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(headerDoesNotExist("If-None-Match"))
+        .andRespond(withSuccess("org two", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+
+    assertEquals("org one", get("token-1234").getBody());
+    assertEquals("org two", get("token-5678").getBody());
+
+    mockServer.verify();
+  }
+
+  @Test
+  public void writes_are_not_cached() {
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(method(HttpMethod.POST))
+        .andRespond(withSuccess("created", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(method(HttpMethod.GET))
+        .andExpect(headerDoesNotExist("If-None-Match"))
+        .andRespond(withSuccess("body", MediaType.APPLICATION_JSON));
+
+    restTemplate.exchange(URL, HttpMethod.POST, as("token-1234"), String.class);
+    get("token-1234");
+
+    mockServer.verify();
+  }
+
+  @Test
+  public void caller_supplied_if_none_match_is_left_alone() {
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(header("If-None-Match", "\"mine\""))
+        .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Authorization", "Bearer token-1234");
+    headers.setIfNoneMatch("\"mine\"");
+    ResponseEntity<String> response =
+        restTemplate.exchange(URL, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+    mockServer.verify();
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertNull(response.getBody());
+  }
+
+  @Test
+  public void replayed_response_reports_original_status_text() {
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess("body", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+
+    String statusText =
+        restTemplate.execute(
+            URL,
+            HttpMethod.GET,
+            request -> request.getHeaders().add("Authorization", "Bearer token-1234"),
+            response -> response.getStatusText());
+
+    mockServer.verify();
+    assertEquals("OK", statusText);
+  }
+}
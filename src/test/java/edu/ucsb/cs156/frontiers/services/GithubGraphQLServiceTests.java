@@ -2,7 +2,12 @@ package edu.ucsb.cs156.frontiers.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -11,36 +16,96 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.frontiers.entities.BranchCommit;
+import edu.ucsb.cs156.frontiers.entities.BranchDownloadState;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.DownloadRequest;
-import edu.ucsb.cs156.frontiers.entities.DownloadedCommit;
+import edu.ucsb.cs156.frontiers.entities.DownloadRequestCommit;
+import edu.ucsb.cs156.frontiers.entities.RepositoryCommit;
+import edu.ucsb.cs156.frontiers.enums.DownloadRequestType;
+import edu.ucsb.cs156.frontiers.errors.GithubQueryTimeoutException;
 import edu.ucsb.cs156.frontiers.fixtures.GithubGraphQLFixtures;
-import edu.ucsb.cs156.frontiers.repositories.DownloadedCommitRepository;
+import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
+import edu.ucsb.cs156.frontiers.repositories.BranchCommitRepository;
+import edu.ucsb.cs156.frontiers.repositories.BranchDownloadStateRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestCommitRepository;
+import edu.ucsb.cs156.frontiers.repositories.DownloadRequestRepository;
+import edu.ucsb.cs156.frontiers.repositories.RepositoryCommitRepository;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService.CommitHistoryPage;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService.GitActor;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService.GitUser;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService.GithubCommit;
+import edu.ucsb.cs156.frontiers.services.GithubGraphQLService.PageInfo;
 import edu.ucsb.cs156.frontiers.testconfig.TestConfig;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.graphql.client.FieldAccessException;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RestClientTest(GithubGraphQLService.class)
-@Import({TestConfig.class})
+@Import({
+  TestConfig.class,
+  GithubRateLimitGovernor.class,
+  GithubGraphQLServiceTests.TransactionConfig.class
+})
 public class GithubGraphQLServiceTests {
 
+  @TestConfiguration
+  static class TransactionConfig {
+    @Bean
+    TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+      return new TransactionTemplate(transactionManager);
+    }
+  }
+
   @Autowired private MockRestServiceServer mockServer;
 
   @Autowired private GithubGraphQLService githubGraphQLService;
 
   @MockitoBean private JwtService jwtService;
 
-  @MockitoBean private DownloadedCommitRepository downloadedCommitRepository;
+  @MockitoBean private RepositoryCommitRepository repositoryCommitRepository;
+
+  @MockitoBean private DownloadRequestCommitRepository downloadRequestCommitRepository;
+
+  @MockitoBean private DownloadRequestRepository downloadRequestRepository;
+
+  @MockitoBean private BranchCommitRepository branchCommitRepository;
+
+  @MockitoBean private BranchDownloadStateRepository branchDownloadStateRepository;
+
+  @MockitoBean private PlatformTransactionManager transactionManager;
 
   Course course =
       Course.builder()
@@ -73,6 +138,31 @@ public class GithubGraphQLServiceTests {
     assertEquals("main", result);
   }
 
+  @Test
+  public void client_is_reused_for_a_token_and_replaced_when_the_token_changes() throws Exception {
+    when(jwtService.getInstallationToken(eq(course)))
+        .thenReturn("first-token", "first-token", "second-token");
+
+    String graphqlResponse =
+        """
+            {"data": {"repository": {"defaultBranchRef": {"name": "main"}}}}
+            """;
+
+    for (String token : List.of("first-token", "first-token", "second-token")) {
+      mockServer
+          .expect(requestTo("https://api.github.com/graphql"))
+          .andExpect(header("Authorization", "Bearer " + token))
+          .andRespond(withSuccess(graphqlResponse, MediaType.APPLICATION_JSON));
+    }
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(
+          "main", githubGraphQLService.getDefaultBranchName(course, "test-owner", "test-repo"));
+    }
+
+    mockServer.verify();
+  }
+
   @Test
   public void testGetCommits() throws Exception {
     when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
@@ -108,26 +198,24 @@ public class GithubGraphQLServiceTests {
                          "hasNextPage": true,
                          "endCursor": "page2"
                        },
-                       "edges": [
+                       "nodes": [
                          {
-                           "node": {
-                             "oid": "9df9217b7f66102d0dcaecf48ef48af16facb058",
-                             "url": "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058",
-                             "messageHeadline": "dj - added actual constraint validating dependency, modified unit tes…",
-                             "committedDate": "2026-01-27T00:55:00Z",
-                             "author": {
-                               "name": "Daniel Jensen",
-                               "email": "djensen2@outlook.com",
-                               "user": {
-                                 "login": "Division7"
-                               }
-                             },
-                             "committer": {
-                               "name": "Daniel Jensen",
-                               "email": "djensen2@outlook.com",
-                               "user": {
-                                 "login": "Division7"
-                               }
+                           "oid": "9df9217b7f66102d0dcaecf48ef48af16facb058",
+                           "url": "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058",
+                           "messageHeadline": "dj - added actual constraint validating dependency, modified unit tes…",
+                           "committedDate": "2026-01-27T00:55:00Z",
+                           "author": {
+                             "name": "Daniel Jensen",
+                             "email": "djensen2@outlook.com",
+                             "user": {
+                               "login": "Division7"
+                             }
+                           },
+                           "committer": {
+                             "name": "Daniel Jensen",
+                             "email": "djensen2@outlook.com",
+                             "user": {
+                               "login": "Division7"
                              }
                            }
                          }
@@ -153,26 +241,24 @@ public class GithubGraphQLServiceTests {
                          "hasNextPage": false,
                          "endCursor": "thereIsStillAnEndCursor"
                        },
-                       "edges": [
+                       "nodes": [
                          {
-                           "node": {
-                             "oid": "f0497a983b1533f4b7f9f2779030d3fa62fd6031",
-                             "url": "https://github.com/ucsb-cs156/proj-frontiers/commit/f0497a983b1533f4b7f9f2779030d3fa62fd6031",
-                             "messageHeadline": "dj - removed files outside of our normal unit testing area",
-                             "committedDate": "2026-01-26T00:58:12Z",
-                             "author": {
-                               "name": "Daniel Jensen",
-                               "email": "djensen2@outlook.com",
-                               "user": {
-                                 "login": "Division7"
-                               }
-                             },
-                             "committer": {
-                               "name": "Daniel Jensen",
-                               "email": "djensen2@outlook.com",
-                               "user": {
-                                 "login": "Division7"
-                               }
+                           "oid": "f0497a983b1533f4b7f9f2779030d3fa62fd6031",
+                           "url": "https://github.com/ucsb-cs156/proj-frontiers/commit/f0497a983b1533f4b7f9f2779030d3fa62fd6031",
+                           "messageHeadline": "dj - removed files outside of our normal unit testing area",
+                           "committedDate": "2026-01-26T00:58:12Z",
+                           "author": {
+                             "name": "Daniel Jensen",
+                             "email": "djensen2@outlook.com",
+                             "user": {
+                               "login": "Division7"
+                             }
+                           },
+                           "committer": {
+                             "name": "Daniel Jensen",
+                             "email": "djensen2@outlook.com",
+                             "user": {
+                               "login": "Division7"
                              }
                            }
                          }
@@ -185,6 +271,47 @@ public class GithubGraphQLServiceTests {
            }
           """;
 
+  private static final String PAGE_ONE_OID = "9df9217b7f66102d0dcaecf48ef48af16facb058";
+  private static final String PAGE_TWO_OID = "f0497a983b1533f4b7f9f2779030d3fa62fd6031";
+
+  /** A commit of the fixture pages, as it is stored. */
+  private RepositoryCommit storedCommit(String oid, String messageHeadline, String committedDate) {
+    return RepositoryCommit.builder()
+        .org("ucsb-cs156")
+        .repo("proj-frontiers")
+        .oid(oid)
+        .url("https://github.com/ucsb-cs156/proj-frontiers/commit/" + oid)
+        .messageHeadline(messageHeadline)
+        .committedDate(Instant.parse(committedDate))
+        .authorName("Daniel Jensen")
+        .authorEmail("djensen2@outlook.com")
+        .authorLogin("Division7")
+        .committerName("Daniel Jensen")
+        .committerEmail("djensen2@outlook.com")
+        .committerLogin("Division7")
+        .build();
+  }
+
+  private RepositoryCommit pageOneCommit() {
+    return storedCommit(
+        PAGE_ONE_OID,
+        "dj - added actual constraint validating dependency, modified unit tes…",
+        "2026-01-27T00:55:00Z");
+  }
+
+  private RepositoryCommit pageTwoCommit() {
+    return storedCommit(
+        PAGE_TWO_OID,
+        "dj - removed files outside of our normal unit testing area",
+        "2026-01-26T00:58:12Z");
+  }
+
+  private List<DownloadRequestCommit> links(DownloadRequest request, RepositoryCommit... commits) {
+    return Stream.of(commits)
+        .map(commit -> DownloadRequestCommit.builder().request(request).commit(commit).build())
+        .toList();
+  }
+
   @Test
   public void handles_two_pages() throws Exception {
     mockServer
@@ -226,23 +353,11 @@ public class GithubGraphQLServiceTests {
 
     when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
 
-    DownloadedCommit firstCommit =
-        DownloadedCommit.builder()
-            .request(request)
-            .commitUrl(
-                "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058")
-            .build();
-
-    DownloadedCommit secondCommit =
-        DownloadedCommit.builder()
-            .request(request)
-            .commitUrl(
-                "https://github.com/ucsb-cs156/proj-frontiers/commit/f0497a983b1533f4b7f9f2779030d3fa62fd6031")
-            .build();
-
     githubGraphQLService.downloadCommitHistory(request);
 
-    verify(downloadedCommitRepository, times(1)).saveAll(List.of(firstCommit, secondCommit));
+    verify(repositoryCommitRepository).saveAll(List.of(pageOneCommit(), pageTwoCommit()));
+    verify(downloadRequestCommitRepository, times(1))
+        .saveAll(links(request, pageOneCommit(), pageTwoCommit()));
     mockServer.verify();
   }
 
@@ -283,23 +398,1335 @@ public class GithubGraphQLServiceTests {
 
     when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
 
-    DownloadedCommit firstCommit =
-        DownloadedCommit.builder()
-            .request(request)
-            .commitUrl(
-                "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058")
+    RepositoryCommit alreadyStored = pageTwoCommit();
+    alreadyStored.setId(5L);
+    when(repositoryCommitRepository.findByOrgAndRepoAndOidIn(
+            "ucsb-cs156", "proj-frontiers", List.of(PAGE_ONE_OID, PAGE_TWO_OID)))
+        .thenReturn(List.of(alreadyStored));
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    // Only the commit that is not stored yet is added, and the request links to both
+    verify(repositoryCommitRepository).saveAll(List.of(pageOneCommit()));
+    verify(downloadRequestCommitRepository, times(1))
+        .saveAll(links(request, pageOneCommit(), alreadyStored));
+    mockServer.verify();
+  }
+
+  @Test
+  public void downloadCommitHistory_gives_up_on_commits_that_keep_conflicting() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .course(course)
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+    when(repositoryCommitRepository.saveAll(any()))
+        .thenThrow(new DataIntegrityViolationException("uk_repository_commit"));
+
+    assertThrows(
+        DataIntegrityViolationException.class,
+        () -> githubGraphQLService.downloadCommitHistory(request));
+
+    verify(repositoryCommitRepository, times(3)).saveAll(List.of(pageTwoCommit()));
+    verify(downloadRequestCommitRepository, never()).saveAll(any());
+    verify(downloadRequestRepository, never()).setLastCursor(any(), any());
+    mockServer.verify();
+  }
+
+  @Test
+  public void getCommitHistoryPage_maps_commits_and_page_info() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(header("Authorization", "Bearer mocked-token"))
+        .andExpect(jsonPath("$.variables.first").value(50))
+        .andExpect(jsonPath("$.variables.after").value("page1"))
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    CommitHistoryPage page =
+        githubGraphQLService.getCommitHistoryPage(
+            course, "ucsb-cs156", "proj-frontiers", "main", null, null, 50, "page1");
+
+    GitActor daniel =
+        new GitActor("Daniel Jensen", "djensen2@outlook.com", new GitUser("Division7"));
+    assertEquals(
+        new CommitHistoryPage(
+            new PageInfo(true, "page2"),
+            List.of(
+                new GithubCommit(
+                    "9df9217b7f66102d0dcaecf48ef48af16facb058",
+                    "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058",
+                    "dj - added actual constraint validating dependency, modified unit tes…",
+                    Instant.parse("2026-01-27T00:55:00Z"),
+                    daniel,
+                    daniel))),
+        page);
+    mockServer.verify();
+  }
+
+  @Test
+  public void getCommitHistoryPage_is_empty_for_missing_branch() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                """
+                {"data": {"repository": {"ref": null}}}
+                """,
+                MediaType.APPLICATION_JSON));
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    CommitHistoryPage page =
+        githubGraphQLService.getCommitHistoryPage(
+            course, "ucsb-cs156", "proj-frontiers", "no-such-branch", null, null, 100, null);
+
+    assertEquals(new CommitHistoryPage(new PageInfo(false, null), List.of()), page);
+    mockServer.verify();
+  }
+
+  @Test
+  public void downloadCommitHistory_saves_each_chunk_with_its_cursor() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .course(course)
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1);
+    try {
+      githubGraphQLService.downloadCommitHistory(request);
+    } finally {
+      ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1000);
+    }
+
+    InOrder inOrder = inOrder(downloadRequestCommitRepository, downloadRequestRepository);
+    inOrder.verify(downloadRequestCommitRepository).saveAll(links(request, pageOneCommit()));
+    inOrder.verify(downloadRequestRepository).setLastCursor(7L, "page2");
+    inOrder.verify(downloadRequestCommitRepository).saveAll(links(request, pageTwoCommit()));
+    inOrder.verify(downloadRequestRepository).setLastCursor(7L, "thereIsStillAnEndCursor");
+    mockServer.verify();
+  }
+
+  @Test
+  public void downloadRepositoryHistory_links_the_whole_repository_at_once() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.repo").value("proj-frontiers"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.repo").value("proj-frontiers"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .downloadType(DownloadRequestType.ORG_COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-")
+            .branch("main")
+            .course(course)
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+    AtomicLong ids = new AtomicLong();
+    when(repositoryCommitRepository.saveAll(any()))
+        .thenAnswer(
+            invocation -> {
+              List<RepositoryCommit> added = invocation.getArgument(0);
+              added.forEach(commit -> commit.setId(ids.incrementAndGet()));
+              return added;
+            });
+    when(repositoryCommitRepository.getReferenceById(any()))
+        .thenAnswer(invocation -> RepositoryCommit.builder().id(invocation.getArgument(0)).build());
+
+    ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1);
+    int downloaded;
+    try {
+      downloaded = githubGraphQLService.downloadRepositoryHistory(request, "proj-frontiers");
+    } finally {
+      ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1000);
+    }
+
+    assertEquals(2, downloaded);
+    RepositoryCommit pageOneCommit = pageOneCommit();
+    pageOneCommit.setId(1L);
+    RepositoryCommit pageTwoCommit = pageTwoCommit();
+    pageTwoCommit.setId(2L);
+    // Each page is stored as it arrives, and only the ids of its commits are kept until the end
+    InOrder inOrder = inOrder(repositoryCommitRepository, downloadRequestCommitRepository);
+    inOrder.verify(repositoryCommitRepository).saveAll(List.of(pageOneCommit));
+    inOrder.verify(repositoryCommitRepository).saveAll(List.of(pageTwoCommit));
+    inOrder
+        .verify(downloadRequestCommitRepository, times(1))
+        .saveAll(
+            links(
+                request,
+                RepositoryCommit.builder().id(1L).build(),
+                RepositoryCommit.builder().id(2L).build()));
+    verify(downloadRequestRepository, never()).setLastCursor(any(), any());
+    mockServer.verify();
+  }
+
+  @Test
+  public void downloadRepositoryHistory_links_nothing_when_a_later_page_fails() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer.expect(requestTo("https://api.github.com/graphql")).andRespond(withServerError());
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .downloadType(DownloadRequestType.ORG_COMMITS)
+            .org("ucsb-cs156")
+            .repo("proj-")
+            .branch("main")
+            .course(course)
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1);
+    try {
+      assertThrows(
+          RuntimeException.class,
+          () -> githubGraphQLService.downloadRepositoryHistory(request, "proj-frontiers"));
+    } finally {
+      ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1000);
+    }
+
+    verify(repositoryCommitRepository).saveAll(List.of(pageOneCommit()));
+    verify(downloadRequestCommitRepository, never()).saveAll(any());
+    mockServer.verify();
+  }
+
+  @Test
+  public void getDownloadedRepositories_returns_the_repositories_linked_to_the_request() {
+    DownloadRequest request = DownloadRequest.builder().id(7L).build();
+    when(downloadRequestCommitRepository.findRepositoriesByRequest(request))
+        .thenReturn(Set.of("proj-frontiers"));
+
+    assertEquals(Set.of("proj-frontiers"), githubGraphQLService.getDownloadedRepositories(request));
+  }
+
+  @Test
+  public void downloadCommitHistory_keeps_saved_chunks_when_a_later_page_fails() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer.expect(requestTo("https://api.github.com/graphql")).andRespond(withServerError());
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .course(course)
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1);
+    try {
+      assertThrows(
+          RuntimeException.class, () -> githubGraphQLService.downloadCommitHistory(request));
+    } finally {
+      ReflectionTestUtils.setField(githubGraphQLService, "commitChunkSize", 1000);
+    }
+
+    verify(downloadRequestCommitRepository, times(1)).saveAll(any());
+    verify(downloadRequestRepository).setLastCursor(7L, "page2");
+    mockServer.verify();
+  }
+
+  @Test
+  public void downloadCommitHistory_resumes_from_saved_cursor() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .course(course)
+            .lastCursor("page2")
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(downloadRequestCommitRepository, times(1)).saveAll(links(request, pageTwoCommit()));
+    verify(downloadRequestRepository).setLastCursor(7L, "thereIsStillAnEndCursor");
+    mockServer.verify();
+  }
+
+  @Test
+  public void downloadCommitHistory_of_empty_history_records_no_cursor() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                """
+                {"data": {"repository": {"ref": {"target": {"history": {
+                  "pageInfo": {"hasNextPage": false, "endCursor": null},
+                  "nodes": []
+                }}}}}}
+                """,
+                MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .course(course)
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(repositoryCommitRepository, never()).findByOrgAndRepoAndOidIn(any(), any(), any());
+    verify(downloadRequestCommitRepository, never()).saveAll(any());
+    verify(downloadRequestRepository, never()).setLastCursor(any(), any());
+    mockServer.verify();
+  }
+
+  private BranchCommit onMain(RepositoryCommit commit) {
+    return BranchCommit.builder().branch("main").commit(commit).build();
+  }
+
+  private DownloadRequest incrementalRequest(Instant startDate, Instant endDate) {
+    return DownloadRequest.builder()
+        .id(7L)
+        .org("ucsb-cs156")
+        .repo("proj-frontiers")
+        .branch("main")
+        .course(course)
+        .startDate(startDate)
+        .endDate(endDate)
+        .incremental(true)
+        .build();
+  }
+
+  @Test
+  public void downloadCommitHistory_stores_commits_without_author_or_linked_account()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                """
+                {"data": {"repository": {"ref": {"target": {"history": {
+                  "pageInfo": {"hasNextPage": false, "endCursor": "end"},
+                  "nodes": [{
+                    "oid": "9df9217b7f66102d0dcaecf48ef48af16facb058",
+                    "url": "https://github.com/ucsb-cs156/proj-frontiers/commit/9df9217b7f66102d0dcaecf48ef48af16facb058",
+                    "messageHeadline": "Initial commit",
+                    "committedDate": "2026-01-27T00:55:00Z",
+                    "author": null,
+                    "committer": {"name": "Daniel Jensen", "email": "dj@localhost", "user": null}
+                  }]
+                }}}}}}
+                """,
+                MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        DownloadRequest.builder()
+            .id(7L)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .course(course)
             .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(repositoryCommitRepository)
+        .saveAll(
+            List.of(
+                RepositoryCommit.builder()
+                    .org("ucsb-cs156")
+                    .repo("proj-frontiers")
+                    .oid(PAGE_ONE_OID)
+                    .url("https://github.com/ucsb-cs156/proj-frontiers/commit/" + PAGE_ONE_OID)
+                    .messageHeadline("Initial commit")
+                    .committedDate(Instant.parse("2026-01-27T00:55:00Z"))
+                    .committerName("Daniel Jensen")
+                    .committerEmail("dj@localhost")
+                    .build()));
+    mockServer.verify();
+  }
+
+  @Test
+  public void incremental_download_fetches_only_commits_since_the_newest_kept() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-26T00:58:12Z"))
+        .andExpect(jsonPath("$.variables.until").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
 
-    DownloadedCommit secondCommit =
-        DownloadedCommit.builder()
-            .request(request)
-            .commitUrl(
-                "https://github.com/ucsb-cs156/proj-frontiers/commit/f0497a983b1533f4b7f9f2779030d3fa62fd6031")
+    Instant endDate = Instant.parse("2026-02-01T00:00:00Z");
+    DownloadRequest request = incrementalRequest(null, endDate);
+    BranchDownloadState state =
+        BranchDownloadState.builder()
+            .id(3L)
+            .org("ucsb-cs156")
+            .repo("proj-frontiers")
+            .branch("main")
+            .newestOid(PAGE_TWO_OID)
+            .newestCommittedDate(Instant.parse("2026-01-26T00:58:12Z"))
             .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+    when(branchDownloadStateRepository.findByOrgAndRepoAndBranch(
+            "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(Optional.of(state));
+    // The commit at the time of the newest kept one is listed again
+    when(branchCommitRepository.findOidsIn(
+            "ucsb-cs156", "proj-frontiers", "main", List.of(PAGE_ONE_OID, PAGE_TWO_OID)))
+        .thenReturn(Set.of(PAGE_TWO_OID));
+    when(branchCommitRepository
+            .findFirstByCommitOrgAndCommitRepoAndBranchOrderByCommitCommittedDateDesc(
+                "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(Optional.of(onMain(pageOneCommit())));
+    when(branchCommitRepository.findCommitsBetween(
+            "ucsb-cs156", "proj-frontiers", "main", Instant.EPOCH, endDate))
+        .thenReturn(List.of(pageOneCommit(), pageTwoCommit()));
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(repositoryCommitRepository).saveAll(List.of(pageOneCommit(), pageTwoCommit()));
+    verify(branchCommitRepository).saveAll(List.of(onMain(pageOneCommit())));
+    verify(branchDownloadStateRepository)
+        .save(
+            BranchDownloadState.builder()
+                .id(3L)
+                .org("ucsb-cs156")
+                .repo("proj-frontiers")
+                .branch("main")
+                .newestOid(PAGE_ONE_OID)
+                .newestCommittedDate(Instant.parse("2026-01-27T00:55:00Z"))
+                .build());
+    InOrder inOrder = inOrder(downloadRequestCommitRepository, downloadRequestRepository);
+    inOrder.verify(downloadRequestRepository).setLastCursor(7L, "thereIsStillAnEndCursor");
+    inOrder.verify(downloadRequestRepository).setLastCursor(7L, null);
+    inOrder.verify(downloadRequestCommitRepository).deleteByRequest(request);
+    inOrder
+        .verify(downloadRequestCommitRepository)
+        .saveAll(links(request, pageOneCommit(), pageTwoCommit()));
+    mockServer.verify();
+  }
+
+  @Test
+  public void incremental_download_without_end_date_always_fetches_newer_commits()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-26T00:58:12Z"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request = incrementalRequest(null, null);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+    when(branchDownloadStateRepository.findByOrgAndRepoAndBranch(
+            "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(
+            Optional.of(
+                BranchDownloadState.builder()
+                    .newestOid(PAGE_TWO_OID)
+                    .newestCommittedDate(Instant.parse("2026-01-26T00:58:12Z"))
+                    .build()));
+    when(branchCommitRepository.findOidsIn(
+            "ucsb-cs156", "proj-frontiers", "main", List.of(PAGE_TWO_OID)))
+        .thenReturn(Set.of(PAGE_TWO_OID));
 
     githubGraphQLService.downloadCommitHistory(request);
 
-    verify(downloadedCommitRepository, times(1)).saveAll(List.of(firstCommit, secondCommit));
+    verify(branchCommitRepository).saveAll(List.of());
+    verify(downloadRequestRepository).setLastCursor(7L, null);
+    mockServer.verify();
+  }
+
+  @Test
+  public void incremental_download_of_a_new_branch_fetches_from_the_start_of_the_range()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-20T00:00:00Z"))
+        .andExpect(jsonPath("$.variables.until").doesNotExist())
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    Instant startDate = Instant.parse("2026-01-20T00:00:00Z");
+    DownloadRequest request = incrementalRequest(startDate, null);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+    when(branchCommitRepository
+            .findFirstByCommitOrgAndCommitRepoAndBranchOrderByCommitCommittedDateDesc(
+                "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(Optional.of(onMain(pageTwoCommit())));
+    when(branchCommitRepository.findCommitsBetween(
+            "ucsb-cs156",
+            "proj-frontiers",
+            "main",
+            startDate,
+            Instant.parse("9999-12-31T23:59:59Z")))
+        .thenReturn(List.of(pageTwoCommit()));
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(branchCommitRepository).saveAll(List.of(onMain(pageTwoCommit())));
+    verify(branchDownloadStateRepository)
+        .save(
+            BranchDownloadState.builder()
+                .org("ucsb-cs156")
+                .repo("proj-frontiers")
+                .branch("main")
+                .coveredSince(startDate)
+                .newestOid(PAGE_TWO_OID)
+                .newestCommittedDate(Instant.parse("2026-01-26T00:58:12Z"))
+                .build());
+    verify(downloadRequestCommitRepository).saveAll(links(request, pageTwoCommit()));
+    mockServer.verify();
+  }
+
+  @Test
+  public void incremental_download_skips_fetching_when_range_ends_before_newest_kept()
+      throws Exception {
+    Instant startDate = Instant.parse("2025-10-01T00:00:00Z");
+    Instant endDate = Instant.parse("2026-01-01T00:00:00Z");
+    DownloadRequest request = incrementalRequest(startDate, endDate);
+    when(branchDownloadStateRepository.findByOrgAndRepoAndBranch(
+            "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(
+            Optional.of(
+                BranchDownloadState.builder()
+                    .coveredSince(Instant.parse("2025-09-01T00:00:00Z"))
+                    .newestOid(PAGE_ONE_OID)
+                    .newestCommittedDate(Instant.parse("2026-01-27T00:55:00Z"))
+                    .build()));
+    when(branchCommitRepository.findCommitsBetween(
+            "ucsb-cs156", "proj-frontiers", "main", startDate, endDate))
+        .thenReturn(List.of(pageTwoCommit()));
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(branchCommitRepository, never()).saveAll(any());
+    verify(branchDownloadStateRepository, never()).save(any());
+    verify(downloadRequestRepository, never()).setLastCursor(any(), any());
+    verify(downloadRequestCommitRepository).saveAll(links(request, pageTwoCommit()));
+    mockServer.verify();
+  }
+
+  @Test
+  public void incremental_download_fetches_again_when_range_starts_before_kept_commits()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2025-06-01T00:00:00Z"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    Instant startDate = Instant.parse("2025-06-01T00:00:00Z");
+    DownloadRequest request = incrementalRequest(startDate, null);
+    BranchDownloadState state =
+        BranchDownloadState.builder()
+            .id(3L)
+            .coveredSince(Instant.parse("2025-09-01T00:00:00Z"))
+            .newestOid(PAGE_TWO_OID)
+            .newestCommittedDate(Instant.parse("2026-01-26T00:58:12Z"))
+            .build();
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+    when(branchDownloadStateRepository.findByOrgAndRepoAndBranch(
+            "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(Optional.of(state));
+    when(branchCommitRepository.findOidsIn(
+            "ucsb-cs156", "proj-frontiers", "main", List.of(PAGE_TWO_OID)))
+        .thenReturn(Set.of(PAGE_TWO_OID));
+    when(branchCommitRepository
+            .findFirstByCommitOrgAndCommitRepoAndBranchOrderByCommitCommittedDateDesc(
+                "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(Optional.of(onMain(pageTwoCommit())));
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(branchCommitRepository).saveAll(List.of());
+    assertEquals(startDate, state.getCoveredSince());
+    verify(branchDownloadStateRepository).save(state);
+    mockServer.verify();
+  }
+
+  @Test
+  public void incremental_download_of_whole_history_fetches_again_when_only_part_is_kept()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").doesNotExist())
+        .andRespond(
+            withSuccess(
+                """
+                {"data": {"repository": {"ref": {"target": {"history": {
+                  "pageInfo": {"hasNextPage": false, "endCursor": null},
+                  "nodes": []
+                }}}}}}
+                """,
+                MediaType.APPLICATION_JSON));
+
+    DownloadRequest request = incrementalRequest(null, null);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+    when(branchDownloadStateRepository.findByOrgAndRepoAndBranch(
+            "ucsb-cs156", "proj-frontiers", "main"))
+        .thenReturn(
+            Optional.of(
+                BranchDownloadState.builder()
+                    .coveredSince(Instant.parse("2025-09-01T00:00:00Z"))
+                    .build()));
+
+    githubGraphQLService.downloadCommitHistory(request);
+
+    verify(branchCommitRepository, never()).findOidsIn(any(), any(), any(), any());
+    verify(branchCommitRepository, never()).saveAll(any());
+    verify(branchDownloadStateRepository, never()).save(any());
+    verify(downloadRequestRepository).setLastCursor(7L, null);
+    verify(downloadRequestCommitRepository).saveAll(List.of());
+    mockServer.verify();
+  }
+
+  @Test
+  public void searchRepositoriesByPrefix_pages_through_results_and_filters_by_prefix()
+      throws Exception {
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    String firstPage =
+        """
+        {"data": {"search": {
+          "repositoryCount": 4,
+          "pageInfo": {"hasNextPage": true, "endCursor": "cursor1"},
+          "nodes": [
+            {"name": "lab01-student1", "nameWithOwner": "test-org/lab01-student1"},
+            {"name": "old-lab01", "nameWithOwner": "test-org/old-lab01"}
+          ]
+        }}}
+        """;
+    String secondPage =
+        """
+        {"data": {"search": {
+          "repositoryCount": 4,
+          "pageInfo": {"hasNextPage": false, "endCursor": "cursor2"},
+          "nodes": [
+            {"name": "lab01-student2", "nameWithOwner": "test-org/lab01-student2"},
+            {"name": "Lab01-Student3", "nameWithOwner": "test-org/Lab01-Student3"}
+          ]
+        }}}
+        """;
+
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(method(HttpMethod.POST))
+        .andExpect(header("Authorization", "Bearer mocked-token"))
+        .andExpect(jsonPath("$.variables.query").value("org:test-org lab01- in:name fork:true"))
+        .andExpect(jsonPath("$.variables.first").value(100))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(firstPage, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("cursor1"))
+        .andRespond(withSuccess(secondPage, MediaType.APPLICATION_JSON));
+
+    Optional<Stream<RepositoryService.GithubRepository>> results =
+        githubGraphQLService.searchRepositoriesByPrefix(course, "lab01-");
+
+    assertEquals(
+        List.of(
+            new RepositoryService.GithubRepository("lab01-student1", "test-org/lab01-student1"),
+            new RepositoryService.GithubRepository("lab01-student2", "test-org/lab01-student2"),
+            new RepositoryService.GithubRepository("Lab01-Student3", "test-org/Lab01-Student3")),
+        results.orElseThrow().toList());
+    mockServer.verify();
+  }
+
+  @Test
+  public void searchRepositoriesByPrefix_stops_fetching_when_caller_stops() throws Exception {
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    String firstPage =
+        """
+        {"data": {"search": {
+          "repositoryCount": 150,
+          "pageInfo": {"hasNextPage": true, "endCursor": "cursor1"},
+          "nodes": [{"name": "lab01-student1", "nameWithOwner": "test-org/lab01-student1"}]
+        }}}
+        """;
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess(firstPage, MediaType.APPLICATION_JSON));
+
+    Optional<Stream<RepositoryService.GithubRepository>> results =
+        githubGraphQLService.searchRepositoriesByPrefix(course, "lab01-");
+
+    assertEquals("lab01-student1", results.orElseThrow().findFirst().orElseThrow().name());
+    mockServer.verify();
+  }
+
+  @Test
+  public void searchRepositoriesByPrefix_is_empty_when_search_would_truncate() throws Exception {
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    String firstPage =
+        """
+        {"data": {"search": {
+          "repositoryCount": 1001,
+          "pageInfo": {"hasNextPage": true, "endCursor": "cursor1"},
+          "nodes": []
+        }}}
+        """;
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess(firstPage, MediaType.APPLICATION_JSON));
+
+    assertTrue(githubGraphQLService.searchRepositoriesByPrefix(course, "lab01-").isEmpty());
+    mockServer.verify();
+  }
+
+  @Test
+  public void searchRepositoriesByPrefix_is_empty_when_prefix_ends_mid_word() throws Exception {
+    assertTrue(githubGraphQLService.searchRepositoriesByPrefix(course, "lab0").isEmpty());
+    assertTrue(githubGraphQLService.searchRepositoriesByPrefix(course, "").isEmpty());
+    verify(jwtService, never()).getInstallationToken(any());
+    mockServer.verify();
+  }
+
+  @Test
+  public void getOrganizationMembership_pages_members_and_invitees_together() throws Exception {
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    String firstPage =
+        """
+        {"data": {
+          "rateLimit": {"cost": 1},
+          "organization": {
+            "membersWithRole": {
+              "pageInfo": {"hasNextPage": true, "endCursor": "members1"},
+              "edges": [
+                {"role": "ADMIN", "node": {"databaseId": 1, "login": "owner1"}},
+                {"role": "MEMBER", "node": {"databaseId": 2, "login": "member1"}}
+              ]
+            },
+            "pendingMembers": {
+              "pageInfo": {"hasNextPage": false, "endCursor": "pending1"},
+              "nodes": [{"databaseId": 3, "login": "invitee1"}]
+            }
+          }
+        }}
+        """;
+    String secondPage =
+        """
+        {"data": {
+          "rateLimit": {"cost": 1},
+          "organization": {
+            "membersWithRole": {
+              "pageInfo": {"hasNextPage": false, "endCursor": "members2"},
+              "edges": [{"role": "MEMBER", "node": {"databaseId": 4, "login": "member2"}}]
+            }
+          }
+        }}
+        """;
+
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(method(HttpMethod.POST))
+        .andExpect(header("Authorization", "Bearer mocked-token"))
+        .andExpect(jsonPath("$.variables.org").value("test-org"))
+        .andExpect(jsonPath("$.variables.membersAfter").doesNotExist())
+        .andExpect(jsonPath("$.variables.pendingAfter").doesNotExist())
+        .andExpect(jsonPath("$.variables.includeMembers").value(true))
+        .andExpect(jsonPath("$.variables.includePending").value(true))
+        .andRespond(withSuccess(firstPage, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.membersAfter").value("members1"))
+        .andExpect(jsonPath("$.variables.includeMembers").value(true))
+        .andExpect(jsonPath("$.variables.includePending").value(false))
+        .andRespond(withSuccess(secondPage, MediaType.APPLICATION_JSON));
+
+    OrgMembership membership = githubGraphQLService.getOrganizationMembership(course);
+
+    mockServer.verify();
+    assertEquals(
+        List.of(
+            OrgMember.builder().githubId(2).githubLogin("member1").build(),
+            OrgMember.builder().githubId(4).githubLogin("member2").build()),
+        membership.members());
+    assertEquals(
+        List.of(OrgMember.builder().githubId(1).githubLogin("owner1").build()),
+        membership.admins());
+    assertEquals(
+        List.of(OrgMember.builder().githubId(3).githubLogin("invitee1").build()),
+        membership.invitees());
+    assertEquals(2, membership.queries());
+    assertEquals(2, membership.cost());
+  }
+
+  @Test
+  public void getOrganizationMembership_keeps_paging_invitees_after_members_run_out()
+      throws Exception {
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    String firstPage =
+        """
+        {"data": {
+          "rateLimit": {"cost": 1},
+          "organization": {
+            "membersWithRole": {
+              "pageInfo": {"hasNextPage": false, "endCursor": "members1"},
+              "edges": []
+            },
+            "pendingMembers": {
+              "pageInfo": {"hasNextPage": true, "endCursor": "pending1"},
+              "nodes": [{"databaseId": 3, "login": "invitee1"}]
+            }
+          }
+        }}
+        """;
+    String secondPage =
+        """
+        {"data": {
+          "rateLimit": {"cost": 1},
+          "organization": {
+            "pendingMembers": {
+              "pageInfo": {"hasNextPage": false, "endCursor": "pending2"},
+              "nodes": [{"databaseId": 5, "login": "invitee2"}]
+            }
+          }
+        }}
+        """;
+
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess(firstPage, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.pendingAfter").value("pending1"))
+        .andExpect(jsonPath("$.variables.includeMembers").value(false))
+        .andExpect(jsonPath("$.variables.includePending").value(true))
+        .andRespond(withSuccess(secondPage, MediaType.APPLICATION_JSON));
+
+    OrgMembership membership = githubGraphQLService.getOrganizationMembership(course);
+
+    mockServer.verify();
+    assertEquals(List.of(), membership.members());
+    assertEquals(List.of(), membership.admins());
+    assertEquals(
+        List.of(
+            OrgMember.builder().githubId(3).githubLogin("invitee1").build(),
+            OrgMember.builder().githubId(5).githubLogin("invitee2").build()),
+        membership.invitees());
+    assertEquals(2, membership.queries());
+  }
+
+  @Test
+  public void getOrganizationMembership_throws_when_organization_cannot_be_read() throws Exception {
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    String response =
+        """
+        {"data": {"rateLimit": {"cost": 1}, "organization": null},
+         "errors": [{"type": "NOT_FOUND", "path": ["organization"],
+                     "message": "Could not resolve to an Organization with the login of 'test-org'."}]}
+        """;
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
+
+    assertThrows(
+        FieldAccessException.class, () -> githubGraphQLService.getOrganizationMembership(course));
+    mockServer.verify();
+  }
+
+  @Test
+  public void getOrganizationMembership_throws_when_organization_is_null() throws Exception {
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                """
+                {"data": {"rateLimit": {"cost": 1}, "organization": null}}
+                """,
+                MediaType.APPLICATION_JSON));
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () -> githubGraphQLService.getOrganizationMembership(course));
+    assertEquals(
+        "GitHub returned no organization %s; it may have been deleted or renamed"
+            .formatted(course.getOrgName()),
+        e.getMessage());
+    mockServer.verify();
+  }
+
+  private static final String EMPTY_PAGE =
+      """
+      {"data": {"repository": {"ref": {"target": {"history": {
+        "pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": []}}}}}}
+      """;
+
+  private static final String TIMEOUT_ERROR =
+      """
+      {"data": null, "errors": [{"message": "Something went wrong while executing your query. This may be the result of a timeout, or it could be a GitHub bug."}]}
+      """;
+
+  /** The newest commit times of a branch, as read when planning shards. */
+  private static String commitDates(Instant newest, int count, long secondsApart) {
+    String nodes =
+        IntStream.range(0, count)
+            .mapToObj(i -> "{\"committedDate\": \"" + newest.minusSeconds(i * secondsApart) + "\"}")
+            .collect(Collectors.joining(", "));
+    return """
+        {"data": {"repository": {"ref": {"target": {"history": {"nodes": [%s]}}}}}}
+        """
+        .formatted(nodes);
+  }
+
+  /** The number of commits in a proposed shard, and the time of the newest one older than it. */
+  private static String shardProbe(int count, String olderCommittedDate) {
+    String older =
+        olderCommittedDate == null ? "" : "{\"committedDate\": \"" + olderCommittedDate + "\"}";
+    return """
+        {"data": {"repository": {"ref": {"target": {
+          "shard": {"totalCount": %d}, "older": {"nodes": [%s]}}}}}}
+        """
+        .formatted(count, older);
+  }
+
+  /** A last page of history with the commits of the given fixture pages. */
+  private static String lastPageWith(String... fixturePages) throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    List<String> nodes = new ArrayList<>();
+    for (String fixturePage : fixturePages) {
+      for (JsonNode node :
+          mapper.readTree(fixturePage).at("/data/repository/ref/target/history/nodes")) {
+        nodes.add(node.toString());
+      }
+    }
+    return """
+        {"data": {"repository": {"ref": {"target": {"history": {
+          "pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": [%s]}}}}}}
+        """
+        .formatted(String.join(", ", nodes));
+  }
+
+  private DownloadRequest shardedRequest(Instant start, Instant end) {
+    return DownloadRequest.builder()
+        .id(7L)
+        .org("ucsb-cs156")
+        .repo("proj-frontiers")
+        .branch("main")
+        .course(course)
+        .startDate(start)
+        .endDate(end)
+        .sharded(true)
+        .build();
+  }
+
+  /**
+   * Runs a sharded download with shards of about 50 commits, read one at a time so that the order
+   * of the requests is fixed.
+   */
+  private void downloadInShards(DownloadRequest request) throws Exception {
+    ReflectionTestUtils.setField(githubGraphQLService, "shardSize", 50);
+    ReflectionTestUtils.setField(githubGraphQLService, "shardParallelism", 1);
+    try {
+      githubGraphQLService.downloadCommitHistory(request);
+    } finally {
+      ReflectionTestUtils.setField(githubGraphQLService, "shardSize", 2000);
+      ReflectionTestUtils.setField(githubGraphQLService, "shardParallelism", 4);
+    }
+  }
+
+  @Test
+  public void sharded_download_of_a_short_history_reads_it_as_one_shard() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2023-03-11T00:00:00Z"))
+        .andExpect(jsonPath("$.variables.until").value("2023-03-21T00:00:00Z"))
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2023-03-20T00:00:00Z"), 2, 3600),
+                MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2023-03-11T00:00:00Z"))
+        .andExpect(jsonPath("$.variables.until").value("2023-03-21T00:00:00Z"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        shardedRequest(
+            Instant.parse("2023-03-11T00:00:00Z"), Instant.parse("2023-03-21T00:00:00Z"));
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    downloadInShards(request);
+
+    InOrder inOrder = inOrder(downloadRequestCommitRepository);
+    inOrder.verify(downloadRequestCommitRepository).deleteByRequest(request);
+    inOrder
+        .verify(downloadRequestCommitRepository)
+        .saveAll(links(request, pageOneCommit(), pageTwoCommit()));
+    verify(downloadRequestRepository, never()).setLastCursor(any(), any());
+    mockServer.verify();
+  }
+
+  @Test
+  public void sharded_download_plans_shards_from_commit_density_and_saves_them_newest_first()
+      throws Exception {
+    // The newest 100 commits are a minute apart, so 50 of them take 2970 seconds
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").doesNotExist())
+        .andExpect(jsonPath("$.variables.until").doesNotExist())
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2026-01-27T00:55:00Z"), 100, 60),
+                MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.start").doesNotExist())
+        .andExpect(jsonPath("$.variables.since").value("2026-01-27T00:05:30Z"))
+        .andExpect(jsonPath("$.variables.until").doesNotExist())
+        .andRespond(
+            withSuccess(shardProbe(50, "2026-01-26T00:58:12Z"), MediaType.APPLICATION_JSON));
+    // The next shard starts from the older commit, skipping the day without commits, but holds
+    // too many and is halved
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-26T00:08:42Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-27T00:05:30Z"))
+        .andRespond(
+            withSuccess(shardProbe(120, "2026-01-26T00:05:00Z"), MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-26T00:33:27Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-27T00:05:30Z"))
+        .andRespond(withSuccess(shardProbe(40, null), MediaType.APPLICATION_JSON));
+
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-27T00:05:30Z"))
+        .andExpect(jsonPath("$.variables.until").doesNotExist())
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-27T00:05:30Z"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withSuccess(EMPTY_PAGE, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-26T00:33:27Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-27T00:05:30Z"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request = shardedRequest(null, null);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    downloadInShards(request);
+
+    InOrder inOrder = inOrder(downloadRequestCommitRepository);
+    inOrder.verify(downloadRequestCommitRepository).deleteByRequest(request);
+    inOrder.verify(downloadRequestCommitRepository).saveAll(links(request, pageOneCommit()));
+    inOrder.verify(downloadRequestCommitRepository).saveAll(links(request, pageTwoCommit()));
+    mockServer.verify();
+  }
+
+  @Test
+  public void sharded_download_stops_planning_at_the_start_and_halves_shards_that_time_out()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-26T23:00:00Z"))
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2026-01-27T00:55:00Z"), 100, 60),
+                MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-27T00:05:30Z"))
+        .andRespond(withSuccess(TIMEOUT_ERROR, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.start").value("2026-01-26T23:00:00Z"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-27T00:30:15Z"))
+        .andRespond(
+            withSuccess(shardProbe(50, "2026-01-27T00:20:00Z"), MediaType.APPLICATION_JSON));
+    // Fewer commits than wanted, so the next shard is made longer
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-26T23:55:15Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-27T00:30:15Z"))
+        .andRespond(
+            withSuccess(shardProbe(30, "2026-01-26T23:30:00Z"), MediaType.APPLICATION_JSON));
+
+    for (String[] shard :
+        new String[][] {
+          {"2026-01-27T00:30:15Z", null},
+          {"2026-01-26T23:55:15Z", "2026-01-27T00:30:15Z"},
+          {"2026-01-26T23:00:00Z", "2026-01-26T23:55:15Z"}
+        }) {
+      mockServer
+          .expect(requestTo("https://api.github.com/graphql"))
+          .andExpect(jsonPath("$.variables.since").value(shard[0]))
+          .andExpect(
+              shard[1] == null
+                  ? jsonPath("$.variables.until").doesNotExist()
+                  : jsonPath("$.variables.until").value(shard[1]))
+          .andRespond(withSuccess(EMPTY_PAGE, MediaType.APPLICATION_JSON));
+    }
+
+    DownloadRequest request = shardedRequest(Instant.parse("2026-01-26T23:00:00Z"), null);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    downloadInShards(request);
+
+    verify(downloadRequestCommitRepository, times(3)).saveAll(List.of());
+    mockServer.verify();
+  }
+
+  @Test
+  public void sharded_download_fails_when_a_one_second_shard_cannot_be_counted() throws Exception {
+    // All of the newest commits were made at once, so shards are as short as they can be
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2026-01-27T00:55:00Z"), 100, 0),
+                MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-27T00:54:59Z"))
+        .andRespond(
+            withSuccess(shardProbe(500, "2026-01-27T00:50:00Z"), MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-27T00:49:59Z"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+    DownloadRequest request = shardedRequest(null, null);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    GithubQueryTimeoutException e =
+        assertThrows(GithubQueryTimeoutException.class, () -> downloadInShards(request));
+
+    assertEquals(
+        "GitHub timed out reading the commit history of ucsb-cs156/proj-frontiers.",
+        e.getMessage());
+    verify(downloadRequestCommitRepository, never()).deleteByRequest(any());
+    mockServer.verify();
+  }
+
+  @Test
+  public void shard_that_times_out_before_any_older_commit_is_read_as_two_halves()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2026-01-27T00:55:00Z"), 2, 86400),
+                MediaType.APPLICATION_JSON));
+    // Only commits made exactly at the end of the shard are read before it times out
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-23T12:27:30Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-27T00:55:00Z"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withSuccess(responsePageTwo, MediaType.APPLICATION_JSON));
+    // The older half times out too, and is halved again
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-20T00:00:00Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-23T12:27:30Z"))
+        .andRespond(withSuccess(TIMEOUT_ERROR, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-21T18:13:45Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-23T12:27:30Z"))
+        .andRespond(withSuccess(EMPTY_PAGE, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").value("2026-01-20T00:00:00Z"))
+        .andExpect(jsonPath("$.variables.until").value("2026-01-21T18:13:45Z"))
+        .andRespond(withSuccess(EMPTY_PAGE, MediaType.APPLICATION_JSON));
+
+    DownloadRequest request =
+        shardedRequest(
+            Instant.parse("2026-01-20T00:00:00Z"), Instant.parse("2026-01-27T00:55:00Z"));
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    downloadInShards(request);
+
+    verify(downloadRequestCommitRepository)
+        .saveAll(links(request, pageOneCommit(), pageTwoCommit()));
+    mockServer.verify();
+  }
+
+  @Test
+  public void shard_that_times_out_keeps_what_was_read_and_reads_the_rest_as_a_shard()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2026-01-27T00:55:00Z"), 2, 86400),
+                MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(withSuccess(responsePageOne, MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.after").value("page2"))
+        .andRespond(withStatus(HttpStatus.GATEWAY_TIMEOUT));
+    // The rest reaches up to the oldest commit read, so that commit is read again
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andExpect(jsonPath("$.variables.since").doesNotExist())
+        .andExpect(jsonPath("$.variables.until").value("2026-01-27T00:55:00Z"))
+        .andExpect(jsonPath("$.variables.after").doesNotExist())
+        .andRespond(
+            withSuccess(
+                lastPageWith(responsePageOne, responsePageTwo), MediaType.APPLICATION_JSON));
+
+    DownloadRequest request = shardedRequest(null, null);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    downloadInShards(request);
+
+    verify(downloadRequestCommitRepository)
+        .saveAll(links(request, pageOneCommit(), pageTwoCommit()));
+    mockServer.verify();
+  }
+
+  /** Runs a one-shard download whose first page times out, where the shard cannot be halved. */
+  private void assertShardCannotBeSplit(Instant start, Instant end) throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2026-01-27T00:55:00Z"), 2, 0),
+                MediaType.APPLICATION_JSON));
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+    DownloadRequest request = shardedRequest(start, end);
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    assertThrows(GithubQueryTimeoutException.class, () -> downloadInShards(request));
+    verify(downloadRequestCommitRepository, never()).saveAll(any());
+    mockServer.verify();
+  }
+
+  @Test
+  public void shard_without_a_start_fails_when_it_times_out() throws Exception {
+    assertShardCannotBeSplit(null, Instant.parse("2026-01-28T00:00:00Z"));
+  }
+
+  @Test
+  public void shard_without_an_end_fails_when_it_times_out() throws Exception {
+    assertShardCannotBeSplit(Instant.parse("2026-01-20T00:00:00Z"), null);
+  }
+
+  @Test
+  public void shard_of_one_second_fails_when_it_times_out() throws Exception {
+    assertShardCannotBeSplit(
+        Instant.parse("2026-01-27T00:55:00Z"), Instant.parse("2026-01-27T00:55:01Z"));
+  }
+
+  @Test
+  public void sharded_download_fails_with_the_error_of_a_shard() throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                commitDates(Instant.parse("2026-01-27T00:55:00Z"), 2, 60),
+                MediaType.APPLICATION_JSON));
+
+    DownloadRequest request = shardedRequest(null, null);
+    NoSuchAlgorithmException cause = new NoSuchAlgorithmException("RSA is not available");
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token").thenThrow(cause);
+
+    ExecutionException e = assertThrows(ExecutionException.class, () -> downloadInShards(request));
+
+    assertEquals(cause, e.getCause());
+    mockServer.verify();
+  }
+
+  @Test
+  public void getCommitHistoryPage_reports_errors_other_than_timeouts_as_an_empty_page()
+      throws Exception {
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(
+            withSuccess(
+                """
+                {"data": {"repository": null},
+                 "errors": [{"type": "NOT_FOUND",
+                             "message": "Could not resolve to a Repository with the name 'ucsb-cs156/gone'."}]}
+                """,
+                MediaType.APPLICATION_JSON));
+    when(jwtService.getInstallationToken(eq(course))).thenReturn("mocked-token");
+
+    CommitHistoryPage page =
+        githubGraphQLService.getCommitHistoryPage(
+            course, "ucsb-cs156", "gone", "main", null, null, 100, null);
+
+    assertEquals(new CommitHistoryPage(new PageInfo(false, null), List.of()), page);
     mockServer.verify();
   }
 }
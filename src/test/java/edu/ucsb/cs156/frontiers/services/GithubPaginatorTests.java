@@ -0,0 +1,218 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withResourceNotFound;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.frontiers.models.OrgMember;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+public class GithubPaginatorTests {
+
+  private static final String MEMBERS_URL = "https://api.github.com/orgs/test-org/members";
+
+  private MockRestServiceServer mockServer;
+  private GithubPaginator githubPaginator;
+
+  @BeforeEach
+  public void setup() {
+    RestTemplate restTemplate = new RestTemplate();
+    mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+    githubPaginator = new GithubPaginator(restTemplate, new ObjectMapper());
+  }
+
+  private static HttpHeaders link(String link) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("link", link);
+    return headers;
+  }
+
+  private static OrgMember member(int id, String login) {
+    return OrgMember.builder().githubId(id).githubLogin(login).build();
+  }
+
+  @Test
+  public void single_page_is_requested_with_largest_page_size_and_github_headers() {
+    mockServer
+        .expect(requestTo(MEMBERS_URL + "?role=admin&per_page=100"))
+        .andExpect(method(HttpMethod.GET))
+        .andExpect(header("Authorization", "Bearer test-token"))
+        .andExpect(header("Accept", "application/vnd.github+json"))
+        .andExpect(header("X-GitHub-Api-Version", "2022-11-28"))
+        .andRespond(
+            withSuccess(
+                "[{\"id\": 1, \"login\": \"user1\", \"site_admin\": false},"
+                    + " {\"id\": 2, \"login\": \"user2\", \"type\": \"User\"}]",
+                MediaType.APPLICATION_JSON));
+
+    try (Stream<OrgMember> members =
+        githubPaginator.stream(MEMBERS_URL + "?role=admin", "test-token", OrgMember.class)) {
+      assertEquals(List.of(member(1, "user1"), member(2, "user2")), members.toList());
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void page_size_is_added_as_the_only_query_parameter() {
+    mockServer
+        .expect(requestTo(MEMBERS_URL + "?per_page=100"))
+        .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+    try (Stream<OrgMember> members =
+        githubPaginator.stream(MEMBERS_URL, "test-token", OrgMember.class)) {
+      assertEquals(List.of(), members.toList());
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void page_size_set_by_the_caller_is_kept() {
+    mockServer
+        .expect(requestTo(MEMBERS_URL + "?per_page=10"))
+        .andRespond(
+            withSuccess("[{\"id\": 1, \"login\": \"user1\"}]", MediaType.APPLICATION_JSON)
+                .headers(link("<" + MEMBERS_URL + "?per_page=10&page=1>; rel=\"first\"")));
+
+    try (Stream<OrgMember> members =
+        githubPaginator.stream(MEMBERS_URL + "?per_page=10", "test-token", OrgMember.class)) {
+      assertEquals(List.of(member(1, "user1")), members.toList());
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void next_links_are_followed_until_the_last_page() {
+    String page2 = MEMBERS_URL + "?per_page=100&page=2";
+    String page3 = MEMBERS_URL + "?per_page=100&page=3";
+    mockServer
+        .expect(requestTo(MEMBERS_URL + "?per_page=100"))
+        .andRespond(
+            withSuccess("[{\"id\": 1, \"login\": \"user1\"}]", MediaType.APPLICATION_JSON)
+                .headers(link("<" + page2 + ">; rel=\"next\", <" + page3 + ">; rel=\"last\"")));
+    mockServer
+        .expect(requestTo(page2))
+        .andExpect(header("Authorization", "Bearer test-token"))
+        .andRespond(
+            withSuccess("[]", MediaType.APPLICATION_JSON)
+                .headers(
+                    link(
+                        "<"
+                            + MEMBERS_URL
+                            + "?per_page=100&page=1>; rel=\"prev\", <"
+                            + page3
+                            + ">; rel=\"next\"")));
+    mockServer
+        .expect(requestTo(page3))
+        .andRespond(
+            withSuccess(
+                    "[{\"id\": 2, \"login\": \"user2\"}, {\"id\": 3, \"login\": \"user3\"}]",
+                    MediaType.APPLICATION_JSON)
+                .headers(link("<" + page2 + ">; rel=\"prev\"")));
+
+    try (Stream<OrgMember> members =
+        githubPaginator.stream(MEMBERS_URL, "test-token", OrgMember.class)) {
+      assertEquals(
+          List.of(member(1, "user1"), member(2, "user2"), member(3, "user3")), members.toList());
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void first_page_is_fetched_before_the_stream_is_returned() {
+    mockServer.expect(requestTo(MEMBERS_URL + "?per_page=100")).andRespond(withResourceNotFound());
+
+    assertThrows(
+        HttpClientErrorException.NotFound.class,
+        () -> githubPaginator.stream(MEMBERS_URL, "test-token", OrgMember.class));
+    mockServer.verify();
+  }
+
+  @Test
+  public void error_on_a_later_page_is_thrown_to_the_consumer() {
+    String page2 = MEMBERS_URL + "?per_page=100&page=2";
+    mockServer
+        .expect(requestTo(MEMBERS_URL + "?per_page=100"))
+        .andRespond(
+            withSuccess("[{\"id\": 1, \"login\": \"user1\"}]", MediaType.APPLICATION_JSON)
+                .headers(link("<" + page2 + ">; rel=\"next\"")));
+    mockServer.expect(requestTo(page2)).andRespond(withResourceNotFound());
+
+    try (Stream<OrgMember> members =
+        githubPaginator.stream(MEMBERS_URL, "test-token", OrgMember.class)) {
+      Iterator<OrgMember> iterator = members.iterator();
+      assertEquals(member(1, "user1"), iterator.next());
+      assertThrows(HttpClientErrorException.NotFound.class, iterator::hasNext);
+      assertEquals(false, iterator.hasNext());
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void error_thrown_by_a_page_reader_on_a_later_page_is_wrapped() {
+    String page2 = MEMBERS_URL + "?per_page=100&page=2";
+    mockServer
+        .expect(requestTo(MEMBERS_URL + "?per_page=100"))
+        .andRespond(
+            withSuccess("[]", MediaType.APPLICATION_JSON)
+                .headers(link("<" + page2 + ">; rel=\"next\"")));
+    mockServer.expect(requestTo(page2)).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+    AtomicInteger pagesRead = new AtomicInteger();
+
+    try (Stream<String> logins =
+        githubPaginator.stream(
+            MEMBERS_URL,
+            "test-token",
+            body -> {
+              if (pagesRead.incrementAndGet() == 2) {
+                throw new AssertionError("unreadable page");
+              }
+              return List.<String>of();
+            })) {
+      CompletionException e = assertThrows(CompletionException.class, logins::toList);
+      assertInstanceOf(AssertionError.class, e.getCause());
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void closing_the_stream_early_waits_for_and_discards_the_next_page() {
+    String page2 = MEMBERS_URL + "?per_page=100&page=2";
+    mockServer
+        .expect(requestTo(MEMBERS_URL + "?per_page=100"))
+        .andRespond(
+            withSuccess(
+                    "[{\"id\": 1, \"login\": \"user1\"}, {\"id\": 2, \"login\": \"user2\"}]",
+                    MediaType.APPLICATION_JSON)
+                .headers(link("<" + page2 + ">; rel=\"next\"")));
+    mockServer
+        .expect(requestTo(page2))
+        .andRespond(withSuccess("[{\"id\": 3, \"login\": \"user3\"}]", MediaType.APPLICATION_JSON));
+
+    Stream<OrgMember> members = githubPaginator.stream(MEMBERS_URL, "test-token", OrgMember.class);
+    Iterator<OrgMember> iterator = members.iterator();
+    assertEquals(member(1, "user1"), iterator.next());
+    members.close();
+    mockServer.verify();
+
+    assertEquals(member(2, "user2"), iterator.next());
+    assertEquals(false, iterator.hasNext());
+  }
+}
@@ -0,0 +1,628 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import edu.ucsb.cs156.frontiers.errors.GithubRateLimitExceededException;
+import edu.ucsb.cs156.frontiers.models.GithubRateLimitStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+public class GithubRateLimitGovernorTests {
+
+  private static final String URL = "https://api.github.com/orgs/ucsb-cs156/repos";
+
+  private Instant now = Instant.parse("2024-05-23T08:00:00.00Z");
+
+  private final List<Duration> sleeps = new ArrayList<>();
+
+  private final Clock clock =
+      new Clock() {
+        @Override
+        public ZoneId getZone() {
+          return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+          return this;
+        }
+
+        @Override
+        public Instant instant() {
+          return now;
+        }
+      };
+
+  private SimpleMeterRegistry meterRegistry;
+  private GithubRateLimitGovernor governor;
+  private RestTemplate restTemplate;
+  private MockRestServiceServer mockServer;
+
+  @BeforeEach
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    governor =
+        new GithubRateLimitGovernor(meterRegistry) {
+          @Override
+          void sleep(Duration duration) {
+            sleeps.add(duration);
+            now = now.plus(duration);
+          }
+        };
+    ReflectionTestUtils.setField(governor, "clock", clock);
+    ReflectionTestUtils.setField(governor, "requestsPerSecond", 10.0);
+    ReflectionTestUtils.setField(governor, "burst", 20);
+    ReflectionTestUtils.setField(governor, "writesPerMinute", 80.0);
+    ReflectionTestUtils.setField(governor, "writeBurst", 10);
+    ReflectionTestUtils.setField(governor, "defaultRetryAfter", Duration.ofMinutes(1));
+    ReflectionTestUtils.setField(governor, "maxRetries", 3);
+    ReflectionTestUtils.setField(governor, "maxWait", Duration.ofHours(1));
+    governor.registerInstallationToken("1234", "installation-token");
+
+    restTemplate = new RestTemplate();
+    restTemplate.setInterceptors(List.of(governor));
+    mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+  }
+
+  private HttpHeaders rateLimitHeaders(int remaining, Instant reset) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("X-RateLimit-Limit", "5000");
+    headers.add("X-RateLimit-Remaining", Integer.toString(remaining));
+    headers.add("X-RateLimit-Used", Integer.toString(5000 - remaining));
+    headers.add("X-RateLimit-Reset", Long.toString(reset.getEpochSecond()));
+    return headers;
+  }
+
+  private HttpEntity<Void> asInstallation() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Authorization", "Bearer installation-token");
+    return new HttpEntity<>(headers);
+  }
+
+  private String get() {
+    return restTemplate.exchange(URL, HttpMethod.GET, asInstallation(), String.class).getBody();
+  }
+
+  private String post() {
+    return restTemplate.exchange(URL, HttpMethod.POST, asInstallation(), String.class).getBody();
+  }
+
+  @Test
+  public void tracks_budget_reported_by_github() {
+    Instant reset = now.plusSeconds(600);
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess().headers(rateLimitHeaders(42, reset)));
+
+    get();
+
+    mockServer.verify();
+    assertEquals(
+        List.of(new GithubRateLimitStatus("1234", "core", 5000, 42, 4958, reset, null, 0, 0)),
+        governor.getStatus());
+    assertEquals(
+        42.0,
+        meterRegistry
+            .get("github.ratelimit.remaining")
+            .tags("installation", "1234", "resource", "core")
+            .gauge()
+            .value());
+    assertEquals(
+        5000.0,
+        meterRegistry
+            .get("github.ratelimit.limit")
+            .tags("installation", "1234", "resource", "core")
+            .gauge()
+            .value());
+    assertTrue(sleeps.isEmpty());
+  }
+
+  @Test
+  public void gauges_are_nan_until_github_reports_a_budget() {
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess());
+
+    get();
+
+    assertTrue(Double.isNaN(meterRegistry.get("github.ratelimit.remaining").gauge().value()));
+    assertTrue(Double.isNaN(meterRegistry.get("github.ratelimit.limit").gauge().value()));
+    GithubRateLimitStatus status = governor.getStatus().get(0);
+    assertNull(status.limit());
+    assertNull(status.remaining());
+    assertNull(status.resetAt());
+  }
+
+  @Test
+  public void pauses_until_reset_when_budget_is_exhausted() {
+    Instant reset = now.plusSeconds(600);
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess().headers(rateLimitHeaders(1, reset)));
+    mockServer.expect(times(2), requestTo(URL)).andRespond(withSuccess());
+
+    get();
+    // GitHub does not report on this request, so the governor's own count is all it has to go on
+    get();
+    get();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofSeconds(600)), sleeps);
+    assertEquals(1, governor.getStatus().get(0).throttledRequests());
+    assertEquals(
+        Duration.ofSeconds(600),
+        Duration.ofNanos(
+            (long)
+                meterRegistry
+                    .get("github.ratelimit.wait")
+                    .timer()
+                    .totalTime(TimeUnit.NANOSECONDS)));
+  }
+
+  @Test
+  public void exhausted_budget_without_reset_time_does_not_block() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("X-RateLimit-Remaining", "0");
+    mockServer.expect(times(2), requestTo(URL)).andRespond(withSuccess().headers(headers));
+
+    get();
+    get();
+
+    mockServer.verify();
+    assertTrue(sleeps.isEmpty());
+  }
+
+  @Test
+  public void budget_recovers_once_the_window_resets() {
+    Instant reset = now.plusSeconds(60);
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess().headers(rateLimitHeaders(0, reset)));
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess());
+
+    get();
+    now = now.plusSeconds(120);
+    get();
+
+    mockServer.verify();
+    assertTrue(sleeps.isEmpty());
+  }
+
+  @Test
+  public void paces_requests_beyond_the_burst() {
+    ReflectionTestUtils.setField(governor, "requestsPerSecond", 1.0);
+    ReflectionTestUtils.setField(governor, "burst", 2);
+    mockServer.expect(times(3), requestTo(URL)).andRespond(withSuccess());
+
+    get();
+    get();
+    get();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofSeconds(1)), sleeps);
+  }
+
+  @Test
+  public void paces_writes_separately_from_reads() {
+    ReflectionTestUtils.setField(governor, "writesPerMinute", 60.0);
+    ReflectionTestUtils.setField(governor, "writeBurst", 1);
+    mockServer.expect(times(4), requestTo(URL)).andRespond(withSuccess());
+
+    post();
+    get();
+    get();
+    post();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofSeconds(1)), sleeps);
+  }
+
+  @Test
+  public void writes_also_wait_for_the_request_bucket() {
+    ReflectionTestUtils.setField(governor, "requestsPerSecond", 1.0);
+    ReflectionTestUtils.setField(governor, "burst", 1);
+    mockServer.expect(times(2), requestTo(URL)).andRespond(withSuccess());
+
+    get();
+    post();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofSeconds(1)), sleeps);
+  }
+
+  @Test
+  public void head_requests_are_not_writes() {
+    ReflectionTestUtils.setField(governor, "writesPerMinute", 60.0);
+    ReflectionTestUtils.setField(governor, "writeBurst", 1);
+    mockServer.expect(times(2), requestTo(URL)).andRespond(withSuccess());
+
+    post();
+    restTemplate.exchange(URL, HttpMethod.HEAD, asInstallation(), String.class);
+
+    mockServer.verify();
+    assertTrue(sleeps.isEmpty());
+  }
+
+  @Test
+  public void request_waiting_for_pause_and_bucket_is_throttled_once() {
+    ReflectionTestUtils.setField(governor, "requestsPerSecond", 0.01);
+    ReflectionTestUtils.setField(governor, "burst", 1);
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Retry-After", "1");
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).headers(headers));
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess());
+
+    get();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofSeconds(1), Duration.ofSeconds(99)), sleeps);
+    assertEquals(1, governor.getStatus().get(0).throttledRequests());
+  }
+
+  @Test
+  public void honors_retry_after_on_secondary_rate_limit() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Retry-After", "30");
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(method(HttpMethod.POST))
+        .andRespond(withStatus(HttpStatus.FORBIDDEN).headers(headers));
+    mockServer
+        .expect(requestTo(URL))
+        .andExpect(method(HttpMethod.POST))
+        .andRespond(withSuccess("created", null));
+
+    assertEquals("created", post());
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofSeconds(30)), sleeps);
+    GithubRateLimitStatus status = governor.getStatus().get(0);
+    assertEquals(1, status.rateLimitedResponses());
+    assertEquals(1, status.throttledRequests());
+    assertNull(status.pausedUntil());
+    assertEquals(1.0, meterRegistry.get("github.ratelimit.limited").counter().count());
+  }
+
+  @Test
+  public void backs_off_by_default_when_too_many_requests_has_no_retry_after() {
+    mockServer.expect(requestTo(URL)).andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess());
+
+    get();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofMinutes(1)), sleeps);
+  }
+
+  @Test
+  public void retries_after_reset_when_primary_limit_rejects_request() {
+    Instant reset = now.plusSeconds(300);
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withStatus(HttpStatus.FORBIDDEN).headers(rateLimitHeaders(0, reset)));
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess());
+
+    get();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofSeconds(300)), sleeps);
+  }
+
+  @Test
+  public void forbidden_without_rate_limit_is_not_retried() {
+    mockServer.expect(requestTo(URL)).andRespond(withStatus(HttpStatus.FORBIDDEN));
+
+    assertThrows(HttpClientErrorException.Forbidden.class, this::get);
+
+    mockServer.verify();
+    assertTrue(sleeps.isEmpty());
+    assertEquals(0, governor.getStatus().get(0).rateLimitedResponses());
+  }
+
+  @Test
+  public void forbidden_with_remaining_budget_is_not_retried() {
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(
+            withStatus(HttpStatus.FORBIDDEN)
+                .headers(rateLimitHeaders(10, now.plusSeconds(60)))
+                .body("Resource not accessible by integration"));
+
+    HttpClientErrorException.Forbidden e =
+        assertThrows(HttpClientErrorException.Forbidden.class, this::get);
+
+    mockServer.verify();
+    assertTrue(sleeps.isEmpty());
+    assertEquals("Resource not accessible by integration", e.getResponseBodyAsString());
+  }
+
+  @Test
+  public void backs_off_by_default_when_secondary_limit_has_no_retry_after() {
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(
+            withStatus(HttpStatus.FORBIDDEN)
+                .headers(rateLimitHeaders(4000, now.plusSeconds(600)))
+                .body(
+                    "{\"message\":\"You have exceeded a secondary rate limit. Please wait a few"
+                        + " minutes before you try again.\"}"));
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess("ok", null));
+
+    assertEquals("ok", get());
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofMinutes(1)), sleeps);
+    assertEquals(1, governor.getStatus().get(0).rateLimitedResponses());
+  }
+
+  @Test
+  public void gives_up_after_max_retries() {
+    ReflectionTestUtils.setField(governor, "maxRetries", 1);
+    mockServer
+        .expect(times(2), requestTo(URL))
+        .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+
+    assertThrows(HttpClientErrorException.TooManyRequests.class, this::get);
+
+    mockServer.verify();
+    GithubRateLimitStatus status = governor.getStatus().get(0);
+    assertEquals(2, status.rateLimitedResponses());
+    assertEquals(now.plus(Duration.ofMinutes(1)), status.pausedUntil());
+  }
+
+  @Test
+  public void fails_fast_when_wait_exceeds_max_wait() {
+    ReflectionTestUtils.setField(governor, "maxWait", Duration.ofMinutes(5));
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withSuccess().headers(rateLimitHeaders(0, now.plusSeconds(600))));
+
+    get();
+    GithubRateLimitExceededException e =
+        assertThrows(GithubRateLimitExceededException.class, this::get);
+
+    assertEquals(
+        "GitHub core rate limit for installation 1234 is exhausted until 2024-05-23T08:10:00Z,"
+            + " which is longer than the configured maximum wait.",
+        e.getMessage());
+    assertTrue(sleeps.isEmpty());
+  }
+
+  @Test
+  public void ignores_malformed_headers() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("X-RateLimit-Remaining", "lots");
+    headers.add("X-RateLimit-Reset", "soon");
+    headers.add("Retry-After", "later");
+    mockServer
+        .expect(requestTo(URL))
+        .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).headers(headers));
+    mockServer.expect(requestTo(URL)).andRespond(withSuccess());
+
+    get();
+
+    mockServer.verify();
+    assertEquals(List.of(Duration.ofMinutes(1)), sleeps);
+    assertNull(governor.getStatus().get(0).remaining());
+  }
+
+  @Test
+  public void keeps_separate_budgets_per_installation_and_resource() {
+    mockServer.expect(times(3), requestTo(URL)).andRespond(withSuccess());
+    mockServer
+        .expect(requestTo("https://api.github.com/graphql"))
+        .andRespond(withSuccess().headers(rateLimitHeaders(4999, now.plusSeconds(60))));
+
+    get();
+    restTemplate.exchange(URL, HttpMethod.GET, HttpEntity.EMPTY, String.class);
+    HttpHeaders appJwt = new HttpHeaders();
+    appJwt.add("Authorization", "Bearer some.app.jwt");
+    restTemplate.exchange(URL, HttpMethod.GET, new HttpEntity<>(appJwt), String.class);
+    restTemplate.exchange(
+        "https://api.github.com/graphql", HttpMethod.POST, asInstallation(), String.class);
+
+    mockServer.verify();
+    List<GithubRateLimitStatus> status = governor.getStatus();
+    assertEquals(3, status.size());
+    assertEquals("1234", status.get(0).installationId());
+    assertEquals("core", status.get(0).resource());
+    assertEquals("1234", status.get(1).installationId());
+    assertEquals("graphql", status.get(1).resource());
+    assertEquals(4999, status.get(1).remaining());
+    assertEquals(GithubRateLimitGovernor.APP, status.get(2).installationId());
+  }
+
+  @Test
+  public void resource_is_derived_from_request_path() {
+    assertEquals(
+        "graphql",
+        GithubRateLimitGovernor.resourceFor(URI.create("https://api.github.com/graphql")));
+    assertEquals(
+        "search",
+        GithubRateLimitGovernor.resourceFor(
+            URI.create("https://api.github.com/search/repositories")));
+    assertEquals(
+        "core",
+        GithubRateLimitGovernor.resourceFor(URI.create("https://api.github.com/orgs/ucsb/teams")));
+  }
+
+  @Test
+  public void new_token_replaces_previous_token_of_installation() {
+    governor.registerInstallationToken("1234", "installation-token");
+    assertEquals("1234", governor.installationFor("Bearer installation-token"));
+
+    governor.registerInstallationToken("1234", "refreshed-token");
+
+    assertEquals("1234", governor.installationFor("Bearer refreshed-token"));
+    assertEquals(
+        GithubRateLimitGovernor.APP, governor.installationFor("Bearer installation-token"));
+    assertEquals(GithubRateLimitGovernor.APP, governor.installationFor("token something-else"));
+    assertEquals(GithubRateLimitGovernor.APP, governor.installationFor(null));
+  }
+
+  @Test
+  public void removing_installation_forgets_token_and_budgets() {
+    mockServer.expect(times(2), requestTo(URL)).andRespond(withSuccess());
+    get();
+    restTemplate.exchange(URL, HttpMethod.GET, HttpEntity.EMPTY, String.class);
+
+    governor.removeInstallation("1234");
+    governor.removeInstallation("5678");
+
+    assertEquals(
+        GithubRateLimitGovernor.APP, governor.installationFor("Bearer installation-token"));
+    assertEquals(1, governor.getStatus().size());
+    assertEquals(GithubRateLimitGovernor.APP, governor.getStatus().get(0).installationId());
+  }
+
+  @Test
+  public void sleep_waits_and_reports_interruption() throws Exception {
+    GithubRateLimitGovernor plain = new GithubRateLimitGovernor(meterRegistry);
+    plain.sleep(Duration.ofMillis(1));
+
+    Thread.currentThread().interrupt();
+    InterruptedIOException e =
+        assertThrows(InterruptedIOException.class, () -> plain.sleep(Duration.ofMillis(1)));
+
+    assertEquals("Interrupted while waiting for a GitHub rate limit", e.getMessage());
+    assertTrue(Thread.interrupted());
+  }
+
+  private MockClientHttpRequest request(String token) {
+    MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create(URL));
+    if (token != null) {
+      request.getHeaders().add("Authorization", "Bearer " + token);
+    }
+    return request;
+  }
+
+  @Test
+  public void caps_requests_in_flight_per_installation() throws Exception {
+    ReflectionTestUtils.setField(governor, "maxConcurrentRequests", 1);
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirst = new CountDownLatch(1);
+    CountDownLatch secondStarted = new CountDownLatch(1);
+
+    Thread first =
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  try {
+                    governor.intercept(
+                        request("installation-token"),
+                        new byte[0],
+                        (request, body) -> {
+                          firstStarted.countDown();
+                          try {
+                            releaseFirst.await();
+                          } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                          }
+                          return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+                        });
+                  } catch (Exception e) {
+                    throw new RuntimeException(e);
+                  }
+                });
+    assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+    Thread second =
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  try {
+                    governor.intercept(
+                        request("installation-token"),
+                        new byte[0],
+                        (request, body) -> {
+                          secondStarted.countDown();
+                          return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+                        });
+                  } catch (Exception e) {
+                    throw new RuntimeException(e);
+                  }
+                });
+
+    // Other installations are not held up by this installation's requests
+    governor.intercept(
+        request(null),
+        new byte[0],
+        (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    assertFalse(secondStarted.await(200, TimeUnit.MILLISECONDS));
+
+    releaseFirst.countDown();
+    assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+    first.join();
+    second.join();
+  }
+
+  @Test
+  public void in_flight_slot_is_released_when_request_fails() throws Exception {
+    ReflectionTestUtils.setField(governor, "maxConcurrentRequests", 1);
+
+    assertThrows(
+        IOException.class,
+        () ->
+            governor.intercept(
+                request("installation-token"),
+                new byte[0],
+                (request, body) -> {
+                  throw new IOException("connection reset");
+                }));
+
+    assertEquals(
+        HttpStatus.OK,
+        governor
+            .intercept(
+                request("installation-token"),
+                new byte[0],
+                (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK))
+            .getStatusCode());
+  }
+
+  @Test
+  public void interrupted_while_waiting_for_in_flight_slot() {
+    ReflectionTestUtils.setField(governor, "maxConcurrentRequests", 1);
+
+    Thread.currentThread().interrupt();
+    InterruptedIOException e =
+        assertThrows(
+            InterruptedIOException.class,
+            () ->
+                governor.intercept(
+                    request("installation-token"),
+                    new byte[0],
+                    (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)));
+
+    assertEquals("Interrupted while waiting to send a GitHub request", e.getMessage());
+    assertTrue(Thread.interrupted());
+  }
+}
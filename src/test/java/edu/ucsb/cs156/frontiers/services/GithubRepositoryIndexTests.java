@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class GithubRepositoryIndexTests {
+
+  @Test
+  public void finds_repositories_ignoring_case() {
+    GithubRepositoryIndex index = new GithubRepositoryIndex(List.of("jpa03-cgaucho", "Team-Repo"));
+
+    assertEquals(2, index.size());
+    assertTrue(index.contains("jpa03-cgaucho"));
+    assertTrue(index.contains("JPA03-CGaucho"));
+    assertTrue(index.contains("team-repo"));
+    assertFalse(index.contains("jpa03-ldelplaya"));
+  }
+
+  @Test
+  public void added_repositories_can_be_found() {
+    GithubRepositoryIndex index = new GithubRepositoryIndex(List.of());
+
+    index.add("jpa03-cgaucho");
+    index.add("JPA03-cgaucho");
+
+    assertEquals(1, index.size());
+    assertTrue(index.contains("jpa03-cgaucho"));
+    assertEquals(Set.of("jpa03-cgaucho"), index.names());
+  }
+}
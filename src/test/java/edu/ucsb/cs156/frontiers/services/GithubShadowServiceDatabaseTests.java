@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.ShadowOrgMember;
+import edu.ucsb.cs156.frontiers.entities.ShadowRepository;
+import edu.ucsb.cs156.frontiers.entities.ShadowTeam;
+import edu.ucsb.cs156.frontiers.enums.OrgStatus;
+import edu.ucsb.cs156.frontiers.enums.TeamStatus;
+import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowOrgMemberRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowRepositoryRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowTeamMembershipRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowTeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
+import edu.ucsb.cs156.frontiers.services.RepositoryService.GithubRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Syncs the same course's shadow twice against the database, to check that a resync replaces the
+ * rows it read before rather than colliding with them. Each sync commits its own transaction, so
+ * nothing is rolled back between tests; the tables are emptied afterwards instead.
+ */
+@DataJpaTest
+@Import(GithubShadowService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class GithubShadowServiceDatabaseTests {
+
+  @Autowired private GithubShadowService githubShadowService;
+
+  @Autowired private CourseRepository courseRepository;
+
+  @Autowired private ShadowOrgMemberRepository shadowOrgMemberRepository;
+
+  @Autowired private ShadowTeamRepository shadowTeamRepository;
+
+  @Autowired private ShadowTeamMembershipRepository shadowTeamMembershipRepository;
+
+  @Autowired private ShadowRepositoryRepository shadowRepositoryRepository;
+
+  @MockitoBean private GithubGraphQLService githubGraphQLService;
+
+  @MockitoBean private GithubTeamService githubTeamService;
+
+  @MockitoBean private RepositoryService repositoryService;
+
+  private Course course;
+
+  @BeforeEach
+  public void setup() {
+    course =
+        courseRepository.save(
+            Course.builder()
+                .installationId("12345")
+                .orgName("ucsb-cs156")
+                .courseName("CS156")
+                .build());
+  }
+
+  @AfterEach
+  public void cleanup() {
+    shadowOrgMemberRepository.deleteAll();
+    shadowTeamMembershipRepository.deleteAll();
+    shadowTeamRepository.deleteAll();
+    shadowRepositoryRepository.deleteAll();
+    courseRepository.deleteAll();
+  }
+
+  private static OrgMember person(int githubId) {
+    return OrgMember.builder().githubId(githubId).githubLogin("user" + githubId).build();
+  }
+
+  @Test
+  public void resyncing_org_members_replaces_the_ones_read_before() throws Exception {
+    when(githubGraphQLService.getOrganizationMembership(course))
+        .thenReturn(new OrgMembership(List.of(person(1), person(2)), List.of(), List.of(), 1, 1))
+        .thenReturn(new OrgMembership(List.of(person(2)), List.of(person(3)), List.of(), 1, 1));
+
+    githubShadowService.getOrganizationMembership(course);
+    course.setOrgMembersSyncedAt(null);
+    githubShadowService.getOrganizationMembership(course);
+
+    assertEquals(
+        Map.of(2, OrgStatus.MEMBER, 3, OrgStatus.OWNER),
+        shadowOrgMemberRepository.findByCourse(course).stream()
+            .collect(
+                Collectors.toMap(ShadowOrgMember::getGithubId, ShadowOrgMember::getOrgStatus)));
+  }
+
+  @Test
+  public void resyncing_teams_replaces_the_teams_and_memberships_read_before() throws Exception {
+    when(githubTeamService.getAllTeams(course))
+        .thenReturn(List.of(new GithubTeamInfo(7, "Team A", "team-a")))
+        .thenReturn(
+            List.of(
+                new GithubTeamInfo(7, "Team A", "team-a"),
+                new GithubTeamInfo(8, "Team B", "team-b")));
+    when(githubTeamService.getTeamMemberships("team-a", course))
+        .thenReturn(Map.of("student", TeamStatus.TEAM_MEMBER))
+        .thenReturn(Map.of("student", TeamStatus.TEAM_MAINTAINER));
+    when(githubTeamService.getTeamMemberships("team-b", course)).thenReturn(Map.of());
+
+    githubShadowService.getTeamIndex(course);
+    course.setTeamsSyncedAt(null);
+    githubShadowService.getTeamIndex(course);
+
+    assertEquals(
+        Set.of(7, 8),
+        shadowTeamRepository.findByCourse(course).stream()
+            .map(ShadowTeam::getGithubTeamId)
+            .collect(Collectors.toSet()));
+    assertEquals(
+        Map.of(7, Map.of("student", TeamStatus.TEAM_MAINTAINER)),
+        githubShadowService.getTeamMemberships(course));
+  }
+
+  @Test
+  public void resyncing_repositories_replaces_the_ones_read_before() throws Exception {
+    when(repositoryService.streamRepositoriesMatchingPrefix(course, ""))
+        .thenReturn(Stream.of(new GithubRepository("team-repo", "ucsb-cs156/team-repo")))
+        .thenReturn(
+            Stream.of(
+                new GithubRepository("Team-Repo", "ucsb-cs156/Team-Repo"),
+                new GithubRepository("other-repo", "ucsb-cs156/other-repo")));
+
+    githubShadowService.getRepositoryIndex(course);
+    course.setRepositoriesSyncedAt(null);
+    githubShadowService.getRepositoryIndex(course);
+
+    assertEquals(
+        Set.of("team-repo", "other-repo"),
+        shadowRepositoryRepository.findByCourse(course).stream()
+            .map(ShadowRepository::getName)
+            .collect(Collectors.toSet()));
+  }
+}
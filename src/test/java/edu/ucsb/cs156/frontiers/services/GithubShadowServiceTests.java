@@ -0,0 +1,447 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.ShadowOrgMember;
+import edu.ucsb.cs156.frontiers.entities.ShadowRepository;
+import edu.ucsb.cs156.frontiers.entities.ShadowTeam;
+import edu.ucsb.cs156.frontiers.entities.ShadowTeamMembership;
+import edu.ucsb.cs156.frontiers.enums.OrgStatus;
+import edu.ucsb.cs156.frontiers.enums.TeamStatus;
+import edu.ucsb.cs156.frontiers.models.OrgMember;
+import edu.ucsb.cs156.frontiers.models.OrgMembership;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowOrgMemberRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowRepositoryRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowTeamMembershipRepository;
+import edu.ucsb.cs156.frontiers.repositories.ShadowTeamRepository;
+import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
+import edu.ucsb.cs156.frontiers.services.RepositoryService.GithubRepository;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class GithubShadowServiceTests {
+
+  private static final Instant NOW = Instant.parse("2025-06-01T12:00:00Z");
+  private static final Instant FRESH = NOW.minus(Duration.ofHours(1));
+  private static final Instant STALE = NOW.minus(Duration.ofHours(25));
+
+  @Mock private ShadowOrgMemberRepository shadowOrgMemberRepository;
+  @Mock private ShadowTeamRepository shadowTeamRepository;
+  @Mock private ShadowTeamMembershipRepository shadowTeamMembershipRepository;
+  @Mock private ShadowRepositoryRepository shadowRepositoryRepository;
+  @Mock private CourseRepository courseRepository;
+  @Mock private GithubGraphQLService githubGraphQLService;
+  @Mock private GithubTeamService githubTeamService;
+  @Mock private RepositoryService repositoryService;
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private GithubShadowService githubShadowService;
+
+  @BeforeEach
+  public void setup() {
+    githubShadowService =
+        new GithubShadowService(
+            shadowOrgMemberRepository,
+            shadowTeamRepository,
+            shadowTeamMembershipRepository,
+            shadowRepositoryRepository,
+            courseRepository,
+            githubGraphQLService,
+            githubTeamService,
+            repositoryService,
+            new TransactionTemplate(transactionManager));
+    ReflectionTestUtils.setField(githubShadowService, "maxAge", Duration.ofHours(24));
+    ReflectionTestUtils.setField(githubShadowService, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  private static OrgMember person(int githubId) {
+    return OrgMember.builder().githubId(githubId).githubLogin("user" + githubId).build();
+  }
+
+  @Test
+  public void fresh_org_membership_is_read_from_the_shadow() throws Exception {
+    Course course = Course.builder().id(1L).orgMembersSyncedAt(FRESH).build();
+    when(shadowOrgMemberRepository.findByCourse(course))
+        .thenReturn(
+            List.of(
+                ShadowOrgMember.builder()
+                    .githubId(1)
+                    .githubLogin("user1")
+                    .orgStatus(OrgStatus.OWNER)
+                    .build(),
+                ShadowOrgMember.builder()
+                    .githubId(2)
+                    .githubLogin("user2")
+                    .orgStatus(OrgStatus.MEMBER)
+                    .build()));
+
+    OrgMembership membership = githubShadowService.getOrganizationMembership(course);
+
+    assertEquals(
+        new OrgMembership(List.of(person(2)), List.of(person(1)), List.of(), 0, 0), membership);
+    verifyNoInteractions(githubGraphQLService, courseRepository);
+  }
+
+  @Test
+  public void stale_org_membership_is_read_from_github_and_stored() throws Exception {
+    Course course = Course.builder().id(1L).orgMembersSyncedAt(STALE).build();
+    OrgMembership fromGithub =
+        new OrgMembership(
+            List.of(person(2), person(3)),
+            List.of(person(1), person(2)),
+            List.of(person(3), person(4)),
+            2,
+            2);
+    when(githubGraphQLService.getOrganizationMembership(course)).thenReturn(fromGithub);
+
+    assertSame(fromGithub, githubShadowService.getOrganizationMembership(course));
+
+    verify(shadowOrgMemberRepository).deleteByCourse(course);
+    ArgumentCaptor<Collection<ShadowOrgMember>> saved = ArgumentCaptor.captor();
+    verify(shadowOrgMemberRepository).saveAll(saved.capture());
+    assertEquals(
+        List.of(
+            ShadowOrgMember.builder()
+                .course(course)
+                .githubId(3)
+                .githubLogin("user3")
+                .orgStatus(OrgStatus.MEMBER)
+                .build(),
+            ShadowOrgMember.builder()
+                .course(course)
+                .githubId(4)
+                .githubLogin("user4")
+                .orgStatus(OrgStatus.INVITED)
+                .build(),
+            ShadowOrgMember.builder()
+                .course(course)
+                .githubId(2)
+                .githubLogin("user2")
+                .orgStatus(OrgStatus.OWNER)
+                .build(),
+            ShadowOrgMember.builder()
+                .course(course)
+                .githubId(1)
+                .githubLogin("user1")
+                .orgStatus(OrgStatus.OWNER)
+                .build()),
+        List.copyOf(saved.getValue()));
+    verify(courseRepository).setOrgMembersSyncedAt(1L, NOW);
+    assertEquals(NOW, course.getOrgMembersSyncedAt());
+  }
+
+  @Test
+  public void never_synced_org_membership_is_read_from_github() throws Exception {
+    Course course = Course.builder().id(1L).build();
+    when(githubGraphQLService.getOrganizationMembership(course))
+        .thenReturn(new OrgMembership(List.of(), List.of(), List.of(), 1, 1));
+
+    githubShadowService.getOrganizationMembership(course);
+
+    verify(courseRepository).setOrgMembersSyncedAt(1L, NOW);
+    verify(shadowOrgMemberRepository, never()).findByCourse(any());
+  }
+
+  @Test
+  public void stale_teams_are_read_from_github_and_stored() throws Exception {
+    Course course = Course.builder().id(1L).orgName("ucsb-cs156").teamsSyncedAt(STALE).build();
+    when(githubTeamService.getAllTeams(course))
+        .thenReturn(List.of(new GithubTeamInfo(7, "Team A", "team-a")));
+    when(githubTeamService.getTeamMemberships("team-a", course))
+        .thenReturn(Map.of("student", TeamStatus.TEAM_MAINTAINER));
+    ShadowTeam team =
+        ShadowTeam.builder().course(course).githubTeamId(7).name("Team A").slug("team-a").build();
+    ShadowTeamMembership membership =
+        ShadowTeamMembership.builder()
+            .course(course)
+            .githubTeamId(7)
+            .githubLogin("student")
+            .teamStatus(TeamStatus.TEAM_MAINTAINER)
+            .build();
+    when(shadowTeamRepository.findByCourse(course)).thenReturn(List.of(team));
+    when(shadowTeamMembershipRepository.findByCourse(course)).thenReturn(List.of(membership));
+
+    GithubTeamIndex index = githubShadowService.getTeamIndex(course);
+    Map<Integer, Map<String, TeamStatus>> memberships =
+        githubShadowService.getTeamMemberships(course);
+
+    assertEquals(new GithubTeamInfo(7, "Team A", "team-a"), index.findById(7));
+    assertEquals(Map.of(7, Map.of("student", TeamStatus.TEAM_MAINTAINER)), memberships);
+    verify(shadowTeamMembershipRepository).deleteByCourse(course);
+    verify(shadowTeamRepository).deleteByCourse(course);
+    verify(shadowTeamRepository).saveAll(List.of(team));
+    verify(shadowTeamMembershipRepository).saveAll(List.of(membership));
+    verify(courseRepository).setTeamsSyncedAt(1L, NOW);
+    assertEquals(NOW, course.getTeamsSyncedAt());
+    // The second read finds the shadow fresh
+    verify(githubTeamService).getAllTeams(course);
+  }
+
+  @Test
+  public void fresh_teams_are_read_from_the_shadow() throws Exception {
+    Course course = Course.builder().id(1L).teamsSyncedAt(FRESH).build();
+    when(shadowTeamMembershipRepository.findByCourse(course))
+        .thenReturn(
+            List.of(
+                ShadowTeamMembership.builder()
+                    .githubTeamId(7)
+                    .githubLogin("a")
+                    .teamStatus(TeamStatus.TEAM_MEMBER)
+                    .build(),
+                ShadowTeamMembership.builder()
+                    .githubTeamId(7)
+                    .githubLogin("b")
+                    .teamStatus(TeamStatus.TEAM_MAINTAINER)
+                    .build()));
+
+    assertEquals(
+        Map.of(7, Map.of("a", TeamStatus.TEAM_MEMBER, "b", TeamStatus.TEAM_MAINTAINER)),
+        githubShadowService.getTeamMemberships(course));
+    verifyNoInteractions(githubTeamService, courseRepository);
+  }
+
+  @Test
+  public void stale_repositories_are_read_from_github_and_stored() throws Exception {
+    Course course = Course.builder().id(1L).repositoriesSyncedAt(STALE).build();
+    when(repositoryService.streamRepositoriesMatchingPrefix(course, ""))
+        .thenReturn(Stream.of(new GithubRepository("Team-Repo", "ucsb-cs156/Team-Repo")));
+
+    GithubRepositoryIndex index = githubShadowService.getRepositoryIndex(course);
+
+    assertEquals(Set.of("team-repo"), index.names());
+    verify(shadowRepositoryRepository).deleteByCourse(course);
+    verify(shadowRepositoryRepository)
+        .saveAll(List.of(ShadowRepository.builder().course(course).name("team-repo").build()));
+    verify(courseRepository).setRepositoriesSyncedAt(1L, NOW);
+    assertEquals(NOW, course.getRepositoriesSyncedAt());
+  }
+
+  @Test
+  public void fresh_repositories_are_read_from_the_shadow() throws Exception {
+    Course course = Course.builder().id(1L).repositoriesSyncedAt(FRESH).build();
+    when(shadowRepositoryRepository.findByCourse(course))
+        .thenReturn(List.of(ShadowRepository.builder().name("team-repo").build()));
+
+    GithubRepositoryIndex index = githubShadowService.getRepositoryIndex(course);
+
+    assertTrue(index.contains("Team-Repo"));
+    verifyNoInteractions(repositoryService, courseRepository);
+  }
+
+  @Test
+  public void recordOrgMember_adds_and_updates_members() {
+    Course course = Course.builder().id(1L).build();
+    ShadowOrgMember existing =
+        ShadowOrgMember.builder()
+            .id(5L)
+            .course(course)
+            .githubId(2)
+            .githubLogin("old")
+            .orgStatus(OrgStatus.INVITED)
+            .build();
+    when(shadowOrgMemberRepository.findByCourseAndGithubId(course, 1)).thenReturn(Optional.empty());
+    when(shadowOrgMemberRepository.findByCourseAndGithubId(course, 2))
+        .thenReturn(Optional.of(existing));
+
+    githubShadowService.recordOrgMember(course, 1, "user1", OrgStatus.OWNER);
+    githubShadowService.recordOrgMember(course, 2, "user2", OrgStatus.MEMBER);
+
+    verify(shadowOrgMemberRepository)
+        .save(
+            ShadowOrgMember.builder()
+                .course(course)
+                .githubId(1)
+                .githubLogin("user1")
+                .orgStatus(OrgStatus.OWNER)
+                .build());
+    assertEquals("user2", existing.getGithubLogin());
+    assertEquals(OrgStatus.MEMBER, existing.getOrgStatus());
+    verify(shadowOrgMemberRepository).save(existing);
+  }
+
+  @Test
+  public void recordOrgMember_removes_people_who_left() {
+    Course course = Course.builder().id(1L).build();
+    ShadowOrgMember existing = ShadowOrgMember.builder().id(5L).course(course).githubId(2).build();
+    when(shadowOrgMemberRepository.findByCourseAndGithubId(course, 1)).thenReturn(Optional.empty());
+    when(shadowOrgMemberRepository.findByCourseAndGithubId(course, 2))
+        .thenReturn(Optional.of(existing));
+    when(shadowOrgMemberRepository.findByCourseAndGithubId(course, 3)).thenReturn(Optional.empty());
+
+    githubShadowService.recordOrgMember(course, 1, "user1", OrgStatus.JOINCOURSE);
+    githubShadowService.recordOrgMember(course, 2, "user2", OrgStatus.JOINCOURSE);
+    githubShadowService.recordOrgMember(course, 3, "user3", OrgStatus.INVITED);
+
+    verify(shadowOrgMemberRepository).delete(existing);
+    verify(shadowOrgMemberRepository, never()).save(existing);
+    verify(shadowOrgMemberRepository)
+        .save(
+            ShadowOrgMember.builder()
+                .course(course)
+                .githubId(3)
+                .githubLogin("user3")
+                .orgStatus(OrgStatus.INVITED)
+                .build());
+  }
+
+  @Test
+  public void recordTeam_adds_and_renames_teams() {
+    Course course = Course.builder().id(1L).build();
+    ShadowTeam existing =
+        ShadowTeam.builder().id(5L).course(course).githubTeamId(8).name("Old").slug("old").build();
+    when(shadowTeamRepository.findByCourseAndGithubTeamId(course, 7)).thenReturn(Optional.empty());
+    when(shadowTeamRepository.findByCourseAndGithubTeamId(course, 8))
+        .thenReturn(Optional.of(existing));
+
+    githubShadowService.recordTeam(course, new GithubTeamInfo(7, "Team A", "team-a"));
+    githubShadowService.recordTeam(course, new GithubTeamInfo(8, "Team B", "team-b"));
+
+    verify(shadowTeamRepository)
+        .save(
+            ShadowTeam.builder()
+                .course(course)
+                .githubTeamId(7)
+                .name("Team A")
+                .slug("team-a")
+                .build());
+    assertEquals("Team B", existing.getName());
+    assertEquals("team-b", existing.getSlug());
+    verify(shadowTeamRepository).save(existing);
+  }
+
+  @Test
+  public void removeTeam_deletes_team_and_its_memberships() {
+    Course course = Course.builder().id(1L).build();
+    ShadowTeam existing = ShadowTeam.builder().id(5L).course(course).githubTeamId(7).build();
+    when(shadowTeamRepository.findByCourseAndGithubTeamId(course, 7))
+        .thenReturn(Optional.of(existing));
+    when(shadowTeamRepository.findByCourseAndGithubTeamId(course, 8)).thenReturn(Optional.empty());
+
+    githubShadowService.removeTeam(course, 7);
+    githubShadowService.removeTeam(course, 8);
+
+    verify(shadowTeamMembershipRepository).deleteByCourseAndGithubTeamId(course, 7);
+    verify(shadowTeamMembershipRepository).deleteByCourseAndGithubTeamId(course, 8);
+    verify(shadowTeamRepository).delete(existing);
+  }
+
+  @Test
+  public void recordTeamMembership_adds_members_but_keeps_maintainers() {
+    Course course = Course.builder().id(1L).build();
+    ShadowTeamMembership maintainer =
+        ShadowTeamMembership.builder()
+            .id(5L)
+            .course(course)
+            .githubTeamId(7)
+            .githubLogin("maintainer")
+            .teamStatus(TeamStatus.TEAM_MAINTAINER)
+            .build();
+    when(shadowTeamMembershipRepository.findByCourseAndGithubTeamIdAndGithubLogin(
+            course, 7, "student"))
+        .thenReturn(Optional.empty());
+    when(shadowTeamMembershipRepository.findByCourseAndGithubTeamIdAndGithubLogin(
+            course, 7, "maintainer"))
+        .thenReturn(Optional.of(maintainer));
+
+    githubShadowService.recordTeamMembership(course, 7, "student", TeamStatus.TEAM_MAINTAINER);
+    githubShadowService.recordTeamMembership(course, 7, "maintainer", TeamStatus.TEAM_MEMBER);
+
+    verify(shadowTeamMembershipRepository)
+        .save(
+            ShadowTeamMembership.builder()
+                .course(course)
+                .githubTeamId(7)
+                .githubLogin("student")
+                .teamStatus(TeamStatus.TEAM_MAINTAINER)
+                .build());
+    assertEquals(TeamStatus.TEAM_MAINTAINER, maintainer.getTeamStatus());
+    verify(shadowTeamMembershipRepository, never()).save(maintainer);
+  }
+
+  @Test
+  public void recordTeamMembership_removes_people_who_left() {
+    Course course = Course.builder().id(1L).build();
+    ShadowTeamMembership existing =
+        ShadowTeamMembership.builder()
+            .id(5L)
+            .course(course)
+            .githubTeamId(7)
+            .githubLogin("student")
+            .teamStatus(TeamStatus.TEAM_MEMBER)
+            .build();
+    when(shadowTeamMembershipRepository.findByCourseAndGithubTeamIdAndGithubLogin(
+            course, 7, "student"))
+        .thenReturn(Optional.of(existing));
+    when(shadowTeamMembershipRepository.findByCourseAndGithubTeamIdAndGithubLogin(
+            course, 7, "other"))
+        .thenReturn(Optional.empty());
+
+    githubShadowService.recordTeamMembership(course, 7, "student", null);
+    githubShadowService.recordTeamMembership(course, 7, "other", TeamStatus.NOT_ORG_MEMBER);
+
+    verify(shadowTeamMembershipRepository).delete(existing);
+    verify(shadowTeamMembershipRepository, never()).save(any());
+  }
+
+  @Test
+  public void recordRepositories_adds_only_new_names() {
+    Course course = Course.builder().id(1L).build();
+    when(shadowRepositoryRepository.findByCourseAndNameIn(course, Set.of("team-a", "team-b")))
+        .thenReturn(List.of(ShadowRepository.builder().id(5L).name("team-a").build()));
+
+    githubShadowService.recordRepositories(course, List.of("Team-A", "Team-B", "team-b"));
+
+    verify(shadowRepositoryRepository)
+        .saveAll(List.of(ShadowRepository.builder().course(course).name("team-b").build()));
+    verify(shadowRepositoryRepository, never()).findByCourseAndName(any(), any());
+  }
+
+  @Test
+  public void recordRepositories_with_no_names_does_nothing() {
+    githubShadowService.recordRepositories(Course.builder().id(1L).build(), List.of());
+
+    verifyNoInteractions(shadowRepositoryRepository);
+  }
+
+  @Test
+  public void removeRepository_deletes_the_name_if_present() {
+    Course course = Course.builder().id(1L).build();
+    ShadowRepository existing = ShadowRepository.builder().id(5L).name("team-a").build();
+    when(shadowRepositoryRepository.findByCourseAndName(course, "team-a"))
+        .thenReturn(Optional.of(existing));
+    when(shadowRepositoryRepository.findByCourseAndName(course, "team-b"))
+        .thenReturn(Optional.empty());
+
+    githubShadowService.removeRepository(course, "Team-A");
+    githubShadowService.removeRepository(course, "team-b");
+
+    verify(shadowRepositoryRepository).delete(existing);
+  }
+}
@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class GithubTeamIndexTests {
+
+  private final GithubTeamInfo teamA = new GithubTeamInfo(11, "Team A", "team-a");
+  private final GithubTeamInfo teamB = new GithubTeamInfo(12, "Team B");
+
+  @Test
+  public void finds_teams_by_id_slug_and_name() {
+    GithubTeamIndex index = new GithubTeamIndex(List.of(teamA, teamB));
+
+    assertEquals(2, index.size());
+    assertEquals(teamA, index.findById(11));
+    assertEquals(teamA, index.findBySlug("team-a"));
+    assertEquals(teamA, index.findByName("Team A"));
+    assertEquals(teamB, index.findById(12));
+    assertEquals(teamB, index.findByName("Team B"));
+  }
+
+  @Test
+  public void missing_and_null_keys_return_null() {
+    GithubTeamIndex index = new GithubTeamIndex(List.of(teamA, teamB));
+
+    assertNull(index.findById(99));
+    assertNull(index.findById(null));
+    assertNull(index.findBySlug(null));
+    assertNull(index.findBySlug("team-c"));
+    assertNull(index.findByName(null));
+  }
+
+  @Test
+  public void added_teams_can_be_found() {
+    GithubTeamIndex index = new GithubTeamIndex(List.of());
+    GithubTeamInfo created = new GithubTeamInfo(13, "Team C", "team-c");
+
+    index.add(created);
+
+    assertEquals(1, index.size());
+    assertEquals(created, index.findById(13));
+    assertEquals(created, index.findBySlug("team-c"));
+    assertEquals(created, index.findByName("Team C"));
+  }
+}
@@ -4,19 +4,20 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.Team;
 import edu.ucsb.cs156.frontiers.enums.TeamStatus;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -30,16 +31,26 @@ public class GithubTeamServiceTests {
 
   @Mock private JwtService jwtService;
   @Mock private RestTemplate restTemplate;
-  @Mock private RestTemplateBuilder restTemplateBuilder;
+  @Mock private GithubPaginator githubPaginator;
+
+  private static final String TEAMS_URL = "https://api.github.com/orgs/test-org/teams";
+  private static final String MEMBERS_URL =
+      "https://api.github.com/orgs/test-org/teams/team-a/members";
 
   private GithubTeamService githubTeamService;
   private ObjectMapper objectMapper;
 
   @BeforeEach
   public void setup() {
-    when(restTemplateBuilder.build()).thenReturn(restTemplate);
     objectMapper = new ObjectMapper();
-    githubTeamService = new GithubTeamService(jwtService, objectMapper, restTemplateBuilder);
+    githubTeamService =
+        new GithubTeamService(jwtService, objectMapper, restTemplate, githubPaginator);
+  }
+
+  private Stream<GithubTeamService.GithubTeamInfo> teams(String json) throws Exception {
+    return objectMapper
+        .readValue(json, new TypeReference<List<GithubTeamService.GithubTeamInfo>>() {})
+        .stream();
   }
 
   @Test
@@ -131,12 +142,8 @@ public class GithubTeamServiceTests {
             any(HttpEntity.class),
             eq(String.class)))
         .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>("[]", HttpStatus.OK));
+    when(githubPaginator.stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class))
+        .thenReturn(teams("[]"));
     when(restTemplate.exchange(
             eq("https://api.github.com/orgs/test-org/teams"),
             eq(HttpMethod.POST),
@@ -156,18 +163,79 @@ public class GithubTeamServiceTests {
             eq(HttpMethod.GET),
             any(HttpEntity.class),
             eq(String.class));
+    verify(githubPaginator).stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class);
     verify(restTemplate)
         .exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
+            eq("https://api.github.com/orgs/test-org/teams"),
+            eq(HttpMethod.POST),
             any(HttpEntity.class),
             eq(String.class));
-    verify(restTemplate)
-        .exchange(
+  }
+
+  @Test
+  public void testCreateOrGetTeamInfo_WithIndex_FindsTeamBySlug() throws Exception {
+    Course course = Course.builder().orgName("test-org").installationId("123").build();
+    Team team = Team.builder().name("Renamed Team").githubTeamSlug("test-team").build();
+    GithubTeamService.GithubTeamInfo indexed =
+        new GithubTeamService.GithubTeamInfo(456, "test-team", "test-team");
+    GithubTeamIndex teamIndex = new GithubTeamIndex(List.of(indexed));
+
+    assertEquals(indexed, githubTeamService.createOrGetTeamInfo(team, course, teamIndex));
+    verifyNoInteractions(jwtService, restTemplate);
+  }
+
+  @Test
+  public void testCreateOrGetTeamInfo_WithIndex_FindsTeamByName() throws Exception {
+    Course course = Course.builder().orgName("test-org").installationId("123").build();
+    Team team = Team.builder().name("Test Team").build();
+    GithubTeamService.GithubTeamInfo indexed =
+        new GithubTeamService.GithubTeamInfo(456, "Test Team", "test-team");
+    GithubTeamIndex teamIndex = new GithubTeamIndex(List.of(indexed));
+
+    assertEquals(indexed, githubTeamService.createOrGetTeamInfo(team, course, teamIndex));
+    verifyNoInteractions(jwtService, restTemplate);
+  }
+
+  @Test
+  public void testCreateOrGetTeamInfo_WithIndex_CreatesMissingTeamAndIndexesIt() throws Exception {
+    Course course = Course.builder().orgName("test-org").installationId("123").build();
+    Team team = Team.builder().name("test-team").githubTeamSlug("stale-slug").build();
+    GithubTeamIndex teamIndex = new GithubTeamIndex(List.of());
+    String createTeamResponse = "{\"id\": 789, \"name\": \"test-team\", \"slug\": \"test-team\"}";
+
+    when(jwtService.getInstallationToken(course)).thenReturn("test-token");
+    when(restTemplate.exchange(
             eq("https://api.github.com/orgs/test-org/teams"),
             eq(HttpMethod.POST),
             any(HttpEntity.class),
-            eq(String.class));
+            eq(String.class)))
+        .thenReturn(new ResponseEntity<>(createTeamResponse, HttpStatus.CREATED));
+
+    GithubTeamService.GithubTeamInfo result =
+        githubTeamService.createOrGetTeamInfo(team, course, teamIndex);
+
+    assertEquals(new GithubTeamService.GithubTeamInfo(789, "test-team", "test-team"), result);
+    assertEquals(result, teamIndex.findById(789));
+    assertEquals(result, githubTeamService.createOrGetTeamInfo(team, course, teamIndex));
+    verify(restTemplate, times(1))
+        .exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+  }
+
+  @Test
+  public void testGetTeamIndex_IndexesAllTeams() throws Exception {
+    Course course = Course.builder().orgName("test-org").installationId("123").build();
+    when(jwtService.getInstallationToken(course)).thenReturn("test-token");
+    when(githubPaginator.stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class))
+        .thenReturn(
+            teams(
+                "[{\"id\": 11, \"name\": \"Team A\", \"slug\": \"team-a\"},"
+                    + " {\"id\": 12, \"name\": \"Team B\", \"slug\": \"team-b\"}]"));
+
+    GithubTeamIndex teamIndex = githubTeamService.getTeamIndex(course);
+
+    assertEquals(2, teamIndex.size());
+    assertEquals(12, teamIndex.findBySlug("team-b").id());
+    assertEquals("team-a", teamIndex.findByName("Team A").slug());
   }
 
   @Test
@@ -347,12 +415,8 @@ public class GithubTeamServiceTests {
         "[{\"id\": 111, \"name\": \"team-a\", \"slug\": \"team-a\"}, {\"id\": 222, \"name\": \"team-b\", \"slug\": \"team-b\"}]";
 
     when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(allTeamsResponse, HttpStatus.OK));
+    when(githubPaginator.stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class))
+        .thenReturn(teams(allTeamsResponse));
 
     GithubTeamService.GithubTeamInfo result =
         githubTeamService.getTeamInfoByName("missing-team", course);
@@ -597,12 +661,8 @@ public class GithubTeamServiceTests {
             any(HttpEntity.class),
             eq(String.class)))
         .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>("[]", HttpStatus.OK));
+    when(githubPaginator.stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class))
+        .thenReturn(teams("[]"));
     // Second call to createTeam
     when(restTemplate.exchange(
             eq("https://api.github.com/orgs/test-org/teams"),
@@ -631,12 +691,8 @@ public class GithubTeamServiceTests {
         "[{\"id\": 456, \"name\": \"Display Name\", \"slug\": \"display-name\"}]";
 
     when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(allTeamsResponse, HttpStatus.OK));
+    when(githubPaginator.stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class))
+        .thenReturn(teams(allTeamsResponse));
 
     GithubTeamService.GithubTeamInfo result = githubTeamService.createOrGetTeamInfo(team, course);
 
@@ -659,12 +715,8 @@ public class GithubTeamServiceTests {
         "[{\"id\": 456, \"name\": \"Display Name\", \"slug\": \"display-name\"}]";
 
     when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(allTeamsResponse, HttpStatus.OK));
+    when(githubPaginator.stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class))
+        .thenReturn(teams(allTeamsResponse));
 
     GithubTeamService.GithubTeamInfo result = githubTeamService.createOrGetTeamInfo(team, course);
 
@@ -759,6 +811,17 @@ public class GithubTeamServiceTests {
             eq(String.class));
   }
 
+  @Test
+  public void test_getOrgId_usesStoredOrgId() throws Exception {
+    Course course =
+        Course.builder().orgName("test-org").installationId("123").githubOrgId(12345).build();
+
+    Integer orgId = githubTeamService.getOrgId("test-org", course);
+
+    assertEquals(Integer.valueOf(12345), orgId);
+    verifyNoInteractions(jwtService, restTemplate);
+  }
+
   @Test
   public void testGetOrgId_VerifyHeaders() throws Exception {
     // Arrange
@@ -792,12 +855,8 @@ public class GithubTeamServiceTests {
     String response = "[{\"id\": 11, \"name\": \"team-a\"}, {\"id\": 12, \"name\": \"team-b\"}]";
 
     when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(response, HttpStatus.OK));
+    when(githubPaginator.stream(TEAMS_URL, "test-token", GithubTeamService.GithubTeamInfo.class))
+        .thenReturn(teams(response));
 
     List<GithubTeamService.GithubTeamInfo> teams = githubTeamService.getAllTeams(course);
 
@@ -808,177 +867,24 @@ public class GithubTeamServiceTests {
     assertEquals("team-b", teams.get(1).name());
   }
 
-  @Test
-  public void testGetAllTeams_VerifyHeaders() throws Exception {
-    Course course = Course.builder().orgName("test-org").installationId("123").build();
-    String token = "test-token";
-    ArgumentCaptor<HttpEntity> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
-
-    when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            entityCaptor.capture(),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>("[{\"id\": 11, \"name\": \"team-a\"}]", HttpStatus.OK));
-
-    githubTeamService.getAllTeams(course);
-
-    HttpEntity<String> capturedEntity = entityCaptor.getValue();
-    HttpHeaders headers = capturedEntity.getHeaders();
-    assertEquals("Bearer " + token, headers.getFirst("Authorization"));
-    assertEquals("application/vnd.github+json", headers.getFirst("Accept"));
-    assertEquals("2022-11-28", headers.getFirst("X-GitHub-Api-Version"));
-  }
-
-  @Test
-  public void testGetAllTeams_WithPagination() throws Exception {
-    Course course = Course.builder().orgName("test-org").installationId("123").build();
-    String token = "test-token";
-    String firstPage = "[{\"id\": 11, \"name\": \"team-a\"}]";
-    String secondPage = "[{\"id\": 12, \"name\": \"team-b\"}]";
-    String nextUrl = "https://api.github.com/orgs/test-org/teams?per_page=100&page=2";
-
-    HttpHeaders firstHeaders = new HttpHeaders();
-    firstHeaders.add(
-        "link",
-        "<"
-            + nextUrl
-            + ">; rel=\"next\", <https://api.github.com/orgs/test-org/teams?per_page=100&page=2>; rel=\"last\"");
-    HttpHeaders secondHeaders = new HttpHeaders();
-    secondHeaders.add(
-        "link",
-        "<https://api.github.com/orgs/test-org/teams?per_page=100&page=1>; rel=\"previous\"");
-
-    when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(firstPage, firstHeaders, HttpStatus.OK));
-    when(restTemplate.exchange(
-            eq(nextUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
-        .thenReturn(new ResponseEntity<>(secondPage, secondHeaders, HttpStatus.OK));
-
-    List<GithubTeamService.GithubTeamInfo> teams = githubTeamService.getAllTeams(course);
-
-    assertEquals(2, teams.size());
-    assertEquals(Integer.valueOf(11), teams.get(0).id());
-    assertEquals(Integer.valueOf(12), teams.get(1).id());
-    verify(restTemplate)
-        .exchange(
-            eq("https://api.github.com/orgs/test-org/teams?per_page=100"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class));
-    verify(restTemplate)
-        .exchange(eq(nextUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
-  }
-
   @Test
   public void testGetTeamMemberships_MemberAndMaintainer() throws Exception {
     Course course = Course.builder().orgName("test-org").installationId("123").build();
-    String token = "test-token";
-    String memberResponse = "[{\"login\": \"student-a\"}]";
-    String maintainerResponse = "[{\"login\": \"maintainer-a\"}]";
-
-    when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq(
-                "https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=member"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(memberResponse, HttpStatus.OK));
-    when(restTemplate.exchange(
-            eq(
-                "https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=maintainer"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(maintainerResponse, HttpStatus.OK));
-
-    Map<String, TeamStatus> memberships = githubTeamService.getTeamMemberships("team-a", course);
-
-    assertEquals(2, memberships.size());
-    assertEquals(TeamStatus.TEAM_MEMBER, memberships.get("student-a"));
-    assertEquals(TeamStatus.TEAM_MAINTAINER, memberships.get("maintainer-a"));
-  }
-
-  @Test
-  public void testGetTeamMemberships_VerifyHeaders() throws Exception {
-    Course course = Course.builder().orgName("test-org").installationId("123").build();
-    String token = "test-token";
-    String membersUrl =
-        "https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=member";
-    String maintainersUrl =
-        "https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=maintainer";
-
-    when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq(membersUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
-        .thenReturn(new ResponseEntity<>("[{\"login\": \"student-a\"}]", HttpStatus.OK));
-    when(restTemplate.exchange(
-            eq(maintainersUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
-        .thenReturn(new ResponseEntity<>("[{\"login\": \"maintainer-a\"}]", HttpStatus.OK));
 
-    githubTeamService.getTeamMemberships("team-a", course);
-
-    @SuppressWarnings("unchecked")
-    ArgumentCaptor<HttpEntity<String>> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
-    verify(restTemplate)
-        .exchange(eq(membersUrl), eq(HttpMethod.GET), entityCaptor.capture(), eq(String.class));
-    verify(restTemplate)
-        .exchange(eq(maintainersUrl), eq(HttpMethod.GET), entityCaptor.capture(), eq(String.class));
-
-    for (HttpEntity<String> capturedEntity : entityCaptor.getAllValues()) {
-      HttpHeaders headers = capturedEntity.getHeaders();
-      assertEquals("Bearer " + token, headers.getFirst("Authorization"));
-      assertEquals("application/vnd.github+json", headers.getFirst("Accept"));
-      assertEquals("2022-11-28", headers.getFirst("X-GitHub-Api-Version"));
-    }
-  }
-
-  @Test
-  public void testGetTeamMemberships_WithPagination() throws Exception {
-    Course course = Course.builder().orgName("test-org").installationId("123").build();
-    String token = "test-token";
-    String memberPage1 = "[{\"login\": \"student-a\"}]";
-    String memberPage2 = "[{\"login\": \"student-b\"}]";
-    String memberNextUrl =
-        "https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=member&page=2";
-    String maintainerResponse = "[{\"login\": \"maintainer-a\"}]";
-
-    HttpHeaders memberHeaders = new HttpHeaders();
-    memberHeaders.add(
-        "link",
-        "<"
-            + memberNextUrl
-            + ">; rel=\"next\", <https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=member&page=2>; rel=\"last\"");
-    HttpHeaders secondPageHeaders = new HttpHeaders();
-    secondPageHeaders.add(
-        "link",
-        "<https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=member&page=1>; rel=\"previous\"");
-
-    when(jwtService.getInstallationToken(course)).thenReturn(token);
-    when(restTemplate.exchange(
-            eq(
-                "https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=member"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(memberPage1, memberHeaders, HttpStatus.OK));
-    when(restTemplate.exchange(
-            eq(memberNextUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
-        .thenReturn(new ResponseEntity<>(memberPage2, secondPageHeaders, HttpStatus.OK));
-    when(restTemplate.exchange(
-            eq(
-                "https://api.github.com/orgs/test-org/teams/team-a/members?per_page=100&role=maintainer"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(String.class)))
-        .thenReturn(new ResponseEntity<>(maintainerResponse, HttpStatus.OK));
+    when(jwtService.getInstallationToken(course)).thenReturn("test-token");
+    when(githubPaginator.stream(
+            MEMBERS_URL + "?role=member",
+            "test-token",
+            GithubTeamService.GithubTeamMemberInfo.class))
+        .thenReturn(
+            Stream.of(
+                new GithubTeamService.GithubTeamMemberInfo("student-a"),
+                new GithubTeamService.GithubTeamMemberInfo("student-b")));
+    when(githubPaginator.stream(
+            MEMBERS_URL + "?role=maintainer",
+            "test-token",
+            GithubTeamService.GithubTeamMemberInfo.class))
+        .thenReturn(Stream.of(new GithubTeamService.GithubTeamMemberInfo("maintainer-a")));
 
     Map<String, TeamStatus> memberships = githubTeamService.getTeamMemberships("team-a", course);
 
@@ -5,6 +5,7 @@ import static org.awaitility.Awaitility.await;
 import static org.hamcrest.Matchers.samePropertyValuesAs;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 import edu.ucsb.cs156.frontiers.entities.Job;
@@ -124,6 +125,7 @@ public class JobServiceTests {
     Job expectedReturn = Job.builder().status("complete").build();
 
     doNothing().when(job).accept(any());
+    when(job.runsInOneTransaction()).thenReturn(true);
 
     when(contextFactory.createContext(eq(passedJob))).thenReturn(context);
     doNothing().when(job).accept(eq(context));
@@ -141,6 +143,7 @@ public class JobServiceTests {
 
     Job passedJob = Job.builder().status("running").build();
     doNothing().when(job).accept(any());
+    when(job.runsInOneTransaction()).thenReturn(true);
 
     when(contextFactory.createContext(eq(passedJob))).thenReturn(context);
     doThrow(new Exception("fail!")).when(job).accept(eq(context));
@@ -151,4 +154,26 @@ public class JobServiceTests {
     verify(contextFactory).createContext(eq(passedJob));
     assertEquals("error", passedJob.getStatus());
   }
+
+  @Test
+  void runAsyncJob_runs_job_without_transaction_when_job_opts_out() throws Exception {
+    TestJob job = mock(TestJob.class);
+    JobContext context = mock(JobContext.class);
+
+    Job passedJob = Job.builder().status("running").build();
+    Job expectedReturn = Job.builder().status("complete").build();
+
+    when(job.runsInOneTransaction()).thenReturn(false);
+    when(contextFactory.createContext(eq(passedJob))).thenReturn(context);
+
+    jobService.runJobAsync(passedJob, job);
+    await().atMost(2, SECONDS).untilAsserted(() -> verify(jobRepository).save(eq(expectedReturn)));
+    verify(job).accept(eq(context));
+    verify(transactionTemplate, never()).executeWithoutResult(any());
+  }
+
+  @Test
+  void jobs_run_in_one_transaction_by_default() {
+    assertTrue(TestJob.builder().build().runsInOneTransaction());
+  }
 }
@@ -1,14 +1,18 @@
 package edu.ucsb.cs156.frontiers.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.times;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.frontiers.config.GithubClientConfig;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.errors.NoLinkedOrganizationException;
 import edu.ucsb.cs156.frontiers.testconfig.DummyClock;
@@ -22,9 +26,15 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,16 +45,25 @@ import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
 
 @TestPropertySource(locations = "/testproperties.properties")
 @RestClientTest(JwtService.class)
-@Import({TestConfig.class})
+@Import({
+  TestConfig.class,
+  GithubClientConfig.class,
+  GithubRateLimitGovernor.class,
+  GithubEtagCache.class
+})
 public class JwtServiceTests {
   @Autowired private MockRestServiceServer mockRestServiceServer;
 
   @Autowired private JwtService jwtService;
 
+  @Autowired private GithubRateLimitGovernor rateLimitGovernor;
+
   @Value("${app.public.key:no-key-present}")
   private String publicKey;
 
@@ -61,6 +80,68 @@ public class JwtServiceTests {
     validateJwt(jwt, setInstant);
   }
 
+  @Test
+  public void testJwtIsReusedUntilNearExpiry()
+      throws NoSuchAlgorithmException, InvalidKeySpecException {
+    Instant signedAt = setInstant.plus(3, ChronoUnit.HOURS);
+    doReturn(Optional.of(signedAt)).when(dateTimeProvider).getNow();
+    String first = jwtService.getJwt();
+    doReturn(Optional.of(signedAt.plus(3, ChronoUnit.MINUTES))).when(dateTimeProvider).getNow();
+    String second = jwtService.getJwt();
+    assertEquals(first, second);
+    validateJwt(second, signedAt);
+  }
+
+  @Test
+  public void testJwtIsResignedWithinRefreshMargin()
+      throws NoSuchAlgorithmException, InvalidKeySpecException {
+    Instant signedAt = setInstant.plus(4, ChronoUnit.HOURS);
+    Instant later = signedAt.plus(4, ChronoUnit.MINUTES);
+    doReturn(Optional.of(signedAt)).when(dateTimeProvider).getNow();
+    String first = jwtService.getJwt();
+    doReturn(Optional.of(later)).when(dateTimeProvider).getNow();
+    String second = jwtService.getJwt();
+    assertNotEquals(first, second);
+    validateJwt(second, later);
+  }
+
+  @Test
+  public void testJwtIsResignedWhenClockIsBeforeSigningTime()
+      throws NoSuchAlgorithmException, InvalidKeySpecException {
+    Instant signedAt = setInstant.plus(5, ChronoUnit.HOURS);
+    Instant earlier = signedAt.minus(1, ChronoUnit.MINUTES);
+    doReturn(Optional.of(signedAt)).when(dateTimeProvider).getNow();
+    String first = jwtService.getJwt();
+    doReturn(Optional.of(earlier)).when(dateTimeProvider).getNow();
+    String second = jwtService.getJwt();
+    assertNotEquals(first, second);
+    validateJwt(second, earlier);
+  }
+
+  @Test
+  public void testLoadPrivateKey_failsFastOnMalformedKey() {
+    JwtService service =
+        new JwtService(new RestTemplate(), null, dateTimeProvider, rateLimitGovernor);
+    ReflectionTestUtils.setField(service, "privateKey", "not-a-private-key");
+
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, service::loadPrivateKey);
+
+    assertEquals("app.private.key is not a valid PKCS#8 RSA private key", thrown.getMessage());
+  }
+
+  @Test
+  public void testGetJwt_throwsWhenNoKeyConfigured() {
+    JwtService service =
+        new JwtService(new RestTemplate(), null, dateTimeProvider, rateLimitGovernor);
+    ReflectionTestUtils.setField(service, "privateKey", JwtService.NO_KEY_PRESENT);
+    service.loadPrivateKey();
+
+    InvalidKeySpecException thrown = assertThrows(InvalidKeySpecException.class, service::getJwt);
+
+    assertEquals("No GitHub App private key is configured", thrown.getMessage());
+  }
+
   @Test
   public void testObtainingInstallationToken()
       throws JsonProcessingException, NoSuchAlgorithmException, InvalidKeySpecException {
@@ -93,6 +174,140 @@ public class JwtServiceTests {
     assertEquals(expectedToken, token);
   }
 
+  private String tokenResponse(String token, Instant expiresAt) {
+    return String.format(
+        """
+            {
+              "token": "%s",
+              "expires_at": "%s"
+            }
+            """,
+        token, expiresAt);
+  }
+
+  private String tokenUrl(Course course) {
+    return "https://api.github.com/app/installations/"
+        + course.getInstallationId()
+        + "/access_tokens";
+  }
+
+  @Test
+  public void testInstallationTokenIsCachedUntilNearExpiry() throws Exception {
+    Course course = Course.builder().installationId("cached-1").orgName("ucsb-cs156").build();
+    mockRestServiceServer
+        .expect(once(), requestTo(tokenUrl(course)))
+        .andRespond(
+            withSuccess(
+                tokenResponse("first-token", setInstant.plus(1, ChronoUnit.HOURS)),
+                MediaType.APPLICATION_JSON));
+
+    doReturn(Optional.of(setInstant)).when(dateTimeProvider).getNow();
+    assertEquals("first-token", jwtService.getInstallationToken(course));
+    doReturn(Optional.of(setInstant.plus(54, ChronoUnit.MINUTES))).when(dateTimeProvider).getNow();
+    assertEquals("first-token", jwtService.getInstallationToken(course));
+    mockRestServiceServer.verify();
+  }
+
+  @Test
+  public void testInstallationTokenIsRefreshedWithinSafetyMargin() throws Exception {
+    Course course = Course.builder().installationId("cached-2").orgName("ucsb-cs156").build();
+    mockRestServiceServer
+        .expect(once(), requestTo(tokenUrl(course)))
+        .andRespond(
+            withSuccess(
+                tokenResponse("first-token", setInstant.plus(1, ChronoUnit.HOURS)),
+                MediaType.APPLICATION_JSON));
+    mockRestServiceServer
+        .expect(once(), requestTo(tokenUrl(course)))
+        .andRespond(
+            withSuccess(
+                tokenResponse("second-token", setInstant.plus(2, ChronoUnit.HOURS)),
+                MediaType.APPLICATION_JSON));
+
+    doReturn(Optional.of(setInstant)).when(dateTimeProvider).getNow();
+    assertEquals("first-token", jwtService.getInstallationToken(course));
+    doReturn(Optional.of(setInstant.plus(55, ChronoUnit.MINUTES))).when(dateTimeProvider).getNow();
+    assertEquals("second-token", jwtService.getInstallationToken(course));
+    mockRestServiceServer.verify();
+  }
+
+  @Test
+  public void testEvictInstallationTokenForcesNewMint() throws Exception {
+    Course course = Course.builder().installationId("cached-3").orgName("ucsb-cs156").build();
+    mockRestServiceServer
+        .expect(once(), requestTo(tokenUrl(course)))
+        .andRespond(
+            withSuccess(
+                tokenResponse("first-token", setInstant.plus(1, ChronoUnit.HOURS)),
+                MediaType.APPLICATION_JSON));
+    mockRestServiceServer
+        .expect(once(), requestTo(tokenUrl(course)))
+        .andRespond(
+            withSuccess(
+                tokenResponse("second-token", setInstant.plus(1, ChronoUnit.HOURS)),
+                MediaType.APPLICATION_JSON));
+
+    doReturn(Optional.of(setInstant)).when(dateTimeProvider).getNow();
+    assertEquals("first-token", jwtService.getInstallationToken(course));
+    assertEquals("cached-3", rateLimitGovernor.installationFor("Bearer first-token"));
+    jwtService.evictInstallationToken("cached-3");
+    assertEquals(
+        GithubRateLimitGovernor.APP, rateLimitGovernor.installationFor("Bearer first-token"));
+    assertEquals("second-token", jwtService.getInstallationToken(course));
+    assertEquals("cached-3", rateLimitGovernor.installationFor("Bearer second-token"));
+    mockRestServiceServer.verify();
+  }
+
+  @Test
+  public void testInstallationTokenRefreshedByAnotherCallerWhileWaiting() throws Exception {
+    Course course = Course.builder().installationId("cached-4").orgName("ucsb-cs156").build();
+    mockRestServiceServer
+        .expect(once(), requestTo(tokenUrl(course)))
+        .andRespond(
+            withSuccess(
+                tokenResponse("first-token", setInstant.plus(1, ChronoUnit.HOURS)),
+                MediaType.APPLICATION_JSON));
+
+    doReturn(Optional.of(setInstant)).when(dateTimeProvider).getNow();
+    assertEquals("first-token", jwtService.getInstallationToken(course));
+
+    // The first freshness check sees a stale token; the re-check under the lock sees a fresh one,
+    // as it would after another thread finished minting.
+    doReturn(Optional.of(setInstant.plus(58, ChronoUnit.MINUTES)))
+        .doReturn(Optional.of(setInstant))
+        .when(dateTimeProvider)
+        .getNow();
+    assertEquals("first-token", jwtService.getInstallationToken(course));
+    mockRestServiceServer.verify();
+  }
+
+  @Test
+  public void testConcurrentCallersShareOneMint() throws Exception {
+    Course course = Course.builder().installationId("cached-5").orgName("ucsb-cs156").build();
+    mockRestServiceServer
+        .expect(times(1), requestTo(tokenUrl(course)))
+        .andRespond(
+            withSuccess(
+                tokenResponse("shared-token", setInstant.plus(1, ChronoUnit.HOURS)),
+                MediaType.APPLICATION_JSON));
+    doReturn(Optional.of(setInstant)).when(dateTimeProvider).getNow();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      Callable<String> call = () -> jwtService.getInstallationToken(course);
+      for (int i = 0; i < 16; i++) {
+        futures.add(executor.submit(call));
+      }
+      for (Future<String> future : futures) {
+        assertEquals("shared-token", future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    mockRestServiceServer.verify();
+  }
+
   public void validateJwt(String compacted, Instant setInstant)
       throws InvalidKeySpecException, NoSuchAlgorithmException {
     String key = publicKey;
@@ -11,9 +11,11 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.frontiers.config.GithubClientConfig;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.errors.InvalidInstallationTypeException;
 import edu.ucsb.cs156.frontiers.models.CourseWarning;
+import edu.ucsb.cs156.frontiers.models.GithubOrganization;
 import edu.ucsb.cs156.frontiers.services.wiremock.WiremockService;
 import edu.ucsb.cs156.frontiers.testconfig.TestConfig;
 import java.security.NoSuchAlgorithmException;
@@ -32,7 +34,12 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.client.MockRestServiceServer;
 
 @RestClientTest(OrganizationLinkerService.class)
-@Import({TestConfig.class})
+@Import({
+  TestConfig.class,
+  GithubClientConfig.class,
+  GithubRateLimitGovernor.class,
+  GithubEtagCache.class
+})
 public class OrganizationLinkerServiceTests {
   @Autowired private OrganizationLinkerService organizationLinkerService;
 
@@ -84,6 +91,7 @@ public class OrganizationLinkerServiceTests {
                   "id": 1,
                   "account":{
                     "login" : "%s",
+                    "id" : 98765,
                     "type" : "Organization"
                   }
                 }
@@ -98,8 +106,8 @@ public class OrganizationLinkerServiceTests {
         .andExpect(header("X-GitHub-Api-Version", "2022-11-28"))
         .andRespond(withSuccess(apiResponse, MediaType.APPLICATION_JSON));
 
-    String actualOrgName = organizationLinkerService.getOrgName("123456");
-    assertEquals(orgName, actualOrgName);
+    GithubOrganization actual = organizationLinkerService.getOrganization("123456");
+    assertEquals(new GithubOrganization(orgName, 98765), actual);
   }
 
   @Test
@@ -134,7 +142,7 @@ public class OrganizationLinkerServiceTests {
         assertThrows(
             InvalidInstallationTypeException.class,
             () -> {
-              organizationLinkerService.getOrgName("123456");
+              organizationLinkerService.getOrganization("123456");
             });
 
     assertEquals(expectedMessage, thrownException.getMessage());
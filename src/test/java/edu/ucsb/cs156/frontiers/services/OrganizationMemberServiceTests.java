@@ -8,6 +8,7 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.frontiers.config.GithubClientConfig;
 import edu.ucsb.cs156.frontiers.entities.Course;
 import edu.ucsb.cs156.frontiers.entities.CourseStaff;
 import edu.ucsb.cs156.frontiers.entities.RosterStudent;
@@ -32,7 +33,13 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.client.MockRestServiceServer;
 
 @RestClientTest(OrganizationMemberService.class)
-@Import(TestConfig.class)
+@Import({
+  TestConfig.class,
+  GithubClientConfig.class,
+  GithubRateLimitGovernor.class,
+  GithubEtagCache.class,
+  GithubPaginator.class
+})
 public class OrganizationMemberServiceTests {
 
   @Autowired private OrganizationMemberService organizationMemberService;
@@ -67,7 +74,9 @@ public class OrganizationMemberServiceTests {
     String jsonResponse = objectMapper.writeValueAsString(expectedMembers);
 
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/members?role=member"))
+        .expect(
+            requestTo(
+                "https://api.github.com/orgs/" + TEST_ORG + "/members?role=member&per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andExpect(header("Accept", "application/vnd.github+json"))
@@ -102,7 +111,9 @@ public class OrganizationMemberServiceTests {
     secondPageHeaders.add(
         "link", "<https://api.github.com/orgs/" + TEST_ORG + "/members?page=1>; rel=\"previous\"");
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/members?role=member"))
+        .expect(
+            requestTo(
+                "https://api.github.com/orgs/" + TEST_ORG + "/members?role=member&per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andRespond(
@@ -132,7 +143,9 @@ public class OrganizationMemberServiceTests {
   @Test
   void testGetOrganizationMembers_EmptyResponse() throws Exception {
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/members?role=member"))
+        .expect(
+            requestTo(
+                "https://api.github.com/orgs/" + TEST_ORG + "/members?role=member&per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andRespond(withStatus(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body("[]"));
@@ -152,7 +165,9 @@ public class OrganizationMemberServiceTests {
     String jsonResponse = objectMapper.writeValueAsString(expectedAdmins);
 
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/members?role=admin"))
+        .expect(
+            requestTo(
+                "https://api.github.com/orgs/" + TEST_ORG + "/members?role=admin&per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andExpect(header("Accept", "application/vnd.github+json"))
@@ -187,7 +202,9 @@ public class OrganizationMemberServiceTests {
     secondPageHeaders.add(
         "link", "<https://api.github.com/orgs/" + TEST_ORG + "/members?page=1>; rel=\"previous\"");
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/members?role=admin"))
+        .expect(
+            requestTo(
+                "https://api.github.com/orgs/" + TEST_ORG + "/members?role=admin&per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andRespond(
@@ -216,7 +233,9 @@ public class OrganizationMemberServiceTests {
   @Test
   void testGetOrganizationAdmins_EmptyResponse() throws Exception {
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/members?role=admin"))
+        .expect(
+            requestTo(
+                "https://api.github.com/orgs/" + TEST_ORG + "/members?role=admin&per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andRespond(withStatus(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body("[]"));
@@ -437,7 +456,7 @@ public class OrganizationMemberServiceTests {
     String jsonResponse = objectMapper.writeValueAsString(expectedInvitees);
 
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/invitations"))
+        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/invitations?per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andExpect(header("Accept", "application/vnd.github+json"))
@@ -472,7 +491,7 @@ public class OrganizationMemberServiceTests {
         "link",
         "<https://api.github.com/orgs/" + TEST_ORG + "/invitations?page=1>; rel=\"previous\"");
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/invitations"))
+        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/invitations?per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andRespond(
@@ -501,7 +520,7 @@ public class OrganizationMemberServiceTests {
   @Test
   void testGetOrganizationInvitees_EmptyResponse() throws Exception {
     mockServer
-        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/invitations"))
+        .expect(requestTo("https://api.github.com/orgs/" + TEST_ORG + "/invitations?per_page=100"))
         .andExpect(method(HttpMethod.GET))
         .andExpect(header("Authorization", "Bearer " + TEST_TOKEN))
         .andRespond(withStatus(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body("[]"));
@@ -0,0 +1,987 @@
+package edu.ucsb.cs156.frontiers.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.frontiers.entities.Course;
+import edu.ucsb.cs156.frontiers.entities.CourseStaff;
+import edu.ucsb.cs156.frontiers.entities.RosterStudent;
+import edu.ucsb.cs156.frontiers.entities.Team;
+import edu.ucsb.cs156.frontiers.entities.TeamMember;
+import edu.ucsb.cs156.frontiers.entities.WebhookEvent;
+import edu.ucsb.cs156.frontiers.enums.OrgStatus;
+import edu.ucsb.cs156.frontiers.enums.TeamStatus;
+import edu.ucsb.cs156.frontiers.repositories.CourseRepository;
+import edu.ucsb.cs156.frontiers.repositories.CourseStaffRepository;
+import edu.ucsb.cs156.frontiers.repositories.RosterStudentRepository;
+import edu.ucsb.cs156.frontiers.repositories.TeamMemberRepository;
+import edu.ucsb.cs156.frontiers.repositories.TeamRepository;
+import edu.ucsb.cs156.frontiers.repositories.WebhookEventRepository;
+import edu.ucsb.cs156.frontiers.services.GithubTeamService.GithubTeamInfo;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class WebhookEventServiceTests {
+
+  @Mock private WebhookEventRepository webhookEventRepository;
+  @Mock private CourseRepository courseRepository;
+  @Mock private RosterStudentRepository rosterStudentRepository;
+  @Mock private CourseStaffRepository courseStaffRepository;
+  @Mock private TeamRepository teamRepository;
+  @Mock private TeamMemberRepository teamMemberRepository;
+  @Mock private GithubShadowService githubShadowService;
+  @Mock private JwtService jwtService;
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private static final Instant NOW = Instant.parse("2025-09-01T08:00:00Z");
+  private static final Instant RECEIVED = NOW.minusSeconds(5);
+
+  private WebhookEventService webhookEventService;
+
+  @BeforeEach
+  public void setup() {
+    webhookEventService =
+        new WebhookEventService(
+            webhookEventRepository,
+            courseRepository,
+            rosterStudentRepository,
+            courseStaffRepository,
+            teamRepository,
+            teamMemberRepository,
+            githubShadowService,
+            jwtService,
+            new ObjectMapper(),
+            new TransactionTemplate(transactionManager));
+    ReflectionTestUtils.setField(webhookEventService, "batchSize", 100);
+    ReflectionTestUtils.setField(webhookEventService, "retention", Duration.ofDays(7));
+    ReflectionTestUtils.setField(webhookEventService, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  /** Queues one organization event for each payload, as the next batch that drain() will see. */
+  private List<WebhookEvent> queue(String... payloads) {
+    return queueEvents("organization", payloads);
+  }
+
+  /** Queues one event of the given type for each payload. */
+  private List<WebhookEvent> queueEvents(String eventType, String... payloads) {
+    List<WebhookEvent> events = new ArrayList<>();
+    for (String payload : payloads) {
+      events.add(
+          WebhookEvent.builder()
+              .id((long) events.size() + 1)
+              .deliveryId("delivery-" + (events.size() + 1))
+              .eventType(eventType)
+              .payload(payload)
+              .receivedAt(RECEIVED)
+              .build());
+    }
+    when(webhookEventRepository.findByProcessedAtIsNullOrderByIdAsc(Limit.of(100)))
+        .thenReturn(events);
+    return events;
+  }
+
+  private static String memberAdded(String role, String login, String installationId) {
+    return """
+        {"action": "member_added",
+         "membership": {"role": "%s", "user": {"login": "%s", "id": 42}},
+         "installation": {"id": "%s"}}
+        """
+        .formatted(role, login, installationId);
+  }
+
+  private static String memberInvited(String login, String installationId) {
+    return """
+        {"action": "member_invited",
+         "user": {"login": "%s", "id": 42},
+         "installation": {"id": "%s"}}
+        """
+        .formatted(login, installationId);
+  }
+
+  private static String memberRemoved(String login, String installationId) {
+    return """
+        {"action": "member_removed",
+         "membership": {"role": "member", "user": {"login": "%s", "id": 42}},
+         "installation": {"id": "%s"}}
+        """
+        .formatted(login, installationId);
+  }
+
+  private static String teamMembership(
+      String action, String login, int teamId, String installationId) {
+    return """
+        {"action": "%s", "scope": "team",
+         "member": {"login": "%s"},
+         "team": {"id": %d, "name": "team", "slug": "team"},
+         "installation": {"id": "%s"}}
+        """
+        .formatted(action, login, teamId, installationId);
+  }
+
+  private static String teamEvent(
+      String action, int teamId, String name, String slug, String installationId) {
+    return """
+        {"action": "%s",
+         "team": {"id": %d, "name": "%s", "slug": "%s"},
+         "installation": {"id": "%s"}}
+        """
+        .formatted(action, teamId, name, slug, installationId);
+  }
+
+  @Test
+  public void enqueue_stores_new_delivery() {
+    when(webhookEventRepository.existsByDeliveryId("abc")).thenReturn(false);
+
+    assertTrue(webhookEventService.enqueue("abc", "organization", "{}"));
+
+    verify(webhookEventRepository)
+        .save(
+            WebhookEvent.builder()
+                .deliveryId("abc")
+                .eventType("organization")
+                .payload("{}")
+                .receivedAt(NOW)
+                .build());
+  }
+
+  @Test
+  public void enqueue_drops_known_delivery() {
+    when(webhookEventRepository.existsByDeliveryId("abc")).thenReturn(true);
+
+    assertFalse(webhookEventService.enqueue("abc", "organization", "{}"));
+
+    verify(webhookEventRepository, never()).save(any());
+  }
+
+  @Test
+  public void enqueue_drops_delivery_stored_by_concurrent_request() {
+    when(webhookEventRepository.existsByDeliveryId("abc")).thenReturn(false);
+    when(webhookEventRepository.save(any()))
+        .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+    assertFalse(webhookEventService.enqueue("abc", "organization", "{}"));
+  }
+
+  @Test
+  public void member_added_marks_student_as_member() {
+    Course course = Course.builder().installationId("1234").build();
+    RosterStudent student = RosterStudent.builder().githubLogin("testLogin").course(course).build();
+    List<WebhookEvent> events = queue(memberAdded("direct_member", "testLogin", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "testLogin"))
+        .thenReturn(Optional.of(student));
+
+    webhookEventService.drain();
+
+    assertEquals(OrgStatus.MEMBER, student.getOrgStatus());
+    verify(rosterStudentRepository).save(student);
+    assertEquals(RECEIVED, course.getLastMembershipWebhookAt());
+    verify(courseRepository).save(course);
+    verify(githubShadowService).recordOrgMember(course, 42, "testLogin", OrgStatus.MEMBER);
+    assertEquals(NOW, events.get(0).getProcessedAt());
+    assertNull(events.get(0).getError());
+    verify(webhookEventRepository).saveAll(events);
+    verify(webhookEventRepository).deleteByProcessedAtBefore(NOW.minus(Duration.ofDays(7)));
+    verify(transactionManager, times(2)).commit(any());
+  }
+
+  @Test
+  public void member_added_as_admin_marks_student_as_owner() {
+    Course course = Course.builder().installationId("1234").build();
+    RosterStudent student = RosterStudent.builder().githubLogin("testLogin").course(course).build();
+    queue(memberAdded("admin", "testLogin", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "testLogin"))
+        .thenReturn(Optional.of(student));
+
+    webhookEventService.drain();
+
+    assertEquals(OrgStatus.OWNER, student.getOrgStatus());
+    verify(rosterStudentRepository).save(student);
+    verify(courseStaffRepository, never()).save(any());
+  }
+
+  @Test
+  public void member_invited_marks_student_as_invited() {
+    Course course = Course.builder().installationId("1234").build();
+    RosterStudent student = RosterStudent.builder().githubLogin("testLogin").course(course).build();
+    queue(memberInvited("testLogin", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "testLogin"))
+        .thenReturn(Optional.of(student));
+
+    webhookEventService.drain();
+
+    assertEquals(OrgStatus.INVITED, student.getOrgStatus());
+    verify(rosterStudentRepository).save(student);
+    verify(githubShadowService).recordOrgMember(course, 42, "testLogin", OrgStatus.INVITED);
+  }
+
+  @Test
+  public void membership_events_update_course_staff() {
+    Course course = Course.builder().installationId("1234").build();
+    CourseStaff invited = CourseStaff.builder().githubLogin("invited").course(course).build();
+    CourseStaff member = CourseStaff.builder().githubLogin("member").course(course).build();
+    CourseStaff admin = CourseStaff.builder().githubLogin("admin").course(course).build();
+    queue(
+        memberInvited("invited", "1234"),
+        memberAdded("direct_member", "member", "1234"),
+        memberAdded("admin", "admin", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    for (CourseStaff staff : List.of(invited, member, admin)) {
+      when(courseStaffRepository.findByCourseAndGithubLogin(course, staff.getGithubLogin()))
+          .thenReturn(Optional.of(staff));
+    }
+
+    webhookEventService.drain();
+
+    assertEquals(OrgStatus.INVITED, invited.getOrgStatus());
+    assertEquals(OrgStatus.MEMBER, member.getOrgStatus());
+    assertEquals(OrgStatus.OWNER, admin.getOrgStatus());
+    verify(courseStaffRepository, times(3)).save(any(CourseStaff.class));
+    verify(rosterStudentRepository, never()).save(any());
+  }
+
+  @Test
+  public void courses_for_a_batch_are_found_with_one_query() {
+    Course course1 = Course.builder().installationId("1234").build();
+    Course course2 = Course.builder().installationId("5678").build();
+    queue(
+        memberInvited("a", "1234"),
+        memberInvited("b", "5678"),
+        memberAdded("direct_member", "a", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234", "5678")))
+        .thenReturn(List.of(course1, course2));
+
+    webhookEventService.drain();
+
+    verify(courseRepository, times(1)).findByInstallationIdIn(any());
+    verify(rosterStudentRepository, times(2)).findByCourseAndGithubLogin(course1, "a");
+    verify(rosterStudentRepository).findByCourseAndGithubLogin(course2, "b");
+  }
+
+  @Test
+  public void membership_event_without_student_or_staff_only_records_webhook_time() {
+    Course course = Course.builder().installationId("1234").build();
+    queue(memberAdded("direct_member", "testLogin", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+
+    webhookEventService.drain();
+
+    assertEquals(RECEIVED, course.getLastMembershipWebhookAt());
+    verify(rosterStudentRepository, never()).save(any());
+    verify(courseStaffRepository, never()).save(any());
+  }
+
+  @Test
+  public void membership_event_for_unknown_installation_is_ignored() {
+    queue(memberAdded("direct_member", "testLogin", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of());
+
+    webhookEventService.drain();
+
+    verify(courseRepository, never()).save(any());
+    verifyNoInteractions(rosterStudentRepository, courseStaffRepository);
+  }
+
+  @Test
+  public void incomplete_or_unhandled_events_are_marked_processed_without_lookups() {
+    List<WebhookEvent> events =
+        queue(
+            "{}",
+            """
+            {"action": "member_removed", "membership": {"user": {"login": "x"}},
+             "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_added", "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_added", "membership": {"role": "admin"},
+             "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_added", "membership": {"role": "admin", "user": {}},
+             "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_added", "membership": {"user": {"login": "x"}},
+             "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_added", "membership": {"role": "admin", "user": {"login": "x"}}}
+            """,
+            """
+            {"action": "member_added", "membership": {"role": "admin", "user": {"login": "x"}},
+             "installation": {}}
+            """,
+            """
+            {"action": "member_removed", "membership": {}, "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_invited", "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_invited", "user": {}, "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "member_invited", "user": {"login": "x"}}
+            """,
+            """
+            {"action": "member_invited", "user": {"login": "x"}, "installation": {}}
+            """);
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of());
+
+    webhookEventService.drain();
+
+    verify(courseRepository, never()).save(any());
+    verifyNoInteractions(
+        rosterStudentRepository, courseStaffRepository, jwtService, githubShadowService);
+    events.forEach(event -> assertEquals(NOW, event.getProcessedAt()));
+  }
+
+  @Test
+  public void unhandled_actions_do_not_look_up_courses() {
+    queue("""
+        {"action": "some_other_action", "installation": {"id": "1234"}}
+        """);
+
+    webhookEventService.drain();
+
+    verifyNoInteractions(courseRepository, rosterStudentRepository, courseStaffRepository);
+  }
+
+  @Test
+  public void invalid_json_is_recorded_as_error() {
+    List<WebhookEvent> events = queue("INVALID JSON");
+
+    webhookEventService.drain();
+
+    assertEquals("Invalid JSON", events.get(0).getError());
+    assertEquals(NOW, events.get(0).getProcessedAt());
+    verifyNoInteractions(courseRepository);
+  }
+
+  @Test
+  public void failing_handler_is_recorded_and_other_events_still_complete() {
+    Course course = Course.builder().installationId("1234").build();
+    RosterStudent before = RosterStudent.builder().githubLogin("before").course(course).build();
+    RosterStudent after = RosterStudent.builder().githubLogin("after").course(course).build();
+    List<WebhookEvent> events =
+        queue(
+            memberAdded("direct_member", "before", "1234"),
+            memberAdded("direct_member", "broken", "1234"),
+            memberAdded("direct_member", "after", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "before"))
+        .thenReturn(Optional.of(before));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "broken"))
+        .thenThrow(new IllegalStateException("unexpected payload"));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "after"))
+        .thenReturn(Optional.of(after));
+
+    webhookEventService.drain();
+
+    assertEquals(OrgStatus.MEMBER, before.getOrgStatus());
+    assertEquals(OrgStatus.MEMBER, after.getOrgStatus());
+    assertNull(events.get(0).getError());
+    assertEquals("IllegalStateException: unexpected payload", events.get(1).getError());
+    assertNull(events.get(2).getError());
+    events.forEach(event -> assertEquals(NOW, event.getProcessedAt()));
+    verify(webhookEventRepository).saveAll(events);
+  }
+
+  @Test
+  public void batch_whose_transaction_fails_is_processed_one_event_at_a_time() {
+    Course course = Course.builder().installationId("1234").build();
+    RosterStudent student = RosterStudent.builder().githubLogin("good").course(course).build();
+    List<WebhookEvent> events =
+        queue(
+            memberAdded("direct_member", "broken", "1234"),
+            memberAdded("direct_member", "good", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "good"))
+        .thenReturn(Optional.of(student));
+    // The batch and then the broken event's own transaction cannot be committed
+    String longMessage = "constraint violated ".repeat(20);
+    doThrow(new UnexpectedRollbackException(longMessage))
+        .doThrow(new UnexpectedRollbackException(longMessage))
+        .doNothing()
+        .when(transactionManager)
+        .commit(any());
+
+    webhookEventService.drain();
+
+    assertEquals(
+        ("UnexpectedRollbackException: " + longMessage).substring(0, 255),
+        events.get(0).getError());
+    assertNull(events.get(1).getError());
+    events.forEach(event -> assertEquals(NOW, event.getProcessedAt()));
+    assertEquals(OrgStatus.MEMBER, student.getOrgStatus());
+    verify(webhookEventRepository).save(events.get(0));
+    verify(webhookEventRepository).saveAll(List.of(events.get(1)));
+    // Once for the batch, once for each event on its own
+    verify(courseRepository, times(3)).findByInstallationIdIn(Set.of("1234"));
+  }
+
+  @Test
+  public void uninstall_clears_installation_and_org_name() {
+    Course course =
+        Course.builder().installationId("1234").orgName("ucsb-cs156-s25").githubOrgId(42).build();
+    List<WebhookEvent> events =
+        queue(
+            """
+            {"action": "deleted", "installation": {"id": "1234"}}
+            """,
+            memberInvited("testLogin", "1234"));
+    events.get(0).setEventType("installation");
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+
+    webhookEventService.drain();
+
+    ArgumentCaptor<Course> saved = ArgumentCaptor.forClass(Course.class);
+    verify(courseRepository, times(1)).save(saved.capture());
+    assertNull(saved.getValue().getInstallationId());
+    assertNull(saved.getValue().getOrgName());
+    assertNull(saved.getValue().getGithubOrgId());
+    verify(jwtService).evictInstallationToken("1234");
+    // The course is unlinked, so later events from the same installation find no course
+    verifyNoInteractions(rosterStudentRepository);
+  }
+
+  @Test
+  public void uninstall_without_installation_id_is_ignored() {
+    queueEvents(
+        "installation",
+        """
+        {"action": "deleted"}
+        """,
+        """
+        {"action": "deleted", "installation": {}}
+        """);
+
+    webhookEventService.drain();
+
+    verifyNoInteractions(courseRepository, jwtService);
+  }
+
+  @Test
+  public void uninstall_for_unknown_installation_still_evicts_token() {
+    queueEvents(
+        "installation",
+        """
+        {"action": "deleted", "installation": {"id": "1234"}}
+        """);
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of());
+
+    webhookEventService.drain();
+
+    verify(jwtService).evictInstallationToken("1234");
+    verify(courseRepository, never()).save(any());
+  }
+
+  @Test
+  public void drain_keeps_going_while_batches_are_full() {
+    ReflectionTestUtils.setField(webhookEventService, "batchSize", 2);
+    WebhookEvent first = WebhookEvent.builder().deliveryId("a").payload("{}").build();
+    WebhookEvent second = WebhookEvent.builder().deliveryId("b").payload("{}").build();
+    WebhookEvent third = WebhookEvent.builder().deliveryId("c").payload("{}").build();
+    when(webhookEventRepository.findByProcessedAtIsNullOrderByIdAsc(Limit.of(2)))
+        .thenReturn(List.of(first, second), List.of(third));
+
+    webhookEventService.drain();
+
+    verify(webhookEventRepository, times(2)).findByProcessedAtIsNullOrderByIdAsc(Limit.of(2));
+    assertEquals(NOW, third.getProcessedAt());
+  }
+
+  @Test
+  public void drain_with_empty_queue_only_purges_old_events() {
+    when(webhookEventRepository.findByProcessedAtIsNullOrderByIdAsc(Limit.of(100)))
+        .thenReturn(List.of());
+
+    webhookEventService.drain();
+
+    verify(webhookEventRepository, never()).saveAll(any());
+    verify(webhookEventRepository).deleteByProcessedAtBefore(NOW.minus(Duration.ofDays(7)));
+  }
+
+  @Test
+  public void member_removed_sends_student_and_staff_back_to_join_course() {
+    Course course = Course.builder().installationId("1234").build();
+    RosterStudent student =
+        RosterStudent.builder()
+            .githubLogin("testLogin")
+            .orgStatus(OrgStatus.MEMBER)
+            .course(course)
+            .build();
+    CourseStaff staff =
+        CourseStaff.builder().githubLogin("testLogin").orgStatus(OrgStatus.OWNER).build();
+    queue(memberRemoved("testLogin", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "testLogin"))
+        .thenReturn(Optional.of(student));
+    when(courseStaffRepository.findByCourseAndGithubLogin(course, "testLogin"))
+        .thenReturn(Optional.of(staff));
+
+    webhookEventService.drain();
+
+    assertEquals(OrgStatus.JOINCOURSE, student.getOrgStatus());
+    assertEquals(OrgStatus.JOINCOURSE, staff.getOrgStatus());
+    verify(githubShadowService).recordOrgMember(course, 42, "testLogin", OrgStatus.JOINCOURSE);
+    verify(rosterStudentRepository).save(student);
+    verify(courseStaffRepository).save(staff);
+    assertEquals(RECEIVED, course.getLastMembershipWebhookAt());
+  }
+
+  @Test
+  public void deliveries_without_event_type_are_handled_as_before() {
+    Course course = Course.builder().installationId("1234").build();
+    Course uninstalled = Course.builder().installationId("5678").build();
+    RosterStudent student = RosterStudent.builder().githubLogin("testLogin").course(course).build();
+    List<WebhookEvent> events =
+        queue(
+            memberAdded("direct_member", "testLogin", "1234"),
+            """
+            {"action": "deleted", "installation": {"id": "5678"}}
+            """);
+    events.forEach(event -> event.setEventType(null));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234", "5678")))
+        .thenReturn(List.of(course, uninstalled));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "testLogin"))
+        .thenReturn(Optional.of(student));
+
+    webhookEventService.drain();
+
+    assertEquals(OrgStatus.MEMBER, student.getOrgStatus());
+    assertNull(uninstalled.getInstallationId());
+    verify(jwtService).evictInstallationToken("5678");
+  }
+
+  @Test
+  public void deleted_events_of_other_types_do_not_uninstall() {
+    queue("""
+        {"action": "deleted", "installation": {"id": "1234"}}
+        """);
+
+    webhookEventService.drain();
+
+    verifyNoInteractions(courseRepository, jwtService);
+  }
+
+  @Test
+  public void team_membership_added_creates_team_member() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team = Team.builder().name("team").githubTeamId(7).build();
+    RosterStudent student = RosterStudent.builder().githubLogin("testLogin").build();
+    queueEvents("membership", teamMembership("added", "testLogin", 7, "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "testLogin"))
+        .thenReturn(Optional.of(student));
+    when(teamMemberRepository.findByTeamAndRosterStudent(team, student))
+        .thenReturn(Optional.empty());
+
+    webhookEventService.drain();
+
+    verify(githubShadowService)
+        .recordTeamMembership(course, 7, "testLogin", TeamStatus.TEAM_MEMBER);
+    verify(teamMemberRepository)
+        .save(
+            TeamMember.builder()
+                .team(team)
+                .rosterStudent(student)
+                .teamStatus(TeamStatus.TEAM_MEMBER)
+                .build());
+    verify(courseRepository, never()).save(any());
+  }
+
+  @Test
+  public void team_membership_added_updates_member_and_keeps_maintainer() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team = Team.builder().name("team").githubTeamId(7).build();
+    RosterStudent student = RosterStudent.builder().githubLogin("student").build();
+    RosterStudent maintainer = RosterStudent.builder().githubLogin("maintainer").build();
+    TeamMember studentMember =
+        TeamMember.builder().rosterStudent(student).teamStatus(TeamStatus.NOT_ORG_MEMBER).build();
+    TeamMember maintainerMember =
+        TeamMember.builder()
+            .rosterStudent(maintainer)
+            .teamStatus(TeamStatus.TEAM_MAINTAINER)
+            .build();
+    queueEvents(
+        "membership",
+        teamMembership("added", "student", 7, "1234"),
+        teamMembership("added", "maintainer", 7, "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "student"))
+        .thenReturn(Optional.of(student));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "maintainer"))
+        .thenReturn(Optional.of(maintainer));
+    when(teamMemberRepository.findByTeamAndRosterStudent(team, student))
+        .thenReturn(Optional.of(studentMember));
+    when(teamMemberRepository.findByTeamAndRosterStudent(team, maintainer))
+        .thenReturn(Optional.of(maintainerMember));
+
+    webhookEventService.drain();
+
+    assertEquals(TeamStatus.TEAM_MEMBER, studentMember.getTeamStatus());
+    assertEquals(TeamStatus.TEAM_MAINTAINER, maintainerMember.getTeamStatus());
+    verify(teamMemberRepository).save(studentMember);
+    verify(teamMemberRepository).save(maintainerMember);
+  }
+
+  @Test
+  public void team_membership_removed_marks_team_member_not_in_team() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team = Team.builder().name("team").githubTeamId(7).build();
+    RosterStudent student = RosterStudent.builder().githubLogin("student").build();
+    RosterStudent other = RosterStudent.builder().githubLogin("other").build();
+    TeamMember teamMember =
+        TeamMember.builder().rosterStudent(student).teamStatus(TeamStatus.TEAM_MEMBER).build();
+    queueEvents(
+        "membership",
+        teamMembership("removed", "student", 7, "1234"),
+        teamMembership("removed", "other", 7, "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "student"))
+        .thenReturn(Optional.of(student));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "other"))
+        .thenReturn(Optional.of(other));
+    when(teamMemberRepository.findByTeamAndRosterStudent(team, student))
+        .thenReturn(Optional.of(teamMember));
+    when(teamMemberRepository.findByTeamAndRosterStudent(team, other)).thenReturn(Optional.empty());
+
+    webhookEventService.drain();
+
+    assertEquals(TeamStatus.NOT_ORG_MEMBER, teamMember.getTeamStatus());
+    verify(teamMemberRepository, times(1)).save(any());
+    verify(githubShadowService).recordTeamMembership(course, 7, "student", null);
+    verify(githubShadowService).recordTeamMembership(course, 7, "other", null);
+  }
+
+  @Test
+  public void team_membership_for_unknown_team_or_student_is_ignored() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team = Team.builder().name("team").githubTeamId(7).build();
+    queueEvents(
+        "membership",
+        teamMembership("added", "student", 7, "1234"),
+        teamMembership("added", "student", 8, "1234"),
+        teamMembership("added", "student", 7, "5678"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234", "5678")))
+        .thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 8)).thenReturn(Optional.empty());
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "student"))
+        .thenReturn(Optional.empty());
+
+    webhookEventService.drain();
+
+    verifyNoInteractions(teamMemberRepository);
+  }
+
+  @Test
+  public void incomplete_team_events_are_ignored() {
+    queueEvents(
+        "membership",
+        """
+        {"action": "added", "team": {"id": 7}, "installation": {"id": "1234"}}
+        """,
+        """
+        {"action": "added", "member": {"login": "x"}, "installation": {"id": "1234"}}
+        """);
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of());
+
+    webhookEventService.drain();
+
+    verifyNoInteractions(
+        teamRepository, teamMemberRepository, rosterStudentRepository, githubShadowService);
+  }
+
+  @Test
+  public void incomplete_team_changes_are_ignored() {
+    List<WebhookEvent> events =
+        queueEvents(
+            "team",
+            """
+            {"action": "created", "team": {"name": "a", "slug": "a"},
+             "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "created", "team": {"id": 7, "slug": "a"}, "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "edited", "team": {"id": 7, "name": "a"}, "installation": {"id": "1234"}}
+            """,
+            """
+            {"action": "deleted", "team": {}, "installation": {"id": "1234"}}
+            """,
+            teamEvent("created", 7, "a", "a", "5678"),
+            teamEvent("deleted", 7, "a", "a", "5678"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234", "5678"))).thenReturn(List.of());
+
+    webhookEventService.drain();
+
+    verifyNoInteractions(teamRepository, jwtService, githubShadowService);
+    events.forEach(event -> assertEquals(NOW, event.getProcessedAt()));
+  }
+
+  @Test
+  public void team_created_creates_local_team() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    queueEvents("team", teamEvent("created", 7, "Team A", "team-a", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndName(1L, "Team A")).thenReturn(Optional.empty());
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.empty());
+
+    webhookEventService.drain();
+
+    verify(githubShadowService).recordTeam(course, new GithubTeamInfo(7, "Team A", "team-a"));
+    verify(teamRepository)
+        .save(
+            Team.builder()
+                .name("Team A")
+                .course(course)
+                .githubTeamId(7)
+                .githubTeamSlug("team-a")
+                .build());
+  }
+
+  @Test
+  public void team_created_links_local_team_with_same_name() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team = Team.builder().id(3L).name("Team A").course(course).build();
+    queueEvents("team", teamEvent("created", 7, "Team A", "team-a", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndName(1L, "Team A")).thenReturn(Optional.of(team));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.empty());
+
+    webhookEventService.drain();
+
+    assertEquals(7, team.getGithubTeamId());
+    assertEquals("team-a", team.getGithubTeamSlug());
+    verify(teamRepository).save(team);
+  }
+
+  @Test
+  public void team_edited_renames_local_team() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team =
+        Team.builder()
+            .id(3L)
+            .name("Old")
+            .course(course)
+            .githubTeamId(7)
+            .githubTeamSlug("old")
+            .build();
+    queueEvents("team", teamEvent("edited", 7, "New", "new", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndName(1L, "New")).thenReturn(Optional.empty());
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+
+    webhookEventService.drain();
+
+    assertEquals("New", team.getName());
+    assertEquals("new", team.getGithubTeamSlug());
+    verify(teamRepository).save(team);
+  }
+
+  @Test
+  public void team_edited_without_rename_keeps_name() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team =
+        Team.builder()
+            .id(3L)
+            .name("Same")
+            .course(course)
+            .githubTeamId(7)
+            .githubTeamSlug("old")
+            .build();
+    queueEvents("team", teamEvent("edited", 7, "Same", "same", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndName(1L, "Same")).thenReturn(Optional.of(team));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+
+    webhookEventService.drain();
+
+    assertEquals("Same", team.getName());
+    assertEquals("same", team.getGithubTeamSlug());
+    verify(teamRepository).save(team);
+  }
+
+  @Test
+  public void team_edited_does_not_rename_onto_another_local_team() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    Team team = Team.builder().id(3L).name("Old").course(course).githubTeamId(7).build();
+    Team other = Team.builder().id(4L).name("Taken").course(course).build();
+    queueEvents("team", teamEvent("edited", 7, "Taken", "taken", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndName(1L, "Taken")).thenReturn(Optional.of(other));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+
+    webhookEventService.drain();
+
+    assertEquals("Old", team.getName());
+    assertEquals("taken", team.getGithubTeamSlug());
+    verify(teamRepository).save(team);
+    assertNull(other.getGithubTeamId());
+  }
+
+  @Test
+  public void team_deleted_unlinks_local_team_and_its_members() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    TeamMember member = TeamMember.builder().teamStatus(TeamStatus.TEAM_MEMBER).build();
+    Team team =
+        Team.builder()
+            .id(3L)
+            .name("Team A")
+            .githubTeamId(7)
+            .githubTeamSlug("team-a")
+            .teamMembers(List.of(member))
+            .build();
+    Team empty = Team.builder().id(4L).name("Team B").githubTeamId(8).build();
+    queueEvents(
+        "team",
+        teamEvent("deleted", 7, "Team A", "team-a", "1234"),
+        teamEvent("deleted", 8, "Team B", "team-b", "1234"),
+        teamEvent("deleted", 9, "Team C", "team-c", "1234"));
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7)).thenReturn(Optional.of(team));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 8)).thenReturn(Optional.of(empty));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 9)).thenReturn(Optional.empty());
+
+    webhookEventService.drain();
+
+    assertNull(team.getGithubTeamId());
+    assertNull(team.getGithubTeamSlug());
+    assertEquals(TeamStatus.NOT_ORG_MEMBER, member.getTeamStatus());
+    assertNull(empty.getGithubTeamId());
+    verify(teamRepository).save(team);
+    verify(teamRepository).save(empty);
+    verify(githubShadowService).removeTeam(course, 7);
+    verify(githubShadowService).removeTeam(course, 8);
+    verify(githubShadowService).removeTeam(course, 9);
+  }
+
+  @Test
+  public void membership_event_without_github_id_does_not_update_shadow() {
+    Course course = Course.builder().installationId("1234").build();
+    queue(
+        """
+        {"action": "member_added",
+         "membership": {"role": "direct_member", "user": {"login": "testLogin"}},
+         "installation": {"id": "1234"}}
+        """);
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+
+    webhookEventService.drain();
+
+    assertEquals(RECEIVED, course.getLastMembershipWebhookAt());
+    verifyNoInteractions(githubShadowService);
+  }
+
+  @Test
+  public void repository_events_update_shadow() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    queueEvents(
+        "repository",
+        """
+        {"action": "created", "repository": {"name": "Project-A"},
+         "installation": {"id": "1234"}}
+        """,
+        """
+        {"action": "deleted", "repository": {"name": "project-b"},
+         "installation": {"id": "1234"}}
+        """);
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+
+    webhookEventService.drain();
+
+    verify(githubShadowService).recordRepositories(course, List.of("Project-A"));
+    verify(githubShadowService).removeRepository(course, "project-b");
+    verifyNoInteractions(jwtService);
+  }
+
+  @Test
+  public void failing_team_and_repository_handlers_do_not_hold_up_the_batch() {
+    Course course = Course.builder().id(1L).installationId("1234").build();
+    RosterStudent student = RosterStudent.builder().githubLogin("after").course(course).build();
+    List<WebhookEvent> events =
+        queue(
+            teamMembership("added", "someone", 7, "1234"),
+            teamEvent("created", 8, "Team 8", "team-8", "1234"),
+            """
+            {"action": "created", "repository": {"name": "project-a"},
+             "installation": {"id": "1234"}}
+            """,
+            memberAdded("direct_member", "after", "1234"));
+    events.get(0).setEventType("membership");
+    events.get(1).setEventType("team");
+    events.get(2).setEventType("repository");
+    when(courseRepository.findByInstallationIdIn(Set.of("1234"))).thenReturn(List.of(course));
+    when(teamRepository.findByCourseIdAndGithubTeamId(1L, 7))
+        .thenThrow(new IllegalStateException("team lookup failed"));
+    doThrow(new IllegalStateException("team shadow failed"))
+        .when(githubShadowService)
+        .recordTeam(course, new GithubTeamInfo(8, "Team 8", "team-8"));
+    doThrow(new IllegalStateException("repository shadow failed"))
+        .when(githubShadowService)
+        .recordRepositories(course, List.of("project-a"));
+    when(rosterStudentRepository.findByCourseAndGithubLogin(course, "after"))
+        .thenReturn(Optional.of(student));
+
+    webhookEventService.drain();
+
+    assertEquals("IllegalStateException: team lookup failed", events.get(0).getError());
+    assertEquals("IllegalStateException: team shadow failed", events.get(1).getError());
+    assertEquals("IllegalStateException: repository shadow failed", events.get(2).getError());
+    assertNull(events.get(3).getError());
+    assertEquals(OrgStatus.MEMBER, student.getOrgStatus());
+    events.forEach(event -> assertEquals(NOW, event.getProcessedAt()));
+    verify(teamRepository, never()).save(any());
+  }
+
+  @Test
+  public void incomplete_repository_events_are_ignored() {
+    queueEvents(
+        "repository",
+        """
+        {"action": "created", "repository": {}, "installation": {"id": "1234"}}
+        """,
+        """
+        {"action": "created", "repository": {"name": "a"}, "installation": {"id": "5678"}}
+        """);
+    when(courseRepository.findByInstallationIdIn(Set.of("1234", "5678"))).thenReturn(List.of());
+
+    webhookEventService.drain();
+
+    verifyNoInteractions(githubShadowService);
+  }
+}
@@ -4,6 +4,8 @@ import edu.ucsb.cs156.frontiers.services.CurrentUserService;
 import edu.ucsb.cs156.frontiers.services.GithubSignInService;
 import edu.ucsb.cs156.frontiers.services.GoogleSignInService;
 import edu.ucsb.cs156.frontiers.services.GrantedAuthoritiesService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
@@ -31,4 +33,9 @@ public class TestConfig {
   public GoogleSignInService googleSignInService() {
     return new MockGoogleSignInService();
   }
+
+  @Bean
+  public MeterRegistry meterRegistry() {
+    return new SimpleMeterRegistry();
+  }
 }
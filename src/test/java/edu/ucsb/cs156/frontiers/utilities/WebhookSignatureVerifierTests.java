@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.frontiers.utilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mockStatic;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+public class WebhookSignatureVerifierTests {
+
+  private static final String TEST_SECRET = "test_webhook_secret_123";
+  private static final byte[] PAYLOAD = "{\"action\":\"member_added\"}".getBytes();
+
+  private final WebhookSignatureVerifier verifier = new WebhookSignatureVerifier(TEST_SECRET);
+
+  private static String sign(byte[] payload, String secret) throws Exception {
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+    return "sha256=" + HexFormat.of().formatHex(mac.doFinal(payload));
+  }
+
+  /** Replaces the hex digit at the given index of a signature, counting from after "sha256=". */
+  private static String withDigit(String signature, int index, char digit) {
+    StringBuilder result = new StringBuilder(signature);
+    result.setCharAt("sha256=".length() + index, digit);
+    return result.toString();
+  }
+
+  @Test
+  public void valid_signature_is_accepted() throws Exception {
+    assertTrue(verifier.verify(PAYLOAD, sign(PAYLOAD, TEST_SECRET)));
+  }
+
+  @Test
+  public void signature_is_checked_against_the_raw_bytes() throws Exception {
+    // Not valid UTF-8, so it would not survive a round trip through a String
+    byte[] payload = {'{', (byte) 0xC3, (byte) 0x28, '}'};
+
+    assertTrue(verifier.verify(payload, sign(payload, TEST_SECRET)));
+  }
+
+  @Test
+  public void uppercase_hex_is_accepted() throws Exception {
+    String signature = sign(PAYLOAD, TEST_SECRET);
+    String upper = "sha256=" + signature.substring(7).toUpperCase(Locale.ROOT);
+
+    assertTrue(verifier.verify(PAYLOAD, upper));
+  }
+
+  @Test
+  public void signature_for_other_payload_is_rejected() throws Exception {
+    assertFalse(verifier.verify("{}".getBytes(), sign(PAYLOAD, TEST_SECRET)));
+  }
+
+  @Test
+  public void signature_with_other_secret_is_rejected() throws Exception {
+    assertFalse(verifier.verify(PAYLOAD, sign(PAYLOAD, "wrong_secret")));
+  }
+
+  @Test
+  public void signature_with_wrong_prefix_is_rejected() throws Exception {
+    String signature = sign(PAYLOAD, TEST_SECRET);
+
+    assertFalse(verifier.verify(PAYLOAD, "sha512=" + signature.substring(7)));
+  }
+
+  @Test
+  public void signature_with_wrong_length_is_rejected() throws Exception {
+    String signature = sign(PAYLOAD, TEST_SECRET);
+
+    assertFalse(verifier.verify(PAYLOAD, signature + "0"));
+    assertFalse(verifier.verify(PAYLOAD, signature.substring(0, signature.length() - 2)));
+  }
+
+  @Test
+  public void signature_with_non_hex_digits_is_rejected() throws Exception {
+    String signature = sign(PAYLOAD, TEST_SECRET);
+
+    assertFalse(verifier.verify(PAYLOAD, withDigit(signature, 0, 'z')));
+    assertFalse(verifier.verify(PAYLOAD, withDigit(signature, 1, 'z')));
+    // Digits outside of ASCII are not hex digits, even though Character.digit accepts them
+    assertFalse(verifier.verify(PAYLOAD, withDigit(signature, 0, '０')));
+  }
+
+  @Test
+  public void null_payload_or_signature_is_rejected() throws Exception {
+    assertFalse(verifier.verify(null, sign(PAYLOAD, TEST_SECRET)));
+    assertFalse(verifier.verify(PAYLOAD, null));
+  }
+
+  @Test
+  public void missing_secret_rejects_every_delivery() throws Exception {
+    String signature = sign(PAYLOAD, TEST_SECRET);
+
+    assertFalse(new WebhookSignatureVerifier(null).verify(PAYLOAD, signature));
+    assertFalse(new WebhookSignatureVerifier("").verify(PAYLOAD, signature));
+  }
+
+  @Test
+  public void verifier_can_be_reused_across_deliveries_and_threads() throws Exception {
+    byte[] other = "{\"action\":\"member_invited\"}".getBytes();
+    String signature = sign(PAYLOAD, TEST_SECRET);
+    String otherSignature = sign(other, TEST_SECRET);
+
+    assertFalse(verifier.verify(PAYLOAD, otherSignature));
+    assertTrue(verifier.verify(PAYLOAD, signature));
+    assertTrue(verifier.verify(other, otherSignature));
+    assertTrue(CompletableFuture.supplyAsync(() -> verifier.verify(PAYLOAD, signature)).join());
+  }
+
+  @Test
+  public void missing_hmac_algorithm_is_an_illegal_state() throws Exception {
+    String signature = sign(PAYLOAD, TEST_SECRET);
+    try (MockedStatic<Mac> mac = mockStatic(Mac.class)) {
+      mac.when(() -> Mac.getInstance("HmacSHA256"))
+          .thenThrow(new NoSuchAlgorithmException("HmacSHA256"));
+
+      assertThrows(IllegalStateException.class, () -> verifier.verify(PAYLOAD, signature));
+    }
+  }
+}